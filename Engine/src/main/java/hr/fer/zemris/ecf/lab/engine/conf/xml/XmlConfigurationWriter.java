@@ -77,7 +77,7 @@ public class XmlConfigurationWriter implements ConfigurationWriter {
             }
         }
 
-        if (!conf.registry.getEntryList().isEmpty()) {
+        if (conf.registry.size() > 0) {
             Element registry = doc.createElement("Registry");
             registry(registry, doc, conf);
             rootElement.appendChild(registry);
@@ -100,7 +100,7 @@ public class XmlConfigurationWriter implements ConfigurationWriter {
      * @param doc      document to be written on.
      */
     private void registry(Element registry, Document doc, Configuration conf) {
-        List<Entry> eList = conf.registry.getEntryList();
+        List<Entry> eList = conf.registry.getEntries();
         for (int i = 0; i < eList.size(); i++) {
             Entry e = eList.get(i);
             Element entry = doc.createElement("Entry");
@@ -123,7 +123,7 @@ public class XmlConfigurationWriter implements ConfigurationWriter {
         for (EntryBlock genotype : gList) {
             Element genType = doc.createElement(genotype.getName());
 
-            List<Entry> eList = genotype.getEntryList();
+            List<Entry> eList = genotype.getEntries();
             for (int i = 0; i < eList.size(); i++) {
                 Entry e = eList.get(i);
                 Element entry = doc.createElement("Entry");
@@ -150,7 +150,7 @@ public class XmlConfigurationWriter implements ConfigurationWriter {
         for (EntryBlock algorithm : aList) {
             Element algType = doc.createElement(algorithm.getName());
 
-            List<Entry> eList = algorithm.getEntryList();
+            List<Entry> eList = algorithm.getEntries();
             for (int i = 0; i < eList.size(); i++) {
                 Entry e = eList.get(i);
                 Element entry = doc.createElement("Entry");
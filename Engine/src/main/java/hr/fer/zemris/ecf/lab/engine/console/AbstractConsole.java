@@ -1,43 +1,303 @@
 package hr.fer.zemris.ecf.lab.engine.console;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 /**
  * Created by Domagoj on 16/05/15.
  */
 public abstract class AbstractConsole implements Console {
-  protected void runProcess(Job job, String... args) {
+  /**
+   * Time ECF gets to exit by itself after writing an error, before it is killed.
+   */
+  private static final long ERROR_GRACE_PERIOD = 500;
+  /**
+   * Processes that are running, killed when the application exits.
+   */
+  private static final Set<Process> RUNNING = ConcurrentHashMap.newKeySet();
+  private static final Map<Process, ScheduledFuture<?>> TIMEOUT_TASKS = new ConcurrentHashMap<>();
+  private static final Map<Job, ScheduledFuture<?>> GRACE_TASKS = new ConcurrentHashMap<>();
+  private static final ScheduledThreadPoolExecutor TIMEOUTS = new ScheduledThreadPoolExecutor(1, r -> {
+    Thread t = new Thread(r, "ecf-job-timeout");
+    t.setDaemon(true);
+    return t;
+  });
+
+  static {
+    TIMEOUTS.setRemoveOnCancelPolicy(true);
+    Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+      for (Process process : RUNNING) {
+        ProcessTree.destroy(process);
+      }
+    }, "ecf-job-cleanup"));
+  }
+
+  @Override
+  public void execute(Job job) {
+    executeAsync(job).join();
+  }
+
+  @Override
+  public void execute(Job job, File stdoutFile, File stderrFile) {
+    executeAsync(job, stdoutFile, stderrFile).join();
+  }
+
+  @Override
+  public void stream(Job job, File stdoutFile) {
+    streamAsync(job, stdoutFile).join();
+  }
+
+  @Override
+  public abstract CompletableFuture<Void> executeAsync(Job job);
+
+  @Override
+  public abstract CompletableFuture<Void> executeAsync(Job job, File stdoutFile, File stderrFile);
+
+  @Override
+  public abstract CompletableFuture<Void> streamAsync(Job job, File stdoutFile);
+
+  protected CompletableFuture<Void> runProcess(Job job, String... args) {
     try {
       File stdoutFile = File.createTempFile("ecflab-stdout", ".txt");
       File stderrFile = File.createTempFile("ecflab-stderr", ".txt");
-      runProcess(job, stdoutFile, stderrFile, args);
+      return runProcess(job, stdoutFile, stderrFile, args);
     } catch (IOException e) {
       e.printStackTrace();
       job.failed();
+      return CompletableFuture.completedFuture(null);
     }
   }
 
-  protected void runProcess(Job job, File stdoutFile, File stderrFile, String... args) {
+  protected CompletableFuture<Void> runProcess(Job job, File stdoutFile, File stderrFile, String... args) {
+    Process process;
     try {
       job.started();
 
       ProcessBuilder pb = new ProcessBuilder(args);
       pb.redirectOutput(stdoutFile);
       pb.redirectError(stderrFile);
-      Process process = pb.start();
-      process.waitFor();
-
-      ProcessOutput output = new ProcessOutput(new FileInputStream(stdoutFile), new FileInputStream(stderrFile));
-      job.finished(output);
+      process = start(job, pb);
+    } catch (IOException e) {
+      e.printStackTrace();
+      job.failed();
+      return CompletableFuture.completedFuture(null);
+    }
 
+    return watchProcess(job, process, stdoutFile, stderrFile).whenComplete((v, e) -> {
       stdoutFile.deleteOnExit();
       stderrFile.deleteOnExit();
-    } catch (IOException | InterruptedException e) {
+    });
+  }
+
+  /**
+   * Watches the job's process, which writes its output to the files, until it ends and then notifies the job.
+   *
+   * @param process Process which has been registered with {@link #register(Job, Process, boolean)}
+   * @return Future completed once the job has ended and its observer has been notified
+   */
+  protected CompletableFuture<Void> watchProcess(Job job, Process process, File stdoutFile, File stderrFile) {
+    // ECF's errors are found while it is running
+    ErrorScanner stdoutScanner = new ErrorScanner(stdoutFile, onError(job));
+    ErrorScanner stderrScanner = new ErrorScanner(stderrFile, onError(job));
+    Runnable poll = () -> {
+      stdoutScanner.tail(false);
+      stderrScanner.tail(false);
+    };
+    return ProcessSupervisor.getInstance().watch(process, null, null, poll).handle((exitCode, error) -> {
+      release(job, process);
+      endScan(stdoutScanner);
+      endScan(stderrScanner);
+      cancelGracePeriod(job);
+      if (endedEarly(job)) {
+        return null;
+      }
+      if (error instanceof LostProcessException) {
+        // expected if ECF has been killed outside of the application, there is nothing to print
+        job.failed();
+        return null;
+      }
+      try {
+        if (error != null) {
+          throw error;
+        }
+        ProcessOutput output = new ProcessOutput(new FileInputStream(stdoutFile), new FileInputStream(stderrFile));
+        job.finished(output);
+      } catch (Throwable e) {
+        e.printStackTrace();
+        job.failed();
+      }
+      return null;
+    });
+  }
+
+  protected CompletableFuture<Void> streamProcess(Job job, File stdoutFile, String... args) {
+    Process process;
+    File stderrFile;
+    try {
+      job.started();
+
+      stderrFile = File.createTempFile("ecflab-stderr", ".txt");
+      stderrFile.deleteOnExit();
+      ProcessBuilder pb = new ProcessBuilder(args);
+      pb.redirectError(stderrFile);
+      process = start(job, pb);
+    } catch (IOException e) {
       e.printStackTrace();
       job.failed();
+      return CompletableFuture.completedFuture(null);
+    }
+    // opened once the process has started, so it is not left open if the process can not be started
+    OutputStream tee;
+    try {
+      tee = stdoutFile != null ? new FileOutputStream(stdoutFile) : null;
+    } catch (IOException e) {
+      e.printStackTrace();
+      release(job, process);
+      job.failed();
+      return CompletableFuture.completedFuture(null);
+    }
+
+    // stdout is read by the supervisor while the process is running, so the job gets it as soon as it is written
+    ErrorScanner stdoutScanner = new ErrorScanner(onError(job));
+    ErrorScanner stderrScanner = new ErrorScanner(stderrFile, onError(job));
+    ProcessSupervisor.OutputSink sink = (bytes, offset, length) -> {
+      if (tee != null) {
+        tee.write(bytes, offset, length);
+      }
+      stdoutScanner.feed(bytes, offset, length);
+      job.output(bytes, offset, length);
+    };
+    Runnable poll = () -> stderrScanner.tail(false);
+    ProcessSupervisor supervisor = ProcessSupervisor.getInstance();
+    return supervisor.watch(process, process.getInputStream(), sink, poll).handle((exitCode, error) -> {
+      release(job, process);
+      stdoutScanner.end();
+      endScan(stderrScanner);
+      cancelGracePeriod(job);
+      try {
+        if (tee != null) {
+          tee.close();
+        }
+      } catch (IOException e) {
+        error = error != null ? error : e;
+      }
+      if (endedEarly(job)) {
+        return null;
+      }
+      try {
+        if (error != null) {
+          throw error;
+        }
+        InputStream stdout = stdoutFile != null ? new FileInputStream(stdoutFile) : new ByteArrayInputStream(new byte[0]);
+        ProcessOutput output = new ProcessOutput(stdout, new FileInputStream(stderrFile));
+        job.finished(output);
+      } catch (Throwable e) {
+        e.printStackTrace();
+        job.failed();
+      }
+      return null;
+    });
+  }
+
+  /**
+   * Starts the job's process, which is killed if the job is cancelled, its timeout expires or the application exits.
+   */
+  private static Process start(Job job, ProcessBuilder pb) throws IOException {
+    return register(job, pb.start(), true);
+  }
+
+  /**
+   * Attaches the process to the job, so it is killed if the job is cancelled or its timeout expires.
+   *
+   * @param killOnExit true if the process should be killed when the application exits
+   * @return The process
+   */
+  protected static Process register(Job job, Process process, boolean killOnExit) {
+    if (killOnExit) {
+      RUNNING.add(process);
+    }
+    if (!job.attach(process)) {
+      // cancelled while the process was starting
+      ProcessTree.destroy(process);
+    } else if (job.getTimeout() > 0) {
+      TIMEOUT_TASKS.put(process, TIMEOUTS.schedule(job::timeOut, job.getTimeout(), TimeUnit.MILLISECONDS));
+    }
+    return process;
+  }
+
+  /**
+   * Called once the job's process has ended.
+   */
+  private static void release(Job job, Process process) {
+    ScheduledFuture<?> timeout = TIMEOUT_TASKS.remove(process);
+    if (timeout != null) {
+      timeout.cancel(false);
+    }
+    job.attach(null);
+    if (process.isAlive()) {
+      ProcessTree.destroy(process);
+    }
+    RUNNING.remove(process);
+  }
+
+  /**
+   * Called with the first error ECF writes. ECF usually exits right after the error, so it is killed only if it is
+   * still running after a while (e.g. waiting for the rest of the generations to finish).
+   */
+  private static Consumer<String> onError(Job job) {
+    return error -> {
+      if (job.errorDetected(error)) {
+        GRACE_TASKS.put(job, TIMEOUTS.schedule(job::killOnError, ERROR_GRACE_PERIOD, TimeUnit.MILLISECONDS));
+      }
+    };
+  }
+
+  /**
+   * Called once the output of the ended process has been scanned, so no more errors can be found.
+   */
+  private static void cancelGracePeriod(Job job) {
+    ScheduledFuture<?> grace = GRACE_TASKS.remove(job);
+    if (grace != null) {
+      grace.cancel(false);
+    }
+  }
+
+  /**
+   * Reads the rest of the output once the process has ended, so the job knows about the error even if ECF has exited
+   * right after writing it.
+   */
+  private static void endScan(ErrorScanner scanner) {
+    scanner.tail(true);
+    scanner.end();
+  }
+
+  /**
+   * Notifies the job's observer if the job has been cancelled, has timed out or has been killed because of an error.
+   *
+   * @return true if the job has ended early
+   */
+  private static boolean endedEarly(Job job) {
+    if (job.isCancelled()) {
+      job.cancelled();
+      return true;
+    } else if (job.isTimedOut() || job.isKilledOnError()) {
+      job.failed();
+      return true;
     }
+    return false;
   }
 
   protected void print(String str) {
@@ -2,6 +2,7 @@ package hr.fer.zemris.ecf.lab.engine.console;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * This class is the Window's cmd implementation of {@link Console}.
@@ -28,17 +29,24 @@ public class CommandPrompt extends AbstractConsole {
   }
 
   @Override
-  public void execute(Job job) {
+  public CompletableFuture<Void> executeAsync(Job job) {
     String[] cmd = makeCommand(job);
     print(arrayToString(cmd));
-    runProcess(job, cmd);
+    return runProcess(job, cmd);
   }
 
   @Override
-  public void execute(Job job, File stdoutFile, File stderrFile) {
+  public CompletableFuture<Void> executeAsync(Job job, File stdoutFile, File stderrFile) {
     String[] cmd = makeCommand(job);
     print(arrayToString(cmd));
-    runProcess(job, stdoutFile, stderrFile, cmd);
+    return runProcess(job, stdoutFile, stderrFile, cmd);
+  }
+
+  @Override
+  public CompletableFuture<Void> streamAsync(Job job, File stdoutFile) {
+    String[] cmd = makeCommand(job);
+    print(arrayToString(cmd));
+    return streamProcess(job, stdoutFile, cmd);
   }
 
   private static String[] makeCommand(Job job) {
@@ -1,6 +1,7 @@
 package hr.fer.zemris.ecf.lab.engine.console;
 
 import java.io.File;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * This interface describes methods that are used for communication to the ECF through the different operating systems terminal/cmd.
@@ -29,4 +30,40 @@ public interface Console {
    * Used for executing a job with predefined stdout and stderr files. Used for live reading.
    */
   void execute(Job job, File stdoutFile, File stderrFile);
+
+  /**
+   * Used for executing a job whose stdout is read from the process pipe and given to the job's observer as it arrives
+   * (see {@link JobObserver#jobOutput(Job, byte[], int, int)}). Used for live reading without polling.
+   *
+   * @param stdoutFile File where stdout is also written, null if it should not be stored
+   */
+  void stream(Job job, File stdoutFile);
+
+  /**
+   * Starts the job without waiting for it to end, see {@link #execute(Job)}. By default the blocking method is called
+   * from another thread, consoles that start processes should watch them with the {@link ProcessSupervisor} instead.
+   *
+   * @return Future completed once the job has ended and its observer has been notified
+   */
+  default CompletableFuture<Void> executeAsync(Job job) {
+    return ProcessSupervisor.getInstance().runBlocking(() -> execute(job));
+  }
+
+  /**
+   * Starts the job without waiting for it to end, see {@link #execute(Job, File, File)}.
+   *
+   * @return Future completed once the job has ended and its observer has been notified
+   */
+  default CompletableFuture<Void> executeAsync(Job job, File stdoutFile, File stderrFile) {
+    return ProcessSupervisor.getInstance().runBlocking(() -> execute(job, stdoutFile, stderrFile));
+  }
+
+  /**
+   * Starts the job without waiting for it to end, see {@link #stream(Job, File)}.
+   *
+   * @return Future completed once the job has ended and its observer has been notified
+   */
+  default CompletableFuture<Void> streamAsync(Job job, File stdoutFile) {
+    return ProcessSupervisor.getInstance().runBlocking(() -> stream(job, stdoutFile));
+  }
 }
@@ -0,0 +1,286 @@
+package hr.fer.zemris.ecf.lab.engine.console;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@link Console} whose ECF processes keep running after the application exits. Every job gets its own directory in
+ * the workspace, with the job's description, the pid of the small shell that supervises ECF, ECF's exit code once it
+ * has ended and (unless other files are given) ECF's stdout and stderr. Processes are not killed when the application
+ * exits, a later session finds them with {@link #findJobs()} and collects them with {@link #reattach(Job)}.
+ * <p>
+ * Stdout can not be read from the pipe of a detached process, {@link #streamAsync(Job, File)} writes it to a file
+ * like {@link #executeAsync(Job, File, File)} and the job's observer does not get the streamed output.
+ */
+public class DetachedConsole extends AbstractConsole {
+
+  private static final String JOB_FILE = "job.properties";
+  private static final String STDOUT_FILE = "stdout.txt";
+  private static final String STDERR_FILE = "stderr.txt";
+
+  /**
+   * Runs ECF with stdin, stdout and stderr redirected, then writes its exit code. It is started in a new session (see
+   * {@link #UNIX_NEW_SESSION}), so ECF gets neither the hangup when the terminal the application was started from is
+   * closed nor the signals sent to the application's process group (e.g. Ctrl-C). Hangups are ignored as well.
+   * Arguments: job directory, stdout, stderr, ECF and its arguments.
+   */
+  private static final String UNIX_SUPERVISOR = "trap '' HUP; "
+      + "echo $$ > \"$0/pid.tmp\" && mv \"$0/pid.tmp\" \"$0/pid\"; "
+      + "out=$1; err=$2; shift 2; "
+      + "\"$@\" < /dev/null > \"$out\" 2> \"$err\"; "
+      + "echo $? > \"$0/exit.tmp\" && mv \"$0/exit.tmp\" \"$0/exit\"";
+  /**
+   * Runs the command in a new session, perl is used where setsid is not found (e.g. Mac OS X). Launcher is not a
+   * process group leader, so setsid does not fork and the launcher itself becomes the supervisor.
+   */
+  private static final String[] UNIX_NEW_SESSION = onPath("setsid") ? new String[]{"setsid"}
+      : new String[]{"perl", "-MPOSIX", "-e", "POSIX::setsid(); exec @ARGV or die $!"};
+
+  private final File workspace;
+  private final Map<Job, File> dirs = new ConcurrentHashMap<>();
+
+  /**
+   * @param workspace Directory with the directories of the jobs, created if it does not exist
+   */
+  public DetachedConsole(File workspace) {
+    this.workspace = workspace;
+  }
+
+  public File getWorkspace() {
+    return workspace;
+  }
+
+  @Override
+  public void pardump(String ecfPath, String pardumpPath) {
+    ConsoleFactory.createConsole().pardump(ecfPath, pardumpPath);
+  }
+
+  @Override
+  public CompletableFuture<Void> executeAsync(Job job) {
+    return executeAsync(job, null, null);
+  }
+
+  @Override
+  public CompletableFuture<Void> executeAsync(Job job, File stdoutFile, File stderrFile) {
+    File dir;
+    Process process;
+    try {
+      job.started();
+
+      workspace.mkdirs();
+      dir = Files.createTempDirectory(workspace.toPath(), "job-").toFile();
+      stdoutFile = stdoutFile != null ? stdoutFile : new File(dir, STDOUT_FILE);
+      stderrFile = stderrFile != null ? stderrFile : new File(dir, STDERR_FILE);
+      print(job.getEcfPath() + " " + job.getConfigPath() + " (detached: " + dir + ")");
+      process = register(job, launch(dir, job, stdoutFile, stderrFile), false);
+    } catch (IOException e) {
+      e.printStackTrace();
+      job.failed();
+      return CompletableFuture.completedFuture(null);
+    }
+    return collect(job, dir, process, stdoutFile, stderrFile);
+  }
+
+  @Override
+  public CompletableFuture<Void> streamAsync(Job job, File stdoutFile) {
+    return executeAsync(job, stdoutFile, null);
+  }
+
+  /**
+   * Finds the jobs in the workspace that have not been collected yet, e.g. because the application that started them
+   * has exited. They may still be running or may have ended in the meantime.
+   *
+   * @return Jobs, in the order they were started
+   */
+  public List<Job> findJobs() {
+    File[] files = workspace.listFiles(f -> f.isDirectory() && new File(f, JOB_FILE).exists());
+    if (files == null) {
+      return new ArrayList<>();
+    }
+    Arrays.sort(files, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+    List<Job> jobs = new ArrayList<>(files.length);
+    for (File dir : files) {
+      Job job = readJob(dir);
+      if (job != null) {
+        dirs.put(job, dir);
+        jobs.add(job);
+      }
+    }
+    return jobs;
+  }
+
+  /**
+   * @param job Job found by {@link #findJobs()}
+   * @return File with ECF's stdout
+   */
+  public File getStdoutFile(Job job) {
+    return new File(property(job, "stdout"));
+  }
+
+  /**
+   * @param job Job found by {@link #findJobs()}
+   * @return File with ECF's stderr
+   */
+  public File getStderrFile(Job job) {
+    return new File(property(job, "stderr"));
+  }
+
+  /**
+   * Watches the job found by {@link #findJobs()} until its ECF process ends, the job's observer is then notified as if
+   * the job had been started by this application. The job can be cancelled or given a timeout like any other job.
+   *
+   * @param job Job found by {@link #findJobs()}
+   * @return Future completed once the job has ended and its observer has been notified
+   */
+  public CompletableFuture<Void> reattach(Job job) {
+    File dir = dirs.get(job);
+    if (dir == null) {
+      throw new IllegalArgumentException("Job is not in the workspace: " + job.getConfigPath());
+    }
+    job.started();
+    Process process = register(job, new DetachedProcess(dir, null), false);
+    return collect(job, dir, process, getStdoutFile(job), getStderrFile(job));
+  }
+
+  /**
+   * Writes the job's description into its directory and starts ECF under the supervisor shell.
+   */
+  DetachedProcess launch(File dir, Job job, File stdoutFile, File stderrFile) throws IOException {
+    writeJob(dir, job, stdoutFile, stderrFile);
+    ProcessBuilder pb = new ProcessBuilder(command(dir, job, stdoutFile, stderrFile));
+    // supervisor writes nothing, its output must not be a pipe that is closed when the application exits
+    File supervisorLog = new File(dir, "supervisor.txt");
+    pb.redirectOutput(supervisorLog);
+    pb.redirectError(supervisorLog);
+    Process launcher = pb.start();
+    if (DetectOS.isWindows()) {
+      long pid = ProcessTree.pid(launcher);
+      if (pid >= 0) {
+        Files.write(new File(dir, DetachedProcess.PID_FILE).toPath(), String.valueOf(pid).getBytes());
+      }
+    }
+    return new DetachedProcess(dir, launcher);
+  }
+
+  /**
+   * Watches the process and deletes the job's directory once the job's observer has been notified.
+   */
+  private CompletableFuture<Void> collect(Job job, File dir, Process process, File stdoutFile, File stderrFile) {
+    dirs.put(job, dir);
+    return watchProcess(job, process, stdoutFile, stderrFile).whenComplete((v, e) -> {
+      dirs.remove(job);
+      delete(dir);
+    });
+  }
+
+  private static String[] command(File dir, Job job, File stdoutFile, File stderrFile) {
+    if (DetectOS.isWindows()) {
+      // delayed expansion, %errorlevel% would be expanded before ECF runs
+      String command = quote(job.getEcfPath()) + " " + quote(job.getConfigPath())
+          + " < NUL > " + quote(stdoutFile) + " 2> " + quote(stderrFile)
+          + " & echo !errorlevel! > " + quote(new File(dir, "exit.tmp"))
+          + " & move /y " + quote(new File(dir, "exit.tmp")) + " " + quote(new File(dir, DetachedProcess.EXIT_FILE));
+      return new String[]{"cmd.exe", "/v:on", "/c", "\"" + command + "\""};
+    }
+    List<String> command = new ArrayList<>(Arrays.asList(UNIX_NEW_SESSION));
+    command.addAll(Arrays.asList("sh", "-c", UNIX_SUPERVISOR, dir.getAbsolutePath(), stdoutFile.getAbsolutePath(),
+        stderrFile.getAbsolutePath(), job.getEcfPath(), job.getConfigPath()));
+    return command.toArray(new String[0]);
+  }
+
+  private static String quote(File file) {
+    return quote(file.getAbsolutePath());
+  }
+
+  private static String quote(String path) {
+    return "\"" + path + "\"";
+  }
+
+  private static boolean onPath(String program) {
+    String path = System.getenv("PATH");
+    if (path == null) {
+      return false;
+    }
+    for (String dir : path.split(File.pathSeparator)) {
+      if (new File(dir, program).canExecute()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static void writeJob(File dir, Job job, File stdoutFile, File stderrFile) throws IOException {
+    Properties properties = new Properties();
+    properties.setProperty("ecf", job.getEcfPath());
+    properties.setProperty("conf", job.getConfigPath());
+    properties.setProperty("deleteConf", String.valueOf(job.shouldDeleteConf()));
+    if (job.getRunId() != null) {
+      properties.setProperty("runId", job.getRunId().toString());
+    }
+    properties.setProperty("stdout", stdoutFile.getAbsolutePath());
+    properties.setProperty("stderr", stderrFile.getAbsolutePath());
+    // written under another name first, a job without its file is not found by findJobs
+    File tmp = new File(dir, JOB_FILE + ".tmp");
+    try (OutputStream out = new FileOutputStream(tmp)) {
+      properties.store(out, "ECF job");
+    }
+    if (!tmp.renameTo(new File(dir, JOB_FILE))) {
+      throw new IOException("Can not write " + new File(dir, JOB_FILE));
+    }
+  }
+
+  private static Job readJob(File dir) {
+    Properties properties = readProperties(dir);
+    if (properties == null) {
+      return null;
+    }
+    String runId = properties.getProperty("runId");
+    return new Job(properties.getProperty("ecf"), properties.getProperty("conf"),
+        Boolean.parseBoolean(properties.getProperty("deleteConf")), runId != null ? Integer.valueOf(runId) : null);
+  }
+
+  private static Properties readProperties(File dir) {
+    Properties properties = new Properties();
+    try (InputStream in = new FileInputStream(new File(dir, JOB_FILE))) {
+      properties.load(in);
+      return properties;
+    } catch (IOException | RuntimeException e) {
+      e.printStackTrace();
+      return null;
+    }
+  }
+
+  private String property(Job job, String key) {
+    File dir = dirs.get(job);
+    if (dir == null) {
+      throw new IllegalArgumentException("Job is not in the workspace: " + job.getConfigPath());
+    }
+    Properties properties = readProperties(dir);
+    if (properties == null || properties.getProperty(key) == null) {
+      throw new IllegalStateException("Broken job description: " + dir);
+    }
+    return properties.getProperty(key);
+  }
+
+  private static void delete(File dir) {
+    File[] files = dir.listFiles();
+    if (files != null) {
+      for (File file : files) {
+        file.delete();
+      }
+    }
+    dir.delete();
+  }
+}
@@ -0,0 +1,160 @@
+package hr.fer.zemris.ecf.lab.engine.console;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * ECF process started by {@link DetachedConsole}, known only by its job directory. The supervisor shell writes its pid
+ * to the "pid" file when it starts and the exit code of ECF to the "exit" file once ECF has ended, so the process can
+ * be watched (and killed) by any application, not only the one that has started it.
+ * <p>
+ * If the supervisor is no longer running and there is no exit code, the process has been lost (e.g. it was killed by
+ * the user) and {@link #exitValue()} throws {@link LostProcessException}.
+ */
+class DetachedProcess extends Process {
+
+  static final String PID_FILE = "pid";
+  static final String EXIT_FILE = "exit";
+
+  /**
+   * Checking whether a process with the pid is running may start a command (Java 8), so it is not done every time.
+   */
+  private static final long PID_CHECK_INTERVAL = 1000;
+  private static final long WAIT_INTERVAL = 100;
+  /**
+   * Supervisor writes its pid as soon as it starts, if there is no pid after this time it has never run.
+   */
+  private static final long PID_TIMEOUT = 10000;
+
+  private final File dir;
+  private final Process launcher;
+  private long pid = -1;
+  private long lastPidCheck;
+  private boolean pidAlive = true;
+
+  /**
+   * @param dir      Job directory
+   * @param launcher Supervisor process if it has been started by this application, null otherwise
+   */
+  DetachedProcess(File dir, Process launcher) {
+    this.dir = dir;
+    this.launcher = launcher;
+  }
+
+  /**
+   * @return Pid of the supervisor, -1 if it is not known yet
+   */
+  synchronized long getPid() {
+    if (pid < 0) {
+      pid = launcher != null ? ProcessTree.pid(launcher) : -1;
+      if (pid < 0) {
+        Long value = readNumber(PID_FILE);
+        pid = value != null ? value : -1;
+      }
+    }
+    return pid;
+  }
+
+  @Override
+  public synchronized boolean isAlive() {
+    if (new File(dir, EXIT_FILE).exists()) {
+      return false;
+    }
+    if (launcher != null) {
+      return launcher.isAlive();
+    }
+    long now = System.currentTimeMillis();
+    if (now - lastPidCheck >= PID_CHECK_INTERVAL) {
+      lastPidCheck = now;
+      long p = getPid();
+      if (p >= 0) {
+        pidAlive = ProcessTree.isAlive(p);
+      } else {
+        // pid of a process started through cmd.exe is not known on Java 8
+        pidAlive = DetectOS.isWindows() || now - dir.lastModified() < PID_TIMEOUT;
+      }
+    }
+    return pidAlive;
+  }
+
+  @Override
+  public int exitValue() {
+    Long exitCode = readNumber(EXIT_FILE);
+    if (exitCode != null) {
+      return exitCode.intValue();
+    }
+    if (isAlive()) {
+      throw new IllegalThreadStateException("ECF is running: " + dir);
+    }
+    // supervisor could have written the exit code just before it exited
+    exitCode = readNumber(EXIT_FILE);
+    if (exitCode == null) {
+      throw new LostProcessException("ECF has ended without an exit code: " + dir);
+    }
+    return exitCode.intValue();
+  }
+
+  @Override
+  public int waitFor() throws InterruptedException {
+    while (isAlive()) {
+      Thread.sleep(WAIT_INTERVAL);
+    }
+    try {
+      return exitValue();
+    } catch (LostProcessException e) {
+      return -1;
+    }
+  }
+
+  @Override
+  public void destroy() {
+    destroyForcibly();
+  }
+
+  @Override
+  public Process destroyForcibly() {
+    long p = getPid();
+    if (p >= 0) {
+      ProcessTree.destroy(p);
+    }
+    if (launcher != null) {
+      ProcessTree.destroy(launcher);
+    }
+    return this;
+  }
+
+  @Override
+  public OutputStream getOutputStream() {
+    return new OutputStream() {
+      @Override
+      public void write(int b) throws IOException {
+        throw new IOException("Detached process does not read its input");
+      }
+    };
+  }
+
+  @Override
+  public InputStream getInputStream() {
+    return new ByteArrayInputStream(new byte[0]);
+  }
+
+  @Override
+  public InputStream getErrorStream() {
+    return new ByteArrayInputStream(new byte[0]);
+  }
+
+  private Long readNumber(String name) {
+    try {
+      String text = new String(Files.readAllBytes(new File(dir, name).toPath()), StandardCharsets.UTF_8).trim();
+      return text.isEmpty() ? null : Long.valueOf(text);
+    } catch (IOException | NumberFormatException e) {
+      // not written (completely) yet
+      return null;
+    }
+  }
+}
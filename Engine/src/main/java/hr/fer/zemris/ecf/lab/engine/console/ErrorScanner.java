@@ -0,0 +1,114 @@
+package hr.fer.zemris.ecf.lab.engine.console;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+/**
+ * Finds the first line starting with "Error:" in the output of a running ECF process, so the job can be stopped as
+ * soon as ECF reports an error instead of when the process exits. Output is given in chunks of any size, either
+ * directly (streamed stdout) or by tailing the file the output is redirected to.
+ */
+class ErrorScanner {
+
+  private static final byte[] ERROR_PREFIX = "Error:".getBytes(StandardCharsets.US_ASCII);
+  private static final int MAX_LINE_LENGTH = 1024;
+  private static final long TAIL_INTERVAL = 200;
+  private static final int BUFFER_SIZE = 8 * 1024;
+
+  private final Consumer<String> onError;
+  private int matched = 0; // bytes of the prefix matched at the start of the line, -1 if the line does not match
+  private ByteArrayOutputStream line;
+  private boolean found;
+
+  private File file;
+  private long position;
+  private long lastTail;
+
+  /**
+   * @param onError Called with the first error line
+   */
+  ErrorScanner(Consumer<String> onError) {
+    this.onError = onError;
+  }
+
+  /**
+   * @param file    File the output is redirected to, read by {@link #tail(boolean)}
+   * @param onError Called with the first error line
+   */
+  ErrorScanner(File file, Consumer<String> onError) {
+    this(onError);
+    this.file = file;
+  }
+
+  void feed(byte[] bytes, int offset, int length) {
+    for (int i = offset; i < offset + length && !found; i++) {
+      byte b = bytes[i];
+      if (line != null) {
+        if (b == '\n' || b == '\r' || line.size() >= MAX_LINE_LENGTH) {
+          report();
+        } else {
+          line.write(b);
+        }
+      } else if (b == '\n') {
+        matched = 0;
+      } else if (matched >= 0) {
+        if (b == ERROR_PREFIX[matched]) {
+          matched++;
+          if (matched == ERROR_PREFIX.length) {
+            line = new ByteArrayOutputStream();
+            line.write(ERROR_PREFIX, 0, ERROR_PREFIX.length);
+          }
+        } else {
+          matched = -1;
+        }
+      }
+    }
+  }
+
+  /**
+   * Reads what has been written to the file since the previous call. Called often, the file is checked only every
+   * {@link #TAIL_INTERVAL} milliseconds unless the check is forced.
+   *
+   * @param force true if the file should be checked now (e.g. after the process has exited)
+   */
+  void tail(boolean force) {
+    long now = System.currentTimeMillis();
+    if (found || file == null || (!force && now - lastTail < TAIL_INTERVAL)) {
+      return;
+    }
+    lastTail = now;
+    long size = file.length();
+    if (size <= position) {
+      return;
+    }
+    try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+      in.seek(position);
+      byte[] buffer = new byte[BUFFER_SIZE];
+      int n;
+      while (!found && position < size && (n = in.read(buffer)) > 0) {
+        position += n;
+        feed(buffer, 0, n);
+      }
+    } catch (IOException e) {
+      // checked again next time
+    }
+  }
+
+  /**
+   * Called once the output has ended, the last line is reported even if it is not terminated.
+   */
+  void end() {
+    if (line != null && !found) {
+      report();
+    }
+  }
+
+  private void report() {
+    found = true;
+    onError.accept(new String(line.toByteArray(), StandardCharsets.UTF_8).trim());
+  }
+}
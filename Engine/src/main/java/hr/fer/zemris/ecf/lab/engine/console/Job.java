@@ -14,12 +14,29 @@ import hr.fer.zemris.ecf.lab.engine.task.TaskMannager;
  */
 public class Job {
 
+  /**
+   * State of the job.
+   */
+  public enum State {
+    INITIALIZED, RUNNING, FINISHED, FAILED, CANCELLED
+  }
+
   private String ecfPath;
   private String configPath;
   private boolean shouldDeleteConf;
   private Integer runId;
 
   private boolean finished;
+  private long startTime = -1;
+  private long endTime = -1;
+  private long timeout = 0;
+
+  private volatile State state = State.INITIALIZED;
+  private boolean cancelled;
+  private boolean timedOut;
+  private String error;
+  private boolean killedOnError;
+  private Process process;
 
   private JobObserver observer = null;
 
@@ -61,29 +78,171 @@ public class Job {
     this.observer = observer;
   }
 
+  /**
+   * @param timeout Wall time (in milliseconds) after which the job's process is killed and the job fails, 0 for no
+   *                timeout
+   */
+  public void setTimeout(long timeout) {
+    if (timeout < 0) {
+      throw new IllegalArgumentException("Timeout: " + timeout);
+    }
+    this.timeout = timeout;
+  }
+
+  public long getTimeout() {
+    return timeout;
+  }
+
+  /**
+   * Cancels the job. Job that has not started yet will not be started, the process (and its descendants) of the running
+   * job is killed. Job ends as {@link State#CANCELLED}. Does nothing if the job has already ended.
+   */
+  public void cancel() {
+    Process p;
+    synchronized (this) {
+      if (cancelled || hasEnded()) {
+        return;
+      }
+      cancelled = true;
+      p = process;
+    }
+    if (p != null) {
+      ProcessTree.destroy(p);
+    }
+  }
+
+  /**
+   * Called when the job's timeout expires, kills the process of the job.
+   */
+  void timeOut() {
+    Process p;
+    synchronized (this) {
+      if (cancelled || hasEnded()) {
+        return;
+      }
+      timedOut = true;
+      p = process;
+    }
+    if (p != null) {
+      ProcessTree.destroy(p);
+    }
+  }
+
+  /**
+   * Called when ECF has written an error line. Only the first error is kept.
+   *
+   * @param error Error line
+   * @return true if this is the first error
+   */
+  synchronized boolean errorDetected(String error) {
+    if (this.error != null) {
+      return false;
+    }
+    this.error = error;
+    return true;
+  }
+
+  /**
+   * Kills the process of the job because ECF has written an error, the job then fails. Nothing is done if the process
+   * has already ended.
+   */
+  void killOnError() {
+    Process p;
+    synchronized (this) {
+      if (process == null || cancelled || timedOut || hasEnded()) {
+        return;
+      }
+      killedOnError = true;
+      p = process;
+    }
+    ProcessTree.destroy(p);
+  }
+
+  /**
+   * @return First error line written by ECF, null if there was none
+   */
+  public synchronized String getError() {
+    return error;
+  }
+
+  /**
+   * @return true if the process of the job has been killed because ECF has written an error
+   */
+  public synchronized boolean isKilledOnError() {
+    return killedOnError;
+  }
+
+  /**
+   * @param process Process of the job, null once it has ended
+   * @return false if the job has been cancelled or has timed out (and the process should be killed)
+   */
+  synchronized boolean attach(Process process) {
+    this.process = process;
+    return !cancelled && !timedOut;
+  }
+
+  public synchronized boolean isCancelled() {
+    return cancelled;
+  }
+
+  public synchronized boolean isTimedOut() {
+    return timedOut;
+  }
+
+  public State getState() {
+    return state;
+  }
+
+  private boolean hasEnded() {
+    return state == State.FINISHED || state == State.FAILED || state == State.CANCELLED;
+  }
+
   public void started() {
+    state = State.RUNNING;
     finished = false;
+    startTime = System.currentTimeMillis();
+    endTime = -1;
     if (observer != null) {
       observer.jobStarted(this);
     }
   }
 
   public void finished(ProcessOutput output) {
+    state = State.FINISHED;
     finished = true;
+    endTime = System.currentTimeMillis();
     if (observer != null) {
       observer.jobFinished(this, output);
       observer = null;
     }
   }
 
+  public void output(byte[] bytes, int offset, int length) {
+    if (observer != null) {
+      observer.jobOutput(this, bytes, offset, length);
+    }
+  }
+
   public void failed() {
+    state = State.FAILED;
     finished = true;
+    endTime = System.currentTimeMillis();
     if (observer != null) {
       observer.jobFailed(this);
       observer = null;
     }
   }
 
+  public void cancelled() {
+    state = State.CANCELLED;
+    finished = true;
+    endTime = System.currentTimeMillis();
+    if (observer != null) {
+      observer.jobCancelled(this);
+      observer = null;
+    }
+  }
+
   public Integer getRunId() {
     return runId;
   }
@@ -91,4 +250,25 @@ public class Job {
   public boolean isFinished() {
     return finished;
   }
+
+  /**
+   * @return Time when the job started (in milliseconds), -1 if it has not started
+   */
+  public long getStartTime() {
+    return startTime;
+  }
+
+  /**
+   * @return Time when the job finished or failed (in milliseconds), -1 if it has not ended
+   */
+  public long getEndTime() {
+    return endTime;
+  }
+
+  /**
+   * @return Wall time of the job in milliseconds, from its start until it finished or failed, -1 if it has not ended
+   */
+  public long getDuration() {
+    return startTime < 0 || endTime < 0 ? -1 : endTime - startTime;
+  }
 }
@@ -7,5 +7,19 @@ public interface JobObserver {
 	void jobFinished(Job job, ProcessOutput output);
 
 	void jobFailed(Job job);
+
+	/**
+	 * Called if the job has been cancelled (see {@link Job#cancel()}), by default the job is treated as failed.
+	 */
+	default void jobCancelled(Job job) {
+		jobFailed(job);
+	}
+
+	/**
+	 * Called with the bytes of the job's stdout as soon as they are read, only if the job's output is streamed (see
+	 * {@link Console#stream(Job, java.io.File)}).
+	 */
+	default void jobOutput(Job job, byte[] bytes, int offset, int length) {
+	}
 	
 }
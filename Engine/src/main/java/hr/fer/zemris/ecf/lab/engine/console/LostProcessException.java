@@ -0,0 +1,14 @@
+package hr.fer.zemris.ecf.lab.engine.console;
+
+/**
+ * Thrown by {@link DetachedProcess#exitValue()} if ECF has ended without writing its exit code (e.g. it was killed
+ * together with its supervisor by the user). The job of such a process fails, it is not an error of the application.
+ */
+class LostProcessException extends IllegalStateException {
+
+  private static final long serialVersionUID = 1L;
+
+  LostProcessException(String message) {
+    super(message);
+  }
+}
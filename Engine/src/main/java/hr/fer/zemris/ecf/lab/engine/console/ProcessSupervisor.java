@@ -0,0 +1,310 @@
+package hr.fer.zemris.ecf.lab.engine.console;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Watches all the running ECF processes from one thread, so the number of threads does not grow with the number of
+ * processes. The thread polls the processes, reads the streamed stdout that is available without blocking and
+ * completes the process's future once it has exited. Streamed stdout is given to the sink (which parses it), and
+ * futures are completed (and the jobs' observers are called), by a small pool of threads, the same for all processes.
+ * Each process's stdout is given to its sink in order and its future is completed after all of it, but a large log
+ * of one process does not delay reading and exit detection of the others. A process whose sink has fallen more than
+ * {@value #MAX_PENDING_OUTPUT} bytes behind is not read until it catches up, so it waits on the full pipe.
+ * <p>
+ * The thread is started when the first process is watched and stops once there has been nothing to watch for a while.
+ */
+public class ProcessSupervisor {
+
+  private static final long POLL_INTERVAL = 20;
+  private static final long IDLE_TIMEOUT = 1000;
+  private static final long KEEP_ALIVE_SECONDS = 60;
+  private static final int BUFFER_SIZE = 8 * 1024;
+  private static final long MAX_PENDING_OUTPUT = 1 << 20;
+
+  private static final ProcessSupervisor INSTANCE = new ProcessSupervisor();
+
+  private final Queue<Watched> added = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger threadCount = new AtomicInteger();
+  private final ThreadPoolExecutor completion;
+  private final ExecutorService blocking;
+  private volatile boolean daemon = false;
+  private Thread thread;
+
+  private ProcessSupervisor() {
+    int threads = Runtime.getRuntime().availableProcessors();
+    completion = new ThreadPoolExecutor(threads, threads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+        new LinkedBlockingQueue<>(), r -> newThread(r, "ecf-job-completion-"));
+    completion.allowCoreThreadTimeOut(true);
+    blocking = new ThreadPoolExecutor(0, Integer.MAX_VALUE, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+        new SynchronousQueue<>(), r -> newThread(r, "ecf-console-"));
+  }
+
+  public static ProcessSupervisor getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * @param daemon true if threads that watch the processes should not keep the application alive
+   */
+  public void setDaemon(boolean daemon) {
+    this.daemon = daemon;
+  }
+
+  /**
+   * Watches the process until it exits.
+   *
+   * @param process Process
+   * @param stdout  Stdout of the process which is read while it is running, null if it is not read
+   * @param sink    Receives the bytes read from stdout
+   * @param poll    Called every time the process is checked while it is running (e.g. to tail its output files), null
+   *                if there is nothing to do
+   * @return Future completed with the exit code of the process, or exceptionally if stdout could not be read
+   */
+  CompletableFuture<Integer> watch(Process process, InputStream stdout, OutputSink sink, Runnable poll) {
+    Watched watched = new Watched(process, stdout, sink, poll, completion);
+    added.add(watched);
+    synchronized (this) {
+      if (thread == null) {
+        thread = newThread(this::supervise, "ecf-process-supervisor-");
+        thread.start();
+      }
+    }
+    return watched.future;
+  }
+
+  /**
+   * Runs the blocking call of a {@link Console} that can not run its jobs asynchronously.
+   *
+   * @param call Call that returns once the job has ended
+   * @return Future completed once the call has returned
+   */
+  CompletableFuture<Void> runBlocking(Runnable call) {
+    return CompletableFuture.runAsync(call, blocking);
+  }
+
+  private void supervise() {
+    List<Watched> watching = new ArrayList<>();
+    long idleSince = System.currentTimeMillis();
+    while (true) {
+      for (Watched w; (w = added.poll()) != null; ) {
+        watching.add(w);
+      }
+      if (watching.isEmpty()) {
+        synchronized (this) {
+          if (added.isEmpty() && System.currentTimeMillis() - idleSince > IDLE_TIMEOUT) {
+            thread = null;
+            return;
+          }
+        }
+      } else {
+        idleSince = System.currentTimeMillis();
+      }
+
+      boolean read = false;
+      for (Iterator<Watched> it = watching.iterator(); it.hasNext(); ) {
+        Watched w = it.next();
+        try {
+          w.checkSink();
+          if (w.isBehind()) {
+            // process stays alive at least until its output has been read, it is not checked until then
+            continue;
+          }
+          read |= w.drain();
+          if (w.poll != null) {
+            w.poll.run();
+          }
+          if (!w.process.isAlive()) {
+            // whatever the process has written before it exited is still in the pipe
+            w.drainAll();
+            int exitCode = w.process.exitValue();
+            w.close();
+            it.remove();
+            // after the output that is still being given to the sink
+            w.output.execute(() -> w.complete(exitCode));
+          }
+        } catch (IOException | RuntimeException e) {
+          w.close();
+          it.remove();
+          w.output.execute(() -> w.future.completeExceptionally(e));
+        }
+      }
+
+      if (!read) {
+        try {
+          Thread.sleep(POLL_INTERVAL);
+        } catch (InterruptedException e) {
+          // keeps watching, processes would be left without anybody to complete them
+        }
+      }
+    }
+  }
+
+  private Thread newThread(Runnable r, String prefix) {
+    Thread t = new Thread(r, prefix + threadCount.incrementAndGet());
+    t.setDaemon(daemon);
+    return t;
+  }
+
+  /**
+   * Receives the bytes of the streamed stdout.
+   */
+  interface OutputSink {
+    void write(byte[] bytes, int offset, int length) throws IOException;
+  }
+
+  private static class Watched {
+    private final Process process;
+    private final InputStream stdout;
+    private final OutputSink sink;
+    private final Runnable poll;
+    private final SerialExecutor output;
+    private final CompletableFuture<Integer> future = new CompletableFuture<>();
+    private final AtomicLong pending = new AtomicLong();
+    private volatile IOException sinkError;
+
+    Watched(Process process, InputStream stdout, OutputSink sink, Runnable poll, Executor executor) {
+      this.process = process;
+      this.stdout = stdout;
+      this.sink = sink;
+      this.poll = poll;
+      this.output = new SerialExecutor(executor);
+    }
+
+    /**
+     * @return true if the sink has too many bytes to process
+     */
+    boolean isBehind() {
+      return pending.get() > MAX_PENDING_OUTPUT;
+    }
+
+    /**
+     * @throws IOException If the sink has failed
+     */
+    void checkSink() throws IOException {
+      if (sinkError != null) {
+        throw sinkError;
+      }
+    }
+
+    /**
+     * Reads the bytes that are available without blocking, as long as the sink is not behind.
+     *
+     * @return true if anything has been read
+     */
+    boolean drain() throws IOException {
+      return drain(false);
+    }
+
+    /**
+     * Reads all the bytes that are available, once the process has exited.
+     */
+    void drainAll() throws IOException {
+      drain(true);
+    }
+
+    private boolean drain(boolean all) throws IOException {
+      if (stdout == null) {
+        return false;
+      }
+      boolean read = false;
+      int available;
+      while ((available = stdout.available()) > 0 && (all || !isBehind())) {
+        byte[] buffer = new byte[Math.min(available, BUFFER_SIZE)];
+        int n = stdout.read(buffer, 0, buffer.length);
+        if (n <= 0) {
+          break;
+        }
+        pending.addAndGet(n);
+        output.execute(() -> write(buffer, n));
+        read = true;
+      }
+      return read;
+    }
+
+    private void write(byte[] bytes, int length) {
+      try {
+        if (sinkError == null) {
+          sink.write(bytes, 0, length);
+        }
+      } catch (IOException e) {
+        sinkError = e;
+      } finally {
+        pending.addAndGet(-length);
+      }
+    }
+
+    void complete(int exitCode) {
+      if (sinkError != null) {
+        future.completeExceptionally(sinkError);
+      } else {
+        future.complete(exitCode);
+      }
+    }
+
+    void close() {
+      if (stdout != null) {
+        try {
+          stdout.close();
+        } catch (IOException e) {
+          // nothing more is read
+        }
+      }
+    }
+  }
+
+  /**
+   * Runs the tasks one after the other, in the order they were given, on the threads of the executor.
+   */
+  private static class SerialExecutor implements Executor {
+    private final Queue<Runnable> tasks = new ArrayDeque<>();
+    private final Executor executor;
+    private boolean active;
+
+    SerialExecutor(Executor executor) {
+      this.executor = executor;
+    }
+
+    @Override
+    public synchronized void execute(Runnable task) {
+      tasks.add(task);
+      if (!active) {
+        active = true;
+        executor.execute(this::runAll);
+      }
+    }
+
+    private void runAll() {
+      while (true) {
+        Runnable task;
+        synchronized (this) {
+          task = tasks.poll();
+          if (task == null) {
+            active = false;
+            return;
+          }
+        }
+        try {
+          task.run();
+        } catch (RuntimeException e) {
+          e.printStackTrace();
+        }
+      }
+    }
+  }
+}
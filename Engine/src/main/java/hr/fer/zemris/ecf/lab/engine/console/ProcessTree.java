@@ -0,0 +1,186 @@
+package hr.fer.zemris.ecf.lab.engine.console;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Kills a process together with its descendants (e.g. ECF started through cmd.exe on Windows).
+ * <p>
+ * Descendants can only be found through {@code ProcessHandle}, which is used if the application runs on Java 9 or
+ * newer. On Java 8 only the process itself is killed.
+ * <p>
+ * Processes that have not been started by this application (see {@link DetachedConsole}) are found by their pids,
+ * through {@code ProcessHandle} or, on Java 8, through the {@code kill} command on Unix.
+ */
+class ProcessTree {
+
+  private static final Method TO_HANDLE;
+  private static final Method DESCENDANTS;
+  private static final Method DESTROY_FORCIBLY;
+  private static final Method PID;
+  private static final Method OF;
+  private static final Method IS_ALIVE;
+
+  static {
+    Method toHandle = null;
+    Method descendants = null;
+    Method destroyForcibly = null;
+    Method pid = null;
+    Method of = null;
+    Method isAlive = null;
+    try {
+      Class<?> handle = Class.forName("java.lang.ProcessHandle");
+      toHandle = Process.class.getMethod("toHandle");
+      descendants = handle.getMethod("descendants");
+      destroyForcibly = handle.getMethod("destroyForcibly");
+      pid = Process.class.getMethod("pid");
+      of = handle.getMethod("of", long.class);
+      isAlive = handle.getMethod("isAlive");
+    } catch (ReflectiveOperationException e) {
+      // Java 8
+    }
+    TO_HANDLE = toHandle;
+    DESCENDANTS = descendants;
+    DESTROY_FORCIBLY = destroyForcibly;
+    PID = pid;
+    OF = of;
+    IS_ALIVE = isAlive;
+  }
+
+  private ProcessTree() {
+  }
+
+  /**
+   * Kills the process and its descendants, does not wait for them to end.
+   *
+   * @param process Process
+   */
+  static void destroy(Process process) {
+    // descendants are found before the process is killed, they could be moved to another parent after that
+    List<Object> descendants = descendants(process);
+    process.destroyForcibly();
+    for (Object handle : descendants) {
+      try {
+        DESTROY_FORCIBLY.invoke(handle);
+      } catch (ReflectiveOperationException | RuntimeException e) {
+        // process has already ended or can not be killed
+      }
+    }
+  }
+
+  /**
+   * @return Pid of the process, -1 if it is not known (Java 8)
+   */
+  static long pid(Process process) {
+    if (PID == null) {
+      return -1;
+    }
+    try {
+      return (Long) PID.invoke(process);
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      return -1;
+    }
+  }
+
+  /**
+   * @param pid Pid of a process that could have been started by another application
+   * @return true if the process is running, also if it can not be checked
+   */
+  static boolean isAlive(long pid) {
+    Object handle = handle(pid);
+    if (handle != null) {
+      try {
+        return (Boolean) IS_ALIVE.invoke(handle);
+      } catch (ReflectiveOperationException | RuntimeException e) {
+        return true;
+      }
+    }
+    if (OF != null) {
+      // no such process
+      return false;
+    }
+    if (DetectOS.isWindows()) {
+      return true;
+    }
+    try {
+      return new ProcessBuilder("kill", "-0", String.valueOf(pid)).start().waitFor() == 0;
+    } catch (IOException e) {
+      return true;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return true;
+    }
+  }
+
+  /**
+   * Kills the process with the given pid and its descendants, does not wait for them to end.
+   */
+  static void destroy(long pid) {
+    Object handle = handle(pid);
+    if (handle != null) {
+      List<Object> list = new ArrayList<>();
+      try {
+        Stream<?> stream = (Stream<?>) DESCENDANTS.invoke(handle);
+        for (Iterator<?> it = stream.iterator(); it.hasNext(); ) {
+          list.add(it.next());
+        }
+      } catch (ReflectiveOperationException | RuntimeException e) {
+        // only the process is killed
+      }
+      list.add(0, handle);
+      for (Object h : list) {
+        try {
+          DESTROY_FORCIBLY.invoke(h);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+          // process has already ended or can not be killed
+        }
+      }
+    } else if (OF == null && !DetectOS.isWindows()) {
+      try {
+        // children first, they are moved to another parent once the process is killed
+        new ProcessBuilder("pkill", "-KILL", "-P", String.valueOf(pid)).start().waitFor();
+        new ProcessBuilder("kill", "-KILL", String.valueOf(pid)).start();
+      } catch (IOException e) {
+        e.printStackTrace();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  /**
+   * @return ProcessHandle of the running process, null if there is no such process or on Java 8
+   */
+  private static Object handle(long pid) {
+    if (OF == null) {
+      return null;
+    }
+    try {
+      Optional<?> handle = (Optional<?>) OF.invoke(null, pid);
+      return handle.orElse(null);
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      return null;
+    }
+  }
+
+  private static List<Object> descendants(Process process) {
+    List<Object> list = new ArrayList<>();
+    if (TO_HANDLE == null) {
+      return list;
+    }
+    try {
+      Stream<?> stream = (Stream<?>) DESCENDANTS.invoke(TO_HANDLE.invoke(process));
+      for (Iterator<?> it = stream.iterator(); it.hasNext(); ) {
+        list.add(it.next());
+      }
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      // descendants are not known, only the process is killed
+    }
+    return list;
+  }
+}
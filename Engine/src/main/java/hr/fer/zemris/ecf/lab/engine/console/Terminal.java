@@ -2,6 +2,7 @@ package hr.fer.zemris.ecf.lab.engine.console;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * This class is the Unix'x terminal implementation of {@link Console}.
@@ -23,18 +24,26 @@ public class Terminal extends AbstractConsole {
     }
 
     @Override
-    public void execute(Job job) {
+    public CompletableFuture<Void> executeAsync(Job job) {
         String programPath = job.getEcfPath();
         String args = job.getConfigPath();
         print(programPath + " " + args);
-        runProcess(job, programPath, args);
+        return runProcess(job, programPath, args);
     }
 
     @Override
-    public void execute(Job job, File stdoutFile, File stderrFile) {
+    public CompletableFuture<Void> executeAsync(Job job, File stdoutFile, File stderrFile) {
         String programPath = job.getEcfPath();
         String args = job.getConfigPath();
         print(programPath + " " + args);
-        runProcess(job, stdoutFile, stderrFile, programPath, args);
+        return runProcess(job, stdoutFile, stderrFile, programPath, args);
+    }
+
+    @Override
+    public CompletableFuture<Void> streamAsync(Job job, File stdoutFile) {
+        String programPath = job.getEcfPath();
+        String args = job.getConfigPath();
+        print(programPath + " " + args);
+        return streamProcess(job, stdoutFile, programPath, args);
     }
 }
@@ -0,0 +1,421 @@
+package hr.fer.zemris.ecf.lab.engine.log;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * {@link ExperimentRun} that keeps its generations in primitive array columns instead of one {@link Generation},
+ * {@link Population}, {@link Deme} and {@link Stats} object per row. Demes of all generations are stored in the same
+ * columns, generation <code>g</code> owns deme rows from <code>demeStart[g]</code> to <code>demeStart[g + 1]</code>.
+ * <p>
+ * {@link #getGenerations()} returns a list view, every {@link List#get(int)} creates a new {@link Generation} with
+ * the values of the row, so changes of the returned generation are not written back (use {@link List#set(int,
+ * Object)} for that). Added generations are copied into the columns. Column getters (e.g. {@link
+ * #getPopulationMin(int)}) read the values without creating any objects and should be used for extracting series.
+ * <p>
+ * Missing stats are stored as {@link Double#NaN}.
+ */
+public class ColumnarExperimentRun extends ExperimentRun {
+
+  private static final int INITIAL_CAPACITY = 16;
+
+  private static final byte HAS_POPULATION = 1;
+  private static final byte HAS_POPULATION_STATS = 2;
+  private static final byte HAS_STATS = 1;
+
+  private final Generations generations = new Generations();
+
+  // generation columns
+  private int size;
+  private int[] ids;
+  private int[] elapsedTimes;
+  private byte[] flags;
+  private int[] populationEvaluations;
+  private double[] populationMax;
+  private double[] populationMin;
+  private double[] populationAvg;
+  private double[] populationStdev;
+  private String[] hallsOfFame;
+  private int[] demeStart;
+
+  // deme columns
+  private int demesSize;
+  private int[] demeIds;
+  private int[] demeEvaluations;
+  private byte[] demeFlags;
+  private double[] demeMax;
+  private double[] demeMin;
+  private double[] demeAvg;
+  private double[] demeStdev;
+
+  public ColumnarExperimentRun() {
+    this(INITIAL_CAPACITY, INITIAL_CAPACITY);
+  }
+
+  /**
+   * @param generations Expected number of generations
+   * @param demes       Expected number of demes in all generations
+   */
+  public ColumnarExperimentRun(int generations, int demes) {
+    super(null);
+    ids = new int[generations];
+    elapsedTimes = new int[generations];
+    flags = new byte[generations];
+    populationEvaluations = new int[generations];
+    populationMax = new double[generations];
+    populationMin = new double[generations];
+    populationAvg = new double[generations];
+    populationStdev = new double[generations];
+    demeStart = new int[generations + 1];
+    demeIds = new int[demes];
+    demeEvaluations = new int[demes];
+    demeFlags = new byte[demes];
+    demeMax = new double[demes];
+    demeMin = new double[demes];
+    demeAvg = new double[demes];
+    demeStdev = new double[demes];
+  }
+
+  /**
+   * Copy of the stored generations, hall of fame and other lines, which does not change when this run does. Columns
+   * of the copy are trimmed to the stored rows.
+   *
+   * @return Copy of this run
+   */
+  public ColumnarExperimentRun copy() {
+    ColumnarExperimentRun copy = new ColumnarExperimentRun(0, 0);
+    copy.size = size;
+    copy.ids = Arrays.copyOf(ids, size);
+    copy.elapsedTimes = Arrays.copyOf(elapsedTimes, size);
+    copy.flags = Arrays.copyOf(flags, size);
+    copy.populationEvaluations = Arrays.copyOf(populationEvaluations, size);
+    copy.populationMax = Arrays.copyOf(populationMax, size);
+    copy.populationMin = Arrays.copyOf(populationMin, size);
+    copy.populationAvg = Arrays.copyOf(populationAvg, size);
+    copy.populationStdev = Arrays.copyOf(populationStdev, size);
+    if (hallsOfFame != null) {
+      copy.hallsOfFame = Arrays.copyOf(hallsOfFame, size);
+    }
+    copy.demeStart = Arrays.copyOf(demeStart, size + 1);
+    copy.demesSize = demesSize;
+    copy.demeIds = Arrays.copyOf(demeIds, demesSize);
+    copy.demeEvaluations = Arrays.copyOf(demeEvaluations, demesSize);
+    copy.demeFlags = Arrays.copyOf(demeFlags, demesSize);
+    copy.demeMax = Arrays.copyOf(demeMax, demesSize);
+    copy.demeMin = Arrays.copyOf(demeMin, demesSize);
+    copy.demeAvg = Arrays.copyOf(demeAvg, demesSize);
+    copy.demeStdev = Arrays.copyOf(demeStdev, demesSize);
+    copy.setHallOfFame(getHallOfFame());
+    if (getOtherLines() != null) {
+      copy.setOtherLines(new ArrayList<>(getOtherLines()));
+    }
+    return copy;
+  }
+
+  @Override
+  public List<Generation> getGenerations() {
+    return generations;
+  }
+
+  /**
+   * @return Number of generations
+   */
+  public int getGenerationCount() {
+    return size;
+  }
+
+  public int getId(int generation) {
+    return ids[checkGeneration(generation)];
+  }
+
+  public int getElapsedTime(int generation) {
+    return elapsedTimes[checkGeneration(generation)];
+  }
+
+  public String getGenerationHallOfFame(int generation) {
+    checkGeneration(generation);
+    return hallsOfFame != null ? hallsOfFame[generation] : null;
+  }
+
+  public boolean hasPopulation(int generation) {
+    return (flags[checkGeneration(generation)] & HAS_POPULATION) != 0;
+  }
+
+  public boolean hasPopulationStats(int generation) {
+    return (flags[checkGeneration(generation)] & HAS_POPULATION_STATS) != 0;
+  }
+
+  public int getPopulationEvaluations(int generation) {
+    return populationEvaluations[checkGeneration(generation)];
+  }
+
+  public double getPopulationMax(int generation) {
+    return populationMax[checkGeneration(generation)];
+  }
+
+  public double getPopulationMin(int generation) {
+    return populationMin[checkGeneration(generation)];
+  }
+
+  public double getPopulationAvg(int generation) {
+    return populationAvg[checkGeneration(generation)];
+  }
+
+  public double getPopulationStdev(int generation) {
+    return populationStdev[checkGeneration(generation)];
+  }
+
+  public int getDemeCount(int generation) {
+    checkGeneration(generation);
+    return demeStart[generation + 1] - demeStart[generation];
+  }
+
+  public int getDemeId(int generation, int deme) {
+    return demeIds[demeRow(generation, deme)];
+  }
+
+  public int getDemeEvaluations(int generation, int deme) {
+    return demeEvaluations[demeRow(generation, deme)];
+  }
+
+  public boolean hasDemeStats(int generation, int deme) {
+    return (demeFlags[demeRow(generation, deme)] & HAS_STATS) != 0;
+  }
+
+  public double getDemeMax(int generation, int deme) {
+    return demeMax[demeRow(generation, deme)];
+  }
+
+  public double getDemeMin(int generation, int deme) {
+    return demeMin[demeRow(generation, deme)];
+  }
+
+  public double getDemeAvg(int generation, int deme) {
+    return demeAvg[demeRow(generation, deme)];
+  }
+
+  public double getDemeStdev(int generation, int deme) {
+    return demeStdev[demeRow(generation, deme)];
+  }
+
+  /**
+   * Shrinks the columns to the number of stored rows. Should be called once the run is complete.
+   */
+  public void trimToSize() {
+    if (size < ids.length) {
+      resizeGenerations(size);
+    }
+    if (demesSize < demeIds.length) {
+      resizeDemes(demesSize);
+    }
+  }
+
+  private int checkGeneration(int generation) {
+    if (generation < 0 || generation >= size) {
+      throw new IndexOutOfBoundsException("Generation: " + generation + ", size: " + size);
+    }
+    return generation;
+  }
+
+  private int demeRow(int generation, int deme) {
+    int count = getDemeCount(generation);
+    if (deme < 0 || deme >= count) {
+      throw new IndexOutOfBoundsException("Deme: " + deme + ", size: " + count);
+    }
+    return demeStart[generation] + deme;
+  }
+
+  private Generation generation(int g) {
+    Generation generation = new Generation(ids[g]);
+    generation.elapsedTime = elapsedTimes[g];
+    if (hallsOfFame != null) {
+      generation.hallOfFame = hallsOfFame[g];
+    }
+    if ((flags[g] & HAS_POPULATION) != 0) {
+      Population population = new Population();
+      population.evaluations = populationEvaluations[g];
+      if ((flags[g] & HAS_POPULATION_STATS) != 0) {
+        population.stats = stats(populationMax[g], populationMin[g], populationAvg[g], populationStdev[g]);
+      }
+      generation.population = population;
+    }
+    int from = demeStart[g];
+    int to = demeStart[g + 1];
+    generation.demes = new ArrayList<>(to - from);
+    for (int d = from; d < to; d++) {
+      Deme deme = new Deme();
+      deme.id = demeIds[d];
+      deme.evaluations = demeEvaluations[d];
+      if ((demeFlags[d] & HAS_STATS) != 0) {
+        deme.stats = stats(demeMax[d], demeMin[d], demeAvg[d], demeStdev[d]);
+      }
+      generation.demes.add(deme);
+    }
+    return generation;
+  }
+
+  private static Stats stats(double max, double min, double avg, double stdev) {
+    Stats stats = new Stats();
+    stats.max = max;
+    stats.min = min;
+    stats.avg = avg;
+    stats.stdev = stdev;
+    return stats;
+  }
+
+  /**
+   * Writes the generation into the row <code>g</code>, its demes are appended to the deme columns.
+   */
+  private void store(int g, Generation generation) {
+    ids[g] = generation.id;
+    elapsedTimes[g] = generation.elapsedTime;
+    if (generation.hallOfFame != null && hallsOfFame == null) {
+      hallsOfFame = new String[ids.length];
+    }
+    if (hallsOfFame != null) {
+      hallsOfFame[g] = generation.hallOfFame;
+    }
+
+    byte flag = 0;
+    Population population = generation.population;
+    Stats stats = population != null ? population.stats : null;
+    if (population != null) {
+      flag |= HAS_POPULATION;
+      populationEvaluations[g] = population.evaluations;
+    } else {
+      populationEvaluations[g] = 0;
+    }
+    if (stats != null) {
+      flag |= HAS_POPULATION_STATS;
+      populationMax[g] = stats.max;
+      populationMin[g] = stats.min;
+      populationAvg[g] = stats.avg;
+      populationStdev[g] = stats.stdev;
+    } else {
+      populationMax[g] = populationMin[g] = populationAvg[g] = populationStdev[g] = Double.NaN;
+    }
+    flags[g] = flag;
+
+    List<Deme> demes = generation.demes;
+    int count = demes != null ? demes.size() : 0;
+    if (demesSize + count > demeIds.length) {
+      resizeDemes(Math.max(demeIds.length * 2, demesSize + count));
+    }
+    for (int i = 0; i < count; i++) {
+      Deme deme = demes.get(i);
+      int d = demesSize++;
+      demeIds[d] = deme.id;
+      demeEvaluations[d] = deme.evaluations;
+      if (deme.stats != null) {
+        demeFlags[d] = HAS_STATS;
+        demeMax[d] = deme.stats.max;
+        demeMin[d] = deme.stats.min;
+        demeAvg[d] = deme.stats.avg;
+        demeStdev[d] = deme.stats.stdev;
+      } else {
+        demeFlags[d] = 0;
+        demeMax[d] = demeMin[d] = demeAvg[d] = demeStdev[d] = Double.NaN;
+      }
+    }
+    demeStart[g + 1] = demesSize;
+  }
+
+  private void resizeGenerations(int capacity) {
+    ids = Arrays.copyOf(ids, capacity);
+    elapsedTimes = Arrays.copyOf(elapsedTimes, capacity);
+    flags = Arrays.copyOf(flags, capacity);
+    populationEvaluations = Arrays.copyOf(populationEvaluations, capacity);
+    populationMax = Arrays.copyOf(populationMax, capacity);
+    populationMin = Arrays.copyOf(populationMin, capacity);
+    populationAvg = Arrays.copyOf(populationAvg, capacity);
+    populationStdev = Arrays.copyOf(populationStdev, capacity);
+    if (hallsOfFame != null) {
+      hallsOfFame = Arrays.copyOf(hallsOfFame, capacity);
+    }
+    demeStart = Arrays.copyOf(demeStart, capacity + 1);
+  }
+
+  private void resizeDemes(int capacity) {
+    demeIds = Arrays.copyOf(demeIds, capacity);
+    demeEvaluations = Arrays.copyOf(demeEvaluations, capacity);
+    demeFlags = Arrays.copyOf(demeFlags, capacity);
+    demeMax = Arrays.copyOf(demeMax, capacity);
+    demeMin = Arrays.copyOf(demeMin, capacity);
+    demeAvg = Arrays.copyOf(demeAvg, capacity);
+    demeStdev = Arrays.copyOf(demeStdev, capacity);
+  }
+
+  /**
+   * Moves the deme rows from the row <code>from</code> to the end of the columns by <code>delta</code> rows.
+   */
+  private void moveDemes(int from, int delta) {
+    if (demesSize + delta > demeIds.length) {
+      resizeDemes(Math.max(demeIds.length * 2, demesSize + delta));
+    }
+    int length = demesSize - from;
+    System.arraycopy(demeIds, from, demeIds, from + delta, length);
+    System.arraycopy(demeEvaluations, from, demeEvaluations, from + delta, length);
+    System.arraycopy(demeFlags, from, demeFlags, from + delta, length);
+    System.arraycopy(demeMax, from, demeMax, from + delta, length);
+    System.arraycopy(demeMin, from, demeMin, from + delta, length);
+    System.arraycopy(demeAvg, from, demeAvg, from + delta, length);
+    System.arraycopy(demeStdev, from, demeStdev, from + delta, length);
+    demesSize += delta;
+  }
+
+  /**
+   * View of the columns as a list of generations. Generations can be appended and replaced. If a replaced generation
+   * has a different number of demes, deme rows of the following generations are moved (which is cheap only for the
+   * last generation, the one that is usually replaced while the log is read).
+   */
+  private class Generations extends AbstractList<Generation> implements RandomAccess {
+
+    @Override
+    public Generation get(int index) {
+      return generation(checkGeneration(index));
+    }
+
+    @Override
+    public int size() {
+      return size;
+    }
+
+    @Override
+    public boolean add(Generation generation) {
+      if (size == ids.length) {
+        resizeGenerations(Math.max(ids.length * 2, INITIAL_CAPACITY));
+      }
+      store(size, generation);
+      size++;
+      modCount++;
+      return true;
+    }
+
+    @Override
+    public Generation set(int index, Generation generation) {
+      Generation previous = get(index);
+      int start = demeStart[index];
+      if (index == size - 1) {
+        demesSize = start;
+        store(index, generation);
+        return previous;
+      }
+      int count = generation.demes != null ? generation.demes.size() : 0;
+      int delta = count - (demeStart[index + 1] - start);
+      if (delta != 0) {
+        moveDemes(demeStart[index + 1], delta);
+        for (int g = index + 2; g <= size; g++) {
+          demeStart[g] += delta;
+        }
+      }
+      int end = demesSize;
+      demesSize = start;
+      store(index, generation);
+      demesSize = end;
+      return previous;
+    }
+  }
+}
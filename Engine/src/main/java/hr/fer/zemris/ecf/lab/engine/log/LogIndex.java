@@ -0,0 +1,295 @@
+package hr.fer.zemris.ecf.lab.engine.log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Byte offsets of the experiment runs ("Evaluating initial population..." lines) and of their generations
+ * ("Generation:" lines) in the log file, together with the generation ids. It allows reading any generation without
+ * parsing the log before it.
+ * <p>
+ * Index is stored next to the log in a compact binary sidecar file (see {@link #sidecar(Path)}): offsets and ids are
+ * delta encoded as variable length numbers. Size and modification time of the log are stored as well, so an outdated
+ * index can be detected with {@link #isValidFor(Path)}.
+ */
+public class LogIndex {
+
+  private static final int MAGIC = 0x45434649; // "ECFI"
+  private static final int VERSION = 1;
+  private static final String SUFFIX = ".idx";
+
+  private final long logSize;
+  private final long logModified;
+  private final long[] runOffsets;
+  private final long[][] generationOffsets;
+  private final int[][] generationIds;
+
+  private LogIndex(long logSize, long logModified, long[] runOffsets, long[][] generationOffsets,
+                   int[][] generationIds) {
+    this.logSize = logSize;
+    this.logModified = logModified;
+    this.runOffsets = runOffsets;
+    this.generationOffsets = generationOffsets;
+    this.generationIds = generationIds;
+  }
+
+  /**
+   * @param log Log file
+   * @return Path of the log's index file
+   */
+  public static Path sidecar(Path log) {
+    return log.resolveSibling(log.getFileName() + SUFFIX);
+  }
+
+  public int getRunCount() {
+    return runOffsets.length;
+  }
+
+  /**
+   * @param run Index of the run
+   * @return Offset of the run's "Evaluating initial population..." line
+   */
+  public long getRunOffset(int run) {
+    return runOffsets[run];
+  }
+
+  /**
+   * @param run Index of the run
+   * @return Offset of the first byte after the run
+   */
+  public long getRunEnd(int run) {
+    return run + 1 < runOffsets.length ? runOffsets[run + 1] : logSize;
+  }
+
+  public int getGenerationCount(int run) {
+    return generationOffsets[run].length;
+  }
+
+  /**
+   * @param run        Index of the run
+   * @param generation Index of the generation in the run
+   * @return Offset of the generation's "Generation:" line
+   */
+  public long getGenerationOffset(int run, int generation) {
+    return generationOffsets[run][generation];
+  }
+
+  /**
+   * @param run        Index of the run
+   * @param generation Index of the generation in the run
+   * @return Id of the generation (number from the "Generation:" line)
+   */
+  public int getGenerationId(int run, int generation) {
+    return generationIds[run][generation];
+  }
+
+  /**
+   * @param run Index of the run
+   * @param id  Id of the generation
+   * @return Index of the generation with the given id, or of the first generation after it if there is no such
+   * generation (generations are logged in increasing order)
+   */
+  public int findGeneration(int run, int id) {
+    int index = Arrays.binarySearch(generationIds[run], id);
+    return index >= 0 ? index : -index - 1;
+  }
+
+  /**
+   * @param log Log file
+   * @return true if the log has not been changed since the index was created
+   * @throws IOException If log's attributes can not be read
+   */
+  public boolean isValidFor(Path log) throws IOException {
+    return Files.size(log) == logSize && Files.getLastModifiedTime(log).toMillis() == logModified;
+  }
+
+  /**
+   * Writes the index to a temporary file next to the index file, which is then moved in place, so readers never see a
+   * partially written index and concurrent writers do not mix their files.
+   *
+   * @param file Index file
+   * @throws IOException If index can not be written
+   */
+  public void write(Path file) throws IOException {
+    Path tmp = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName().toString(), ".tmp");
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeLong(logSize);
+      out.writeLong(logModified);
+      writeVarLong(out, runOffsets.length);
+      long previousOffset = 0;
+      for (int r = 0; r < runOffsets.length; r++) {
+        writeVarLong(out, runOffsets[r] - previousOffset);
+        previousOffset = runOffsets[r];
+        long[] offsets = generationOffsets[r];
+        int[] ids = generationIds[r];
+        writeVarLong(out, offsets.length);
+        int previousId = 0;
+        for (int g = 0; g < offsets.length; g++) {
+          writeVarLong(out, offsets[g] - previousOffset);
+          previousOffset = offsets[g];
+          // ids usually grow, zig-zag keeps decreasing ones short as well
+          int delta = ids[g] - previousId;
+          writeVarLong(out, ((delta << 1) ^ (delta >> 31)) & 0xFFFFFFFFL);
+          previousId = ids[g];
+        }
+      }
+    } catch (IOException e) {
+      Files.deleteIfExists(tmp);
+      throw e;
+    }
+    Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /**
+   * @param file Index file
+   * @return Index
+   * @throws IOException If index can not be read or it is not a valid index file
+   */
+  public static LogIndex read(Path file) throws IOException {
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+      if (in.readInt() != MAGIC) {
+        throw new IOException("Not a log index: " + file);
+      }
+      int version = in.readInt();
+      if (version != VERSION) {
+        throw new IOException("Unsupported log index version: " + version);
+      }
+      long logSize = in.readLong();
+      long logModified = in.readLong();
+      int runs = readCount(in);
+      long[] runOffsets = new long[runs];
+      long[][] generationOffsets = new long[runs][];
+      int[][] generationIds = new int[runs][];
+      long offset = 0;
+      for (int r = 0; r < runs; r++) {
+        offset += readVarLong(in);
+        runOffsets[r] = offset;
+        int generations = readCount(in);
+        long[] offsets = new long[generations];
+        int[] ids = new int[generations];
+        int id = 0;
+        for (int g = 0; g < generations; g++) {
+          offset += readVarLong(in);
+          offsets[g] = offset;
+          int zigZag = (int) readVarLong(in);
+          id += (zigZag >>> 1) ^ -(zigZag & 1);
+          ids[g] = id;
+        }
+        generationOffsets[r] = offsets;
+        generationIds[r] = ids;
+      }
+      return new LogIndex(logSize, logModified, runOffsets, generationOffsets, generationIds);
+    }
+  }
+
+  private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+    while ((value & ~0x7FL) != 0) {
+      out.writeByte((int) (value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    out.writeByte((int) value);
+  }
+
+  private static long readVarLong(DataInputStream in) throws IOException {
+    long value = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      byte b = in.readByte();
+      value |= (long) (b & 0x7F) << shift;
+      if (b >= 0) {
+        return value;
+      }
+    }
+    throw new IOException("Malformed log index");
+  }
+
+  private static int readCount(DataInputStream in) throws IOException {
+    long count = readVarLong(in);
+    if (count < 0 || count > Integer.MAX_VALUE) {
+      throw new IOException("Malformed log index");
+    }
+    return (int) count;
+  }
+
+  /**
+   * Collects offsets while the log is being scanned.
+   */
+  public static class Builder {
+
+    private final List<Long> runOffsets = new ArrayList<>();
+    private final List<long[]> generationOffsets = new ArrayList<>();
+    private final List<int[]> generationIds = new ArrayList<>();
+
+    private long[] offsets;
+    private int[] ids;
+    private int generations;
+
+    /**
+     * @param offset Offset of the "Evaluating initial population..." line
+     */
+    public void addRun(long offset) {
+      finishRun();
+      runOffsets.add(offset);
+      offsets = new long[64];
+      ids = new int[64];
+    }
+
+    /**
+     * Adds generation to the last run.
+     *
+     * @param offset Offset of the "Generation:" line
+     * @param id     Id of the generation
+     */
+    public void addGeneration(long offset, int id) {
+      if (generations == offsets.length) {
+        offsets = Arrays.copyOf(offsets, generations * 2);
+        ids = Arrays.copyOf(ids, generations * 2);
+      }
+      offsets[generations] = offset;
+      ids[generations] = id;
+      generations++;
+    }
+
+    /**
+     * @return true if there is a run that generations can be added to
+     */
+    public boolean hasRun() {
+      return offsets != null;
+    }
+
+    /**
+     * @param logSize     Size of the scanned log
+     * @param logModified Last modification time of the scanned log in milliseconds
+     * @return Index
+     */
+    public LogIndex build(long logSize, long logModified) {
+      finishRun();
+      long[] runs = new long[runOffsets.size()];
+      for (int i = 0; i < runs.length; i++) {
+        runs[i] = runOffsets.get(i);
+      }
+      return new LogIndex(logSize, logModified, runs, generationOffsets.toArray(new long[0][]),
+          generationIds.toArray(new int[0][]));
+    }
+
+    private void finishRun() {
+      if (offsets != null) {
+        generationOffsets.add(Arrays.copyOf(offsets, generations));
+        generationIds.add(Arrays.copyOf(ids, generations));
+        offsets = null;
+        ids = null;
+        generations = 0;
+      }
+    }
+  }
+}
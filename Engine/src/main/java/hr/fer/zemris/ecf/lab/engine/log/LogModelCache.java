@@ -0,0 +1,335 @@
+package hr.fer.zemris.ecf.lab.engine.log;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Versioned binary format of the parsed {@link LogModel}, so a log that has not changed does not have to be parsed
+ * again. Cache file holds the path, size and modification time of the source log and the projection it was read with,
+ * followed by the runs: generation ids and other integers are delta/zig-zag encoded as variable length numbers, stats
+ * are stored as raw doubles. Runs are loaded as {@link ColumnarExperimentRun}s.
+ */
+public class LogModelCache {
+
+  private static final int MAGIC = 0x4543464D; // "ECFM"
+  private static final int VERSION = 1;
+
+  private static final byte HAS_POPULATION = 1;
+  private static final byte HAS_POPULATION_STATS = 2;
+  private static final byte HAS_HALL_OF_FAME = 4;
+
+  private LogModelCache() {
+  }
+
+  /**
+   * Writes the log to the cache file. File is written next to its final location under a name of its own first and
+   * moved in place, so readers never see a partially written cache and concurrent writers (e.g. with different
+   * projections) do not write into the same file.
+   *
+   * @param file           Cache file
+   * @param log            Log read from the source
+   * @param source         Source log file
+   * @param sourceSize     Size of the source when it was read
+   * @param sourceModified Modification time of the source (in milliseconds) when it was read
+   * @param projection     Identifier of the parts of the log that were read
+   * @throws IOException If cache can not be written
+   */
+  public static void write(Path file, LogModel log, Path source, long sourceSize, long sourceModified, int projection)
+      throws IOException {
+    Path tmp = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName().toString(), ".tmp");
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      writeString(out, source.toAbsolutePath().normalize().toString());
+      out.writeLong(sourceSize);
+      out.writeLong(sourceModified);
+      out.writeInt(projection);
+      if (log.errorOccured()) {
+        out.writeBoolean(true);
+        writeString(out, log.getError());
+      } else {
+        out.writeBoolean(false);
+        List<ExperimentRun> runs = log.getRuns();
+        writeVarInt(out, runs.size());
+        for (ExperimentRun run : runs) {
+          writeRun(out, run);
+        }
+      }
+    } catch (IOException e) {
+      Files.deleteIfExists(tmp);
+      throw e;
+    }
+    Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /**
+   * Reads the log from the cache file if it is the cache of the given source, the source has not been changed since
+   * and it was read with the given projection.
+   *
+   * @param file       Cache file
+   * @param source     Source log file
+   * @param projection Identifier of the parts of the log that are needed, cache is used if it holds all of them
+   *                   (if its projection has all the bits of this one)
+   * @return Cached log, null if there is no valid cache
+   */
+  public static LogModel read(Path file, Path source, int projection) {
+    if (!Files.isRegularFile(file)) {
+      return null;
+    }
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      if (channel.size() > Integer.MAX_VALUE) {
+        return null;
+      }
+      // read into the heap, mapped file could not be replaced on some systems while the mapping is alive
+      ByteBuffer in = ByteBuffer.allocate((int) channel.size());
+      while (in.hasRemaining()) {
+        if (channel.read(in) == -1) {
+          return null;
+        }
+      }
+      in.flip();
+      if (in.remaining() < 8 || in.getInt() != MAGIC || in.getInt() != VERSION) {
+        return null;
+      }
+      if (!readString(in).equals(source.toAbsolutePath().normalize().toString())
+          || in.getLong() != Files.size(source)
+          || in.getLong() != Files.getLastModifiedTime(source).toMillis()
+          || (in.getInt() & projection) != projection) {
+        return null;
+      }
+      if (in.get() != 0) {
+        return new LogModel(readString(in));
+      }
+      int count = readVarInt(in);
+      if (count < 0 || count > in.remaining()) {
+        return null;
+      }
+      List<ExperimentRun> runs = new ArrayList<>(count);
+      for (int i = 0; i < count; i++) {
+        runs.add(readRun(in));
+      }
+      return new LogModel(runs);
+    } catch (IOException | BufferUnderflowException | IllegalArgumentException e) {
+      // missing source, broken or truncated cache
+      return null;
+    }
+  }
+
+  private static void writeRun(DataOutputStream out, ExperimentRun experimentRun) throws IOException {
+    ColumnarExperimentRun run;
+    if (experimentRun instanceof ColumnarExperimentRun) {
+      run = (ColumnarExperimentRun) experimentRun;
+    } else {
+      run = new ColumnarExperimentRun();
+      run.getGenerations().addAll(experimentRun.getGenerations());
+    }
+    writeNullableString(out, experimentRun.getHallOfFame());
+    List<String> otherLines = experimentRun.getOtherLines();
+    writeVarInt(out, otherLines != null ? otherLines.size() + 1 : 0);
+    if (otherLines != null) {
+      for (String line : otherLines) {
+        writeString(out, line);
+      }
+    }
+
+    int size = run.getGenerationCount();
+    writeVarInt(out, size);
+    int demeCount = 0;
+    for (int g = 0; g < size; g++) {
+      demeCount += run.getDemeCount(g);
+    }
+    writeVarInt(out, demeCount);
+    int previousId = 0;
+    for (int g = 0; g < size; g++) {
+      int id = run.getId(g);
+      writeZigZag(out, id - previousId);
+      previousId = id;
+      writeZigZag(out, run.getElapsedTime(g));
+      String hallOfFame = run.getGenerationHallOfFame(g);
+      byte flags = 0;
+      if (run.hasPopulation(g)) {
+        flags |= HAS_POPULATION;
+        if (run.hasPopulationStats(g)) {
+          flags |= HAS_POPULATION_STATS;
+        }
+      }
+      if (hallOfFame != null) {
+        flags |= HAS_HALL_OF_FAME;
+      }
+      out.writeByte(flags);
+      if (run.hasPopulation(g)) {
+        writeZigZag(out, run.getPopulationEvaluations(g));
+        if (run.hasPopulationStats(g)) {
+          out.writeDouble(run.getPopulationMax(g));
+          out.writeDouble(run.getPopulationMin(g));
+          out.writeDouble(run.getPopulationAvg(g));
+          out.writeDouble(run.getPopulationStdev(g));
+        }
+      }
+      if (hallOfFame != null) {
+        writeString(out, hallOfFame);
+      }
+
+      int demes = run.getDemeCount(g);
+      writeVarInt(out, demes);
+      for (int d = 0; d < demes; d++) {
+        writeZigZag(out, run.getDemeId(g, d));
+        writeZigZag(out, run.getDemeEvaluations(g, d));
+        boolean stats = run.hasDemeStats(g, d);
+        out.writeBoolean(stats);
+        if (stats) {
+          out.writeDouble(run.getDemeMax(g, d));
+          out.writeDouble(run.getDemeMin(g, d));
+          out.writeDouble(run.getDemeAvg(g, d));
+          out.writeDouble(run.getDemeStdev(g, d));
+        }
+      }
+    }
+  }
+
+  private static ExperimentRun readRun(ByteBuffer in) {
+    String runHallOfFame = readNullableString(in);
+    List<String> lines = null;
+    int otherLines = readVarInt(in);
+    if (otherLines > 0) {
+      lines = new LinkedList<>();
+      for (int i = 1; i < otherLines; i++) {
+        lines.add(readString(in));
+      }
+    }
+    int size = readVarInt(in);
+    int demeCount = readVarInt(in);
+    if (size < 0 || demeCount < 0 || size > in.remaining() || demeCount > in.remaining()) {
+      throw new IllegalArgumentException("Malformed log cache");
+    }
+    // columns are allocated at once
+    ColumnarExperimentRun run = new ColumnarExperimentRun(size, demeCount);
+    run.setHallOfFame(runHallOfFame);
+    run.setOtherLines(lines);
+
+    // run copies the values, so the same objects are used for all rows
+    Generation generation = new Generation();
+    Population population = new Population();
+    Stats populationStats = new Stats();
+    List<Deme> demeObjects = new ArrayList<>();
+    List<Stats> demeStats = new ArrayList<>();
+
+    int id = 0;
+    for (int g = 0; g < size; g++) {
+      id += readZigZag(in);
+      generation.id = id;
+      generation.elapsedTime = readZigZag(in);
+      byte flags = in.get();
+      generation.population = null;
+      if ((flags & HAS_POPULATION) != 0) {
+        generation.population = population;
+        population.evaluations = readZigZag(in);
+        population.stats = null;
+        if ((flags & HAS_POPULATION_STATS) != 0) {
+          population.stats = readStats(in, populationStats);
+        }
+      }
+      generation.hallOfFame = (flags & HAS_HALL_OF_FAME) != 0 ? readString(in) : null;
+
+      int demes = readVarInt(in);
+      generation.demes.clear();
+      for (int d = 0; d < demes; d++) {
+        if (d == demeObjects.size()) {
+          demeObjects.add(new Deme());
+          demeStats.add(new Stats());
+        }
+        Deme deme = demeObjects.get(d);
+        deme.id = readZigZag(in);
+        deme.evaluations = readZigZag(in);
+        deme.stats = in.get() != 0 ? readStats(in, demeStats.get(d)) : null;
+        generation.demes.add(deme);
+      }
+      run.getGenerations().add(generation);
+    }
+    run.trimToSize();
+    return run;
+  }
+
+  private static Stats readStats(ByteBuffer in, Stats stats) {
+    stats.max = in.getDouble();
+    stats.min = in.getDouble();
+    stats.avg = in.getDouble();
+    stats.stdev = in.getDouble();
+    return stats;
+  }
+
+  private static void writeNullableString(DataOutputStream out, String str) throws IOException {
+    if (str == null) {
+      writeVarInt(out, 0);
+    } else {
+      byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+      writeVarInt(out, bytes.length + 1);
+      out.write(bytes);
+    }
+  }
+
+  private static String readNullableString(ByteBuffer in) {
+    int len = readVarInt(in);
+    return len == 0 ? null : readBytes(in, len - 1);
+  }
+
+  private static void writeString(DataOutputStream out, String str) throws IOException {
+    byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+    writeVarInt(out, bytes.length);
+    out.write(bytes);
+  }
+
+  private static String readString(ByteBuffer in) {
+    return readBytes(in, readVarInt(in));
+  }
+
+  private static String readBytes(ByteBuffer in, int len) {
+    if (len < 0 || len > in.remaining()) {
+      throw new BufferUnderflowException();
+    }
+    byte[] bytes = new byte[len];
+    in.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static void writeZigZag(DataOutputStream out, int value) throws IOException {
+    writeVarInt(out, (value << 1) ^ (value >> 31));
+  }
+
+  private static int readZigZag(ByteBuffer in) {
+    int value = readVarInt(in);
+    return (value >>> 1) ^ -(value & 1);
+  }
+
+  private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+    while ((value & ~0x7F) != 0) {
+      out.writeByte((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    out.writeByte(value);
+  }
+
+  private static int readVarInt(ByteBuffer in) {
+    int value = 0;
+    for (int shift = 0; shift < 35; shift += 7) {
+      byte b = in.get();
+      value |= (b & 0x7F) << shift;
+      if (b >= 0) {
+        return value;
+      }
+    }
+    throw new IllegalArgumentException("Malformed variable length number");
+  }
+}
@@ -0,0 +1,56 @@
+package hr.fer.zemris.ecf.lab.engine.log.reader;
+
+import hr.fer.zemris.ecf.lab.engine.log.LogModel;
+
+import java.nio.ByteBuffer;
+import java.util.Set;
+
+/**
+ * {@link DefaultLogReader} that can also read logs that are already in memory, without copying them through the
+ * stream buffer.
+ * <p>
+ * Thread safe, new parser is created for each reading.
+ */
+public class ByteLogReader extends DefaultLogReader {
+
+  public ByteLogReader() {
+  }
+
+  /**
+   * @param sections Sections of the log that are read, other sections are skipped
+   */
+  public ByteLogReader(Set<LogSection> sections) {
+    super(sections);
+  }
+
+  /**
+   * Reads the log from the buffer's position to its limit. Buffer's position is moved to the limit.
+   *
+   * @param buffer Buffer with the whole log
+   * @return Log model
+   */
+  public LogModel read(ByteBuffer buffer) {
+    LogModelBuilder builder = new LogModelBuilder();
+    read(buffer, builder);
+    return builder.getModel();
+  }
+
+  /**
+   * Reads the log from the buffer's position to its limit and gives its parts to the handler. Buffer's position is
+   * moved to the limit.
+   *
+   * @param buffer  Buffer with the whole log
+   * @param handler Handler of the log parts
+   */
+  public void read(ByteBuffer buffer, LogHandler handler) {
+    newParser(handler).end(buffer);
+  }
+
+  /**
+   * @param bytes The whole log
+   * @return Log model
+   */
+  public LogModel read(byte[] bytes) {
+    return read(ByteBuffer.wrap(bytes));
+  }
+}
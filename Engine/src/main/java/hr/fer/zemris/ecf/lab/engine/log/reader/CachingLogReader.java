@@ -0,0 +1,103 @@
+package hr.fer.zemris.ecf.lab.engine.log.reader;
+
+import hr.fer.zemris.ecf.lab.engine.log.LogModel;
+import hr.fer.zemris.ecf.lab.engine.log.LogModelCache;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+
+/**
+ * {@link LogReader} that keeps parsed log files in the binary cache (see {@link LogModelCache}). Log that has not been
+ * changed since it was cached is loaded from the cache instead of being parsed again. Cache is stored next to the log
+ * or in the given cache directory. If cache can not be written the log is just read with the given reader.
+ * <p>
+ * Streams are not cached.
+ */
+public class CachingLogReader implements LogReader {
+
+  private static final String SUFFIX = ".cache";
+
+  private final LogReader reader;
+  private final Path directory;
+
+  /**
+   * @param reader Reader the logs are parsed with, cache is stored next to the log
+   */
+  public CachingLogReader(LogReader reader) {
+    this(reader, null);
+  }
+
+  /**
+   * @param reader    Reader the logs are parsed with
+   * @param directory Directory the cache is stored in
+   */
+  public CachingLogReader(LogReader reader, Path directory) {
+    this.reader = reader;
+    this.directory = directory;
+  }
+
+  @Override
+  public LogModel read(InputStream is) {
+    return reader.read(is);
+  }
+
+  @Override
+  public LogModel read(Path path) {
+    Path cache = cacheFile(path);
+    int projection = projection();
+    LogModel log = LogModelCache.read(cache, path, projection);
+    if (log != null) {
+      return log;
+    }
+
+    long size;
+    long modified;
+    try {
+      // attributes are taken before parsing, so changes during the parsing make the cache outdated
+      size = Files.size(path);
+      modified = Files.getLastModifiedTime(path).toMillis();
+    } catch (IOException e) {
+      throw new LogReadingException(e);
+    }
+    log = reader.read(path);
+    try {
+      if (directory != null) {
+        Files.createDirectories(directory);
+      }
+      LogModelCache.write(cache, log, path, size, modified, projection);
+    } catch (IOException e) {
+      // cache is not writable, log will be parsed again next time
+    }
+    return log;
+  }
+
+  /**
+   * @param path Log file
+   * @return Path of the log's cache file
+   */
+  public Path cacheFile(Path path) {
+    String name = path.getFileName() + SUFFIX;
+    if (directory == null) {
+      return path.resolveSibling(name);
+    }
+    // logs with the same name from different directories
+    String absolute = path.toAbsolutePath().normalize().toString();
+    return directory.resolve(Integer.toHexString(absolute.hashCode()) + "-" + name);
+  }
+
+  /**
+   * @return Bits of the sections the reader reads
+   */
+  private int projection() {
+    Set<LogSection> sections = reader instanceof DefaultLogReader
+        ? ((DefaultLogReader) reader).getSections() : LogSection.all();
+    int projection = 0;
+    for (LogSection section : sections) {
+      projection |= 1 << section.ordinal();
+    }
+    return projection;
+  }
+}
@@ -0,0 +1,104 @@
+package hr.fer.zemris.ecf.lab.engine.log.reader;
+
+import hr.fer.zemris.ecf.lab.engine.log.LogModel;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reader that follows a log file which is still being written (e.g. stdout of the running ECF process). It remembers
+ * the byte offset and the parser state between the calls, so each {@link #refresh()} parses only the bytes appended
+ * since the previous one. Every call returns a new {@link LogModel}, the one being built is only used by the reader.
+ * <p>
+ * One instance should be used for one file.
+ */
+public class IncrementalLogReader {
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private final File file;
+  private LogModelBuilder builder = new LogModelBuilder();
+  private LogParser parser = new LogParser(builder);
+  private ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+  /**
+   * Offset of the first byte that has not been parsed yet.
+   */
+  private long position;
+  private boolean finished;
+
+  public IncrementalLogReader(File file) {
+    this.file = file;
+  }
+
+  /**
+   * Parses complete lines appended to the file since the last call.
+   *
+   * @return Log parsed so far
+   * @throws IOException If file can not be read
+   */
+  public synchronized LogModel refresh() throws IOException {
+    if (!finished) {
+      read(false);
+    }
+    return builder.getModel(parser);
+  }
+
+  /**
+   * Parses the rest of the file, including the last line even if it is not terminated. Should be called once the
+   * file will not grow anymore, further calls just return the same log.
+   *
+   * @return Whole log
+   * @throws IOException If file can not be read
+   */
+  public synchronized LogModel finish() throws IOException {
+    if (!finished) {
+      read(true);
+      finished = true;
+    }
+    return builder.getModel(parser);
+  }
+
+  /**
+   * @return Number of bytes parsed so far
+   */
+  public synchronized long getPosition() {
+    return position;
+  }
+
+  private void read(boolean end) throws IOException {
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      if (channel.size() < position) {
+        // file has been truncated, start over
+        builder = new LogModelBuilder();
+        parser = new LogParser(builder);
+        position = 0;
+      }
+
+      // buffer holds unparsed bytes starting at the position
+      buffer.clear();
+      while (channel.read(buffer, position + buffer.position()) > 0) {
+        buffer.flip();
+        parser.feed(buffer);
+        position += buffer.position();
+        buffer.compact();
+        if (!buffer.hasRemaining()) {
+          // line is longer than the buffer
+          ByteBuffer bigger = ByteBuffer.allocate(buffer.capacity() * 2);
+          buffer.flip();
+          bigger.put(buffer);
+          buffer = bigger;
+        }
+      }
+
+      if (end) {
+        buffer.flip();
+        parser.end(buffer);
+        position += buffer.position();
+      }
+    }
+  }
+}
@@ -0,0 +1,233 @@
+package hr.fer.zemris.ecf.lab.engine.log.reader;
+
+import hr.fer.zemris.ecf.lab.engine.log.ColumnarExperimentRun;
+import hr.fer.zemris.ecf.lab.engine.log.ExperimentRun;
+import hr.fer.zemris.ecf.lab.engine.log.LogIndex;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@link MappedLogReader} that can read any range of generations of a run without parsing the log before it. It uses
+ * the {@link LogIndex} stored next to the log. Index is created while the log is parsed the first time (or, if a range
+ * is read first, by scanning the log) and created again once the log changes. Loaded indexes are kept by the reader,
+ * so paging through the log reads the index only once.
+ * <p>
+ * Index is opt-in: the default readers of {@link LogReaderProvider#getReader()} do not write the sidecar, only this
+ * reader does (see {@link LogReaderProvider#getIndexedReader()}).
+ */
+public class IndexedLogReader extends MappedLogReader {
+
+  private final Map<Path, LogIndex> indexes = new ConcurrentHashMap<>();
+
+  public IndexedLogReader() {
+  }
+
+  /**
+   * @param sections Sections of the log that are read, other sections are skipped
+   */
+  public IndexedLogReader(Set<LogSection> sections) {
+    super(sections);
+  }
+
+  IndexedLogReader(Set<LogSection> sections, long chunkSize) {
+    super(sections, chunkSize);
+  }
+
+  /**
+   * Reads the whole log, see {@link MappedLogReader#read(Path, LogHandler)}. If the log has no valid index, the index is
+   * built from the same mapped chunks while they are parsed and stored next to the log.
+   *
+   * @param path    Path to the log file
+   * @param handler Handler of the log parts
+   */
+  @Override
+  public void read(Path path, LogHandler handler) {
+    Path sidecar = LogIndex.sidecar(path);
+    try {
+      if (loaded(path, sidecar) != null) {
+        super.read(path, handler);
+        return;
+      }
+      long modified = Files.getLastModifiedTime(path).toMillis();
+      LogIndex.Builder index = new LogIndex.Builder();
+      boolean indexing = true;
+      LogParser parser = newParser(handler);
+      long size;
+      try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+        size = channel.size();
+        long position = 0;
+        while (size - position > chunkSize) {
+          MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, chunkSize);
+          parser.feed(buffer);
+          if (buffer.position() == 0) {
+            throw new LogReadingException("Line at " + position + " is longer than " + chunkSize + " bytes");
+          }
+          // parser stops at the end of a line, the parsed lines are indexed
+          indexing = indexing && scanParsed(buffer, position, index);
+          position += buffer.position();
+        }
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, size - position);
+        parser.end(buffer);
+        if (indexing) {
+          scanParsed(buffer, position, index);
+        }
+      }
+      store(path, sidecar, index.build(size, modified));
+    } catch (IOException e) {
+      throw new LogReadingException(e);
+    }
+  }
+
+  /**
+   * Reads the generations of the run. The last generation of the run also includes the run's hall of fame, other
+   * lines are included if they are between the read generations.
+   *
+   * @param path Path to the log file
+   * @param run  Index of the run
+   * @param from Index of the first generation in the run (inclusive)
+   * @param to   Index of the last generation in the run (exclusive)
+   * @return Run with the generations from the range
+   * @throws IndexOutOfBoundsException If there is no such run or range
+   */
+  public ExperimentRun read(Path path, int run, int from, int to) {
+    LogModelBuilder builder = new LogModelBuilder();
+    read(path, run, from, to, builder);
+    if (builder.getModel().errorOccured()) {
+      // empty range
+      ExperimentRun empty = new ColumnarExperimentRun();
+      empty.setOtherLines(new LinkedList<>());
+      return empty;
+    }
+    return builder.getModel().getRuns().get(0);
+  }
+
+  /**
+   * Reads the generations of the run and gives their parts to the handler, see {@link #read(Path, int, int, int)}.
+   *
+   * @param path    Path to the log file
+   * @param run     Index of the run
+   * @param from    Index of the first generation in the run (inclusive)
+   * @param to      Index of the last generation in the run (exclusive)
+   * @param handler Handler of the log parts
+   * @throws IndexOutOfBoundsException If there is no such run or range
+   */
+  public void read(Path path, int run, int from, int to, LogHandler handler) {
+    LogIndex index = index(path);
+    if (run < 0 || run >= index.getRunCount()) {
+      throw new IndexOutOfBoundsException("Run: " + run + ", runs: " + index.getRunCount());
+    }
+    int count = index.getGenerationCount(run);
+    if (from < 0 || to > count || from > to) {
+      throw new IndexOutOfBoundsException("Range: " + from + "-" + to + ", generations: " + count);
+    }
+    if (from == to) {
+      return;
+    }
+    long start = index.getGenerationOffset(run, from);
+    long end = to < count ? index.getGenerationOffset(run, to) : index.getRunEnd(run);
+    LogParser parser = newParser(handler);
+    parser.startRun();
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      read(channel, start, end, parser);
+    } catch (IOException e) {
+      throw new LogReadingException(e);
+    }
+  }
+
+  /**
+   * Reads the index of the log from its sidecar file (see {@link LogIndex#sidecar(Path)}). If there is no index or the
+   * log has been changed, log is scanned and the new index is stored.
+   *
+   * @param path Path to the log file
+   * @return Index of the log
+   */
+  public LogIndex index(Path path) {
+    Path sidecar = LogIndex.sidecar(path);
+    try {
+      LogIndex index = loaded(path, sidecar);
+      if (index == null) {
+        index = scan(path);
+        store(path, sidecar, index);
+      }
+      return index;
+    } catch (IOException e) {
+      throw new LogReadingException(e);
+    }
+  }
+
+  /**
+   * @return Index kept by the reader or stored in the sidecar file, null if there is no index valid for the log
+   */
+  private LogIndex loaded(Path path, Path sidecar) throws IOException {
+    LogIndex loaded = indexes.get(path);
+    if (loaded != null && loaded.isValidFor(path)) {
+      return loaded;
+    }
+    if (Files.exists(sidecar)) {
+      try {
+        LogIndex index = LogIndex.read(sidecar);
+        if (index.isValidFor(path)) {
+          indexes.put(path, index);
+          return index;
+        }
+      } catch (IOException e) {
+        // broken index or index of the older version, it is created again
+      }
+    }
+    return null;
+  }
+
+  private void store(Path path, Path sidecar, LogIndex index) {
+    indexes.put(path, index);
+    try {
+      index.write(sidecar);
+    } catch (IOException e) {
+      // directory is not writable, index can still be used, it just will not be reused
+    }
+  }
+
+  /**
+   * Indexes the bytes of the buffer that have been parsed, from its beginning to its position.
+   *
+   * @return false if indexing should stop, see {@link LogScanner#scanIndex(ByteBuffer, long, boolean, LogIndex.Builder)}
+   */
+  private static boolean scanParsed(MappedByteBuffer buffer, long offset, LogIndex.Builder index) {
+    ByteBuffer parsed = buffer.duplicate();
+    parsed.limit(buffer.position());
+    parsed.position(0);
+    return LogScanner.scanIndex(parsed, offset, true, index);
+  }
+
+  private LogIndex scan(Path path) throws IOException {
+    // attributes are taken before scanning, so changes during the scan make the index outdated
+    long modified = Files.getLastModifiedTime(path).toMillis();
+    LogIndex.Builder index = new LogIndex.Builder();
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      long size = channel.size();
+      long position = 0;
+      while (position < size) {
+        long len = Math.min(chunkSize, size - position);
+        boolean end = position + len == size;
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, len);
+        if (!LogScanner.scanIndex(buffer, position, end, index)) {
+          break;
+        }
+        if (!end && buffer.position() == 0) {
+          throw new LogReadingException("Line at " + position + " is longer than " + chunkSize + " bytes");
+        }
+        position += buffer.position();
+      }
+      return index.build(size, modified);
+    }
+  }
+}
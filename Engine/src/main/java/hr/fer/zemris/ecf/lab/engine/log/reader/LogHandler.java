@@ -0,0 +1,70 @@
+package hr.fer.zemris.ecf.lab.engine.log.reader;
+
+import hr.fer.zemris.ecf.lab.engine.log.Deme;
+import hr.fer.zemris.ecf.lab.engine.log.Generation;
+import hr.fer.zemris.ecf.lab.engine.log.Population;
+
+/**
+ * Receives parts of the log as they are parsed (similar to SAX), so the log can be processed in a single pass without
+ * building the whole {@link hr.fer.zemris.ecf.lab.engine.log.LogModel}. Every part is given once it is complete,
+ * e.g. {@link #deme(Deme)} after all of its stats have been read and {@link #generation(Generation)} after all of its
+ * demes, population and hall of fame. Given objects are not reused by the parser, so they can be kept.
+ * <p>
+ * All methods do nothing by default. {@link LogModelBuilder} is the handler that builds the whole log model.
+ */
+public interface LogHandler {
+
+  /**
+   * Called when the first generation of a new experiment run is read.
+   */
+  default void runStarted() {
+  }
+
+  /**
+   * @param generation Complete generation with its demes, population and hall of fame ("Best in" block)
+   */
+  default void generation(Generation generation) {
+  }
+
+  /**
+   * Called for every deme before the {@link #generation(Generation)} it belongs to.
+   *
+   * @param deme Complete deme
+   */
+  default void deme(Deme deme) {
+  }
+
+  /**
+   * Called before the {@link #generation(Generation)} it belongs to.
+   *
+   * @param population Complete population
+   */
+  default void population(Population population) {
+  }
+
+  /**
+   * @param hallOfFame Hall of fame of the run ("Best of run" block), without the last new line
+   */
+  default void hallOfFame(String hallOfFame) {
+  }
+
+  /**
+   * @param line Line of the run that is not part of any generation
+   */
+  default void otherLine(String line) {
+  }
+
+  /**
+   * Called for every error line ("Error:" prefix) if the log starts with an error. No runs are read after that.
+   *
+   * @param line Error line
+   */
+  default void error(String line) {
+  }
+
+  /**
+   * Called at the end of every experiment run.
+   */
+  default void runFinished() {
+  }
+}
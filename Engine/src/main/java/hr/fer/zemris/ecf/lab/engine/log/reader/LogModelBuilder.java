@@ -0,0 +1,119 @@
+package hr.fer.zemris.ecf.lab.engine.log.reader;
+
+import hr.fer.zemris.ecf.lab.engine.log.ColumnarExperimentRun;
+import hr.fer.zemris.ecf.lab.engine.log.ExperimentRun;
+import hr.fer.zemris.ecf.lab.engine.log.Generation;
+import hr.fer.zemris.ecf.lab.engine.log.LogModel;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * {@link LogHandler} that builds the {@link LogModel}. Runs are stored as {@link ColumnarExperimentRun}s.
+ * {@link #getModel()} can be called while the log is still being parsed, it returns a new {@link LogModel} each time,
+ * which is not changed by the further parsing and can be given to another thread.
+ * <p>
+ * Not thread safe.
+ */
+public class LogModelBuilder implements LogHandler {
+
+  private final List<ExperimentRun> runs = new ArrayList<>();
+  private StringBuilder error;
+
+  private ColumnarExperimentRun run;
+
+  /**
+   * Last generation of the current run has been stored before it was complete.
+   */
+  private boolean pendingStored;
+
+  @Override
+  public void runStarted() {
+    run = new ColumnarExperimentRun();
+    run.setOtherLines(new LinkedList<>());
+    runs.add(run);
+    pendingStored = false;
+  }
+
+  @Override
+  public void generation(Generation generation) {
+    store(generation);
+    pendingStored = false;
+  }
+
+  @Override
+  public void hallOfFame(String hallOfFame) {
+    run.setHallOfFame(hallOfFame);
+  }
+
+  @Override
+  public void otherLine(String line) {
+    run.getOtherLines().add(line);
+  }
+
+  @Override
+  public void error(String line) {
+    if (error == null) {
+      error = new StringBuilder(line);
+    } else {
+      error.append(line).append("\n");
+    }
+  }
+
+  @Override
+  public void runFinished() {
+    run.trimToSize();
+    run = null;
+  }
+
+  /**
+   * Finished runs are shared with the returned log, since they do not change anymore, the current run is copied.
+   *
+   * @return Log built so far
+   */
+  public LogModel getModel() {
+    if (error != null) {
+      return new LogModel(error.toString());
+    }
+    if (runs.isEmpty()) {
+      return new LogModel("Empty file");
+    }
+    List<ExperimentRun> snapshot = new ArrayList<>(runs);
+    if (run != null) {
+      snapshot.set(snapshot.size() - 1, run.copy());
+    }
+    return new LogModel(snapshot);
+  }
+
+  /**
+   * Log built so far together with the parts that the parser has not completed yet, the same as if the log ended
+   * here.
+   *
+   * @param parser Parser that feeds this builder
+   * @return Log built so far
+   */
+  LogModel getModel(LogParser parser) {
+    if (run != null) {
+      Generation generation = parser.pendingGeneration();
+      if (generation != null) {
+        store(generation);
+        pendingStored = true;
+      }
+      String hallOfFame = parser.pendingHallOfFame();
+      if (hallOfFame != null) {
+        run.setHallOfFame(hallOfFame);
+      }
+    }
+    return getModel();
+  }
+
+  private void store(Generation generation) {
+    List<Generation> generations = run.getGenerations();
+    if (pendingStored) {
+      generations.set(generations.size() - 1, generation);
+    } else {
+      generations.add(generation);
+    }
+  }
+}
@@ -0,0 +1,656 @@
+package hr.fer.zemris.ecf.lab.engine.log.reader;
+
+import hr.fer.zemris.ecf.lab.engine.log.Deme;
+import hr.fer.zemris.ecf.lab.engine.log.Generation;
+import hr.fer.zemris.ecf.lab.engine.log.Population;
+import hr.fer.zemris.ecf.lab.engine.log.Stats;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Set;
+
+/**
+ * Push parser for the ECF log. It does not pull lines from a stream, it is fed with chunks of bytes as they become
+ * available and it keeps its state (current generation, deme or hall of fame block) between the calls. Only complete
+ * lines are consumed, the rest of the chunk is left for the next call. Parsed parts of the log are given to the
+ * {@link LogHandler}, parser itself keeps only the generation that is being read.
+ * <p>
+ * Lines are matched and numbers are parsed directly on the raw bytes, strings are created only for the lines that
+ * are given to the handler (hall of fame, other lines and errors). Sections of the log that are not in the projection
+ * (see {@link LogSection}) are only matched to keep track of the structure, nothing is parsed or given to the handler.
+ * <p>
+ * Not thread safe.
+ */
+class LogParser {
+
+  private static final Charset CHARSET = Charset.defaultCharset();
+
+  static final byte[] ERROR_PREFIX = bytes("Error:");
+  static final byte[] GENERATION_PREFIX = bytes("Generation:");
+  private static final byte[] POPULATION_PREFIX = bytes("Population:");
+  private static final byte[] DEME_PREFIX = bytes("Deme:");
+  private static final byte[] ELAPSED_TIME_PREFIX = bytes("Elapsed time:");
+  private static final byte[] BEST_OF_RUN_PREFIX = bytes("Best of run:");
+  private static final byte[] BEST_IN_PREFIX = bytes("Best in");
+  private static final byte[] EVALUATIONS_PREFIX = bytes("Evaluations:");
+  private static final byte[] STATS_PREFIX = bytes("Stats:");
+  static final byte[] EVALUATING_INITIAL_POPULATION = bytes("Evaluating initial population...");
+
+  private static final byte[] MAX_PREFIX = bytes("max:");
+  private static final byte[] MIN_PREFIX = bytes("min:");
+  private static final byte[] AVG_PREFIX = bytes("avg:");
+  private static final byte[] STDEV_PREFIX = bytes("stdev:");
+
+  private static final byte[] NAN = bytes("nan");
+  private static final byte[] INF = bytes("inf");
+  private static final byte[] MINUS_INF = bytes("-inf");
+  private static final byte[] MINUS_SPACE_INF = bytes("- inf");
+
+  /**
+   * Mantissas with more significant digits can not be exactly represented as double.
+   */
+  private static final int MAX_FAST_DIGITS = 15;
+  private static final double[] POWERS_OF_TEN = {
+      1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+      1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+  };
+
+  private enum State {
+    /**
+     * Before the first run, looking for errors or start of the run.
+     */
+    START,
+    /**
+     * Error occurred, only error lines are collected.
+     */
+    ERROR,
+    /**
+     * Start of the run has been read, next line is the first generation.
+     */
+    FIRST_GENERATION,
+    /**
+     * Inside of the generation.
+     */
+    GENERATION,
+    /**
+     * Inside of the deme or population block, before the stats.
+     */
+    EVALS,
+    /**
+     * Inside of the stats block.
+     */
+    STATS,
+    /**
+     * Inside of the generation's or run's hall of fame block.
+     */
+    HALL_OF_FAME
+  }
+
+  private final LogHandler handler;
+
+  // projection
+  private final boolean readPopulation;
+  private final boolean readDemes;
+  private final boolean readFirstDeme;
+  private final boolean readGenerationHallOfFame;
+  private final boolean readHallOfFame;
+  private final boolean readOtherLines;
+
+  private State state = State.START;
+  private boolean error;
+
+  private Generation generation;
+  private Deme deme;
+  private Population population;
+  private Stats stats;
+  private boolean runHallOfFame;
+  private boolean skipHallOfFame;
+  private int demeIndex;
+
+  // raw bytes of the hall of fame block that is being read
+  private byte[] hallOfFame = new byte[1024];
+  private int hallOfFameLength;
+
+  // deme has been added to the generation by pendingGeneration() before it was complete
+  private boolean demeAdded;
+
+  LogParser(LogHandler handler) {
+    this(handler, LogSection.all());
+  }
+
+  /**
+   * @param handler  Handler of the parsed log parts
+   * @param sections Sections of the log that are parsed
+   */
+  LogParser(LogHandler handler, Set<LogSection> sections) {
+    this.handler = handler;
+    readPopulation = sections.contains(LogSection.POPULATION);
+    readDemes = sections.contains(LogSection.DEMES);
+    readFirstDeme = sections.contains(LogSection.FIRST_DEME);
+    readGenerationHallOfFame = sections.contains(LogSection.GENERATION_HALL_OF_FAME);
+    readHallOfFame = sections.contains(LogSection.HALL_OF_FAME);
+    readOtherLines = sections.contains(LogSection.OTHER_LINES);
+  }
+
+  /**
+   * Parses all complete lines from the buffer's position to its limit. Buffer's position is moved to the beginning of
+   * the first incomplete line (or to the limit if there is none).
+   *
+   * @param buffer Buffer with the log bytes
+   */
+  void feed(ByteBuffer buffer) {
+    int start = buffer.position();
+    int limit = buffer.limit();
+    for (int i = start; i < limit; i++) {
+      if (buffer.get(i) == '\n') {
+        line(buffer, start, i);
+        start = i + 1;
+      }
+    }
+    buffer.position(start);
+  }
+
+  /**
+   * Parses the rest of the log. The last line does not have to be terminated. After this call parser should not be
+   * fed anymore.
+   *
+   * @param buffer Buffer with the last bytes of the log
+   */
+  void end(ByteBuffer buffer) {
+    feed(buffer);
+    if (buffer.hasRemaining()) {
+      line(buffer, buffer.position(), buffer.limit());
+      buffer.position(buffer.limit());
+    }
+    switch (state) {
+      case GENERATION:
+      case EVALS:
+      case STATS:
+      case HALL_OF_FAME:
+        finishRun();
+        break;
+      default:
+        break;
+    }
+  }
+
+  /**
+   * Parser will read the following lines as an experiment run that starts with the next line (which has to be a
+   * "Generation:" line), e.g. for parsing only a part of the run.
+   */
+  void startRun() {
+    state = State.FIRST_GENERATION;
+  }
+
+  /**
+   * @return true if error occurred before the first run
+   */
+  boolean errorOccurred() {
+    return error;
+  }
+
+  /**
+   * Generation that is still being read, as it would be given to the handler if the log ended here (including the
+   * current deme and the hall of fame read so far). Generation is updated in place by the further parsing.
+   *
+   * @return Current generation, null if there is none
+   */
+  Generation pendingGeneration() {
+    if (generation == null) {
+      return null;
+    }
+    if (deme != null && !demeAdded) {
+      generation.demes.add(deme);
+      demeAdded = true;
+    }
+    if (state == State.HALL_OF_FAME && !runHallOfFame && !skipHallOfFame) {
+      generation.hallOfFame = hallOfFameString();
+    }
+    return generation;
+  }
+
+  /**
+   * @return Hall of fame of the run read so far if it is still being read, null otherwise
+   */
+  String pendingHallOfFame() {
+    return state == State.HALL_OF_FAME && runHallOfFame && !skipHallOfFame ? hallOfFameString() : null;
+  }
+
+  /**
+   * @return true if "Evaluating initial population..." line would be read as the start of the next run in the current
+   * state, i.e. if log can be split into independently parsed parts before such line
+   */
+  boolean canStartRun() {
+    return state == State.GENERATION || state == State.EVALS || state == State.STATS;
+  }
+
+  private void line(ByteBuffer b, int start, int end) {
+    if (end > start && b.get(end - 1) == '\r') {
+      end--;
+    }
+    switch (state) {
+      case START:
+        if (startsWith(b, start, end, ERROR_PREFIX)) {
+          error = true;
+          handler.error(decode(b, start, end));
+          state = State.ERROR;
+        } else if (startsWith(b, start, end, EVALUATING_INITIAL_POPULATION)) {
+          state = State.FIRST_GENERATION;
+        }
+        break;
+      case ERROR:
+        if (startsWith(b, start, end, ERROR_PREFIX)) {
+          handler.error(decode(b, start, end));
+        }
+        break;
+      case FIRST_GENERATION:
+        newGeneration(b, start, end);
+        handler.runStarted();
+        state = State.GENERATION;
+        break;
+      case GENERATION:
+        generationLine(b, start, end);
+        break;
+      case EVALS:
+        evalsLine(b, start, end);
+        break;
+      case STATS:
+        statsLine(b, start, end);
+        break;
+      case HALL_OF_FAME:
+        hallOfFameLine(b, start, end);
+        break;
+    }
+  }
+
+  private void generationLine(ByteBuffer b, int start, int end) {
+    if (startsWith(b, start, end, ELAPSED_TIME_PREFIX)) {
+      generation.elapsedTime = parseIntValue(b, start, end);
+    } else if (startsWith(b, start, end, DEME_PREFIX)) {
+      // deme and population that are not read stay null, their blocks are skipped
+      if (readDemes || (readFirstDeme && demeIndex == 0)) {
+        deme = new Deme();
+        deme.id = parseIntValue(b, start, end);
+        demeAdded = false;
+      }
+      demeIndex++;
+      state = State.EVALS;
+    } else if (startsWith(b, start, end, POPULATION_PREFIX)) {
+      if (readPopulation) {
+        population = new Population();
+        generation.population = population;
+      }
+      state = State.EVALS;
+    } else if (startsWith(b, start, end, GENERATION_PREFIX)) {
+      handler.generation(generation);
+      newGeneration(b, start, end);
+    } else if (startsWith(b, start, end, BEST_OF_RUN_PREFIX)) {
+      handler.generation(generation);
+      generation = null;
+      startHallOfFame(true, !readHallOfFame);
+    } else if (startsWith(b, start, end, BEST_IN_PREFIX)) {
+      startHallOfFame(false, !readGenerationHallOfFame);
+    } else if (startsWith(b, start, end, EVALUATING_INITIAL_POPULATION)) {
+      finishRun();
+      state = State.FIRST_GENERATION;
+    } else if (readOtherLines) {
+      handler.otherLine(decode(b, start, end));
+    }
+  }
+
+  private void newGeneration(ByteBuffer b, int start, int end) {
+    generation = new Generation(parseIntValue(b, start, end));
+    demeIndex = 0;
+  }
+
+  private void startHallOfFame(boolean run, boolean skip) {
+    hallOfFameLength = 0;
+    runHallOfFame = run;
+    skipHallOfFame = skip;
+    state = State.HALL_OF_FAME;
+  }
+
+  private void evalsLine(ByteBuffer b, int start, int end) {
+    int ts = trimStart(b, start, end);
+    int te = trimEnd(b, ts, end);
+    if (ts == te) {
+      finishEvals();
+    } else if (startsWith(b, ts, te, EVALUATIONS_PREFIX)) {
+      if (deme != null) {
+        deme.evaluations = parseIntValue(b, ts, te);
+      } else if (population != null) {
+        population.evaluations = parseIntValue(b, ts, te);
+      }
+    } else if (startsWith(b, ts, te, STATS_PREFIX)) {
+      if (deme != null) {
+        stats = new Stats();
+        deme.stats = stats;
+      } else if (population != null) {
+        stats = new Stats();
+        population.stats = stats;
+      }
+      state = State.STATS;
+    } else {
+      finishEvals();
+      generationLine(b, start, end);
+    }
+  }
+
+  private void statsLine(ByteBuffer b, int start, int end) {
+    int ts = trimStart(b, start, end);
+    int te = trimEnd(b, ts, end);
+    if (ts == te) {
+      finishEvals();
+    } else if (startsWith(b, ts, te, MAX_PREFIX)) {
+      if (stats != null) {
+        stats.max = parseDoubleValue(b, ts, te);
+      }
+    } else if (startsWith(b, ts, te, MIN_PREFIX)) {
+      if (stats != null) {
+        stats.min = parseDoubleValue(b, ts, te);
+      }
+    } else if (startsWith(b, ts, te, AVG_PREFIX)) {
+      if (stats != null) {
+        stats.avg = parseDoubleValue(b, ts, te);
+      }
+    } else if (startsWith(b, ts, te, STDEV_PREFIX)) {
+      if (stats != null) {
+        stats.stdev = parseDoubleValue(b, ts, te);
+      }
+    } else {
+      finishEvals();
+      generationLine(b, start, end);
+    }
+  }
+
+  private void hallOfFameLine(ByteBuffer b, int start, int end) {
+    if (trimStart(b, start, end) == end) {
+      finishHallOfFame();
+      state = State.GENERATION;
+      return;
+    }
+    if (skipHallOfFame) {
+      return;
+    }
+    int len = end - start;
+    if (hallOfFameLength + len + 1 > hallOfFame.length) {
+      hallOfFame = Arrays.copyOf(hallOfFame, Math.max(hallOfFame.length * 2, hallOfFameLength + len + 1));
+    }
+    for (int i = start; i < end; i++) {
+      hallOfFame[hallOfFameLength++] = b.get(i);
+    }
+    hallOfFame[hallOfFameLength++] = '\n';
+  }
+
+  private void finishEvals() {
+    if (deme != null) {
+      if (!demeAdded) {
+        generation.demes.add(deme);
+      }
+      handler.deme(deme);
+      deme = null;
+    } else if (population != null) {
+      handler.population(population);
+    }
+    population = null;
+    stats = null;
+    state = State.GENERATION;
+  }
+
+  private void finishHallOfFame() {
+    if (skipHallOfFame) {
+      return;
+    }
+    String hof = hallOfFameString();
+    if (runHallOfFame) {
+      handler.hallOfFame(hof);
+    } else {
+      generation.hallOfFame = hof;
+    }
+  }
+
+  private void finishRun() {
+    if (state == State.EVALS || state == State.STATS) {
+      finishEvals();
+    } else if (state == State.HALL_OF_FAME) {
+      finishHallOfFame();
+    }
+    if (generation != null) {
+      handler.generation(generation);
+      generation = null;
+    }
+    handler.runFinished();
+  }
+
+  private String hallOfFameString() {
+    // without last '\n'
+    return hallOfFameLength > 0 ? new String(hallOfFame, 0, hallOfFameLength - 1, CHARSET) : "";
+  }
+
+  static boolean startsWith(ByteBuffer b, int start, int end, byte[] prefix) {
+    if (end - start < prefix.length) {
+      return false;
+    }
+    for (int i = 0; i < prefix.length; i++) {
+      if (b.get(start + i) != prefix[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean equalsIgnoreCase(ByteBuffer b, int start, int end, byte[] lowerCase) {
+    if (end - start != lowerCase.length) {
+      return false;
+    }
+    for (int i = 0; i < lowerCase.length; i++) {
+      int c = b.get(start + i);
+      if (c >= 'A' && c <= 'Z') {
+        c += 'a' - 'A';
+      }
+      if (c != lowerCase[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Same as {@link String#trim()}, all bytes less or equal to space are considered whitespace.
+   */
+  private static int trimStart(ByteBuffer b, int start, int end) {
+    while (start < end && isWhitespace(b.get(start))) {
+      start++;
+    }
+    return start;
+  }
+
+  private static int trimEnd(ByteBuffer b, int start, int end) {
+    while (end > start && isWhitespace(b.get(end - 1))) {
+      end--;
+    }
+    return end;
+  }
+
+  private static boolean isWhitespace(byte c) {
+    return c >= 0 && c <= ' ';
+  }
+
+  /**
+   * @return Start of the trimmed value that follows the first ':' in the line (or of the whole line if there is no
+   * ':'), same as DefaultLogReader's extractValue
+   */
+  private static int valueStart(ByteBuffer b, int start, int end) {
+    for (int i = start; i < end; i++) {
+      if (b.get(i) == ':') {
+        return trimStart(b, i + 1, end);
+      }
+    }
+    return trimStart(b, start, end);
+  }
+
+  static int parseIntValue(ByteBuffer b, int start, int end) {
+    int vs = valueStart(b, start, end);
+    return parseInt(b, vs, trimEnd(b, vs, end));
+  }
+
+  private static double parseDoubleValue(ByteBuffer b, int start, int end) {
+    int vs = valueStart(b, start, end);
+    return parseDouble(b, vs, trimEnd(b, vs, end));
+  }
+
+  private static int parseInt(ByteBuffer b, int start, int end) {
+    int i = start;
+    boolean negative = false;
+    if (i < end && (b.get(i) == '-' || b.get(i) == '+')) {
+      negative = b.get(i) == '-';
+      i++;
+    }
+    if (i == end || end - i > 9) {
+      // empty or possibly out of range
+      return Integer.parseInt(decode(b, start, end));
+    }
+    int value = 0;
+    for (; i < end; i++) {
+      int digit = b.get(i) - '0';
+      if (digit < 0 || digit > 9) {
+        return Integer.parseInt(decode(b, start, end));
+      }
+      value = value * 10 + digit;
+    }
+    return negative ? -value : value;
+  }
+
+  /**
+   * Parses decimal number with up to 15 significant digits and decimal exponent up to 22 directly from the bytes,
+   * which is exact since both mantissa and power of ten are exactly representable. Other numbers (and invalid input)
+   * are given to {@link Double#parseDouble(String)}.
+   */
+  private static double parseDouble(ByteBuffer b, int start, int end) {
+    if (equalsIgnoreCase(b, start, end, NAN)) {
+      return Double.NaN;
+    } else if (equalsIgnoreCase(b, start, end, INF)) {
+      return Double.POSITIVE_INFINITY;
+    } else if (equalsIgnoreCase(b, start, end, MINUS_INF) || equalsIgnoreCase(b, start, end, MINUS_SPACE_INF)) {
+      return Double.NEGATIVE_INFINITY;
+    }
+
+    int i = start;
+    boolean negative = false;
+    if (i < end && (b.get(i) == '-' || b.get(i) == '+')) {
+      negative = b.get(i) == '-';
+      i++;
+    }
+
+    long mantissa = 0;
+    int digits = 0;
+    int scale = 0;
+    boolean anyDigit = false;
+    boolean fraction = false;
+    for (; i < end; i++) {
+      byte c = b.get(i);
+      if (c == '.' && !fraction) {
+        fraction = true;
+        continue;
+      }
+      int digit = c - '0';
+      if (digit < 0 || digit > 9) {
+        break;
+      }
+      anyDigit = true;
+      if (mantissa != 0 || digit != 0) {
+        if (digits == MAX_FAST_DIGITS) {
+          return parseDouble(decode(b, start, end));
+        }
+        mantissa = mantissa * 10 + digit;
+        digits++;
+      }
+      if (fraction) {
+        scale++;
+      }
+    }
+    if (!anyDigit) {
+      return parseDouble(decode(b, start, end));
+    }
+
+    int exponent = 0;
+    if (i < end && (b.get(i) == 'e' || b.get(i) == 'E')) {
+      i++;
+      boolean negativeExponent = false;
+      if (i < end && (b.get(i) == '-' || b.get(i) == '+')) {
+        negativeExponent = b.get(i) == '-';
+        i++;
+      }
+      int exponentStart = i;
+      for (; i < end; i++) {
+        int digit = b.get(i) - '0';
+        if (digit < 0 || digit > 9) {
+          break;
+        }
+        if (exponent < 10000) {
+          exponent = exponent * 10 + digit;
+        }
+      }
+      if (i == exponentStart) {
+        return parseDouble(decode(b, start, end));
+      }
+      if (negativeExponent) {
+        exponent = -exponent;
+      }
+    }
+    if (i != end) {
+      return parseDouble(decode(b, start, end));
+    }
+
+    double value;
+    int exp10 = exponent - scale;
+    if (mantissa == 0) {
+      value = 0.0;
+    } else if (exp10 >= 0 && exp10 < POWERS_OF_TEN.length) {
+      value = mantissa * POWERS_OF_TEN[exp10];
+    } else if (exp10 < 0 && -exp10 < POWERS_OF_TEN.length) {
+      value = mantissa / POWERS_OF_TEN[-exp10];
+    } else {
+      return parseDouble(decode(b, start, end));
+    }
+    return negative ? -value : value;
+  }
+
+  private static double parseDouble(String strVal) {
+    try {
+      return Double.parseDouble(strVal);
+    } catch (NumberFormatException e) {
+      return extractNanOrInfinity(strVal);
+    }
+  }
+
+  private static double extractNanOrInfinity(String strVal) {
+    String lowStr = strVal.toLowerCase();
+    if ("nan".equals(lowStr)) {
+      return Double.NaN;
+    } else if ("inf".equals(lowStr)) {
+      return Double.POSITIVE_INFINITY;
+    } else if ("-inf".equals(lowStr) || "- inf".equals(lowStr)) {
+      return Double.NEGATIVE_INFINITY;
+    } else {
+      throw new NumberFormatException();
+    }
+  }
+
+  private static String decode(ByteBuffer b, int start, int end) {
+    if (b.hasArray()) {
+      return new String(b.array(), b.arrayOffset() + start, end - start, CHARSET);
+    }
+    byte[] bytes = new byte[end - start];
+    for (int i = start; i < end; i++) {
+      bytes[i - start] = b.get(i);
+    }
+    return new String(bytes, CHARSET);
+  }
+
+  private static byte[] bytes(String str) {
+    return str.getBytes(StandardCharsets.US_ASCII);
+  }
+}
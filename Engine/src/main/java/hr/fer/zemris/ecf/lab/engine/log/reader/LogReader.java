@@ -2,7 +2,10 @@ package hr.fer.zemris.ecf.lab.engine.log.reader;
 
 import hr.fer.zemris.ecf.lab.engine.log.LogModel;
 
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 
 /**
  * Created by Domagoj on 01/05/15.
@@ -11,4 +14,18 @@ public interface LogReader {
 
     LogModel read(InputStream is);
 
+    /**
+     * Reads the log file. By default file is read as a stream, readers can read it more efficiently.
+     *
+     * @param path Path to the log file
+     * @return Log model
+     */
+    default LogModel read(Path path) {
+        try (InputStream is = Files.newInputStream(path)) {
+            return read(is);
+        } catch (IOException e) {
+            throw new LogReadingException(e);
+        }
+    }
+
 }
@@ -1,19 +1,72 @@
 package hr.fer.zemris.ecf.lab.engine.log.reader;
 
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Set;
+
 /**
  * Created by Domagoj on 01/05/15.
+ * <p>
+ * Default readers keep the parsed logs in the application's cache directory (<code>~/.ecflab/cache</code>), caches are
+ * not written next to the user's logs. Generation index of the log is opt-in, it is written next to the log only by
+ * the reader returned by {@link #getIndexedReader()}.
  */
 public class LogReaderProvider {
 
+  private static final Path CACHE_DIRECTORY = Paths.get(System.getProperty("user.home"), ".ecflab", "cache");
+
   private static LogReader reader = null;
+  private static LogReader defaultReader = null;
+  private static IndexedLogReader indexedReader = null;
 
   private LogReaderProvider() {
   }
 
   public static LogReader getReader() {
-    if (reader == null) {
-      reader = new DefaultLogReader();
+    if (reader != null) {
+      return reader;
+    }
+    if (defaultReader == null) {
+      defaultReader = new CachingLogReader(new ParallelLogReader(), CACHE_DIRECTORY);
+    }
+    return defaultReader;
+  }
+
+  /**
+   * Reader that parses only the given sections of the log. If the reader has been selected with
+   * {@link #setReader(LogReader)}, that reader is returned instead.
+   *
+   * @param sections Sections of the log that are needed
+   * @return Log reader
+   */
+  public static LogReader getReader(Set<LogSection> sections) {
+    if (reader != null) {
+      return reader;
     }
-    return reader;
+    return new CachingLogReader(new ParallelLogReader(sections), CACHE_DIRECTORY);
+  }
+
+  /**
+   * Reader that reads ranges of generations through the {@link hr.fer.zemris.ecf.lab.engine.log.LogIndex} stored next to
+   * the log. The index is created the first time the log is read with this reader and kept by the reader, so the same
+   * instance is returned on every call.
+   *
+   * @return Indexed log reader
+   */
+  public static synchronized IndexedLogReader getIndexedReader() {
+    if (indexedReader == null) {
+      indexedReader = new IndexedLogReader();
+    }
+    return indexedReader;
+  }
+
+  /**
+   * Selects reader that is returned by {@link #getReader()}, e.g. {@link DefaultLogReader} instead of the default
+   * {@link ParallelLogReader} with the {@link CachingLogReader} cache.
+   *
+   * @param reader Log reader
+   */
+  public static void setReader(LogReader reader) {
+    LogReaderProvider.reader = reader;
   }
 }
@@ -0,0 +1,28 @@
+package hr.fer.zemris.ecf.lab.engine.log.reader;
+
+/**
+ * This exception is thrown if log can not be read.
+ */
+public class LogReadingException extends RuntimeException {
+
+  private static final long serialVersionUID = 1L;
+
+  public LogReadingException() {
+  }
+
+  public LogReadingException(String message) {
+    super(message);
+  }
+
+  public LogReadingException(String message, Throwable cause) {
+    super(message, cause);
+  }
+
+  public LogReadingException(Throwable cause) {
+    super(cause);
+  }
+
+  public LogReadingException(String message, Throwable cause, boolean enableSuppression, boolean writableStackTrace) {
+    super(message, cause, enableSuppression, writableStackTrace);
+  }
+}
@@ -0,0 +1,96 @@
+package hr.fer.zemris.ecf.lab.engine.log.reader;
+
+import hr.fer.zemris.ecf.lab.engine.log.LogIndex;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * Finds lines of interest in the log without parsing it.
+ */
+class LogScanner {
+
+  private LogScanner() {
+  }
+
+  /**
+   * Finds offsets of the lines that start experiment runs ("Evaluating initial population..."). Scanning starts at
+   * the buffer's position, which has to be at the beginning of a line. If this is not the end of the log, the last
+   * incomplete line is not scanned and the buffer's position is left at its beginning, otherwise position is moved
+   * to the limit.
+   *
+   * @param buffer Buffer with the part of the log
+   * @param offset Offset of the buffer's first byte in the log
+   * @param end    true if the buffer holds the end of the log
+   * @param starts List where offsets are added
+   */
+  static void scanRunStarts(ByteBuffer buffer, long offset, boolean end, List<Long> starts) {
+    int limit = buffer.limit();
+    int lineStart = buffer.position();
+    while (lineStart < limit) {
+      int lineEnd = lineStart;
+      while (lineEnd < limit && buffer.get(lineEnd) != '\n') {
+        lineEnd++;
+      }
+      if (lineEnd == limit && !end) {
+        break;
+      }
+      if (LogParser.startsWith(buffer, lineStart, lineEnd, LogParser.EVALUATING_INITIAL_POPULATION)) {
+        starts.add(offset + lineStart);
+      }
+      lineStart = lineEnd + 1;
+    }
+    buffer.position(Math.min(lineStart, limit));
+  }
+
+  /**
+   * Adds offsets of the runs and of their generations to the index, the same way as {@link #scanRunStarts(ByteBuffer,
+   * long, boolean, List)} finds the run starts. Generations before the first run are not indexed, if the log starts
+   * with an error no runs are indexed at all (the log is read as an error). "Generation:" lines without a valid id are
+   * not indexed.
+   *
+   * @param buffer Buffer with the part of the log
+   * @param offset Offset of the buffer's first byte in the log
+   * @param end    true if the buffer holds the end of the log
+   * @param index  Index builder
+   * @return false if an error has been found before the first run and scanning should stop
+   */
+  static boolean scanIndex(ByteBuffer buffer, long offset, boolean end, LogIndex.Builder index) {
+    int limit = buffer.limit();
+    int lineStart = buffer.position();
+    while (lineStart < limit) {
+      int lineEnd = lineStart;
+      while (lineEnd < limit && buffer.get(lineEnd) != '\n') {
+        lineEnd++;
+      }
+      if (lineEnd == limit && !end) {
+        break;
+      }
+      if (LogParser.startsWith(buffer, lineStart, lineEnd, LogParser.EVALUATING_INITIAL_POPULATION)) {
+        index.addRun(offset + lineStart);
+      } else if (index.hasRun()) {
+        if (LogParser.startsWith(buffer, lineStart, lineEnd, LogParser.GENERATION_PREFIX)) {
+          addGeneration(buffer, lineStart, lineEnd, offset, index);
+        }
+      } else if (LogParser.startsWith(buffer, lineStart, lineEnd, LogParser.ERROR_PREFIX)) {
+        buffer.position(limit);
+        return false;
+      }
+      lineStart = lineEnd + 1;
+    }
+    buffer.position(Math.min(lineStart, limit));
+    return true;
+  }
+
+  private static void addGeneration(ByteBuffer buffer, int lineStart, int lineEnd, long offset,
+                                    LogIndex.Builder index) {
+    int id;
+    try {
+      id = LogParser.parseIntValue(buffer, lineStart, lineEnd);
+    } catch (NumberFormatException e) {
+      // malformed line is not a generation that can be read, it is left out of the index
+      return;
+    }
+    index.addGeneration(offset + lineStart, id);
+  }
+}
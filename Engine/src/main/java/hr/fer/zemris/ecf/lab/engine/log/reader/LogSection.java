@@ -0,0 +1,57 @@
+package hr.fer.zemris.ecf.lab.engine.log.reader;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Optional parts of the log. Readers can be given a set of sections (a projection), sections that are not in the set
+ * are skipped while parsing, without creating any objects for them or parsing their numbers. Generation ids and
+ * elapsed times are always read.
+ */
+public enum LogSection {
+
+  /**
+   * Population block of every generation.
+   */
+  POPULATION,
+
+  /**
+   * All deme blocks of every generation.
+   */
+  DEMES,
+
+  /**
+   * Only the first deme block of every generation (included in {@link #DEMES}).
+   */
+  FIRST_DEME,
+
+  /**
+   * Hall of fame of every generation ("Best in" block).
+   */
+  GENERATION_HALL_OF_FAME,
+
+  /**
+   * Hall of fame of the run ("Best of run" block).
+   */
+  HALL_OF_FAME,
+
+  /**
+   * Lines of the run that are not part of any generation.
+   */
+  OTHER_LINES;
+
+  /**
+   * @return New set with all sections
+   */
+  public static Set<LogSection> all() {
+    return EnumSet.allOf(LogSection.class);
+  }
+
+  /**
+   * @return New set with the sections needed for charts: population, first deme (for logs without population) and
+   * hall of fame of the run
+   */
+  public static Set<LogSection> chart() {
+    return EnumSet.of(POPULATION, FIRST_DEME, HALL_OF_FAME);
+  }
+}
@@ -0,0 +1,87 @@
+package hr.fer.zemris.ecf.lab.engine.log.reader;
+
+import hr.fer.zemris.ecf.lab.engine.log.LogModel;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Set;
+
+/**
+ * {@link ByteLogReader} that memory maps log files and parses them directly from the mapped region, so reading
+ * is bound by the page cache instead of copying through stream buffers. Files larger than the chunk size (1 GB by
+ * default) are mapped chunk by chunk, each chunk starting at the first line that was not complete in the previous one.
+ * <p>
+ * Streams are read the same way as in {@link ByteLogReader}.
+ */
+public class MappedLogReader extends ByteLogReader {
+
+  private static final long DEFAULT_CHUNK_SIZE = 1L << 30;
+
+  final long chunkSize;
+
+  public MappedLogReader() {
+    this(LogSection.all());
+  }
+
+  /**
+   * @param sections Sections of the log that are read, other sections are skipped
+   */
+  public MappedLogReader(Set<LogSection> sections) {
+    this(sections, DEFAULT_CHUNK_SIZE);
+  }
+
+  /**
+   * @param sections  Sections of the log that are read, other sections are skipped
+   * @param chunkSize Max size of the mapped region, must not be greater than {@link Integer#MAX_VALUE}
+   */
+  MappedLogReader(Set<LogSection> sections, long chunkSize) {
+    super(sections);
+    this.chunkSize = chunkSize;
+  }
+
+  @Override
+  public LogModel read(Path path) {
+    LogModelBuilder builder = new LogModelBuilder();
+    read(path, builder);
+    return builder.getModel();
+  }
+
+  /**
+   * Reads the log file and gives its parts to the handler as they are parsed.
+   *
+   * @param path    Path to the log file
+   * @param handler Handler of the log parts
+   */
+  public void read(Path path, LogHandler handler) {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      read(channel, 0, channel.size(), newParser(handler));
+    } catch (IOException e) {
+      throw new LogReadingException(e);
+    }
+  }
+
+  /**
+   * Parses the part of the file, mapped chunk by chunk.
+   *
+   * @param channel File channel
+   * @param from    Offset of the part's first byte, has to be at the beginning of a line
+   * @param to      Offset of the first byte after the part
+   * @param parser  Parser the part is given to, it is ended at the end of the part
+   * @throws IOException If file can not be mapped
+   */
+  void read(FileChannel channel, long from, long to, LogParser parser) throws IOException {
+    long position = from;
+    while (to - position > chunkSize) {
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, chunkSize);
+      parser.feed(buffer);
+      if (buffer.position() == 0) {
+        throw new LogReadingException("Line at " + position + " is longer than " + chunkSize + " bytes");
+      }
+      position += buffer.position();
+    }
+    parser.end(channel.map(FileChannel.MapMode.READ_ONLY, position, to - position));
+  }
+}
@@ -0,0 +1,263 @@
+package hr.fer.zemris.ecf.lab.engine.log.reader;
+
+import hr.fer.zemris.ecf.lab.engine.log.ExperimentRun;
+import hr.fer.zemris.ecf.lab.engine.log.LogModel;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * {@link MappedLogReader} that parses experiment runs of batch logs in parallel. Log is first scanned for the run
+ * boundaries ("Evaluating initial population..." lines), then every run is parsed by its own parser on the
+ * {@link ForkJoinPool} and runs are put back together in the original order.
+ * <p>
+ * Logs with a single run are parsed sequentially. If splitting would change the result (e.g. error before the first
+ * run, or run boundary inside of the hall of fame block) the whole log is parsed sequentially as well. Streams and
+ * reading with a {@link LogHandler} (which needs the parts in order) are always sequential.
+ */
+public class ParallelLogReader extends MappedLogReader {
+
+  private final ForkJoinPool pool;
+
+  public ParallelLogReader() {
+    this(ForkJoinPool.commonPool());
+  }
+
+  /**
+   * @param sections Sections of the log that are read, other sections are skipped
+   */
+  public ParallelLogReader(Set<LogSection> sections) {
+    this(ForkJoinPool.commonPool(), sections);
+  }
+
+  public ParallelLogReader(ForkJoinPool pool) {
+    this(pool, LogSection.all());
+  }
+
+  /**
+   * @param pool     Pool the runs are parsed in
+   * @param sections Sections of the log that are read, other sections are skipped
+   */
+  public ParallelLogReader(ForkJoinPool pool, Set<LogSection> sections) {
+    super(sections);
+    this.pool = pool;
+  }
+
+  ParallelLogReader(ForkJoinPool pool, long chunkSize) {
+    super(LogSection.all(), chunkSize);
+    this.pool = pool;
+  }
+
+  @Override
+  public LogModel read(Path path) {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      long size = channel.size();
+      List<Long> starts = scanRunStarts(channel, size);
+      if (starts.size() < 2 || !fitsIntoBuffers(starts, size)) {
+        return super.read(path);
+      }
+      LogModel log = read(starts, 0, size, new Windows(channel, size));
+      return log != null ? log : super.read(path);
+    } catch (IOException e) {
+      throw new LogReadingException(e);
+    }
+  }
+
+  @Override
+  public LogModel read(ByteBuffer buffer) {
+    List<Long> starts = new ArrayList<>();
+    LogScanner.scanRunStarts(buffer.duplicate(), 0, true, starts);
+    if (starts.size() >= 2) {
+      LogModel log;
+      try {
+        log = read(starts, buffer.position(), buffer.limit(), (start, end) -> part(buffer, start, end));
+      } catch (IOException e) {
+        throw new LogReadingException(e);
+      }
+      if (log != null) {
+        buffer.position(buffer.limit());
+        return log;
+      }
+    }
+    return super.read(buffer);
+  }
+
+  /**
+   * @param starts Offsets of the runs
+   * @param from   Offset of the log's beginning
+   * @param size   Offset of the log's end
+   * @param parts  Gives buffers with parts of the log
+   * @return Log, null if it has to be read sequentially
+   */
+  private LogModel read(List<Long> starts, long from, long size, Parts parts) throws IOException {
+    if (errorBeforeFirstRun(parts.get(from, starts.get(0)))) {
+      return null;
+    }
+
+    int n = starts.size();
+    Part[] results = new Part[n];
+    for (int i = 0; i < n; i++) {
+      long end = i + 1 < n ? starts.get(i + 1) : size;
+      results[i] = new Part(parts.get(starts.get(i), end), i + 1 == n);
+    }
+    pool.invoke(new PartsTask(results, 0, n));
+
+    List<ExperimentRun> runs = new ArrayList<>(n);
+    for (Part part : results) {
+      if (part.failure != null) {
+        // all previous parts are valid, so the failure is not caused by splitting
+        throw part.failure;
+      }
+      if (!part.splittable) {
+        return null;
+      }
+      if (part.runs != null) {
+        runs.addAll(part.runs);
+      }
+    }
+    return new LogModel(runs);
+  }
+
+  private List<Long> scanRunStarts(FileChannel channel, long size) throws IOException {
+    List<Long> starts = new ArrayList<>();
+    long position = 0;
+    do {
+      long len = Math.min(chunkSize, size - position);
+      boolean end = position + len == size;
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, len);
+      LogScanner.scanRunStarts(buffer, position, end, starts);
+      if (!end && buffer.position() == 0) {
+        throw new LogReadingException("Line at " + position + " is longer than " + chunkSize + " bytes");
+      }
+      position += buffer.position();
+    } while (position < size);
+    return starts;
+  }
+
+  private static boolean fitsIntoBuffers(List<Long> starts, long size) {
+    long previous = 0;
+    for (long start : starts) {
+      if (start - previous > Integer.MAX_VALUE) {
+        return false;
+      }
+      previous = start;
+    }
+    return size - previous <= Integer.MAX_VALUE;
+  }
+
+  private static boolean errorBeforeFirstRun(ByteBuffer buffer) {
+    LogParser parser = new LogParser(new LogHandler() {
+    });
+    parser.end(buffer);
+    return parser.errorOccurred();
+  }
+
+  /**
+   * @return Buffer with its own position and limit, which shares the bytes from start to end with the given buffer
+   */
+  private static ByteBuffer part(ByteBuffer buffer, long start, long end) {
+    ByteBuffer part = buffer.duplicate();
+    part.limit((int) end);
+    part.position((int) start);
+    return part;
+  }
+
+  /**
+   * Gives the parts in the order of the log.
+   */
+  @FunctionalInterface
+  private interface Parts {
+    ByteBuffer get(long start, long end) throws IOException;
+  }
+
+  /**
+   * Parts of the file, taken from the windows of at most the chunk size (or the size of the part, if it is greater)
+   * that the file is mapped in, so a log with many runs does not need a mapping per run.
+   */
+  private class Windows implements Parts {
+    private final FileChannel channel;
+    private final long size;
+    private MappedByteBuffer window;
+    private long windowStart;
+
+    Windows(FileChannel channel, long size) {
+      this.channel = channel;
+      this.size = size;
+    }
+
+    @Override
+    public ByteBuffer get(long start, long end) throws IOException {
+      if (window == null || start < windowStart || end > windowStart + window.capacity()) {
+        long len = Math.max(end - start, Math.min(chunkSize, size - start));
+        window = channel.map(FileChannel.MapMode.READ_ONLY, start, len);
+        windowStart = start;
+      }
+      return part(window, start - windowStart, end - windowStart);
+    }
+  }
+
+  /**
+   * Part of the log with one run.
+   */
+  private class Part {
+    ByteBuffer buffer;
+    boolean last;
+
+    List<ExperimentRun> runs;
+    boolean splittable;
+    RuntimeException failure;
+
+    Part(ByteBuffer buffer, boolean last) {
+      this.buffer = buffer;
+      this.last = last;
+    }
+
+    void parse() {
+      LogModelBuilder builder = new LogModelBuilder();
+      LogParser parser = newParser(builder);
+      try {
+        parser.feed(buffer);
+        // next part can be parsed separately only if its first line starts a new run
+        splittable = last || parser.canStartRun();
+        parser.end(buffer);
+        runs = builder.getModel().getRuns();
+      } catch (RuntimeException e) {
+        failure = e;
+      }
+      buffer = null;
+    }
+  }
+
+  private static class PartsTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private final Part[] parts;
+    private final int from;
+    private final int to;
+
+    PartsTask(Part[] parts, int from, int to) {
+      this.parts = parts;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from == 1) {
+        parts[from].parse();
+      } else {
+        int mid = (from + to) >>> 1;
+        invokeAll(new PartsTask(parts, from, mid), new PartsTask(parts, mid, to));
+      }
+    }
+  }
+}
@@ -0,0 +1,83 @@
+package hr.fer.zemris.ecf.lab.engine.log.reader;
+
+import hr.fer.zemris.ecf.lab.engine.log.LogModel;
+
+import java.nio.ByteBuffer;
+import java.util.Set;
+
+/**
+ * Reader that parses the log while its bytes arrive, e.g. straight from the stdout pipe of the running ECF process.
+ * Bytes are given to {@link #feed(byte[], int, int)} in chunks of any size, complete lines are parsed immediately and
+ * a copy of the log parsed so far can be taken at any time.
+ * <p>
+ * One instance should be used for one log.
+ */
+public class StreamingLogReader {
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private final LogModelBuilder builder = new LogModelBuilder();
+  private final LogParser parser;
+  private ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+  private boolean finished;
+
+  public StreamingLogReader() {
+    this(LogSection.all());
+  }
+
+  /**
+   * @param sections Sections of the log that are read, other sections are skipped
+   */
+  public StreamingLogReader(Set<LogSection> sections) {
+    parser = new LogParser(builder, sections);
+  }
+
+  /**
+   * Parses complete lines from the given bytes, the last incomplete line is kept until the rest of it arrives.
+   *
+   * @param bytes  Bytes of the log
+   * @param offset Offset of the first byte
+   * @param length Number of bytes
+   * @return true if at least one line has been parsed
+   * @throws IllegalStateException If the log has already been finished
+   */
+  public synchronized boolean feed(byte[] bytes, int offset, int length) {
+    if (finished) {
+      throw new IllegalStateException("Log has already been finished");
+    }
+    if (buffer.remaining() < length) {
+      ByteBuffer bigger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + length));
+      buffer.flip();
+      bigger.put(buffer);
+      buffer = bigger;
+    }
+    buffer.put(bytes, offset, length);
+    buffer.flip();
+    parser.feed(buffer);
+    boolean parsed = buffer.position() > 0;
+    buffer.compact();
+    return parsed;
+  }
+
+  /**
+   * @return Log parsed so far
+   */
+  public synchronized LogModel getModel() {
+    return builder.getModel(parser);
+  }
+
+  /**
+   * Parses the rest of the log, including the last line even if it is not terminated. Should be called once there
+   * are no more bytes, further calls just return the same log.
+   *
+   * @return Whole log
+   */
+  public synchronized LogModel finish() {
+    if (!finished) {
+      buffer.flip();
+      parser.end(buffer);
+      finished = true;
+    }
+    return builder.getModel(parser);
+  }
+}
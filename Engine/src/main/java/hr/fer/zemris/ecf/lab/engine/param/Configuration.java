@@ -62,11 +62,19 @@ public class Configuration {
         return "There are no user comments for this parameters.";
     }
 
+    /**
+     * Copies are copy-on-write (see {@link EntryList}), the blocks share their entries with this configuration until
+     * the entries are changed.
+     *
+     * @return Copy of the configuration
+     */
     public Configuration copy() {
         List<EntryBlock> newAlgorithms = copyEntryBlockList(algorithms);
 
-        List<List<EntryBlock>> newGenotypes = new ArrayList<>(1);
-        newGenotypes.add(copyEntryBlockList(genotypes.get(0)));
+        List<List<EntryBlock>> newGenotypes = new ArrayList<>(genotypes.size());
+        for (List<EntryBlock> genotype : genotypes) {
+            newGenotypes.add(copyEntryBlockList(genotype));
+        }
 
         EntryList newRegistry = registry.copy();
 
@@ -1,6 +1,5 @@
 package hr.fer.zemris.ecf.lab.engine.param;
 
-import java.util.ArrayList;
 import java.util.List;
 
 public class EntryBlock extends EntryList {
@@ -38,41 +37,13 @@ public class EntryBlock extends EntryList {
 		this.name = name;
 	}
 
-	/**
-	 * Getter for the entry list reference.
-	 * @return reference to the entry list for this algorithms/genotype.
-	 */
-	public List<Entry> getEntryList() {
-		return entryList;
-	}
-
-	/**
-	 * Setter for the entry list reference.
-	 * @param entryList pointer to the entry list for this algorithms/genotype.
-	 */
-	public void setEntryList(List<Entry> entryList) {
-		this.entryList = entryList;
-	}
-
-	/**
-	 * Returns entry at the specified index.
-	 * @param index specified index
-	 * @return entry at the specified index
-	 */
-	public Entry getEntryAt(int index) {
-		return entryList.get(index);
-	}
-
 	@Override
 	public String toString() {
 		return name + "\n" + entryList.toString();
 	}
 
+	@Override
 	public EntryBlock copy() {
-		List<Entry> entries = new ArrayList<>(entryList.size());
-		for (Entry entry : entryList) {
-			entries.add(entry.copy());
-		}
-		return new EntryBlock(name, entries);
+		return share(new EntryBlock(name, entryList));
 	}
 }
@@ -1,14 +1,35 @@
 package hr.fer.zemris.ecf.lab.engine.param;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Created by Domagoj on 12/04/15.
+ * <p>
+ * Copies are copy-on-write: {@link #copy()} shares the entries with the original, and they are copied only when one of
+ * the lists gives out its entries to be changed ({@link #getEntryList()}, {@link #getEntryAt(int)},
+ * {@link #getEntryWithKey(String)}). {@link #setValue(String, String)} replaces the one entry instead, so the lists of
+ * sweep configurations that differ in a few values share the rest. Entries are found by key through an index.
  */
 public class EntryList {
 
     protected List<Entry> entryList;
+    /**
+     * true if the list may be referenced by another {@link EntryList}.
+     */
+    private boolean sharedList;
+    /**
+     * true if the entries may be referenced by another {@link EntryList}.
+     */
+    private boolean sharedEntries;
+    /**
+     * Position of the first entry with the key, shared by the copies and replaced (never changed) when it is rebuilt.
+     */
+    private Map<String, Integer> index;
+    private int indexedSize = -1;
 
     public EntryList() {
         entryList = new ArrayList<>();
@@ -23,6 +44,7 @@ public class EntryList {
      * @return reference to the entry list for this algorithms/genotype.
      */
     public List<Entry> getEntryList() {
+        own();
         return entryList;
     }
 
@@ -32,6 +54,19 @@ public class EntryList {
      */
     public void setEntryList(List<Entry> entryList) {
         this.entryList = entryList;
+        sharedList = false;
+        sharedEntries = false;
+        index = null;
+    }
+
+    /**
+     * Entries that are only read, e.g. to write them. Neither the list nor the entries may be changed, they can be
+     * shared with the copies of this list.
+     *
+     * @return Unmodifiable list of the entries
+     */
+    public List<Entry> getEntries() {
+        return Collections.unmodifiableList(entryList);
     }
 
     /**
@@ -40,16 +75,100 @@ public class EntryList {
      * @return entry at the specified index
      */
     public Entry getEntryAt(int index) {
+        own();
         return entryList.get(index);
     }
 
     public Entry getEntryWithKey(String key) {
-        for (Entry e : entryList) {
-            if (e.key.equals(key)) {
-                return e;
+        own();
+        int i = indexOf(key);
+        return i >= 0 ? entryList.get(i) : null;
+    }
+
+    /**
+     * @return Value of the entry with the key, null if there is no such entry
+     */
+    public String getValue(String key) {
+        int i = indexOf(key);
+        return i >= 0 ? entryList.get(i).value : null;
+    }
+
+    /**
+     * Sets the value of the entry with the key. The entry is replaced by a new one, the other entries are still shared
+     * with the copies of this list.
+     *
+     * @throws IllegalArgumentException If there is no entry with the key
+     */
+    public void setValue(String key, String value) {
+        int i = indexOf(key);
+        if (i < 0) {
+            throw new IllegalArgumentException("No entry: " + key);
+        }
+        setValueAt(i, value);
+    }
+
+    /**
+     * Sets the value of the entry at the specified index, see {@link #setValue(String, String)}.
+     */
+    public void setValueAt(int i, String value) {
+        if (sharedList) {
+            entryList = new ArrayList<>(entryList);
+            sharedList = false;
+        }
+        Entry entry = entryList.get(i);
+        entryList.set(i, new Entry(entry.key, entry.desc, value));
+    }
+
+    /**
+     * @return Number of entries
+     */
+    public int size() {
+        return entryList.size();
+    }
+
+    /**
+     * Position of the first entry with the key. Entries can be added to (or removed from) the list given out by
+     * {@link #getEntryList()}, so the index is checked against the list and rebuilt if it is stale.
+     */
+    private int indexOf(String key) {
+        Map<String, Integer> map = index;
+        if (map == null || indexedSize != entryList.size()) {
+            map = buildIndex();
+        }
+        Integer i = map.get(key);
+        if (i != null && i < entryList.size() && entryList.get(i).key.equals(key)) {
+            return i;
+        }
+        if (i != null) {
+            // entry has been replaced through the list
+            i = buildIndex().get(key);
+        }
+        return i != null ? i : -1;
+    }
+
+    private Map<String, Integer> buildIndex() {
+        Map<String, Integer> map = new HashMap<>(entryList.size() * 2);
+        for (int i = entryList.size() - 1; i >= 0; i--) {
+            map.put(entryList.get(i).key, i);
+        }
+        index = map;
+        indexedSize = entryList.size();
+        return map;
+    }
+
+    /**
+     * Copies the shared entries, so they can be changed.
+     */
+    private void own() {
+        if (sharedEntries) {
+            List<Entry> entries = new ArrayList<>(entryList.size());
+            for (Entry entry : entryList) {
+                entries.add(entry.copy());
             }
+            entryList = entries;
+            sharedList = false;
+            sharedEntries = false;
         }
-        return null;
     }
 
     @Override
@@ -62,10 +181,22 @@ public class EntryList {
     }
 
     public EntryList copy() {
-        List<Entry> entries = new ArrayList<>(entryList.size());
-        for (Entry entry : entryList) {
-            entries.add(entry.copy());
-        }
-        return new EntryList(entries);
+        return share(new EntryList(entryList));
+    }
+
+    /**
+     * Marks the entries of this list and the copy as shared.
+     *
+     * @return The copy
+     */
+    protected <T extends EntryList> T share(T copy) {
+        EntryList list = copy;
+        sharedList = true;
+        sharedEntries = true;
+        list.sharedList = true;
+        list.sharedEntries = true;
+        list.index = index;
+        list.indexedSize = indexedSize;
+        return copy;
     }
 }
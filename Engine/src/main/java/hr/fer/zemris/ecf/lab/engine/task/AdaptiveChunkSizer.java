@@ -0,0 +1,93 @@
+package hr.fer.zemris.ecf.lab.engine.task;
+
+/**
+ * Sizes the chunks of repeats given to the jobs from the measured durations of the finished jobs.
+ * <p>
+ * Duration of a job is modelled as spawn overhead + repeats * repeat time, fitted (least squares) to the finished jobs.
+ * First chunks have one repeat, then chunks grow (at most doubling) until the overhead is at most the target fraction
+ * of the job's duration. A chunk never takes more than remaining / (2 * slots) repeats, so chunks shrink towards the
+ * end of the batch and no job is left running long after the others.
+ */
+class AdaptiveChunkSizer {
+
+  private final int slots;
+  private final double targetOverhead;
+  private int remaining;
+  private int largest;
+
+  // sums for the least squares fit of duration = overhead + repeats * repeatTime
+  private int n;
+  private double sumRepeats;
+  private double sumDurations;
+  private double sumRepeatsSquared;
+  private double sumProducts;
+
+  /**
+   * @param repeats        Number of repeats in the batch
+   * @param slots          Number of jobs that can run at the same time
+   * @param targetOverhead Largest fraction of a job's duration that may be spent on starting it
+   */
+  AdaptiveChunkSizer(int repeats, int slots, double targetOverhead) {
+    if (targetOverhead <= 0 || targetOverhead >= 1) {
+      throw new IllegalArgumentException("Target overhead: " + targetOverhead);
+    }
+    this.remaining = repeats;
+    this.slots = Math.max(1, slots);
+    this.targetOverhead = targetOverhead;
+  }
+
+  /**
+   * @return Number of repeats of the next job, 0 if all repeats have been given out
+   */
+  synchronized int nextChunk() {
+    if (remaining == 0) {
+      return 0;
+    }
+    long size = n == 0 ? 1 : desiredChunk();
+    if (largest > 0) {
+      size = Math.min(size, 2L * largest);
+    }
+    long tail = (long) Math.ceil(remaining / (2.0 * slots));
+    int chunk = (int) Math.max(1, Math.min(Math.min(size, tail), remaining));
+    largest = Math.max(largest, chunk);
+    remaining -= chunk;
+    return chunk;
+  }
+
+  /**
+   * @param repeats  Number of repeats of the finished job
+   * @param duration Wall time of the job in milliseconds
+   */
+  synchronized void finished(int repeats, long duration) {
+    if (duration < 0) {
+      return;
+    }
+    n++;
+    sumRepeats += repeats;
+    sumDurations += duration;
+    sumRepeatsSquared += (double) repeats * repeats;
+    sumProducts += (double) repeats * duration;
+  }
+
+  synchronized int getRemaining() {
+    return remaining;
+  }
+
+  private long desiredChunk() {
+    double denominator = n * sumRepeatsSquared - sumRepeats * sumRepeats;
+    if (denominator <= 0) {
+      // all finished jobs had the same size, overhead can not be told apart from the repeats yet
+      return Long.MAX_VALUE;
+    }
+    double repeatTime = (n * sumProducts - sumRepeats * sumDurations) / denominator;
+    double overhead = (sumDurations - repeatTime * sumRepeats) / n;
+    if (overhead <= 0) {
+      return 1;
+    }
+    if (repeatTime <= 0) {
+      return Long.MAX_VALUE;
+    }
+    // overhead / (overhead + chunk * repeatTime) <= target
+    return (long) Math.ceil(overhead * (1 - targetOverhead) / (targetOverhead * repeatTime));
+  }
+}
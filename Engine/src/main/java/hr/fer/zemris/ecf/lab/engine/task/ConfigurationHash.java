@@ -0,0 +1,123 @@
+package hr.fer.zemris.ecf.lab.engine.task;
+
+import hr.fer.zemris.ecf.lab.engine.param.Configuration;
+import hr.fer.zemris.ecf.lab.engine.param.Entry;
+import hr.fer.zemris.ecf.lab.engine.param.EntryBlock;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Canonical form of a {@link Configuration} and its SHA-256 hash. Blocks are written in their order, registry entries
+ * are sorted by key, so configurations that differ only in the order of the registry have the same hash. Every genotype
+ * list has its own header and names, keys and values are written with their lengths, so no value can be read as
+ * another block or entry.
+ */
+final class ConfigurationHash {
+
+  private ConfigurationHash() {
+  }
+
+  /**
+   * @param conf    Configuration
+   * @param ignored Registry entries that are left out
+   * @return Canonical text of the configuration
+   */
+  static String canonical(Configuration conf, Set<String> ignored) {
+    StringBuilder sb = new StringBuilder();
+    sb.append("algorithms\n");
+    appendBlocks(sb, conf.algorithms);
+    for (int i = 0; i < conf.genotypes.size(); i++) {
+      sb.append("genotype ").append(i).append('\n');
+      appendBlocks(sb, conf.genotypes.get(i));
+    }
+    sb.append("registry\n");
+    List<Entry> registry = new ArrayList<>(conf.registry.getEntries());
+    registry.sort((e1, e2) -> e1.key.compareTo(e2.key));
+    for (Entry entry : registry) {
+      if (!ignored.contains(entry.key)) {
+        appendEntry(sb, entry);
+      }
+    }
+    return sb.toString();
+  }
+
+  /**
+   * @return Hex encoded SHA-256 of the text
+   */
+  static String hash(String text) {
+    MessageDigest digest = sha256();
+    return hex(digest.digest(text.getBytes(StandardCharsets.UTF_8)));
+  }
+
+  /**
+   * @return Hex encoded SHA-256 of the file's contents
+   * @throws IOException If the file can not be read
+   */
+  static String hash(File file) throws IOException {
+    MessageDigest digest = sha256();
+    byte[] buffer = new byte[64 * 1024];
+    try (InputStream in = new FileInputStream(file)) {
+      int n;
+      while ((n = in.read(buffer)) > 0) {
+        digest.update(buffer, 0, n);
+      }
+    }
+    return hex(digest.digest());
+  }
+
+  private static MessageDigest sha256() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      // every Java platform has SHA-256
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static String hex(byte[] hash) {
+    StringBuilder hex = new StringBuilder(hash.length * 2);
+    for (byte b : hash) {
+      hex.append(String.format("%02x", b));
+    }
+    return hex.toString();
+  }
+
+  private static void appendBlocks(StringBuilder sb, List<EntryBlock> blocks) {
+    for (EntryBlock block : blocks) {
+      sb.append("block ");
+      appendField(sb, block.getName());
+      sb.append('\n');
+      for (Entry entry : block.getEntries()) {
+        appendEntry(sb, entry);
+      }
+    }
+  }
+
+  private static void appendEntry(StringBuilder sb, Entry entry) {
+    sb.append("entry ");
+    appendField(sb, entry.key);
+    sb.append(' ');
+    appendField(sb, entry.value);
+    sb.append('\n');
+  }
+
+  /**
+   * Writes the text prefixed by its length, null is written as -1.
+   */
+  private static void appendField(StringBuilder sb, String text) {
+    if (text == null) {
+      sb.append(-1);
+    } else {
+      sb.append(text.length()).append(':').append(text);
+    }
+  }
+}
@@ -0,0 +1,72 @@
+package hr.fer.zemris.ecf.lab.engine.task;
+
+import hr.fer.zemris.ecf.lab.engine.console.Job;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Handle of an experiment (or a sweep) started by the {@link ExperimentsManager}. It can be used to cancel all the jobs
+ * of the experiment or to wait until they have ended.
+ */
+public class ExperimentHandle {
+  private List<Job> jobs = new ArrayList<>();
+  private boolean cancelled;
+  private boolean done;
+
+  synchronized void add(Job job) {
+    jobs.add(job);
+    if (cancelled) {
+      job.cancel();
+    }
+  }
+
+  synchronized void done() {
+    done = true;
+    notifyAll();
+  }
+
+  /**
+   * Cancels all the jobs of the experiment (see {@link Job#cancel()}), jobs that would be created later are not
+   * created.
+   */
+  public void cancel() {
+    List<Job> copy;
+    synchronized (this) {
+      cancelled = true;
+      copy = new ArrayList<>(jobs);
+    }
+    for (Job job : copy) {
+      job.cancel();
+    }
+  }
+
+  public synchronized boolean isCancelled() {
+    return cancelled;
+  }
+
+  /**
+   * @return true if all the jobs of the experiment have ended
+   */
+  public synchronized boolean isDone() {
+    return done;
+  }
+
+  /**
+   * Waits until all the jobs of the experiment have ended.
+   *
+   * @throws InterruptedException If the thread is interrupted while waiting
+   */
+  public synchronized void await() throws InterruptedException {
+    while (!done) {
+      wait();
+    }
+  }
+
+  /**
+   * @return Jobs of the experiment created so far
+   */
+  public synchronized List<Job> getJobs() {
+    return new ArrayList<>(jobs);
+  }
+}
@@ -1,131 +1,707 @@
 package hr.fer.zemris.ecf.lab.engine.task;
 
 import hr.fer.zemris.ecf.lab.engine.conf.ConfigurationService;
+import hr.fer.zemris.ecf.lab.engine.console.Console;
+import hr.fer.zemris.ecf.lab.engine.console.ConsoleFactory;
+import hr.fer.zemris.ecf.lab.engine.console.DetachedConsole;
 import hr.fer.zemris.ecf.lab.engine.console.Job;
+import hr.fer.zemris.ecf.lab.engine.console.JobObserver;
 import hr.fer.zemris.ecf.lab.engine.param.Configuration;
 import hr.fer.zemris.ecf.lab.engine.param.Entry;
 
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Created by Domagoj on 03/05/15.
  */
 public class ExperimentsManager {
 
-  private boolean daemon = false;
+  /**
+   * Number of jobs the repeats are split into is the number of threads.
+   */
+  public static final int CHUNKS_FROM_THREADS = 0;
+
+  /**
+   * Lazy sweeps keep this many waiting jobs per slot in the scheduler's queue.
+   */
+  private static final int SWEEP_WINDOW = 2;
+  /**
+   * Journal of the detached jobs in their workspace, used if no other journal has been set.
+   */
+  private static final String DETACHED_JOURNAL = "journal.txt";
+
+  private boolean streaming = false;
+  private Integer chunks = null;
+  private double targetOverhead = 0;
+  private boolean streamTee = false;
   private JobListener listener;
+  private Console console = ConsoleFactory.createConsole();
+  private Console attachedConsole = console;
+  private RuntimePredictor predictor = new RuntimePredictor();
+  private volatile MakespanReport lastReport;
+  private long jobTimeout = 0;
+  private boolean abortSiblingsOnError = false;
+  private JobJournal journal;
+  private ResultCache resultCache;
+  private Set<ExperimentHandle> running = ConcurrentHashMap.newKeySet();
 
   public ExperimentsManager(JobListener listener) {
     this.listener = listener;
   }
 
-  public void runExperiment(Configuration conf, String ecfPath, String confPath, int threads, boolean online) {
-    try {
-      boolean implicitParallelism = false;
-      int repeats = 1;
-      int threadsToUse = threads;
-      List<Entry> registryList = conf.registry.getEntryList();
-      Entry batchRepeatEntry = Utils.findEntry(registryList, "batch.repeats");
-      if (threadsToUse > 1) {
-        if (batchRepeatEntry != null) {
-          repeats = Integer.parseInt(batchRepeatEntry.value);
-          if (repeats > 1) {
-            // N repeats, N threads -> separate repeats in N jobs (1 repeat per job)
-            // implicit parallelism
-            implicitParallelism = true;
-          } else {
-            // 1 job (1 repeat), N threads -> change to 1 thread
-            threadsToUse = 1;
-          }
+  ExperimentsManager(JobListener listener, Console console) {
+    this.listener = listener;
+    this.console = console;
+    attachedConsole = console;
+  }
+
+  /**
+   * @return Handle of the experiment, used to cancel it
+   */
+  public ExperimentHandle runExperiment(Configuration conf,
+                                        String ecfPath,
+                                        String confPath,
+                                        int threads,
+                                        boolean online) {
+    Batch batch = new Batch();
+    submitTasks(batch, createTasks(conf, ecfPath, confPath, threads, online, batch));
+    return batch.handle;
+  }
+
+  /**
+   * Runs all the configurations of the sweep as one batch of work. Every repeat of every configuration becomes a
+   * separate job (if the scheduler has more than one slot) and all of them are put into the scheduler's queue together,
+   * so a slot freed by a short configuration is immediately taken by a repeat of any other one.
+   *
+   * @param confs     Configurations of the sweep
+   * @param ecfPath   Path to the ECF
+   * @param confPaths Paths where configurations are written, one for each configuration
+   * @param online    true if logs should be read while the jobs are running
+   * @return Handle of the sweep, used to cancel it
+   */
+  public ExperimentHandle runSweep(List<Configuration> confs, String ecfPath, List<String> confPaths, boolean online) {
+    if (confs.size() != confPaths.size()) {
+      throw new IllegalArgumentException("Configurations: " + confs.size() + ", paths: " + confPaths.size());
+    }
+    int slots = JobScheduler.getInstance().getSlots();
+    Batch batch = new Batch();
+    List<Task> tasks = new ArrayList<>();
+    for (int i = 0; i < confs.size(); i++) {
+      tasks.addAll(createTasks(confs.get(i), ecfPath, confPaths.get(i), slots, online, batch));
+    }
+    submitTasks(batch, tasks);
+    return batch.handle;
+  }
+
+  /**
+   * Runs the configurations of the sweep as they are taken from the iterator, instead of creating the jobs of all of
+   * them up front. Configurations are taken (and their files written) only while the scheduler's queue has fewer than
+   * {@value #SWEEP_WINDOW} waiting jobs of the sweep per slot, so the first jobs start at once and a sweep of millions
+   * of points is never in memory at once. Jobs are run longest first only among the queued ones.
+   *
+   * @param points  Points of the sweep, taken from the iterator by the threads that finish the jobs
+   * @param ecfPath Path to the ECF
+   * @param online  true if logs should be read while the jobs are running
+   * @return Handle of the sweep, used to cancel it (configurations that have not been taken are then never taken)
+   */
+  public ExperimentHandle runSweep(Iterator<SweepPoint> points, String ecfPath, boolean online) {
+    Batch batch = new Batch();
+    submitTasks(batch, new LazySweep(points, ecfPath, online, batch).pull());
+    return batch.handle;
+  }
+
+  /**
+   * Cancels all the experiments of this manager that are still running.
+   */
+  public void cancelAll() {
+    for (ExperimentHandle handle : running) {
+      handle.cancel();
+    }
+  }
+
+  /**
+   * Runs again the jobs that were recorded in the journal but have never ended, e.g. because the application died while
+   * they were running. Parts that have finished are not run again, their statsfile lines are taken from the journal
+   * and their logs from the disk, so the merged statsfile and log are the same as if the experiment had not been
+   * interrupted. Repeats whose parts had not been created yet are split into new parts by the number of slots. If jobs
+   * are detached, the ones that are still in the workspace are reattached instead of being run again (see
+   * {@link #reattach()}).
+   *
+   * @return Handle of the resumed jobs
+   * @throws IOException           If the journal can not be read
+   * @throws IllegalStateException If there is no journal
+   */
+  public ExperimentHandle resume() throws IOException {
+    if (journal == null) {
+      throw new IllegalStateException("No journal");
+    }
+    return resume(console instanceof DetachedConsole ? ((DetachedConsole) console).findJobs() : new ArrayList<>());
+  }
+
+  /**
+   * @param detachedJobs Jobs found in the workspace, they are reattached instead of being run again
+   */
+  private ExperimentHandle resume(List<Job> detachedJobs) throws IOException {
+    Map<String, Job> found = new LinkedHashMap<>();
+    for (Job job : detachedJobs) {
+      found.put(job.getConfigPath(), job);
+    }
+    int slots = JobScheduler.getInstance().getSlots();
+    Batch batch = new Batch();
+    List<Task> tasks = new ArrayList<>();
+    List<Task> reattached = new ArrayList<>();
+    Collection<JobJournal.Experiment> experiments = journal != null ? journal.read() : new ArrayList<>();
+    for (JobJournal.Experiment experiment : experiments) {
+      if (experiment.isComplete()) {
+        continue;
+      }
+      Configuration conf = ConfigurationService.getInstance().getReader().readArchive(new File(experiment.confPath));
+      if (experiment.isSerial()) {
+        Job job = found.remove(experiment.confPath);
+        if (job != null) {
+          reattached.add(reattachSerialTask(conf, job, experiment.confPath));
         } else {
-          // 1 job, N threads -> change to 1 thread
-          threadsToUse = 1;
+          tasks.addAll(createSerialTask(conf, experiment.ecfPath, experiment.confPath, experiment.online));
+        }
+        continue;
+      }
+      Parts parts = new Parts(conf, experiment.ecfPath, experiment.confPath, experiment.maxCount,
+          experiment.mergeLogs, experiment.online);
+      tasks.addAll(parts.restore(experiment, found, reattached));
+      int remaining = experiment.getRemainingRepeats();
+      if (remaining > 0) {
+        for (int size : chunkSizes(remaining, slots)) {
+          tasks.add(parts.add(size));
         }
       }
+      parts.close();
+    }
+    // jobs that are not in the journal are collected as they are, there are no parts to merge them with
+    for (Job job : found.values()) {
+      DetachedConsole detached = (DetachedConsole) console;
+      OfflineExperimentHandler handler =
+          new OnlineExperimentHandler(listener, detached.getStdoutFile(job), detached.getStderrFile(job));
+      listener.jobInitialized(job);
+      reattached.add(reattachTask(job, handler));
+    }
 
-      // write configuration file to the disk
-      ConfigurationService.getInstance().getWriter().write(new File(confPath), conf);
+    for (Task task : reattached) {
+      batch.add(task);
+    }
+    submitTasks(batch, tasks);
+    // processes are already running, they do not take the slots of the scheduler
+    for (Task task : reattached) {
+      task.start();
+    }
+    return batch.handle;
+  }
 
-      // create jobs
-      JobDescriptors jobDescriptors = createJobs(conf, ecfPath, confPath, implicitParallelism, repeats,
-          batchRepeatEntry, online);
-      List<Job> jobs = jobDescriptors.jobs;
+  /**
+   * Jobs of the experiments are recorded in the journal, so they can be resumed if the application dies (see
+   * {@link #resume()}).
+   *
+   * @param journal Journal, null if jobs should not be recorded
+   */
+  public void setJournal(JobJournal journal) {
+    this.journal = journal;
+  }
 
-      // notify listeners
-      for (Job job : jobs) {
-        listener.jobInitialized(job);
+  /**
+   * Results of the jobs whose configurations have a fixed random seed are stored in the cache. A job whose
+   * configuration (and ECF binary) is already in the cache does not run ECF, the stored stdout, log and statsfile are
+   * replayed to its listener instead, as if ECF had just written them.
+   *
+   * @param resultCache Result cache, null if results should not be cached
+   */
+  public void setResultCache(ResultCache resultCache) {
+    this.resultCache = resultCache;
+  }
+
+  private List<Task> createTasks(Configuration conf,
+                                 String ecfPath,
+                                 String confPath,
+                                 int threads,
+                                 boolean online,
+                                 Batch batch) {
+    try {
+      int repeats = 1;
+      String batchRepeats = conf.registry.getValue("batch.repeats");
+      if (threads > 1 && batchRepeats != null) {
+        repeats = Integer.parseInt(batchRepeats);
       }
 
-      // starting tasks
-      if (online) {
-        List<OnlineJobDescriptor> descriptors = new ArrayList<>();
-        int len = jobs.size();
-        List<FileOutputPair> fileOutputPairs = jobDescriptors.fileOutputs;
-        for (int i = 0; i < len; i++) {
-          FileOutputPair pair = fileOutputPairs.get(i);
-          descriptors.add(new OnlineJobDescriptor(jobs.get(i), pair.stdout, pair.stderr));
+      // write configuration file to the disk
+      ConfigurationService.getInstance().getWriter().write(new File(confPath), conf);
+
+      if (repeats > 1 && targetOverhead > 0) {
+        // adaptive implicit parallelism, jobs are created as the previous ones finish
+        Parts parts = new Parts(conf.copy(), ecfPath, confPath, repeats, true, online);
+        if (journal != null) {
+          journal.experiment(confPath, ecfPath, online, repeats, true, repeats);
         }
-        startOnlineTasks(descriptors, threadsToUse);
+        return new AdaptiveBatch(parts, new AdaptiveChunkSizer(repeats, threads, targetOverhead), batch)
+            .start(threads);
+      }
+
+      int[] chunkSizes = repeats > 1 ? chunkSizes(repeats, threads) : new int[]{repeats};
+      if (chunkSizes.length > 1) {
+        // N repeats, N threads -> separate repeats in N jobs (1 repeat per job, or ceil(N/K) repeats per job if
+        // repeats are chunked)
+        // implicit parallelism
+        return createParallelTasks(conf, ecfPath, confPath, chunkSizes, online);
       } else {
-        startOfflineTasks(jobs, threadsToUse);
+        // no implicit parallelism, just 1 job, it takes 1 slot of the scheduler
+        return createSerialTask(conf, ecfPath, confPath, online);
       }
     } catch (Exception e) {
       throw new ExperimentException(e.getMessage(), e.getCause());
     }
   }
 
-  private JobDescriptors createJobs(Configuration conf,
-                                    String ecfPath,
-                                    String confPath,
-                                    boolean implicitParallelism,
-                                    int repeats,
-                                    Entry batchRepeatEntry,
-                                    boolean online) {
-    if (implicitParallelism) {
-      // implicit parallelism
-      return createParallelJobs(conf, ecfPath, confPath, repeats, batchRepeatEntry, online);
+  private List<Task> createParallelTasks(Configuration conf,
+                                         String ecfPath,
+                                         String confPath,
+                                         int[] chunkSizes,
+                                         boolean online) {
+    // logs of the jobs with more than 1 repeat are merged back into the original log
+    boolean chunked = chunkSizes.length < sumOf(chunkSizes);
+    Parts parts = new Parts(conf, ecfPath, confPath, chunkSizes.length, chunked, online);
+    if (journal != null) {
+      journal.experiment(confPath, ecfPath, online, chunkSizes.length, chunked, sumOf(chunkSizes));
+    }
+    List<Task> tasks = new ArrayList<>(chunkSizes.length);
+    for (int size : chunkSizes) {
+      tasks.add(parts.add(size));
+    }
+    parts.close();
+    return tasks;
+  }
+
+  private List<Task> createSerialTask(Configuration conf, String ecfPath, String confPath, boolean online) {
+    String batchRepeats = conf.registry.getValue("batch.repeats");
+    int repeats = batchRepeats != null ? Math.max(1, Integer.parseInt(batchRepeats)) : 1;
+    String key = RuntimePredictor.key(conf);
+    JobListener listener = new RuntimeRecorder(this.listener, predictor, key, conf.registry.getValue("batch.statsfile"),
+        repeats);
+    if (journal != null) {
+      journal.serial(confPath, ecfPath, online);
+      listener = new JournalRecorder(listener, journal, confPath, 0, null);
+    }
+
+    Job job = new Job(ecfPath, confPath);
+    job.setTimeout(jobTimeout);
+    FileOutputPair fileOutputPair = null;
+    JobObserver handler;
+    if (online && isStreaming()) {
+      handler = new StreamingExperimentHandler(listener);
+      fileOutputPair = generateStreamOutputs();
+    } else if (online) {
+      fileOutputPair = generateOnlineFileOutputs();
+      handler = new OnlineExperimentHandler(listener, fileOutputPair.stdout, fileOutputPair.stderr);
+    } else {
+      handler = new OfflineExperimentHandler(listener);
+    }
+    Console console = prepare(job, handler, conf, ecfPath);
+    listener.jobInitialized(job);
+
+    List<Task> tasks = new ArrayList<>(1);
+    Task task = createTask(job, console, fileOutputPair);
+    task.setPredictedTime(console instanceof ReplayConsole ? 0 : predictor.predict(key) * repeats);
+    tasks.add(task);
+    return tasks;
+  }
+
+  /**
+   * Sets the job's observer and chooses the console that runs the job: results of the configuration are replayed if
+   * they are in the result cache, otherwise ECF is run and its results are stored once the job finishes.
+   *
+   * @param conf Configuration of the job, as it has been written for it
+   * @return Console that runs the job
+   */
+  private Console prepare(Job job, JobObserver handler, Configuration conf, String ecfPath) {
+    String key = resultCache != null ? resultCache.key(conf, ecfPath) : null;
+    if (key == null) {
+      job.setObserver(handler);
+      return console;
+    }
+    String logFile = conf.registry.getValue("log.filename");
+    String statsfile = conf.registry.getValue("batch.statsfile");
+    ResultCache.Result result = resultCache.get(key);
+    if (result != null) {
+      job.setObserver(handler);
+      return new ReplayConsole(result, logFile, statsfile);
+    }
+    job.setObserver(new ResultRecorder(handler, resultCache, key, logFile, statsfile));
+    return console;
+  }
+
+  private Task createTask(Job job, Console console, FileOutputPair fileOutputPair) {
+    if (fileOutputPair == null) {
+      return new Task(job, console);
+    } else if (isStreaming()) {
+      return new Task(job, console, fileOutputPair.stdout);
     } else {
-      // no implicit parallelism, just 1 job
-      return createSerialJob(ecfPath, confPath, online);
+      return new Task(job, console, fileOutputPair.stdout, fileOutputPair.stderr);
+    }
+  }
+
+  /**
+   * Splits the repeats into jobs: one repeat per job, or ceil(N/K) repeats per job if repeats are chunked (the last job
+   * gets the rest).
+   */
+  private int[] chunkSizes(int repeats, int threads) {
+    int k = repeats;
+    if (chunks != null) {
+      k = chunks == CHUNKS_FROM_THREADS ? threads : chunks;
+    }
+    k = Math.max(1, Math.min(k, repeats));
+    int size = (repeats + k - 1) / k;
+    int count = (repeats + size - 1) / size;
+    int[] sizes = new int[count];
+    for (int i = 0; i < count; i++) {
+      sizes[i] = Math.min(size, repeats - i * size);
+    }
+    return sizes;
+  }
+
+  private static int sumOf(int[] values) {
+    int sum = 0;
+    for (int value : values) {
+      sum += value;
+    }
+    return sum;
+  }
+
+  private void submitTasks(Batch batch, List<Task> tasks) {
+    running.add(batch.handle);
+    for (Task task : tasks) {
+      batch.add(task);
+    }
+    if (batch.isEmpty()) {
+      batch.end();
+    }
+    // tasks of all experiments share the same queue and slots
+    JobScheduler.getInstance().submitAll(tasks);
+  }
+
+  /**
+   * Predictor of the jobs' times, jobs are ordered by it in the {@link JobScheduler} and it learns from every finished
+   * job. Its history is saved once all the jobs of an experiment (or a sweep) have finished.
+   *
+   * @param predictor Runtime predictor
+   */
+  public void setRuntimePredictor(RuntimePredictor predictor) {
+    this.predictor = predictor;
+  }
+
+  /**
+   * @return Predicted and actual makespan of the last experiment (or sweep) whose jobs have all finished, null if there
+   * is none
+   */
+  public MakespanReport getLastReport() {
+    return lastReport;
+  }
+
+  /**
+   * @param jobTimeout Wall time (in milliseconds) after which the job's ECF process is killed and the job fails, 0 for
+   *                   no timeout
+   */
+  public void setJobTimeout(long jobTimeout) {
+    if (jobTimeout < 0) {
+      throw new IllegalArgumentException("Job timeout: " + jobTimeout);
+    }
+    this.jobTimeout = jobTimeout;
+  }
+
+  /**
+   * A job fails as soon as its ECF writes an "Error:" line. If this is set, jobs that run other repeats of the same
+   * configuration and have not started yet are then cancelled, because they would fail the same way.
+   *
+   * @param abortSiblingsOnError true if the queued jobs of the same configuration should be cancelled
+   */
+  public void setAbortSiblingsOnError(boolean abortSiblingsOnError) {
+    this.abortSiblingsOnError = abortSiblingsOnError;
+  }
+
+  /**
+   * @param daemon true if threads that run the jobs should not keep the application alive (see {@link JobScheduler})
+   */
+  public void setDaemon(boolean daemon) {
+    JobScheduler.getInstance().setDaemon(daemon);
+  }
+
+  /**
+   * Online experiments with streaming read ECF's stdout from the process pipe and parse it as it arrives, instead of
+   * redirecting it to a temporary file which is polled.
+   *
+   * @param streaming true if online experiments should be streamed
+   */
+  public void setStreaming(boolean streaming) {
+    this.streaming = streaming;
+  }
+
+  /**
+   * Detached jobs keep running when the application exits, their ECF processes write their state into the workspace
+   * (see {@link DetachedConsole}). A later session finds them with {@link #reattach()}. Output of detached jobs is
+   * always written to files, online experiments are not streamed. Unless another journal has been set, the parts of
+   * the experiments are recorded in the journal in the workspace, so they can be merged once they are reattached.
+   *
+   * @param workspace Directory with the state of the detached jobs, null if jobs should not be detached
+   */
+  public void setDetached(File workspace) {
+    if (workspace == null) {
+      console = attachedConsole;
+      return;
+    }
+    console = new DetachedConsole(workspace);
+    if (journal == null) {
+      journal = new JobJournal(new File(workspace, DETACHED_JOURNAL));
+    }
+  }
+
+  /**
+   * Finds the detached jobs started by an earlier session that have not been collected yet and watches them until they
+   * end. Logs of the running jobs are read while they are running, like in online experiments. Jobs that have already
+   * ended are collected at once.
+   * <p>
+   * Reattached jobs do not take the slots of the {@link JobScheduler}, their processes are already running. Experiments
+   * recorded in the journal are resumed (see {@link #resume()}): parts of the experiment that have finished in the
+   * earlier session and the reattached ones are merged together, parts that had not been started are run again.
+   *
+   * @return Handle of the reattached (and resumed) jobs
+   * @throws IOException           If the journal can not be read
+   * @throws IllegalStateException If jobs are not detached (see {@link #setDetached(File)})
+   */
+  public ExperimentHandle reattach() throws IOException {
+    if (!(console instanceof DetachedConsole)) {
+      throw new IllegalStateException("Jobs are not detached");
     }
+    return resume(((DetachedConsole) console).findJobs());
   }
 
-  private JobDescriptors createParallelJobs(Configuration conf,
-                                            String ecfPath,
-                                            String confPath,
-                                            int repeats,
-                                            Entry batchRepeatEntry,
-                                            boolean online) {
-    List<Entry> registryList = conf.registry.getEntryList();
-    batchRepeatEntry.value = "1";
-    List<Job> jobs = new ArrayList<>(repeats);
-    List<FileOutputPair> fileOutputPairs = online ? new ArrayList<>(repeats) : null;
+  /**
+   * Task that collects the detached job, its handler reads the files the detached process writes to.
+   */
+  private Task reattachTask(Job job, OfflineExperimentHandler handler) {
+    job.setObserver(handler);
+    job.setTimeout(jobTimeout);
+    return new Task(job, new ReattachConsole((DetachedConsole) console));
+  }
 
-    int len = Integer.valueOf(repeats).toString().length();
+  private Task reattachSerialTask(Configuration conf, Job job, String confPath) {
+    String batchRepeats = conf.registry.getValue("batch.repeats");
+    int repeats = batchRepeats != null ? Math.max(1, Integer.parseInt(batchRepeats)) : 1;
+    JobListener listener = new RuntimeRecorder(this.listener, predictor, RuntimePredictor.key(conf),
+        conf.registry.getValue("batch.statsfile"), repeats);
+    listener = new JournalRecorder(listener, journal, confPath, 0, null);
+    DetachedConsole detached = (DetachedConsole) console;
+    OfflineExperimentHandler handler =
+        new OnlineExperimentHandler(listener, detached.getStdoutFile(job), detached.getStderrFile(job));
+    listener.jobInitialized(job);
+    return reattachTask(job, handler);
+  }
 
-    Entry logFilenameEntry = Utils.findEntry(registryList, "log.filename");
-    String originalLogFilename = null;
-    if (logFilenameEntry != null) {
-      originalLogFilename = logFilenameEntry.value;
+  private boolean isStreaming() {
+    return streaming && !(console instanceof DetachedConsole);
+  }
+
+  /**
+   * Chunked implicit parallelism: repeats of the configuration are split into K jobs running ceil(N/K) repeats each,
+   * instead of one job per repeat, so batches of many short runs do not spend most of the time starting ECF and writing
+   * configurations. Logs and statsfiles of the jobs are merged back with global run ids.
+   *
+   * @param chunks Number of jobs K, {@link #CHUNKS_FROM_THREADS} to use the number of threads, null for one job per
+   *               repeat
+   */
+  public void setChunks(Integer chunks) {
+    if (chunks != null && chunks < 0) {
+      throw new IllegalArgumentException("Chunks: " + chunks);
     }
+    this.chunks = chunks;
+  }
 
-    Entry statsfileEntry = Utils.findEntry(registryList, "batch.statsfile");
-    String originalStatsfile = null;
-    if (statsfileEntry != null) {
-      originalStatsfile = statsfileEntry.value;
+  /**
+   * Adaptive implicit parallelism: repeats are given to the jobs in chunks sized from the measured durations of the
+   * finished jobs (see {@link AdaptiveChunkSizer}), instead of being split in advance. Used instead of
+   * {@link #setChunks(Integer)} when enabled.
+   *
+   * @param targetOverhead Largest fraction of a job's duration that may be spent on starting ECF (e.g. 0.05), 0 to
+   *                       disable adaptive chunks
+   */
+  public void setAdaptiveChunks(double targetOverhead) {
+    if (targetOverhead < 0 || targetOverhead >= 1) {
+      throw new IllegalArgumentException("Target overhead: " + targetOverhead);
     }
+    this.targetOverhead = targetOverhead;
+  }
 
-    StatsSupervisor supervisor = new StatsSupervisor(originalStatsfile, repeats);
+  /**
+   * @param streamTee true if streamed stdout should also be written to a temporary file
+   */
+  public void setStreamTee(boolean streamTee) {
+    this.streamTee = streamTee;
+  }
 
-    for (int i = 0; i < repeats; i++) {
-      // change configuration (log.filename) and write it to changed location
-      int runId = i + 1;
-      String currConfPath = confPath + ".part__" + runId;
+  private FileOutputPair generateStreamOutputs() {
+    if (!streamTee) {
+      return new FileOutputPair(null, null);
+    }
+    try {
+      return new FileOutputPair(File.createTempFile("ecflab-stdout-stream", ".txt"), null);
+    } catch (IOException e) {
+      e.printStackTrace();
+      return new FileOutputPair(null, null);
+    }
+  }
+
+  private static FileOutputPair generateOnlineFileOutputs() {
+    try {
+      File stdoutFile = File.createTempFile("ecflab-stdout-online", ".txt");
+      File stderrFile = File.createTempFile("ecflab-stderr-online", ".txt");
+      return new FileOutputPair(stdoutFile, stderrFile);
+    } catch (IOException e) {
+      e.printStackTrace();
+      return null;
+    }
+  }
+
+  private static class FileOutputPair {
+    File stdout;
+    File stderr;
+
+    public FileOutputPair(File stdout, File stderr) {
+      this.stdout = stdout;
+      this.stderr = stderr;
+    }
+  }
+
+  /**
+   * Parts of one configuration whose repeats are split into several jobs. Each part gets its own configuration file,
+   * log file and statsfile, job's run id is the global id of its first repeat.
+   */
+  private class Parts {
+    private Configuration conf;
+    private String ecfPath;
+    private String confPath;
+    private boolean online;
+
+    private Entry batchRepeatEntry;
+    private Entry logFilenameEntry;
+    private Entry statsfileEntry;
+    private String originalLogFilename;
+    private String originalStatsfile;
+    private int len;
+
+    private StatsSupervisor supervisor;
+    private LogSupervisor logSupervisor;
+    private String key;
+    private int count;
+    private int nextRunId = 1;
+    private int skipped;
+    private List<Job> jobs = new ArrayList<>();
+    private boolean aborted;
+
+    /**
+     * @param maxCount  Largest number of parts
+     * @param mergeLogs true if logs of the parts should be merged back into the original log
+     */
+    Parts(Configuration conf, String ecfPath, String confPath, int maxCount, boolean mergeLogs, boolean online) {
+      this.conf = conf;
+      this.ecfPath = ecfPath;
+      this.confPath = confPath;
+      this.online = online;
+      len = Integer.valueOf(maxCount).toString().length();
+
+      batchRepeatEntry = conf.registry.getEntryWithKey("batch.repeats");
+      logFilenameEntry = conf.registry.getEntryWithKey("log.filename");
+      if (logFilenameEntry != null) {
+        originalLogFilename = logFilenameEntry.value;
+      }
+      statsfileEntry = conf.registry.getEntryWithKey("batch.statsfile");
+      if (statsfileEntry != null) {
+        originalStatsfile = statsfileEntry.value;
+      }
+
+      // only the entries that are changed for the parts are ignored by the key
+      key = RuntimePredictor.key(conf);
+
+      // number of parts is set once all of them have been created
+      supervisor = new StatsSupervisor(originalStatsfile, Integer.MAX_VALUE);
+      if (mergeLogs && originalLogFilename != null) {
+        logSupervisor = new LogSupervisor(originalLogFilename);
+      }
+    }
+
+    /**
+     * Creates the job that runs the next repeats.
+     *
+     * @param repeats Number of repeats
+     * @return Task of the job
+     */
+    synchronized Task add(int repeats) {
+      count++;
+      Task task = part(count, nextRunId, repeats);
+      nextRunId += repeats;
+      return task;
+    }
+
+    /**
+     * Restores the parts recorded in the journal. Finished parts are given to the supervisors as if they had just
+     * finished, parts that have failed or have been cancelled are left out of merging. Parts whose detached jobs are
+     * still in the workspace are reattached, the other parts that have never ended are run again.
+     *
+     * @param detachedJobs Detached jobs by their configuration paths, the reattached ones are removed
+     * @param reattached   Tasks that collect the reattached jobs are added to it
+     * @return Tasks of the parts that are run again
+     */
+    synchronized List<Task> restore(JobJournal.Experiment experiment, Map<String, Job> detachedJobs,
+                                    List<Task> reattached) {
+      List<Task> tasks = new ArrayList<>();
+      for (JobJournal.Part part : experiment.getParts()) {
+        count = Math.max(count, part.index);
+        nextRunId = Math.max(nextRunId, part.runId + part.repeats);
+        switch (part.getState()) {
+          case FINISHED:
+            if (statsfileEntry != null) {
+              supervisor.addStats(part.getStats());
+            }
+            if (logSupervisor != null) {
+              logSupervisor.addFinishedPart(part.runId, Utils.addBeforeExtension(originalLogFilename, part.index, len));
+            }
+            break;
+          case FAILED:
+          case CANCELLED:
+            skipped++;
+            break;
+          default:
+            Job job = detachedJobs.remove(partConfPath(part.index));
+            if (job != null) {
+              reattached.add(reattach(job, part.index, part.repeats));
+            } else {
+              tasks.add(part(part.index, part.runId, part.repeats));
+            }
+            break;
+        }
+      }
+      return tasks;
+    }
+
+    private Task part(int index, int runId, int repeats) {
+      // change configuration (batch.repeats, log.filename) and write it to changed location
+      batchRepeatEntry.value = String.valueOf(repeats);
+      String currConfPath = partConfPath(index);
       if (originalLogFilename != null) {
-        logFilenameEntry.value = Utils.addBeforeExtension(originalLogFilename, (i + 1), len);
+        logFilenameEntry.value = Utils.addBeforeExtension(originalLogFilename, index, len);
       }
 
       // statsfile
@@ -135,7 +711,7 @@ public class ExperimentsManager {
           statsfileEntry.value = tempFile.getAbsolutePath();
         } catch (IOException e) {
           e.printStackTrace();
-          statsfileEntry.value = Utils.addBeforeExtension(originalStatsfile, (i + 1), len);
+          statsfileEntry.value = Utils.addBeforeExtension(originalStatsfile, index, len);
         }
       }
 
@@ -144,101 +720,303 @@ public class ExperimentsManager {
       StatsHandler statsHandler = statsfileEntry != null ? new StatsHandler(statsfileEntry.value, supervisor) : null;
 
       Job job = new Job(ecfPath, currConfPath, true, runId);
-      if (online) {
-        FileOutputPair fileOutputPair = generateOnlineFileOutputs();
-        job.setObserver(new OnlineExperimentHandler(
+      job.setTimeout(jobTimeout);
+      String statsfile = statsfileEntry != null ? statsfileEntry.value : null;
+      if (journal != null) {
+        journal.part(confPath, index, runId, repeats);
+      }
+      JobListener listener = listener(index, repeats, statsfile);
+      OfflineExperimentHandler handler;
+      FileOutputPair fileOutputPair = null;
+      if (online && isStreaming()) {
+        handler = new StreamingExperimentHandler(listener, statsHandler);
+        fileOutputPair = generateStreamOutputs();
+      } else if (online) {
+        fileOutputPair = generateOnlineFileOutputs();
+        handler = new OnlineExperimentHandler(
             listener,
             fileOutputPair.stdout,
             fileOutputPair.stderr,
-            statsHandler)
-        );
-        fileOutputPairs.add(fileOutputPair);
+            statsHandler);
       } else {
-        job.setObserver(new OfflineExperimentHandler(listener, statsHandler));
+        handler = new OfflineExperimentHandler(listener, statsHandler);
       }
-      jobs.add(job);
+      superviseLog(job, handler, index);
+      Console console = prepare(job, handler, conf, ecfPath);
+      listener.jobInitialized(job);
+      Task task = createTask(job, console, fileOutputPair);
+      task.setPredictedTime(console instanceof ReplayConsole ? 0 : predictor.predict(key) * repeats);
+      return added(task);
     }
 
-    return new JobDescriptors(jobs, fileOutputPairs);
-  }
+    /**
+     * Creates the task that collects the part's detached job. Its statsfile is found in the part's configuration, which
+     * is not deleted before the job is collected.
+     */
+    private Task reattach(Job job, int index, int repeats) {
+      String statsfile = null;
+      if (statsfileEntry != null) {
+        Configuration partConf = ConfigurationService.getInstance().getReader().readArchive(new File(job.getConfigPath()));
+        statsfile = partConf.registry.getValue("batch.statsfile");
+      }
+      StatsHandler statsHandler = statsfile != null ? new StatsHandler(statsfile, supervisor) : null;
+      JobListener listener = listener(index, repeats, statsfile);
+      DetachedConsole detached = (DetachedConsole) console;
+      OfflineExperimentHandler handler = new OnlineExperimentHandler(listener, detached.getStdoutFile(job),
+          detached.getStderrFile(job), statsHandler);
+      superviseLog(job, handler, index);
+      listener.jobInitialized(job);
+      return added(reattachTask(job, handler));
+    }
 
-  private JobDescriptors createSerialJob(String ecfPath, String confPath, boolean online) {
-    List<Job> jobs = new ArrayList<>(1);
-    Job job = new Job(ecfPath, confPath);
-    List<FileOutputPair> fileOutputPairs = null;
-    if (online) {
-      FileOutputPair fileOutputPair = generateOnlineFileOutputs();
-      job.setObserver(new OnlineExperimentHandler(listener, fileOutputPair.stdout, fileOutputPair.stderr));
-      fileOutputPairs = new ArrayList<>(1);
-      fileOutputPairs.add(fileOutputPair);
-    } else {
-      job.setObserver(new OfflineExperimentHandler(listener));
+    private String partConfPath(int index) {
+      return confPath + ".part__" + index;
     }
-    jobs.add(job);
 
-    return new JobDescriptors(jobs, fileOutputPairs);
-  }
+    private JobListener listener(int index, int repeats, String statsfile) {
+      JobListener listener = new RuntimeRecorder(ExperimentsManager.this.listener, predictor, key, statsfile, repeats);
+      if (journal != null) {
+        listener = new JournalRecorder(listener, journal, confPath, index, statsfile);
+      }
+      return listener;
+    }
 
-  private void startOfflineTasks(List<Job> jobs, int threads) {
-    Thread t = new Thread(() -> {
-      TaskMannager tm = new TaskMannager();
-      try {
-        tm.startOfflineTasks(jobs, threads);
-      } catch (Exception e) {
-        e.printStackTrace();
+    private void superviseLog(Job job, OfflineExperimentHandler handler, int index) {
+      if (logSupervisor != null) {
+        logSupervisor.addPart(job, Utils.addBeforeExtension(originalLogFilename, index, len));
+        handler.setLogSupervisor(logSupervisor);
       }
-    });
+    }
+
+    private Task added(Task task) {
+      Job job = task.getJob();
+      jobs.add(job);
+      if (abortSiblingsOnError) {
+        task.whenDone(() -> {
+          if (job.getError() != null) {
+            abort();
+          }
+        });
+      }
+      return task;
+    }
+
+    /**
+     * Cancels the parts that have not started yet.
+     */
+    synchronized void abort() {
+      aborted = true;
+      for (Job job : jobs) {
+        if (job.getState() == Job.State.INITIALIZED) {
+          job.cancel();
+        }
+      }
+    }
+
+    synchronized boolean isAborted() {
+      return aborted;
+    }
 
-    t.setDaemon(daemon);
-    t.start();
+    /**
+     * Called once all the parts have been created.
+     */
+    synchronized void close() {
+      supervisor.setStatsfileCount(count - skipped);
+      if (logSupervisor != null) {
+        logSupervisor.setPartCount(count - skipped);
+      }
+      if (journal != null) {
+        journal.close(confPath);
+      }
+    }
   }
 
-  private void startOnlineTasks(List<OnlineJobDescriptor> descriptors, int threads) {
-    Thread t = new Thread(() -> {
-      TaskMannager tm = new TaskMannager();
+  /**
+   * Repeats of one configuration given to the jobs in chunks sized by {@link AdaptiveChunkSizer}. First chunks are
+   * given to the jobs that start at once, every other chunk is created when a job finishes. Parts are closed once the
+   * last chunk has been given out, or once no more chunks are given out because the batch has been cancelled or
+   * aborted, so the parts that have been created are still merged.
+   */
+  private class AdaptiveBatch {
+    private Parts parts;
+    private AdaptiveChunkSizer sizer;
+    private Batch batch;
+    private boolean closed;
+
+    AdaptiveBatch(Parts parts, AdaptiveChunkSizer sizer, Batch batch) {
+      this.parts = parts;
+      this.sizer = sizer;
+      this.batch = batch;
+    }
+
+    List<Task> start(int slots) {
+      List<Task> tasks = new ArrayList<>(slots);
+      for (int i = 0; i < slots; i++) {
+        Task task = next();
+        if (task == null) {
+          break;
+        }
+        tasks.add(task);
+      }
+      return tasks;
+    }
+
+    private synchronized Task next() {
+      if (closed) {
+        return null;
+      }
+      int repeats = batch.handle.isCancelled() || parts.isAborted() ? 0 : sizer.nextChunk();
+      if (repeats == 0) {
+        close();
+        return null;
+      }
+      Task task;
       try {
-        tm.startOnlineTasks(descriptors, threads);
-      } catch (Exception e) {
-        e.printStackTrace();
+        task = parts.add(repeats);
+      } catch (RuntimeException e) {
+        // parts that have been created are still merged
+        close();
+        throw e;
+      }
+      if (sizer.getRemaining() == 0) {
+        close();
       }
-    });
+      Job job = task.getJob();
+      task.whenDone(() -> {
+        sizer.finished(repeats, job.getDuration());
+        Task nextTask = next();
+        if (nextTask != null) {
+          // added before this task is done in the batch, so the batch does not end early
+          batch.add(nextTask);
+          JobScheduler.getInstance().submit(nextTask);
+        }
+      });
+      return task;
+    }
 
-    t.setDaemon(daemon);
-    t.start();
+    private void close() {
+      closed = true;
+      parts.close();
+    }
   }
 
-  public void setDaemon(boolean daemon) {
-    this.daemon = daemon;
-  }
+  /**
+   * Sweep whose configurations are taken from the iterator as the jobs finish. Every finished job refills the queue
+   * before it is done in the batch, so the batch does not end before the iterator is exhausted.
+   */
+  private class LazySweep {
+    private Iterator<SweepPoint> points;
+    private String ecfPath;
+    private boolean online;
+    private Batch batch;
+    private int queued;
+
+    LazySweep(Iterator<SweepPoint> points, String ecfPath, boolean online, Batch batch) {
+      this.points = points;
+      this.ecfPath = ecfPath;
+      this.online = online;
+      this.batch = batch;
+    }
 
-  private static FileOutputPair generateOnlineFileOutputs() {
-    try {
-      File stdoutFile = File.createTempFile("ecflab-stdout-online", ".txt");
-      File stderrFile = File.createTempFile("ecflab-stderr-online", ".txt");
-      return new FileOutputPair(stdoutFile, stderrFile);
-    } catch (IOException e) {
-      e.printStackTrace();
-      return null;
+    /**
+     * Creates the jobs of the next configurations, until the window is full or the iterator is exhausted. Only taking
+     * the configurations is synchronized, their files are written (and hashed) by the calling thread, so the threads
+     * that finish the other jobs of the sweep are not kept waiting.
+     */
+    List<Task> pull() {
+      List<Task> tasks = new ArrayList<>();
+      List<SweepPoint> taken;
+      // configurations that have failed leave room in the window for others
+      while (!(taken = take()).isEmpty()) {
+        int slots = JobScheduler.getInstance().getSlots();
+        int created = 0;
+        for (SweepPoint point : taken) {
+          try {
+            List<Task> pointTasks = createTasks(point.getConfiguration(), ecfPath, point.getConfPath(), slots, online,
+                batch);
+            tasks.addAll(pointTasks);
+            created += pointTasks.size();
+          } catch (ExperimentException e) {
+            // other configurations of the sweep still run
+            e.printStackTrace();
+          }
+        }
+        synchronized (this) {
+          queued += created - taken.size();
+        }
+      }
+      for (Task task : tasks) {
+        task.whenDone(this::done);
+      }
+      return tasks;
     }
-  }
 
-  private static class FileOutputPair {
-    File stdout;
-    File stderr;
+    /**
+     * Takes the next configurations until the window is full, every one of them counts as a single queued job until its
+     * jobs are created.
+     */
+    private synchronized List<SweepPoint> take() {
+      int slots = JobScheduler.getInstance().getSlots();
+      List<SweepPoint> taken = new ArrayList<>();
+      while (queued < SWEEP_WINDOW * slots && !batch.handle.isCancelled() && points.hasNext()) {
+        taken.add(points.next());
+        queued++;
+      }
+      return taken;
+    }
 
-    public FileOutputPair(File stdout, File stderr) {
-      this.stdout = stdout;
-      this.stderr = stderr;
+    private void done() {
+      synchronized (this) {
+        queued--;
+      }
+      List<Task> tasks = pull();
+      for (Task task : tasks) {
+        // added before this task is done in the batch, so the batch does not end early
+        batch.add(task);
+      }
+      JobScheduler.getInstance().submitAll(tasks);
     }
   }
 
-  private static class JobDescriptors {
-    List<Job> jobs;
-    List<FileOutputPair> fileOutputs;
+  /**
+   * Tasks of one experiment (or sweep). Once all of them are done, the makespan report is made and the predictor's
+   * history is saved.
+   */
+  private class Batch {
+    private List<Task> tasks = new ArrayList<>();
+    private int pending;
+    private ExperimentHandle handle = new ExperimentHandle();
+
+    synchronized boolean isEmpty() {
+      return tasks.isEmpty();
+    }
 
-    public JobDescriptors(List<Job> jobs, List<FileOutputPair> fileOutputs) {
-      this.jobs = jobs;
-      this.fileOutputs = fileOutputs;
+    synchronized void add(Task task) {
+      tasks.add(task);
+      pending++;
+      task.whenDone(this::done);
+      handle.add(task.getJob());
+    }
+
+    private void done() {
+      synchronized (this) {
+        if (--pending > 0) {
+          return;
+        }
+      }
+      end();
+    }
+
+    void end() {
+      MakespanReport report = new MakespanReport(tasks, JobScheduler.getInstance().getSlots());
+      lastReport = report;
+      try {
+        predictor.save();
+      } catch (IOException e) {
+        e.printStackTrace();
+      }
+      running.remove(handle);
+      handle.done();
     }
   }
 }
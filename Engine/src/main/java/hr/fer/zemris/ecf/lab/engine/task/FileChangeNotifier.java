@@ -0,0 +1,154 @@
+package hr.fer.zemris.ecf.lab.engine.task;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Notifies the listeners when their files change, using the file system's {@link WatchService} (inotify on Linux).
+ * Directories of the registered files are watched from one thread, events of the other files in them are ignored.
+ * <p>
+ * Listeners are called from the watching thread, so they should only schedule the work. Watch service may be missing,
+ * or may poll itself on some systems, so the users of this class should still poll the files, just less often.
+ */
+class FileChangeNotifier {
+
+  private static final FileChangeNotifier INSTANCE = new FileChangeNotifier();
+
+  private final Map<Path, List<Runnable>> listeners = new ConcurrentHashMap<>();
+  private final Map<Path, WatchKey> keys = new HashMap<>();
+  private WatchService service;
+  private boolean unavailable;
+
+  private FileChangeNotifier() {
+  }
+
+  static FileChangeNotifier getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * @param file     File that is watched
+   * @param listener Called when the file is changed
+   * @return Registration used to stop watching the file, null if the file can not be watched
+   */
+  synchronized Registration register(File file, Runnable listener) {
+    Path path = file.toPath().toAbsolutePath().normalize();
+    Path dir = path.getParent();
+    if (unavailable || dir == null) {
+      return null;
+    }
+    try {
+      if (service == null) {
+        service = FileSystems.getDefault().newWatchService();
+        Thread thread = new Thread(this::watch, "ecf-file-watch");
+        thread.setDaemon(true);
+        thread.start();
+      }
+      if (!keys.containsKey(dir)) {
+        keys.put(dir, dir.register(service, StandardWatchEventKinds.ENTRY_CREATE,
+            StandardWatchEventKinds.ENTRY_MODIFY));
+      }
+    } catch (IOException | UnsupportedOperationException e) {
+      if (service == null) {
+        // no watch service on this file system, files are only polled
+        unavailable = true;
+      }
+      return null;
+    }
+    listeners.computeIfAbsent(path, p -> new CopyOnWriteArrayList<>()).add(listener);
+    return new Registration(path, listener);
+  }
+
+  private synchronized void unregister(Path path, Runnable listener) {
+    List<Runnable> list = listeners.get(path);
+    if (list == null || !list.remove(listener) || !list.isEmpty()) {
+      return;
+    }
+    listeners.remove(path);
+    Path dir = path.getParent();
+    for (Path other : listeners.keySet()) {
+      if (dir.equals(other.getParent())) {
+        return;
+      }
+    }
+    // no more files in the directory
+    WatchKey key = keys.remove(dir);
+    if (key != null) {
+      key.cancel();
+    }
+  }
+
+  private void watch() {
+    while (true) {
+      WatchKey key;
+      try {
+        key = service.take();
+      } catch (InterruptedException | ClosedWatchServiceException e) {
+        return;
+      }
+      Path dir = (Path) key.watchable();
+      for (WatchEvent<?> event : key.pollEvents()) {
+        if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+          // events were lost, every file in the directory could have changed
+          for (Map.Entry<Path, List<Runnable>> e : listeners.entrySet()) {
+            if (dir.equals(e.getKey().getParent())) {
+              notify(e.getValue());
+            }
+          }
+        } else {
+          notify(listeners.get(dir.resolve((Path) event.context())));
+        }
+      }
+      if (!key.reset()) {
+        synchronized (this) {
+          keys.remove(dir, key);
+        }
+      }
+    }
+  }
+
+  private static void notify(List<Runnable> list) {
+    if (list == null) {
+      return;
+    }
+    for (Runnable listener : list) {
+      try {
+        listener.run();
+      } catch (RuntimeException e) {
+        e.printStackTrace();
+      }
+    }
+  }
+
+  /**
+   * Registration of one listener.
+   */
+  class Registration {
+    private final Path path;
+    private final Runnable listener;
+
+    private Registration(Path path, Runnable listener) {
+      this.path = path;
+      this.listener = listener;
+    }
+
+    /**
+     * Stops notifying the listener.
+     */
+    void cancel() {
+      unregister(path, listener);
+    }
+  }
+}
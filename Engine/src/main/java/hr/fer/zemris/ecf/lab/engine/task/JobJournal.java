@@ -0,0 +1,322 @@
+package hr.fer.zemris.ecf.lab.engine.task;
+
+import hr.fer.zemris.ecf.lab.engine.console.Job;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Append-only journal of the experiments' jobs, used to resume the experiments that were interrupted (e.g. because the
+ * application crashed) without running the finished jobs again (see {@link ExperimentsManager#resume()}).
+ * <p>
+ * Every record is one line of tab separated fields and is synced to the disk before the method returns. For every
+ * configuration the journal has its path, the parts it has been split into (index, run id and repeats), the state
+ * transitions of the parts and the statsfile lines of the finished ones. A line that has been only partly written when
+ * the application died is ignored.
+ */
+public class JobJournal {
+
+  private static final String EXPERIMENT = "CONF";
+  private static final String SERIAL = "SERIAL";
+  private static final String PART = "PART";
+  private static final String STATE = "STATE";
+  private static final String STATS = "STATS";
+  private static final String CLOSE = "CLOSE";
+
+  private final File file;
+  private FileOutputStream out;
+
+  public JobJournal(File file) {
+    this.file = file;
+  }
+
+  public File getFile() {
+    return file;
+  }
+
+  /**
+   * Configuration that is split into parts.
+   *
+   * @param maxCount  Largest number of parts
+   * @param mergeLogs true if logs of the parts are merged back into the original log
+   * @param repeats   Number of repeats of all the parts
+   */
+  void experiment(String confPath, String ecfPath, boolean online, int maxCount, boolean mergeLogs, int repeats) {
+    append(record(EXPERIMENT, confPath, ecfPath, online, maxCount, mergeLogs, repeats));
+  }
+
+  /**
+   * Configuration that runs in one job.
+   */
+  void serial(String confPath, String ecfPath, boolean online) {
+    append(record(SERIAL, confPath, ecfPath, online));
+  }
+
+  /**
+   * Part of the configuration, created before its job is started.
+   */
+  void part(String confPath, int index, int runId, int repeats) {
+    append(record(PART, confPath, index, runId, repeats));
+  }
+
+  void state(String confPath, int index, Job.State state) {
+    append(record(STATE, confPath, index, state));
+  }
+
+  /**
+   * Part has finished, its statsfile lines (with global run ids) are written together with the state.
+   */
+  void finished(String confPath, int index, List<String> stats) {
+    StringBuilder sb = new StringBuilder();
+    for (String line : stats) {
+      sb.append(record(STATS, confPath, index, line));
+    }
+    sb.append(record(STATE, confPath, index, Job.State.FINISHED));
+    append(sb.toString());
+  }
+
+  /**
+   * All the parts of the configuration have been created.
+   */
+  void close(String confPath) {
+    append(record(CLOSE, confPath));
+  }
+
+  /**
+   * Reads the journal. If the same configuration has been started more than once, only the last time is kept.
+   *
+   * @return Configurations in the order they were started
+   * @throws IOException If the journal can not be read
+   */
+  synchronized Collection<Experiment> read() throws IOException {
+    Map<String, Experiment> experiments = new LinkedHashMap<>();
+    if (!file.exists()) {
+      return experiments.values();
+    }
+    String text = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    String[] lines = text.split("\n", -1);
+    // last element is either empty or a line that has not been written completely
+    for (int i = 0; i < lines.length - 1; i++) {
+      String[] fields = lines[i].split("\t", -1);
+      for (int j = 0; j < fields.length; j++) {
+        fields[j] = unescape(fields[j]);
+      }
+      try {
+        apply(experiments, fields);
+      } catch (RuntimeException e) {
+        // broken record
+      }
+    }
+    return experiments.values();
+  }
+
+  private static void apply(Map<String, Experiment> experiments, String[] fields) {
+    String confPath = fields[1];
+    switch (fields[0]) {
+      case EXPERIMENT:
+        experiments.remove(confPath);
+        experiments.put(confPath, new Experiment(confPath, fields[2], Boolean.parseBoolean(fields[3]),
+            Integer.parseInt(fields[4]), Boolean.parseBoolean(fields[5]), Integer.parseInt(fields[6])));
+        return;
+      case SERIAL:
+        experiments.remove(confPath);
+        Experiment serial = new Experiment(confPath, fields[2], Boolean.parseBoolean(fields[3]), 1, false, 0);
+        serial.serial = true;
+        serial.closed = true;
+        experiments.put(confPath, serial);
+        return;
+    }
+    Experiment experiment = experiments.get(confPath);
+    if (experiment == null) {
+      return;
+    }
+    switch (fields[0]) {
+      case PART:
+        int index = Integer.parseInt(fields[2]);
+        experiment.parts.put(index, new Part(index, Integer.parseInt(fields[3]), Integer.parseInt(fields[4])));
+        break;
+      case STATE:
+        Part part = experiment.getPart(Integer.parseInt(fields[2]));
+        part.state = Job.State.valueOf(fields[3]);
+        if (part.state != Job.State.FINISHED) {
+          part.stats.clear();
+        }
+        break;
+      case STATS:
+        experiment.getPart(Integer.parseInt(fields[2])).stats.add(fields[3]);
+        break;
+      case CLOSE:
+        experiment.closed = true;
+        break;
+      default:
+        break;
+    }
+  }
+
+  private synchronized void append(String records) {
+    try {
+      if (out == null) {
+        File dir = file.getAbsoluteFile().getParentFile();
+        if (dir != null) {
+          dir.mkdirs();
+        }
+        out = new FileOutputStream(file, true);
+      }
+      out.write(records.getBytes(StandardCharsets.UTF_8));
+      out.getFD().sync();
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+  }
+
+  private static String record(String type, Object... fields) {
+    StringBuilder sb = new StringBuilder(type);
+    for (Object field : fields) {
+      sb.append('\t').append(escape(String.valueOf(field)));
+    }
+    return sb.append('\n').toString();
+  }
+
+  private static String escape(String field) {
+    return field.replace("\\", "\\\\").replace("\t", "\\t").replace("\n", "\\n");
+  }
+
+  private static String unescape(String field) {
+    if (field.indexOf('\\') < 0) {
+      return field;
+    }
+    StringBuilder sb = new StringBuilder(field.length());
+    for (int i = 0; i < field.length(); i++) {
+      char c = field.charAt(i);
+      if (c == '\\' && i + 1 < field.length()) {
+        char next = field.charAt(++i);
+        sb.append(next == 't' ? '\t' : next == 'n' ? '\n' : next);
+      } else {
+        sb.append(c);
+      }
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Configuration as it was when the journal was written.
+   */
+  static class Experiment {
+    final String confPath;
+    final String ecfPath;
+    final boolean online;
+    final int maxCount;
+    final boolean mergeLogs;
+    final int repeats;
+    private boolean serial;
+    private boolean closed;
+    private final Map<Integer, Part> parts = new TreeMap<>();
+
+    Experiment(String confPath, String ecfPath, boolean online, int maxCount, boolean mergeLogs, int repeats) {
+      this.confPath = confPath;
+      this.ecfPath = ecfPath;
+      this.online = online;
+      this.maxCount = maxCount;
+      this.mergeLogs = mergeLogs;
+      this.repeats = repeats;
+    }
+
+    /**
+     * @return true if the configuration runs in one job
+     */
+    boolean isSerial() {
+      return serial;
+    }
+
+    /**
+     * @return true if all the parts had been created
+     */
+    boolean isClosed() {
+      return closed;
+    }
+
+    /**
+     * @return Parts in the order of their indexes
+     */
+    Collection<Part> getParts() {
+      return parts.values();
+    }
+
+    private Part getPart(int index) {
+      return parts.computeIfAbsent(index, i -> new Part(i, 0, 0));
+    }
+
+    /**
+     * @return Number of repeats whose parts have not been created
+     */
+    int getRemainingRepeats() {
+      int created = 0;
+      for (Part part : parts.values()) {
+        created += part.repeats;
+      }
+      return Math.max(0, repeats - created);
+    }
+
+    /**
+     * @return true if there is nothing to run again
+     */
+    boolean isComplete() {
+      if (!closed && getRemainingRepeats() > 0) {
+        return false;
+      }
+      if (serial && parts.isEmpty()) {
+        return false;
+      }
+      for (Part part : parts.values()) {
+        if (!part.hasEnded()) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
+  /**
+   * Part of the configuration, run by one job. Serial configurations have one part with index 0.
+   */
+  static class Part {
+    final int index;
+    final int runId;
+    final int repeats;
+    private Job.State state = Job.State.INITIALIZED;
+    private final List<String> stats = new ArrayList<>();
+
+    Part(int index, int runId, int repeats) {
+      this.index = index;
+      this.runId = runId;
+      this.repeats = repeats;
+    }
+
+    Job.State getState() {
+      return state;
+    }
+
+    /**
+     * @return Statsfile lines of the finished part, with global run ids
+     */
+    List<String> getStats() {
+      return stats;
+    }
+
+    /**
+     * @return true if the part has finished, failed or has been cancelled
+     */
+    boolean hasEnded() {
+      return state == Job.State.FINISHED || state == Job.State.FAILED || state == Job.State.CANCELLED;
+    }
+  }
+}
@@ -5,6 +5,10 @@ import hr.fer.zemris.ecf.lab.engine.log.LogModel;
 
 /**
  * Created by Domagoj on 03/05/15.
+ * <p>
+ * Methods may be called from any thread. {@link #jobInitialized(Job)} is called by the thread that starts the
+ * experiment, or, for jobs that are created when the earlier ones finish (adaptive chunks, lazy sweeps), by the thread
+ * that finishes the earlier job. Other methods are called by the threads that run and supervise the jobs.
  */
 public interface JobListener {
 
@@ -18,4 +22,11 @@ public interface JobListener {
 
   void jobFailed(Job job);
 
+  /**
+   * Called if the job has been cancelled (see {@link Job#cancel()}), by default the job is treated as failed.
+   */
+  default void jobCancelled(Job job) {
+    jobFailed(job);
+  }
+
 }
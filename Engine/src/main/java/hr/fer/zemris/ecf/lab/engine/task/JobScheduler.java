@@ -0,0 +1,238 @@
+package hr.fer.zemris.ecf.lab.engine.task;
+
+import hr.fer.zemris.ecf.lab.engine.console.ProcessSupervisor;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Process-wide queue of ECF tasks. All experiments submit their tasks here, so the number of ECF processes running at
+ * the same time never exceeds the number of slots, no matter how many experiments have been started.
+ * <p>
+ * Slots are the permits of a semaphore, not threads: a task is started without blocking (see {@link Task#start()})
+ * and its permit is released once it has ended, so the number of threads does not depend on the number of running
+ * processes. Tasks are started by launcher threads, not by the thread that submits them (e.g. the EDT), because
+ * starting writes files and starts the process.
+ * <p>
+ * Waiting tasks are run longest first by their predicted time (see {@link Task#getPredictedTime()}), so long jobs do
+ * not start at the end of the batch and keep one slot busy while the others are idle. Tasks with the same predicted
+ * time (e.g. when nothing is known about them) are run in the order they were submitted.
+ */
+public class JobScheduler {
+
+  /**
+   * Starting a task only takes until its process has started, a few threads start all of them.
+   */
+  private static final int LAUNCHER_THREADS = 2;
+  private static final long LAUNCHER_KEEP_ALIVE_SECONDS = 1;
+
+  private static JobScheduler instance;
+
+  private final Slots slots;
+  private final PriorityBlockingQueue<QueuedTask> queue = new PriorityBlockingQueue<>();
+  private final AtomicLong sequence = new AtomicLong();
+  private final AtomicInteger running = new AtomicInteger();
+  private final AtomicInteger dispatchRequests = new AtomicInteger();
+  private final AtomicInteger launcherCount = new AtomicInteger();
+  private final ExecutorService launcher;
+  private volatile boolean daemon = false;
+  private int slotCount;
+
+  private JobScheduler(int slots) {
+    this.slots = new Slots(slots);
+    this.slotCount = slots;
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(LAUNCHER_THREADS, LAUNCHER_THREADS,
+        LAUNCHER_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+          Thread t = new Thread(r, "ecf-job-launcher-" + launcherCount.incrementAndGet());
+          t.setDaemon(daemon);
+          return t;
+        });
+    executor.allowCoreThreadTimeOut(true);
+    launcher = executor;
+  }
+
+  public static synchronized JobScheduler getInstance() {
+    if (instance == null) {
+      instance = new JobScheduler(Runtime.getRuntime().availableProcessors());
+    }
+    return instance;
+  }
+
+  /**
+   * Sets the number of tasks that can run at the same time. If there are more running tasks than the new number of
+   * slots, they are not stopped, new tasks are just not started until some of them finish.
+   *
+   * @param slots Number of tasks that can run at the same time
+   * @throws IllegalArgumentException If slots is less than 1
+   */
+  public synchronized void setSlots(int slots) {
+    if (slots < 1) {
+      throw new IllegalArgumentException("Slots: " + slots);
+    }
+    if (slots > slotCount) {
+      this.slots.release(slots - slotCount);
+    } else {
+      this.slots.reduce(slotCount - slots);
+    }
+    slotCount = slots;
+    dispatch();
+  }
+
+  public synchronized int getSlots() {
+    return slotCount;
+  }
+
+  /**
+   * @param daemon true if threads that start and watch the running tasks should not keep the application alive
+   */
+  public void setDaemon(boolean daemon) {
+    this.daemon = daemon;
+    ProcessSupervisor.getInstance().setDaemon(daemon);
+  }
+
+  /**
+   * Adds the task to the queue.
+   *
+   * @param task Task
+   * @return Future of the task
+   */
+  public Future<Void> submit(Task task) {
+    QueuedTask queued = new QueuedTask(task, sequence.getAndIncrement());
+    queue.add(queued);
+    dispatch();
+    return queued.future;
+  }
+
+  /**
+   * Adds the tasks to the queue. Tasks are submitted longest first, because tasks that get a free slot at once do not
+   * wait in the queue.
+   *
+   * @param tasks Tasks
+   * @return Futures of the tasks, in the same order
+   */
+  public List<Future<Void>> submitAll(List<Task> tasks) {
+    List<Integer> order = new ArrayList<>(tasks.size());
+    for (int i = 0; i < tasks.size(); i++) {
+      order.add(i);
+    }
+    // stable, tasks with the same prediction keep their order
+    order.sort(Comparator.comparingDouble(i -> -tasks.get(i).getPredictedTime()));
+    List<Future<Void>> futures = new ArrayList<>(tasks.size());
+    for (int i = 0; i < tasks.size(); i++) {
+      futures.add(null);
+    }
+    for (int i : order) {
+      futures.set(i, submit(tasks.get(i)));
+    }
+    return futures;
+  }
+
+  /**
+   * @return Number of tasks that wait for a slot
+   */
+  public int getQueuedCount() {
+    return queue.size();
+  }
+
+  /**
+   * @return Number of tasks that are running
+   */
+  public int getRunningCount() {
+    return running.get();
+  }
+
+  /**
+   * Starts queued tasks while there are free slots. Only one thread dispatches at a time, the others just ask it to
+   * check the queue again, so tasks that end at once (e.g. cancelled ones) do not start the next tasks recursively.
+   */
+  private void dispatch() {
+    if (dispatchRequests.getAndIncrement() > 0) {
+      return;
+    }
+    int requests = 1;
+    do {
+      while (!queue.isEmpty() && slots.tryAcquire()) {
+        QueuedTask queued = queue.poll();
+        if (queued == null) {
+          slots.release();
+        } else {
+          run(queued);
+        }
+      }
+      requests = dispatchRequests.addAndGet(-requests);
+    } while (requests > 0);
+  }
+
+  private void run(QueuedTask queued) {
+    running.incrementAndGet();
+    launcher.execute(() -> start(queued));
+  }
+
+  private void start(QueuedTask queued) {
+    CompletableFuture<Void> future;
+    try {
+      future = queued.task.start();
+    } catch (RuntimeException e) {
+      future = new CompletableFuture<>();
+      future.completeExceptionally(e);
+    }
+    future.whenComplete((v, e) -> {
+      running.decrementAndGet();
+      slots.release();
+      if (e != null) {
+        queued.future.completeExceptionally(e);
+      } else {
+        queued.future.complete(null);
+      }
+      dispatch();
+    });
+  }
+
+  /**
+   * Semaphore whose number of permits can be reduced.
+   */
+  private static class Slots extends Semaphore {
+    private static final long serialVersionUID = 1L;
+
+    Slots(int permits) {
+      super(permits);
+    }
+
+    void reduce(int permits) {
+      reducePermits(permits);
+    }
+  }
+
+  /**
+   * Queued task ordered by the predicted time (longest first) and then by the order of submission.
+   */
+  private static class QueuedTask implements Comparable<QueuedTask> {
+    private final Task task;
+    private final double predictedTime;
+    private final long sequence;
+    private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+    QueuedTask(Task task, long sequence) {
+      this.task = task;
+      this.predictedTime = task.getPredictedTime();
+      this.sequence = sequence;
+    }
+
+    @Override
+    public int compareTo(QueuedTask other) {
+      int c = Double.compare(other.predictedTime, predictedTime);
+      return c != 0 ? c : Long.compare(sequence, other.sequence);
+    }
+  }
+}
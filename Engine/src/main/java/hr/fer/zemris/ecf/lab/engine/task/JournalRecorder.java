@@ -0,0 +1,77 @@
+package hr.fer.zemris.ecf.lab.engine.task;
+
+import hr.fer.zemris.ecf.lab.engine.console.Job;
+import hr.fer.zemris.ecf.lab.engine.log.LogModel;
+import hr.fer.zemris.ecf.lab.engine.stats.StatsParser;
+
+import java.io.FileNotFoundException;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * {@link JobListener} that writes the state transitions of the job to the {@link JobJournal} before it passes the
+ * events on. Statsfile lines of the finished job are written too, so the merged statsfile can be rebuilt from the
+ * journal once the job's statsfile has been deleted.
+ */
+class JournalRecorder implements JobListener {
+  private JobListener listener;
+  private JobJournal journal;
+  private String confPath;
+  private int index;
+  private String statsfile;
+
+  /**
+   * @param confPath  Path of the configuration the job is a part of
+   * @param index     Index of the part, 0 if the configuration runs in one job
+   * @param statsfile Statsfile of the job, null if its lines are not needed
+   */
+  JournalRecorder(JobListener listener, JobJournal journal, String confPath, int index, String statsfile) {
+    this.listener = listener;
+    this.journal = journal;
+    this.confPath = confPath;
+    this.index = index;
+    this.statsfile = statsfile;
+  }
+
+  @Override
+  public void jobInitialized(Job job) {
+    listener.jobInitialized(job);
+  }
+
+  @Override
+  public void jobStarted(Job job) {
+    journal.state(confPath, index, Job.State.RUNNING);
+    listener.jobStarted(job);
+  }
+
+  @Override
+  public void jobPartiallyFinished(Job job, LogModel log) {
+    listener.jobPartiallyFinished(job, log);
+  }
+
+  @Override
+  public void jobFinished(Job job, LogModel log) {
+    List<String> stats = Collections.emptyList();
+    if (statsfile != null) {
+      try {
+        stats = StatsHandler.updateRunId(StatsParser.extractStatsLines(statsfile), job);
+      } catch (FileNotFoundException | RuntimeException e) {
+        // no statsfile or a broken one, there is nothing to merge
+      }
+    }
+    journal.finished(confPath, index, stats);
+    listener.jobFinished(job, log);
+  }
+
+  @Override
+  public void jobFailed(Job job) {
+    journal.state(confPath, index, Job.State.FAILED);
+    listener.jobFailed(job);
+  }
+
+  @Override
+  public void jobCancelled(Job job) {
+    journal.state(confPath, index, Job.State.CANCELLED);
+    listener.jobCancelled(job);
+  }
+}
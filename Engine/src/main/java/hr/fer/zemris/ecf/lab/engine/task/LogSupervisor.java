@@ -0,0 +1,100 @@
+package hr.fer.zemris.ecf.lab.engine.task;
+
+import hr.fer.zemris.ecf.lab.engine.console.Job;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Merges log files of the jobs that run parts of the same experiment back into the original log file, in the order of
+ * the jobs' run ids, once all of them have ended. Logs of the parts that have failed or have been cancelled are left
+ * out, so the merged log then has only the finished runs. Part logs are deleted after merging.
+ */
+public class LogSupervisor {
+  private String originalLogFilename;
+  private Map<Integer, String> parts = new TreeMap<>();
+  private int endedCount;
+  private int partCount = -1;
+
+  public LogSupervisor(String originalLogFilename) {
+    this.originalLogFilename = originalLogFilename;
+  }
+
+  /**
+   * Should be called for every part before it is started.
+   *
+   * @param job             Job with the run id of its first repeat
+   * @param partLogFilename Log file of the job
+   */
+  public synchronized void addPart(Job job, String partLogFilename) {
+    parts.put(job.getRunId(), partLogFilename);
+  }
+
+  /**
+   * Adds the part that has finished before the experiment was resumed (see {@link ExperimentsManager#resume()}).
+   *
+   * @param runId           Run id of the part's first repeat
+   * @param partLogFilename Log file of the part
+   */
+  public synchronized void addFinishedPart(int runId, String partLogFilename) {
+    parts.put(runId, partLogFilename);
+    endedCount++;
+  }
+
+  /**
+   * Logs are merged once this number of parts has ended.
+   *
+   * @param partCount Number of parts
+   */
+  public synchronized void setPartCount(int partCount) {
+    this.partCount = partCount;
+    mergeIfEnded();
+  }
+
+  public synchronized void finished(Job job) {
+    endedCount++;
+    mergeIfEnded();
+  }
+
+  /**
+   * Called if the part has failed or has been cancelled, its log is not merged and is deleted.
+   */
+  public synchronized void skipped(Job job) {
+    String part = parts.remove(job.getRunId());
+    if (part != null) {
+      new File(part).delete();
+    }
+    endedCount++;
+    mergeIfEnded();
+  }
+
+  private void mergeIfEnded() {
+    // nothing to merge if no part has finished
+    if (endedCount == partCount && !parts.isEmpty()) {
+      mergeLogs();
+    }
+  }
+
+  private void mergeLogs() {
+    try (OutputStream out = Files.newOutputStream(Paths.get(originalLogFilename))) {
+      for (String part : parts.values()) {
+        Path path = Paths.get(part);
+        if (Files.exists(path)) {
+          Files.copy(path, out);
+        }
+      }
+    } catch (IOException e) {
+      e.printStackTrace();
+      return;
+    }
+    for (String part : parts.values()) {
+      new File(part).delete();
+    }
+  }
+}
@@ -0,0 +1,91 @@
+package hr.fer.zemris.ecf.lab.engine.task;
+
+import hr.fer.zemris.ecf.lab.engine.console.Job;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Predicted and actual makespan of a batch of jobs, i.e. the time from the start of the first job until the end of
+ * the last one. Predicted makespan is the makespan of the jobs' predicted times when they are run longest first in the
+ * scheduler's slots.
+ */
+public class MakespanReport {
+  private int jobCount;
+  private int slots;
+  private double predicted;
+  private double actual;
+  private String details;
+
+  MakespanReport(List<Task> tasks, int slots) {
+    this.jobCount = tasks.size();
+    this.slots = slots;
+    double[] times = new double[tasks.size()];
+    long start = Long.MAX_VALUE;
+    long end = Long.MIN_VALUE;
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < times.length; i++) {
+      Task task = tasks.get(i);
+      Job job = task.getJob();
+      times[i] = task.getPredictedTime();
+      if (job.getStartTime() >= 0 && job.getEndTime() >= 0) {
+        start = Math.min(start, job.getStartTime());
+        end = Math.max(end, job.getEndTime());
+      }
+      // jobs cancelled before they started have no duration
+      String actualTime = job.getDuration() >= 0 ? String.format("%.1f s", job.getDuration() / 1000.0) : "not run";
+      sb.append(String.format("  %s: predicted %.1f s, actual %s%n", job.getConfigPath(), times[i], actualTime));
+    }
+    predicted = predictMakespan(times, slots);
+    actual = start <= end ? (end - start) / 1000.0 : 0;
+    details = sb.toString();
+  }
+
+  /**
+   * Makespan of the jobs scheduled longest first, each to the slot that is free first.
+   *
+   * @param times Times of the jobs
+   * @param slots Number of slots
+   * @return Makespan
+   */
+  static double predictMakespan(double[] times, int slots) {
+    double[] sorted = times.clone();
+    Arrays.sort(sorted);
+    PriorityQueue<Double> loads = new PriorityQueue<>();
+    for (int i = 0; i < Math.max(1, slots); i++) {
+      loads.add(0.0);
+    }
+    double makespan = 0;
+    for (int i = sorted.length - 1; i >= 0; i--) {
+      double load = loads.poll() + sorted[i];
+      makespan = Math.max(makespan, load);
+      loads.add(load);
+    }
+    return makespan;
+  }
+
+  public int getJobCount() {
+    return jobCount;
+  }
+
+  /**
+   * @return Predicted makespan in seconds
+   */
+  public double getPredictedMakespan() {
+    return predicted;
+  }
+
+  /**
+   * @return Actual makespan in seconds
+   */
+  public double getActualMakespan() {
+    return actual;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("Jobs: %d, slots: %d, predicted makespan: %.1f s, actual makespan: %.1f s%n%s", jobCount,
+        slots, predicted, actual, details);
+  }
+}
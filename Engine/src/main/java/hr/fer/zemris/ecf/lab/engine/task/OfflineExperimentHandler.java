@@ -14,6 +14,7 @@ import java.io.InputStream;
 public class OfflineExperimentHandler implements JobObserver {
   protected JobListener listener;
   private StatsHandler statsHandler;
+  private LogSupervisor logSupervisor;
 
   public OfflineExperimentHandler(JobListener listener) {
     this.listener = listener;
@@ -32,18 +33,52 @@ public class OfflineExperimentHandler implements JobObserver {
   @Override
   public void jobFinished(Job job, ProcessOutput output) {
     ExperimentHandlerUtils.deleteConfIfNeeded(job);
-    InputStream is = output.getStdout();
-    LogModel log = LogReaderProvider.getReader().read(is);
+    LogModel log = readLog(output);
     listener.jobFinished(job, log);
 
     if (statsHandler != null) {
       statsHandler.finished(job);
     }
+    if (logSupervisor != null) {
+      logSupervisor.finished(job);
+    }
+  }
+
+  /**
+   * @param logSupervisor Supervisor that merges the job's log file with the logs of the other parts of the experiment
+   */
+  public void setLogSupervisor(LogSupervisor logSupervisor) {
+    this.logSupervisor = logSupervisor;
+  }
+
+  protected LogModel readLog(ProcessOutput output) {
+    InputStream is = output.getStdout();
+    return LogReaderProvider.getReader().read(is);
   }
 
   @Override
   public void jobFailed(Job job) {
     ExperimentHandlerUtils.deleteConfIfNeeded(job);
     listener.jobFailed(job);
+    skipped(job);
+  }
+
+  @Override
+  public void jobCancelled(Job job) {
+    ExperimentHandlerUtils.deleteConfIfNeeded(job);
+    listener.jobCancelled(job);
+    skipped(job);
+  }
+
+  /**
+   * Other parts of the experiment are merged without the part that has not finished.
+   */
+  private void skipped(Job job) {
+    if (statsHandler != null) {
+      statsHandler.skipped(job);
+    }
+    if (logSupervisor != null) {
+      logSupervisor.skipped(job);
+    }
   }
 }
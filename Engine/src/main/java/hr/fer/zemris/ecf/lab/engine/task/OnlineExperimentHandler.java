@@ -3,12 +3,10 @@ package hr.fer.zemris.ecf.lab.engine.task;
 import hr.fer.zemris.ecf.lab.engine.console.Job;
 import hr.fer.zemris.ecf.lab.engine.console.ProcessOutput;
 import hr.fer.zemris.ecf.lab.engine.log.LogModel;
-import hr.fer.zemris.ecf.lab.engine.log.reader.LogReaderProvider;
+import hr.fer.zemris.ecf.lab.engine.log.reader.IncrementalLogReader;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.io.IOException;
 
 /**
  * Created by dstankovic on 4/5/16.
@@ -16,52 +14,73 @@ import java.util.TimerTask;
 public class OnlineExperimentHandler extends OfflineExperimentHandler {
   private File stdoutFile;
   private File stderrFile;
+  private IncrementalLogReader reader;
 
-  private Timer timer;
-  private static final long REFRESH_INTERVAL = 1000;
+  private RefreshScheduler.Refresh refresh;
 
   public OnlineExperimentHandler(JobListener listener, File stdoutFile, File stderrFile) {
     super(listener);
     this.stdoutFile = stdoutFile;
     this.stderrFile = stderrFile;
+    this.reader = new IncrementalLogReader(stdoutFile);
   }
 
   public OnlineExperimentHandler(JobListener listener, File stdoutFile, File stderrFile, StatsHandler statsHandler) {
     super(listener, statsHandler);
     this.stdoutFile = stdoutFile;
     this.stderrFile = stderrFile;
+    this.reader = new IncrementalLogReader(stdoutFile);
   }
 
   @Override
   public void jobStarted(Job job) {
     super.jobStarted(job);
-    initTimer(job);
+    initRefresh(job);
   }
 
   @Override
   public void jobFinished(Job job, ProcessOutput output) {
-    timer.cancel();
+    if (refresh != null) {
+      refresh.cancel();
+    }
     super.jobFinished(job, output);
   }
 
   @Override
   public void jobFailed(Job job) {
-    timer.cancel();
+    if (refresh != null) {
+      refresh.cancel();
+    }
     super.jobFailed(job);
   }
 
-  private void initTimer(Job job) {
-    timer = new Timer();
-    timer.scheduleAtFixedRate(new TimerTask() {
-      @Override
-      public void run() {
-        try {
-          LogModel log = LogReaderProvider.getReader().read(new FileInputStream(stdoutFile));
-          listener.jobPartiallyFinished(job, log);
-        } catch (Exception e) {
-          e.printStackTrace();
-        }
+  @Override
+  public void jobCancelled(Job job) {
+    if (refresh != null) {
+      refresh.cancel();
+    }
+    super.jobCancelled(job);
+  }
+
+  @Override
+  protected LogModel readLog(ProcessOutput output) {
+    try {
+      // stdout has already been parsed up to the last refresh, parse only the rest
+      return reader.finish();
+    } catch (IOException e) {
+      e.printStackTrace();
+      return super.readLog(output);
+    }
+  }
+
+  private void initRefresh(Job job) {
+    refresh = RefreshScheduler.getInstance().schedule(stdoutFile, () -> {
+      try {
+        LogModel log = reader.refresh();
+        listener.jobPartiallyFinished(job, log);
+      } catch (Exception e) {
+        e.printStackTrace();
       }
-    }, REFRESH_INTERVAL, REFRESH_INTERVAL);
+    });
   }
 }
@@ -0,0 +1,56 @@
+package hr.fer.zemris.ecf.lab.engine.task;
+
+import hr.fer.zemris.ecf.lab.engine.console.Console;
+import hr.fer.zemris.ecf.lab.engine.console.DetachedConsole;
+import hr.fer.zemris.ecf.lab.engine.console.Job;
+
+import java.io.File;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * {@link Console} that does not start ECF, it collects the job found in the workspace of the {@link DetachedConsole}
+ * (see {@link DetachedConsole#reattach(Job)}), so a reattached job is a {@link Task} like the jobs that are started.
+ * Files given by the task are ignored, the detached process has its own.
+ */
+class ReattachConsole implements Console {
+  private DetachedConsole detached;
+
+  ReattachConsole(DetachedConsole detached) {
+    this.detached = detached;
+  }
+
+  @Override
+  public void pardump(String ecfPath, String pardumpPath) {
+    detached.pardump(ecfPath, pardumpPath);
+  }
+
+  @Override
+  public void execute(Job job) {
+    executeAsync(job).join();
+  }
+
+  @Override
+  public void execute(Job job, File stdoutFile, File stderrFile) {
+    execute(job);
+  }
+
+  @Override
+  public void stream(Job job, File stdoutFile) {
+    execute(job);
+  }
+
+  @Override
+  public CompletableFuture<Void> executeAsync(Job job) {
+    return detached.reattach(job);
+  }
+
+  @Override
+  public CompletableFuture<Void> executeAsync(Job job, File stdoutFile, File stderrFile) {
+    return executeAsync(job);
+  }
+
+  @Override
+  public CompletableFuture<Void> streamAsync(Job job, File stdoutFile) {
+    return executeAsync(job);
+  }
+}
@@ -0,0 +1,181 @@
+package hr.fer.zemris.ecf.lab.engine.task;
+
+import java.io.File;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Refreshes the logs of all online jobs from a few shared threads.
+ * <p>
+ * Every job is refreshed with a fixed delay after its previous refresh has ended, so slow refreshes never pile up. Log
+ * that has not grown is not parsed and its interval is doubled. Otherwise the interval is long enough that the
+ * refreshes of all live jobs take at most half of the refresher threads' time, so the cost stays bounded however many
+ * jobs are running and however fast their logs grow.
+ * <p>
+ * If the log can be watched by the {@link FileChangeNotifier}, it is refreshed when it changes: changes that arrive
+ * together are coalesced into one refresh, which is not run sooner than the interval after the previous one. Log is then
+ * polled only every {@link #MAX_INTERVAL}, in case some changes are not reported.
+ */
+class RefreshScheduler {
+
+  static final long MIN_INTERVAL = 1000;
+  static final long MAX_INTERVAL = 10000;
+  static final long COALESCE_DELAY = 100;
+  private static final double TARGET_LOAD = 0.5;
+  private static final long KEEP_ALIVE_SECONDS = 60;
+
+  private static final RefreshScheduler INSTANCE = new RefreshScheduler();
+
+  private final int threads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+  private final ScheduledThreadPoolExecutor executor;
+  private final AtomicInteger threadCount = new AtomicInteger();
+  private final AtomicInteger live = new AtomicInteger();
+
+  private RefreshScheduler() {
+    executor = new ScheduledThreadPoolExecutor(threads, r -> {
+      Thread t = new Thread(r, "ecf-online-refresh-" + threadCount.incrementAndGet());
+      t.setDaemon(true);
+      return t;
+    });
+    executor.setKeepAliveTime(KEEP_ALIVE_SECONDS, TimeUnit.SECONDS);
+    executor.allowCoreThreadTimeOut(true);
+    executor.setRemoveOnCancelPolicy(true);
+  }
+
+  static RefreshScheduler getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * Starts refreshing the log.
+   *
+   * @param file    Log file that is watched for growth
+   * @param refresh Parses the log and notifies the listener
+   * @return Handle used to stop the refreshes
+   */
+  Refresh schedule(File file, Runnable refresh) {
+    Refresh r = new Refresh(file, refresh);
+    live.incrementAndGet();
+    r.watch = FileChangeNotifier.getInstance().register(file, r::changed);
+    r.reschedule();
+    return r;
+  }
+
+  /**
+   * @param interval Current interval in milliseconds
+   * @param grown    Number of bytes the log has grown since the previous refresh
+   * @param cost     Duration of the refresh in milliseconds
+   * @param live     Number of jobs that are refreshed
+   * @param threads  Number of refresher threads
+   * @return Interval until the next refresh in milliseconds
+   */
+  static long nextInterval(long interval, long grown, long cost, int live, int threads) {
+    if (grown <= 0) {
+      return Math.min(Math.max(interval, MIN_INTERVAL) * 2, MAX_INTERVAL);
+    }
+    long byLoad = (long) (cost * (double) live / (threads * TARGET_LOAD));
+    return Math.min(Math.max(byLoad, MIN_INTERVAL), MAX_INTERVAL);
+  }
+
+  /**
+   * Refreshes of one job.
+   */
+  class Refresh implements Runnable {
+    private final File file;
+    private final Runnable refresh;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicBoolean pending = new AtomicBoolean();
+    private volatile long interval = MIN_INTERVAL;
+    private volatile long lastRun;
+    private long lastSize;
+    private volatile boolean cancelled;
+    private ScheduledFuture<?> next;
+    private FileChangeNotifier.Registration watch;
+
+    private Refresh(File file, Runnable refresh) {
+      this.file = file;
+      this.refresh = refresh;
+    }
+
+    @Override
+    public void run() {
+      if (!running.compareAndSet(false, true)) {
+        // previous refresh is still running, this one is skipped
+        return;
+      }
+      long grown;
+      long cost;
+      try {
+        long size = file.length();
+        grown = size - lastSize;
+        long start = System.nanoTime();
+        if (grown > 0) {
+          refresh.run();
+          lastSize = size;
+        }
+        cost = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        lastRun = System.currentTimeMillis();
+      } finally {
+        running.set(false);
+      }
+      interval = nextInterval(interval, grown, cost, live.get(), threads);
+      reschedule();
+    }
+
+    private synchronized void reschedule() {
+      if (next != null) {
+        // refresh run out of the schedule replaces the scheduled one
+        next.cancel(false);
+      }
+      if (!cancelled) {
+        // watched log is only polled in case some of its changes are not reported
+        long delay = watch != null ? MAX_INTERVAL : interval;
+        next = executor.schedule(this, delay, TimeUnit.MILLISECONDS);
+      }
+    }
+
+    /**
+     * Called when the log has changed. Refresh is scheduled unless one is already pending, so a burst of changes
+     * causes one refresh.
+     */
+    void changed() {
+      if (cancelled || !pending.compareAndSet(false, true)) {
+        return;
+      }
+      long delay = Math.max(COALESCE_DELAY, lastRun + interval - System.currentTimeMillis());
+      executor.schedule(() -> {
+        pending.set(false);
+        if (!cancelled) {
+          run();
+        }
+      }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return Interval until the next refresh in milliseconds
+     */
+    long getInterval() {
+      return interval;
+    }
+
+    /**
+     * Stops the refreshes, refresh that is running is not interrupted.
+     */
+    synchronized void cancel() {
+      if (cancelled) {
+        return;
+      }
+      cancelled = true;
+      live.decrementAndGet();
+      if (watch != null) {
+        watch.cancel();
+      }
+      if (next != null) {
+        next.cancel(false);
+      }
+    }
+  }
+}
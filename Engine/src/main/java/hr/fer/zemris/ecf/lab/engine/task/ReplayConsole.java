@@ -0,0 +1,97 @@
+package hr.fer.zemris.ecf.lab.engine.task;
+
+import hr.fer.zemris.ecf.lab.engine.console.Console;
+import hr.fer.zemris.ecf.lab.engine.console.Job;
+import hr.fer.zemris.ecf.lab.engine.console.ProcessOutput;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * {@link Console} that does not run ECF, it replays the job's result from the {@link ResultCache}. Log and statsfile
+ * are written where the job's configuration names them and stdout is given to the job like ECF's, so the job's
+ * observer handles it the same way (and e.g. merges the logs of the parts).
+ */
+class ReplayConsole implements Console {
+  private ResultCache.Result result;
+  private String logFile;
+  private String statsfile;
+
+  /**
+   * @param logFile   Log file of the job, null if it has none
+   * @param statsfile Statsfile of the job, null if it has none
+   */
+  ReplayConsole(ResultCache.Result result, String logFile, String statsfile) {
+    this.result = result;
+    this.logFile = logFile;
+    this.statsfile = statsfile;
+  }
+
+  @Override
+  public void pardump(String ecfPath, String pardumpPath) {
+    throw new UnsupportedOperationException("Results are replayed, ECF is not run");
+  }
+
+  @Override
+  public void execute(Job job) {
+    replay(job, null, null, false);
+  }
+
+  @Override
+  public void execute(Job job, File stdoutFile, File stderrFile) {
+    replay(job, stdoutFile, stderrFile, false);
+  }
+
+  @Override
+  public void stream(Job job, File stdoutFile) {
+    replay(job, stdoutFile, null, true);
+  }
+
+  @Override
+  public CompletableFuture<Void> executeAsync(Job job) {
+    execute(job);
+    return CompletableFuture.completedFuture(null);
+  }
+
+  @Override
+  public CompletableFuture<Void> executeAsync(Job job, File stdoutFile, File stderrFile) {
+    execute(job, stdoutFile, stderrFile);
+    return CompletableFuture.completedFuture(null);
+  }
+
+  @Override
+  public CompletableFuture<Void> streamAsync(Job job, File stdoutFile) {
+    stream(job, stdoutFile);
+    return CompletableFuture.completedFuture(null);
+  }
+
+  private void replay(Job job, File stdoutFile, File stderrFile, boolean stream) {
+    job.started();
+    try {
+      write(logFile, result.log);
+      write(statsfile, result.stats);
+      if (stdoutFile != null) {
+        Files.write(stdoutFile.toPath(), result.stdout);
+      }
+      if (stderrFile != null) {
+        Files.write(stderrFile.toPath(), result.stderr);
+      }
+      if (stream) {
+        job.output(result.stdout, 0, result.stdout.length);
+      }
+      job.finished(new ProcessOutput(new ByteArrayInputStream(result.stdout), new ByteArrayInputStream(result.stderr)));
+    } catch (Throwable e) {
+      e.printStackTrace();
+      job.failed();
+    }
+  }
+
+  private static void write(String path, byte[] bytes) throws IOException {
+    if (path != null && bytes != null) {
+      Files.write(new File(path).toPath(), bytes);
+    }
+  }
+}
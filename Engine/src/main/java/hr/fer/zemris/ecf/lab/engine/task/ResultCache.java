@@ -0,0 +1,196 @@
+package hr.fer.zemris.ecf.lab.engine.task;
+
+import hr.fer.zemris.ecf.lab.engine.param.Configuration;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Local store of ECF's results, addressed by the hash of what the results depend on: the configuration (algorithms,
+ * genotypes and registry entries sorted by key, apart from the entries that only name the output files) and the
+ * contents of the ECF binary. A job whose results are in the store does not run ECF, its stdout, log and statsfile are
+ * replayed instead (see {@link ExperimentsManager#setResultCache(ResultCache)}).
+ * <p>
+ * Only configurations with a fixed random seed are stored, seed 0 (or no seed) makes ECF seed from the time, so its
+ * runs can not be repeated. Every result is a directory named by the hash, with ECF's stdout, stderr, log and
+ * statsfile. Milestone files are not stored.
+ */
+public class ResultCache {
+
+  /**
+   * Registry entries that only name the files ECF writes.
+   */
+  private static final Set<String> OUTPUT_ENTRIES = new HashSet<>(Arrays.asList(
+      "batch.statsfile", "log.filename", "milestone.filename"));
+  private static final String SEED = "randomizer.seed";
+
+  private static final String STDOUT = "stdout.txt";
+  private static final String STDERR = "stderr.txt";
+  private static final String LOG = "log.txt";
+  private static final String STATS = "stats.txt";
+
+  private final File dir;
+  /**
+   * Hashes of the ECF binaries by path, hashed again only if the file has changed.
+   */
+  private final Map<String, BinaryHash> binaries = new ConcurrentHashMap<>();
+
+  /**
+   * @param dir Directory of the store, created if it does not exist
+   */
+  public ResultCache(File dir) {
+    this.dir = dir;
+  }
+
+  public File getDir() {
+    return dir;
+  }
+
+  /**
+   * @param conf    Configuration as it is given to ECF
+   * @param ecfPath Path to the ECF
+   * @return Hash of the configuration and the ECF binary, null if the results can not be cached
+   */
+  String key(Configuration conf, String ecfPath) {
+    String seed = conf.registry.getValue(SEED);
+    if (seed == null || seed.trim().isEmpty() || seed.trim().equals("0")) {
+      return null;
+    }
+    String binary;
+    try {
+      binary = binaryHash(ecfPath);
+    } catch (IOException e) {
+      e.printStackTrace();
+      return null;
+    }
+    return ConfigurationHash.hash("ecf " + binary + "\n" + ConfigurationHash.canonical(conf, OUTPUT_ENTRIES));
+  }
+
+  /**
+   * @return Stored result, null if there is none
+   */
+  Result get(String key) {
+    File resultDir = new File(dir, key);
+    if (!new File(resultDir, STDOUT).isFile()) {
+      return null;
+    }
+    try {
+      return new Result(read(resultDir, STDOUT), read(resultDir, STDERR), read(resultDir, LOG), read(resultDir, STATS));
+    } catch (IOException e) {
+      e.printStackTrace();
+      return null;
+    }
+  }
+
+  /**
+   * Stores the result, unless there already is one. Files are written to a temporary directory that is then renamed,
+   * so a result is never read before all of its files have been written.
+   */
+  void put(String key, Result result) {
+    File resultDir = new File(dir, key);
+    if (resultDir.exists()) {
+      return;
+    }
+    File tmp = null;
+    try {
+      dir.mkdirs();
+      tmp = Files.createTempDirectory(dir.toPath(), key + ".tmp").toFile();
+      write(tmp, STDOUT, result.stdout);
+      write(tmp, STDERR, result.stderr);
+      write(tmp, LOG, result.log);
+      write(tmp, STATS, result.stats);
+      if (tmp.renameTo(resultDir)) {
+        tmp = null;
+      }
+    } catch (IOException e) {
+      e.printStackTrace();
+    } finally {
+      if (tmp != null) {
+        delete(tmp);
+      }
+    }
+  }
+
+  /**
+   * Deletes all the stored results.
+   */
+  public void clear() {
+    File[] files = dir.listFiles(File::isDirectory);
+    if (files != null) {
+      for (File file : files) {
+        delete(file);
+      }
+    }
+  }
+
+  private String binaryHash(String ecfPath) throws IOException {
+    File file = new File(ecfPath);
+    if (!file.isFile()) {
+      // found on the PATH, only its name is known
+      return ecfPath;
+    }
+    String path = file.getAbsolutePath();
+    BinaryHash hash = binaries.get(path);
+    if (hash == null || hash.length != file.length() || hash.lastModified != file.lastModified()) {
+      hash = new BinaryHash(file.length(), file.lastModified(), ConfigurationHash.hash(file));
+      binaries.put(path, hash);
+    }
+    return hash.hash;
+  }
+
+  private static byte[] read(File resultDir, String name) throws IOException {
+    File file = new File(resultDir, name);
+    return file.exists() ? Files.readAllBytes(file.toPath()) : null;
+  }
+
+  private static void write(File resultDir, String name, byte[] bytes) throws IOException {
+    if (bytes != null) {
+      Files.write(new File(resultDir, name).toPath(), bytes);
+    }
+  }
+
+  private static void delete(File resultDir) {
+    File[] files = resultDir.listFiles();
+    if (files != null) {
+      for (File file : files) {
+        file.delete();
+      }
+    }
+    resultDir.delete();
+  }
+
+  /**
+   * Output of one job, log and statsfile are null if ECF has not written them.
+   */
+  static class Result {
+    final byte[] stdout;
+    final byte[] stderr;
+    final byte[] log;
+    final byte[] stats;
+
+    Result(byte[] stdout, byte[] stderr, byte[] log, byte[] stats) {
+      this.stdout = stdout;
+      this.stderr = stderr != null ? stderr : new byte[0];
+      this.log = log;
+      this.stats = stats;
+    }
+  }
+
+  private static class BinaryHash {
+    final long length;
+    final long lastModified;
+    final String hash;
+
+    BinaryHash(long length, long lastModified, String hash) {
+      this.length = length;
+      this.lastModified = lastModified;
+      this.hash = hash;
+    }
+  }
+}
@@ -0,0 +1,146 @@
+package hr.fer.zemris.ecf.lab.engine.task;
+
+import hr.fer.zemris.ecf.lab.engine.console.Job;
+import hr.fer.zemris.ecf.lab.engine.console.JobObserver;
+import hr.fer.zemris.ecf.lab.engine.console.ProcessOutput;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+
+/**
+ * {@link JobObserver} that stores the output of the finished job in the {@link ResultCache} before and after it passes
+ * the events on. Log and statsfile are read before the handler merges (and deletes) them, stdout is recorded while the
+ * handler reads it (or as it is streamed). Jobs that have written an error are not stored.
+ */
+class ResultRecorder implements JobObserver {
+  private JobObserver observer;
+  private ResultCache cache;
+  private String key;
+  private String logFile;
+  private String statsfile;
+  private ByteArrayOutputStream streamed = new ByteArrayOutputStream();
+
+  /**
+   * @param logFile   Log file of the job, null if it has none
+   * @param statsfile Statsfile of the job, null if it has none
+   */
+  ResultRecorder(JobObserver observer, ResultCache cache, String key, String logFile, String statsfile) {
+    this.observer = observer;
+    this.cache = cache;
+    this.key = key;
+    this.logFile = logFile;
+    this.statsfile = statsfile;
+  }
+
+  @Override
+  public void jobStarted(Job job) {
+    observer.jobStarted(job);
+  }
+
+  @Override
+  public void jobOutput(Job job, byte[] bytes, int offset, int length) {
+    synchronized (streamed) {
+      streamed.write(bytes, offset, length);
+    }
+    observer.jobOutput(job, bytes, offset, length);
+  }
+
+  @Override
+  public void jobFinished(Job job, ProcessOutput output) {
+    byte[] log = readIfExists(logFile);
+    byte[] stats = readIfExists(statsfile);
+    byte[] stderr;
+    try (InputStream in = output.getStderr()) {
+      stderr = readAll(in);
+    } catch (IOException e) {
+      e.printStackTrace();
+      stderr = null;
+    }
+    ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+    InputStream tee = new FilterInputStream(output.getStdout()) {
+      @Override
+      public int read() throws IOException {
+        int b = super.read();
+        if (b >= 0) {
+          stdout.write(b);
+        }
+        return b;
+      }
+
+      @Override
+      public int read(byte[] b, int off, int len) throws IOException {
+        int n = super.read(b, off, len);
+        if (n > 0) {
+          stdout.write(b, off, n);
+        }
+        return n;
+      }
+
+      @Override
+      public long skip(long n) throws IOException {
+        byte[] skipped = new byte[(int) Math.min(n, 64 * 1024)];
+        return Math.max(0, read(skipped, 0, skipped.length));
+      }
+
+      @Override
+      public boolean markSupported() {
+        return false;
+      }
+    };
+    observer.jobFinished(job, new ProcessOutput(tee, new ByteArrayInputStream(stderr != null ? stderr : new byte[0])));
+
+    try {
+      // rest of the stdout the handler has not read
+      readAll(tee);
+      tee.close();
+    } catch (IOException e) {
+      e.printStackTrace();
+      return;
+    }
+    if (stderr == null || job.getError() != null) {
+      return;
+    }
+    byte[] out;
+    synchronized (streamed) {
+      out = streamed.size() > 0 ? streamed.toByteArray() : stdout.toByteArray();
+    }
+    cache.put(key, new ResultCache.Result(out, stderr, log, stats));
+  }
+
+  @Override
+  public void jobFailed(Job job) {
+    observer.jobFailed(job);
+  }
+
+  @Override
+  public void jobCancelled(Job job) {
+    observer.jobCancelled(job);
+  }
+
+  private static byte[] readIfExists(String path) {
+    if (path == null || !new File(path).isFile()) {
+      return null;
+    }
+    try {
+      return Files.readAllBytes(new File(path).toPath());
+    } catch (IOException e) {
+      e.printStackTrace();
+      return null;
+    }
+  }
+
+  private static byte[] readAll(InputStream in) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    byte[] buffer = new byte[8192];
+    int n;
+    while ((n = in.read(buffer)) > 0) {
+      out.write(buffer, 0, n);
+    }
+    return out.toByteArray();
+  }
+}
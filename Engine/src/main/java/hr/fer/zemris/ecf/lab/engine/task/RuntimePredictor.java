@@ -0,0 +1,209 @@
+package hr.fer.zemris.ecf.lab.engine.task;
+
+import hr.fer.zemris.ecf.lab.engine.log.ExperimentRun;
+import hr.fer.zemris.ecf.lab.engine.log.LogModel;
+import hr.fer.zemris.ecf.lab.engine.param.Configuration;
+import hr.fer.zemris.ecf.lab.engine.stats.RunStats;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Predicts how long one repeat of a configuration takes from the previous runs of the same configuration (same
+ * algorithms, genotypes and registry, apart from the entries that only name the output files or set the number of
+ * repeats). Times are learned from the statsfile's time column, from the elapsed time of the last generation in the
+ * log, or from the wall time of the job, and can be stored in a history file, so they are known in the next session.
+ */
+public class RuntimePredictor {
+
+  /**
+   * Registry entries that do not change how long one repeat takes.
+   */
+  private static final Set<String> IGNORED_ENTRIES = new HashSet<>(Arrays.asList(
+      "batch.repeats", "batch.statsfile", "batch.singlemilestone", "log.filename", "log.level", "log.frequency",
+      "milestone.filename", "milestone.interval", "randomizer.seed"));
+
+  private final Map<String, Times> history = new ConcurrentHashMap<>();
+  private final Path file;
+
+  /**
+   * Predictor that learns only from the runs of this session.
+   */
+  public RuntimePredictor() {
+    this.file = null;
+  }
+
+  /**
+   * Predictor with the history stored in the file, missing or broken file is treated as empty history.
+   *
+   * @param file History file
+   */
+  public RuntimePredictor(Path file) {
+    this.file = file;
+    load();
+  }
+
+  /**
+   * @param conf Configuration
+   * @return Predicted time of one repeat in seconds, average time of all known configurations if this one has not
+   * been run before, 0 if nothing is known
+   */
+  public double predict(Configuration conf) {
+    return predict(key(conf));
+  }
+
+  double predict(String key) {
+    Times times = history.get(key);
+    if (times != null) {
+      return times.mean();
+    }
+    double sum = 0;
+    int n = 0;
+    for (Times t : history.values()) {
+      sum += t.mean();
+      n++;
+    }
+    return n == 0 ? 0 : sum / n;
+  }
+
+  /**
+   * @param conf Configuration
+   * @return true if the configuration has been run before
+   */
+  public boolean isKnown(Configuration conf) {
+    return history.containsKey(key(conf));
+  }
+
+  /**
+   * @param conf    Configuration
+   * @param seconds Time of one repeat in seconds
+   */
+  public void record(Configuration conf, double seconds) {
+    record(key(conf), seconds);
+  }
+
+  void record(String key, double seconds) {
+    if (seconds >= 0 && !Double.isNaN(seconds)) {
+      history.computeIfAbsent(key, k -> new Times()).add(seconds);
+    }
+  }
+
+  /**
+   * Learns from the time column of the statsfile.
+   *
+   * @return true if there were any runs
+   */
+  public boolean recordStats(Configuration conf, List<RunStats> stats) {
+    return recordStats(key(conf), stats);
+  }
+
+  boolean recordStats(String key, List<RunStats> stats) {
+    for (RunStats run : stats) {
+      record(key, run.getTime());
+    }
+    return !stats.isEmpty();
+  }
+
+  /**
+   * Learns from the elapsed time of the last generation of each run.
+   *
+   * @return true if there were any runs with generations
+   */
+  public boolean recordLog(Configuration conf, LogModel log) {
+    return recordLog(key(conf), log);
+  }
+
+  boolean recordLog(String key, LogModel log) {
+    if (log == null || log.errorOccured()) {
+      return false;
+    }
+    boolean recorded = false;
+    for (ExperimentRun run : log.getRuns()) {
+      int size = run.getGenerations().size();
+      if (size > 0) {
+        record(key, run.getGenerations().get(size - 1).elapsedTime);
+        recorded = true;
+      }
+    }
+    return recorded;
+  }
+
+  /**
+   * Stores the history to the file, if the predictor has one.
+   *
+   * @throws IOException If history can not be written
+   */
+  public synchronized void save() throws IOException {
+    if (file == null) {
+      return;
+    }
+    if (file.getParent() != null) {
+      Files.createDirectories(file.getParent());
+    }
+    Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+    try (BufferedWriter writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+      for (Map.Entry<String, Times> e : history.entrySet()) {
+        writer.write(e.getKey() + "\t" + e.getValue());
+        writer.newLine();
+      }
+    }
+    Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+  }
+
+  private void load() {
+    if (!Files.isRegularFile(file)) {
+      return;
+    }
+    try {
+      for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+        String[] parts = line.split("\t");
+        if (parts.length == 3) {
+          Times times = new Times();
+          times.count = Integer.parseInt(parts[1]);
+          times.sum = Double.parseDouble(parts[2]);
+          history.put(parts[0], times);
+        }
+      }
+    } catch (IOException | NumberFormatException e) {
+      e.printStackTrace();
+      history.clear();
+    }
+  }
+
+  /**
+   * @param conf Configuration
+   * @return Hash of the configuration's parameters that affect the time of a run
+   */
+  static String key(Configuration conf) {
+    return ConfigurationHash.hash(ConfigurationHash.canonical(conf, IGNORED_ENTRIES));
+  }
+
+  private static class Times {
+    int count;
+    double sum;
+
+    synchronized void add(double seconds) {
+      count++;
+      sum += seconds;
+    }
+
+    synchronized double mean() {
+      return count == 0 ? 0 : sum / count;
+    }
+
+    @Override
+    public synchronized String toString() {
+      return count + "\t" + sum;
+    }
+  }
+}
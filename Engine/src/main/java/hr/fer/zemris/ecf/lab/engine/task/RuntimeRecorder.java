@@ -0,0 +1,77 @@
+package hr.fer.zemris.ecf.lab.engine.task;
+
+import hr.fer.zemris.ecf.lab.engine.console.Job;
+import hr.fer.zemris.ecf.lab.engine.log.LogModel;
+import hr.fer.zemris.ecf.lab.engine.stats.StatsParser;
+
+import java.io.FileNotFoundException;
+
+/**
+ * {@link JobListener} that gives the times of the finished job's repeats to the {@link RuntimePredictor} before it
+ * passes the events on. Times are taken from the job's statsfile, from its log if there is no statsfile, or from the
+ * wall time of the job if neither has them.
+ */
+class RuntimeRecorder implements JobListener {
+  private JobListener listener;
+  private RuntimePredictor predictor;
+  private String key;
+  private String statsfile;
+  private int repeats;
+
+  /**
+   * @param key       Key of the job's configuration (see {@link RuntimePredictor#key})
+   * @param statsfile Statsfile of the job, null if there is none
+   * @param repeats   Number of repeats of the job
+   */
+  RuntimeRecorder(JobListener listener, RuntimePredictor predictor, String key, String statsfile, int repeats) {
+    this.listener = listener;
+    this.predictor = predictor;
+    this.key = key;
+    this.statsfile = statsfile;
+    this.repeats = repeats;
+  }
+
+  @Override
+  public void jobInitialized(Job job) {
+    listener.jobInitialized(job);
+  }
+
+  @Override
+  public void jobStarted(Job job) {
+    listener.jobStarted(job);
+  }
+
+  @Override
+  public void jobPartiallyFinished(Job job, LogModel log) {
+    listener.jobPartiallyFinished(job, log);
+  }
+
+  @Override
+  public void jobFinished(Job job, LogModel log) {
+    boolean recorded = false;
+    if (statsfile != null) {
+      try {
+        recorded = predictor.recordStats(key, StatsParser.parse(statsfile));
+      } catch (FileNotFoundException | RuntimeException e) {
+        // no statsfile or a broken one
+      }
+    }
+    if (!recorded) {
+      recorded = predictor.recordLog(key, log);
+    }
+    if (!recorded && job.getDuration() >= 0) {
+      predictor.record(key, job.getDuration() / 1000.0 / repeats);
+    }
+    listener.jobFinished(job, log);
+  }
+
+  @Override
+  public void jobFailed(Job job) {
+    listener.jobFailed(job);
+  }
+
+  @Override
+  public void jobCancelled(Job job) {
+    listener.jobCancelled(job);
+  }
+}
@@ -31,7 +31,15 @@ public class StatsHandler {
     }
   }
 
-  private static List<String> updateRunId(List<String> lines, Job job) {
+  /**
+   * Called if the job has failed or has been cancelled, its statsfile is left out of merging and deleted.
+   */
+  public void skipped(Job job) {
+    supervisor.skip();
+    new File(statsfile).delete();
+  }
+
+  static List<String> updateRunId(List<String> lines, Job job) {
     Integer runId = job.getRunId();
     if (runId == null) {
       // no run id, don't modify
@@ -46,8 +54,12 @@ public class StatsHandler {
     return newLines;
   }
 
+  /**
+   * Job's run id is the global id of its first repeat, so the local run id of the line is shifted by it.
+   */
   private static String updateRunId(String line, Integer runId) {
     int firstTabIndex = line.indexOf('\t');
-    return runId + line.substring(firstTabIndex);
+    int localRunId = Integer.parseInt(line.substring(0, firstTabIndex).trim());
+    return (runId + localRunId - 1) + line.substring(firstTabIndex);
   }
 }
@@ -2,6 +2,8 @@ package hr.fer.zemris.ecf.lab.engine.task;
 
 import java.io.FileWriter;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -11,6 +13,7 @@ import java.util.List;
 public class StatsSupervisor {
   private String originalStatsfile;
   private int statsfileCount;
+  private int skipped;
 
   private List<List<String>> statsList;
 
@@ -21,22 +24,49 @@ public class StatsSupervisor {
     statsList = new LinkedList<>();
   }
 
+  /**
+   * Used when the number of statsfiles is not known until all the jobs have been created.
+   *
+   * @param statsfileCount Number of statsfiles that are merged
+   */
+  public synchronized void setStatsfileCount(int statsfileCount) {
+    this.statsfileCount = statsfileCount;
+    writeIfComplete();
+  }
+
   public synchronized void addStats(List<String> stats) {
     statsList.add(stats);
+    writeIfComplete();
+  }
+
+  /**
+   * Called for the job that has failed or has been cancelled, it has no stats. Stats of the other jobs are written
+   * without it.
+   */
+  public synchronized void skip() {
+    skipped++;
+    writeIfComplete();
+  }
 
-    if (statsList.size() >= statsfileCount) {
+  private void writeIfComplete() {
+    if (!statsList.isEmpty() && statsList.size() + skipped >= statsfileCount) {
       writeStatsToFile();
     }
   }
 
   private void writeStatsToFile() {
     try {
+      // jobs finish in any order, lines are written in the order of their run ids
+      List<String> lines = new ArrayList<>();
+      for (List<String> stats : statsList) {
+        lines.addAll(stats);
+      }
+      lines.sort(Comparator.comparingInt(StatsSupervisor::runId));
+
       FileWriter fw = new FileWriter(originalStatsfile);
       fw.append("runId\tfit_min\tfit_max\tfit_avg\tfit_std\t#evals\ttime\tgen\n");
-      for (List<String> stats : statsList) {
-        for (String line : stats) {
-          fw.append(line + "\n");
-        }
+      for (String line : lines) {
+        fw.append(line + "\n");
       }
       fw.flush();
       fw.close();
@@ -44,4 +74,9 @@ public class StatsSupervisor {
       e.printStackTrace();
     }
   }
+
+  private static int runId(String line) {
+    int firstTabIndex = line.indexOf('\t');
+    return Integer.parseInt(line.substring(0, firstTabIndex).trim());
+  }
 }
@@ -0,0 +1,46 @@
+package hr.fer.zemris.ecf.lab.engine.task;
+
+import hr.fer.zemris.ecf.lab.engine.console.Console;
+import hr.fer.zemris.ecf.lab.engine.console.Job;
+import hr.fer.zemris.ecf.lab.engine.console.ProcessOutput;
+import hr.fer.zemris.ecf.lab.engine.log.LogModel;
+import hr.fer.zemris.ecf.lab.engine.log.reader.StreamingLogReader;
+
+import java.io.File;
+
+/**
+ * Handler of the job whose stdout is streamed (see {@link Console#stream(Job, File)}). Output is parsed as it arrives
+ * and the partial log is given to the listener as soon as new lines are parsed, but not more often than once in
+ * {@link #MIN_REFRESH_INTERVAL} milliseconds.
+ */
+public class StreamingExperimentHandler extends OfflineExperimentHandler {
+  private static final long MIN_REFRESH_INTERVAL = 100;
+
+  private StreamingLogReader reader = new StreamingLogReader();
+  private long lastRefresh;
+
+  public StreamingExperimentHandler(JobListener listener) {
+    super(listener);
+  }
+
+  public StreamingExperimentHandler(JobListener listener, StatsHandler statsHandler) {
+    super(listener, statsHandler);
+  }
+
+  @Override
+  public void jobOutput(Job job, byte[] bytes, int offset, int length) {
+    if (reader.feed(bytes, offset, length)) {
+      long now = System.currentTimeMillis();
+      if (now - lastRefresh >= MIN_REFRESH_INTERVAL) {
+        lastRefresh = now;
+        listener.jobPartiallyFinished(job, reader.getModel());
+      }
+    }
+  }
+
+  @Override
+  protected LogModel readLog(ProcessOutput output) {
+    // whole stdout has already been given to the reader
+    return reader.finish();
+  }
+}
@@ -0,0 +1,29 @@
+package hr.fer.zemris.ecf.lab.engine.task;
+
+import hr.fer.zemris.ecf.lab.engine.param.Configuration;
+
+/**
+ * One configuration of a sweep and the path its file is written to (see
+ * {@link ExperimentsManager#runSweep(java.util.Iterator, String, boolean)}).
+ */
+public class SweepPoint {
+  private final Configuration conf;
+  private final String confPath;
+
+  /**
+   * @param conf     Configuration, not shared with the other points (it is changed when its jobs are created)
+   * @param confPath Path where the configuration is written
+   */
+  public SweepPoint(Configuration conf, String confPath) {
+    this.conf = conf;
+    this.confPath = confPath;
+  }
+
+  public Configuration getConfiguration() {
+    return conf;
+  }
+
+  public String getConfPath() {
+    return confPath;
+  }
+}
@@ -4,10 +4,15 @@ import hr.fer.zemris.ecf.lab.engine.console.Console;
 import hr.fer.zemris.ecf.lab.engine.console.Job;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 
 /**
- * This class represents one thread task a.k.a. one ECF task. The thread that gets this is stopped until the ECF finishes this specific task.
+ * This class represents one ECF task. It is started by {@link #start()} without blocking the thread, or run by
+ * {@link #call()}, which waits until the ECF finishes this specific task.
  * The task for the ECF is given by the {@link Job}.
  * It uses {@link Console} to start ECF task.
  *
@@ -20,6 +25,9 @@ public class Task implements Callable<Void> {
 
   private File stdout = null;
   private File stderr = null;
+  private boolean streamed = false;
+  private List<Runnable> whenDone = new ArrayList<>();
+  private double predictedTime = 0;
 
   /**
    * Constructor it gets the specific {@link Job} and a specific {@link Console} for current pc.
@@ -39,14 +47,93 @@ public class Task implements Callable<Void> {
     this.stderr = stderr;
   }
 
+  /**
+   * Constructor for the task whose stdout is streamed to the job's observer (see {@link Console#stream(Job, File)}).
+   *
+   * @param stdout File where stdout is also written, null if it should not be stored
+   */
+  public Task(Job job, Console console, File stdout) {
+    this.job = job;
+    this.console = console;
+    this.stdout = stdout;
+    this.streamed = true;
+  }
+
+  public Job getJob() {
+    return job;
+  }
+
+  /**
+   * @return Predicted time of the job in seconds, 0 if it is not known
+   */
+  public double getPredictedTime() {
+    return predictedTime;
+  }
+
+  /**
+   * @param predictedTime Predicted time of the job in seconds, longer jobs are started first by the {@link JobScheduler}
+   */
+  public void setPredictedTime(double predictedTime) {
+    this.predictedTime = predictedTime;
+  }
+
+  /**
+   * Callbacks are run in the order they were added, an exception thrown by one of them is printed and the rest are
+   * still run.
+   *
+   * @param whenDone Called once the job has finished or failed
+   */
+  synchronized void whenDone(Runnable whenDone) {
+    this.whenDone.add(whenDone);
+  }
+
+  /**
+   * Starts the job without waiting for it to end.
+   *
+   * @return Future completed once the job has ended and the callbacks have been run
+   */
+  public CompletableFuture<Void> start() {
+    CompletableFuture<Void> future;
+    try {
+      if (job.isCancelled()) {
+        // cancelled while waiting in the queue
+        job.cancelled();
+        future = CompletableFuture.completedFuture(null);
+      } else if (streamed) {
+        future = console.streamAsync(job, stdout);
+      } else if (stdout == null && stderr == null) {
+        future = console.executeAsync(job);
+      } else {
+        future = console.executeAsync(job, stdout, stderr);
+      }
+    } catch (RuntimeException e) {
+      future = new CompletableFuture<>();
+      future.completeExceptionally(e);
+    }
+    return future.whenComplete((v, e) -> {
+      List<Runnable> callbacks;
+      synchronized (this) {
+        callbacks = new ArrayList<>(whenDone);
+      }
+      for (Runnable callback : callbacks) {
+        // a failing callback must not keep the others (e.g. the batch's) from running
+        try {
+          callback.run();
+        } catch (RuntimeException ex) {
+          ex.printStackTrace();
+        }
+      }
+    });
+  }
+
   @Override
   public Void call() throws Exception {
-    if (stdout == null && stderr == null) {
-      console.execute(job);
-    } else {
-      console.execute(job, stdout, stderr);
+    try {
+      return start().get();
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      throw cause instanceof Exception ? (Exception) cause : e;
     }
-    return null;
   }
 
 }
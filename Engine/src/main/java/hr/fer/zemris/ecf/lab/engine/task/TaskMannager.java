@@ -9,17 +9,14 @@ import hr.fer.zemris.ecf.lab.engine.param.ParametersList;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 
 /**
  * This class is a manager for tasks and threads that are running those tasks.
  * It's main use is to talk to GUI. It can gather initial parameters, it can
  * find out how many CPU cores current PC has, and of course it's main use
- * startOfflineTasks methodd. It gets list of {@link Job} and number of threads to run
- * them on.
+ * startOfflineTasks method. It gets list of {@link Job} and runs them in the
+ * slots of the {@link JobScheduler}.
  *
  * @version 1.0
  */
@@ -62,24 +59,23 @@ public class TaskMannager {
 
   /**
    * This method is used for running {@link Task}s. It gets list of
-   * {@link Job} and number of threads to run them on.
+   * {@link Job} and waits until they are run by the {@link JobScheduler}.
    *
    * @param taskDescriptions array list of jobs needed to do.
-   * @param numOfThreads     number of threads to run them on.
    * @return if all done with no problem, false if problem.
    * @throws Exception If problem occurs while running
    */
-  public boolean startOfflineTasks(List<Job> taskDescriptions, int numOfThreads) throws Exception {
+  public boolean startOfflineTasks(List<Job> taskDescriptions) throws Exception {
     List<Task> tasks = new ArrayList<>();
 
     for (int i = 0; i < taskDescriptions.size(); i++) {
       tasks.add(new Task(taskDescriptions.get(i), console));
     }
 
-    return startTasks(tasks, numOfThreads);
+    return startTasks(tasks);
   }
 
-  public boolean startOnlineTasks(List<OnlineJobDescriptor> taskDescriptions, int numOfThreads) throws Exception {
+  public boolean startOnlineTasks(List<OnlineJobDescriptor> taskDescriptions) throws Exception {
     List<Task> tasks = new ArrayList<>();
 
     for (int i = 0; i < taskDescriptions.size(); i++) {
@@ -87,28 +83,40 @@ public class TaskMannager {
       tasks.add(new Task(descriptor.getJob(), console, descriptor.getStdoutFile(), descriptor.getStderrFile()));
     }
 
-    return startTasks(tasks, numOfThreads);
+    return startTasks(tasks);
   }
 
-  private boolean startTasks(List<Task> tasks, int numOfThreads) throws Exception {
-    ExecutorService service = Executors.newFixedThreadPool(numOfThreads);
-    List<Future<Void>> results;
-    try {
-      results = service.invokeAll(tasks);
-    } catch (InterruptedException e) {
-      System.err.println("Fatal error! Can't do parallelization");
-      service.shutdown();
-      return false;
+  /**
+   * Runs the jobs with their stdout streamed to their observers instead of redirected to files.
+   *
+   * @param taskDescriptions jobs with the files where stdout is also written (null stdout file if it is not stored)
+   * @return if all done with no problem, false if problem.
+   * @throws Exception If problem occurs while running
+   */
+  public boolean startStreamingTasks(List<OnlineJobDescriptor> taskDescriptions) throws Exception {
+    List<Task> tasks = new ArrayList<>();
+
+    for (OnlineJobDescriptor descriptor : taskDescriptions) {
+      tasks.add(new Task(descriptor.getJob(), console, descriptor.getStdoutFile()));
     }
+
+    return startTasks(tasks);
+  }
+
+  private boolean startTasks(List<Task> tasks) throws Exception {
+    // tasks wait for the free slots of the process-wide scheduler
+    List<Future<Void>> results = JobScheduler.getInstance().submitAll(tasks);
     for (Future<Void> res : results) {
       try {
         res.get();
-      } catch (InterruptedException | ExecutionException e) {
-        service.shutdown();
+      } catch (InterruptedException e) {
+        // running processes are killed, queued jobs are not started
+        for (Task task : tasks) {
+          task.getJob().cancel();
+        }
         throw e;
       }
     }
-    service.shutdown();
     return true;
   }
 }
@@ -1,6 +1,7 @@
 package hr.fer.zemris.ecf.lab.engine.task;
 
 import hr.fer.zemris.ecf.lab.engine.param.Entry;
+import hr.fer.zemris.ecf.lab.engine.param.EntryList;
 
 import java.util.List;
 
@@ -45,7 +46,8 @@ public class Utils {
 	}
 
 	/**
-	 * Finds entry in list of entries with given key
+	 * Finds entry in list of entries with given key. The list is scanned, entries of an {@link EntryList} are found
+	 * through its index by {@link #findEntry(EntryList, String)}.
 	 * @param list List of entries
 	 * @param key Key
 	 * @return Entry with given key, null if key does not exist in the list
@@ -59,4 +61,14 @@ public class Utils {
 		return null;
 	}
 
+	/**
+	 * Finds entry in the entry list with given key, see {@link EntryList#getEntryWithKey(String)}.
+	 * @param list Entry list
+	 * @param key Key
+	 * @return Entry with given key, null if key does not exist in the list
+	 */
+	public static Entry findEntry(EntryList list, String key) {
+		return list.getEntryWithKey(key);
+	}
+
 }
@@ -0,0 +1,145 @@
+package hr.fer.zemris.ecf.lab.engine.console;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Scanner;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs detached jobs and reattaches to them from another console, as a later session would.
+ */
+public class DetachedConsoleTest {
+
+  private File workspace;
+
+  @Before
+  public void setUp() throws Exception {
+    workspace = Files.createTempDirectory("ecflab-workspace").toFile();
+    workspace.deleteOnExit();
+  }
+
+  @Test
+  public void testExecute() throws Exception {
+    if (DetectOS.isWindows()) {
+      return;
+    }
+    OutputObserver observer = new OutputObserver();
+    Job job = new Job("sh", script("echo 'Generation: 1'\n").getAbsolutePath());
+    job.setObserver(observer);
+    new DetachedConsole(workspace).executeAsync(job).join();
+    assertTrue("Job should finish: " + job.getState(), job.getState() == Job.State.FINISHED);
+    assertTrue("Stdout: " + observer.stdout, "Generation: 1".equals(observer.stdout));
+    assertTrue("Job's directory should be deleted once it is collected", workspace.list().length == 0);
+  }
+
+  @Test
+  public void testNewSession() throws Exception {
+    if (DetectOS.isWindows()) {
+      return;
+    }
+    // signals sent to the application's process group must not reach ECF
+    OutputObserver observer = new OutputObserver();
+    Job job = new Job("sh", script("ps -o pgid= -p $$\n").getAbsolutePath());
+    job.setObserver(observer);
+    new DetachedConsole(workspace).executeAsync(job).join();
+    Process ps = new ProcessBuilder("sh", "-c", "ps -o pgid= -p $PPID").start();
+    String group;
+    try (Scanner sc = new Scanner(ps.getInputStream())) {
+      group = sc.nextLine().trim();
+    }
+    assertTrue("Job should finish: " + job.getState(), job.getState() == Job.State.FINISHED);
+    assertTrue("ECF is in the application's process group: " + group,
+        !observer.stdout.trim().isEmpty() && !observer.stdout.trim().equals(group));
+  }
+
+  @Test
+  public void testReattach() throws Exception {
+    if (DetectOS.isWindows()) {
+      return;
+    }
+    // started by a session that has exited since
+    DetachedConsole earlier = new DetachedConsole(workspace);
+    Job running = new Job("sh", script("sleep 1\necho 'Generation: 2'\n").getAbsolutePath());
+    earlier.launch(newDir(), running, new File(workspace, "running.out"), new File(workspace, "running.err"));
+    Job ended = new Job("sh", script("echo 'Generation: 3'\n").getAbsolutePath(), false, 5);
+    DetachedProcess process = earlier.launch(newDir(), ended, new File(workspace, "ended.out"),
+        new File(workspace, "ended.err"));
+    process.waitFor();
+
+    DetachedConsole console = new DetachedConsole(workspace);
+    List<Job> jobs = console.findJobs();
+    assertTrue("Jobs: " + jobs.size(), jobs.size() == 2);
+    for (Job job : jobs) {
+      OutputObserver observer = new OutputObserver();
+      job.setObserver(observer);
+      long start = System.currentTimeMillis();
+      console.reattach(job).join();
+      assertTrue("Job should finish: " + job.getState(), job.getState() == Job.State.FINISHED);
+      if (job.getRunId() != null) {
+        assertTrue("Ended job should be collected at once", System.currentTimeMillis() - start < 1000);
+        assertTrue("Stdout: " + observer.stdout, "Generation: 3".equals(observer.stdout));
+      } else {
+        assertTrue("Stdout: " + observer.stdout, "Generation: 2".equals(observer.stdout));
+      }
+    }
+    assertTrue("Nothing is left to reattach", console.findJobs().isEmpty());
+  }
+
+  @Test
+  public void testLost() throws Exception {
+    if (DetectOS.isWindows()) {
+      return;
+    }
+    DetachedConsole earlier = new DetachedConsole(workspace);
+    Job job = new Job("sleep", "30");
+    File dir = newDir();
+    DetachedProcess process = earlier.launch(dir, job, new File(workspace, "lost.out"), new File(workspace, "lost.err"));
+    // supervisor is killed together with ECF, e.g. by the user
+    for (int i = 0; i < 100 && !new File(dir, DetachedProcess.PID_FILE).exists(); i++) {
+      Thread.sleep(20);
+    }
+    process.destroyForcibly();
+    process.waitFor();
+
+    DetachedConsole console = new DetachedConsole(workspace);
+    Job lost = console.findJobs().get(0);
+    console.reattach(lost).join();
+    assertTrue("Job without an exit code should fail: " + lost.getState(), lost.getState() == Job.State.FAILED);
+  }
+
+  private File newDir() throws IOException {
+    return Files.createTempDirectory(workspace.toPath(), "job-").toFile();
+  }
+
+  private static File script(String text) throws IOException {
+    File script = File.createTempFile("ecflab-detached", ".sh");
+    script.deleteOnExit();
+    Files.write(script.toPath(), text.getBytes());
+    return script;
+  }
+
+  private static class OutputObserver implements JobObserver {
+    private String stdout;
+
+    @Override
+    public void jobStarted(Job job) {
+    }
+
+    @Override
+    public void jobFinished(Job job, ProcessOutput output) {
+      try (Scanner sc = new Scanner(output.getStdout())) {
+        stdout = sc.hasNextLine() ? sc.nextLine() : "";
+      }
+    }
+
+    @Override
+    public void jobFailed(Job job) {
+    }
+  }
+}
@@ -0,0 +1,23 @@
+package hr.fer.zemris.ecf.lab.engine.console;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+/**
+ * Starts detached jobs the way an earlier session would have, for the tests that reattach them from other packages.
+ */
+public class DetachedJobs {
+
+  private DetachedJobs() {
+  }
+
+  /**
+   * Starts the job in the workspace without watching it, as if the application that started it had exited since.
+   */
+  public static void launch(File workspace, Job job) throws IOException {
+    workspace.mkdirs();
+    File dir = Files.createTempDirectory(workspace.toPath(), "job-").toFile();
+    new DetachedConsole(workspace).launch(dir, job, new File(dir, "stdout.txt"), new File(dir, "stderr.txt"));
+  }
+}
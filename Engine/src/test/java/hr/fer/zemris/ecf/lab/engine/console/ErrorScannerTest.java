@@ -0,0 +1,44 @@
+package hr.fer.zemris.ecf.lab.engine.console;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertTrue;
+
+public class ErrorScannerTest {
+
+  @Test
+  public void testSplitChunks() {
+    List<String> errors = new ArrayList<>();
+    ErrorScanner scanner = new ErrorScanner(errors::add);
+    byte[] bytes = "Generation: 1\nErr".getBytes();
+    scanner.feed(bytes, 0, bytes.length);
+    bytes = "or: bad value\nError: second\n".getBytes();
+    scanner.feed(bytes, 0, bytes.length);
+    assertTrue("Only the first error should be reported: " + errors, errors.size() == 1);
+    assertTrue("Error: " + errors, "Error: bad value".equals(errors.get(0)));
+  }
+
+  @Test
+  public void testNotAtLineStart() {
+    List<String> errors = new ArrayList<>();
+    ErrorScanner scanner = new ErrorScanner(errors::add);
+    byte[] bytes = "Best: 1 (Error: 0.5)\n Error: indented\n".getBytes();
+    scanner.feed(bytes, 0, bytes.length);
+    scanner.end();
+    assertTrue("Error should be found only at the start of a line: " + errors, errors.isEmpty());
+  }
+
+  @Test
+  public void testUnterminatedLine() {
+    List<String> errors = new ArrayList<>();
+    ErrorScanner scanner = new ErrorScanner(errors::add);
+    byte[] bytes = "Error: last line".getBytes();
+    scanner.feed(bytes, 0, bytes.length);
+    assertTrue("Line has not ended yet", errors.isEmpty());
+    scanner.end();
+    assertTrue("Error: " + errors, errors.size() == 1 && "Error: last line".equals(errors.get(0)));
+  }
+}
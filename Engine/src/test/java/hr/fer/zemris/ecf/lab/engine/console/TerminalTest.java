@@ -3,7 +3,10 @@ package hr.fer.zemris.ecf.lab.engine.console;
 import org.junit.*;
 import org.junit.Test;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
 
 import static org.junit.Assert.*;
 
@@ -51,4 +54,132 @@ public class TerminalTest {
             assertTrue(new File(paramsPath).exists());
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testStream() throws Exception {
+        if (terminal != null) {
+            // cat writes the log to stdout like ECF does
+            String logPath = new File("res/test/log2.txt").getAbsolutePath();
+            File tee = File.createTempFile("ecflab-stream-test", ".txt");
+            tee.deleteOnExit();
+            ByteArrayOutputStream streamed = new ByteArrayOutputStream();
+            boolean[] finished = new boolean[1];
+
+            Job job = new Job("cat", logPath);
+            job.setObserver(new JobObserver() {
+                @Override
+                public void jobStarted(Job job) {
+                }
+
+                @Override
+                public void jobFinished(Job job, ProcessOutput output) {
+                    finished[0] = true;
+                }
+
+                @Override
+                public void jobFailed(Job job) {
+                }
+
+                @Override
+                public void jobOutput(Job job, byte[] bytes, int offset, int length) {
+                    streamed.write(bytes, offset, length);
+                }
+            });
+            terminal.stream(job, tee);
+
+            byte[] expected = Files.readAllBytes(new File(logPath).toPath());
+            assertTrue("Job should be finished", finished[0]);
+            assertTrue("Streamed output differs", Arrays.equals(expected, streamed.toByteArray()));
+            assertTrue("Stored output differs", Arrays.equals(expected, Files.readAllBytes(tee.toPath())));
+        }
+    }
+
+    @Test
+    public void testCancel() throws Exception {
+        if (terminal != null) {
+            Job job = new Job("sleep", "30");
+            Thread canceller = new Thread(() -> {
+                try {
+                    while (job.getState() != Job.State.RUNNING) {
+                        Thread.sleep(10);
+                    }
+                    Thread.sleep(100);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                job.cancel();
+            });
+            canceller.start();
+            long start = System.currentTimeMillis();
+            terminal.stream(job, null);
+            canceller.join();
+            assertTrue("Job should be cancelled: " + job.getState(), job.getState() == Job.State.CANCELLED);
+            assertTrue("Process should be killed", System.currentTimeMillis() - start < 10000);
+        }
+    }
+
+    @Test
+    public void testTimeout() throws Exception {
+        if (terminal != null) {
+            Job job = new Job("sleep", "30");
+            job.setTimeout(200);
+            long start = System.currentTimeMillis();
+            terminal.execute(job);
+            assertTrue("Job should fail: " + job.getState(), job.getState() == Job.State.FAILED && job.isTimedOut());
+            assertTrue("Process should be killed", System.currentTimeMillis() - start < 10000);
+        }
+    }
+
+    @Test
+    public void testCancelBeforeStart() throws Exception {
+        if (terminal != null) {
+            Job job = new Job("sleep", "30");
+            job.cancel();
+            long start = System.currentTimeMillis();
+            terminal.execute(job);
+            assertTrue("Job should be cancelled: " + job.getState(), job.getState() == Job.State.CANCELLED);
+            assertTrue("Process should not run", System.currentTimeMillis() - start < 10000);
+        }
+    }
+
+    @Test
+    public void testErrorKillsJob() throws Exception {
+        if (terminal != null) {
+            File script = errorScript();
+            Job job = new Job("sh", script.getAbsolutePath());
+            long start = System.currentTimeMillis();
+            terminal.execute(job);
+            assertTrue("Job should fail: " + job.getState(), job.getState() == Job.State.FAILED && job.isKilledOnError());
+            assertTrue("Error should be kept: " + job.getError(), "Error: unknown parameter".equals(job.getError()));
+            assertTrue("Process should be killed", System.currentTimeMillis() - start < 10000);
+
+            job = new Job("sh", script.getAbsolutePath());
+            start = System.currentTimeMillis();
+            terminal.stream(job, null);
+            assertTrue("Streamed job should fail: " + job.getState(), job.getState() == Job.State.FAILED);
+            assertTrue("Error should be kept: " + job.getError(), "Error: unknown parameter".equals(job.getError()));
+            assertTrue("Process should be killed", System.currentTimeMillis() - start < 10000);
+        }
+    }
+
+    @Test
+    public void testErrorAfterExit() throws Exception {
+        if (terminal != null) {
+            // ECF usually exits right after the error, the job then finishes with the error in its log
+            File script = File.createTempFile("ecflab-error", ".sh");
+            script.deleteOnExit();
+            Files.write(script.toPath(), "echo 'Error: unknown parameter'\n".getBytes());
+            Job job = new Job("sh", script.getAbsolutePath());
+            terminal.execute(job);
+            assertTrue("Error should be kept: " + job.getError(), "Error: unknown parameter".equals(job.getError()));
+            assertFalse("Process has not been killed", job.isKilledOnError());
+        }
+    }
+
+    private static File errorScript() throws Exception {
+        File script = File.createTempFile("ecflab-error", ".sh");
+        script.deleteOnExit();
+        Files.write(script.toPath(), "echo 'Generation: 1'\necho 'Error: unknown parameter'\nsleep 30\n".getBytes());
+        return script;
+    }
+}
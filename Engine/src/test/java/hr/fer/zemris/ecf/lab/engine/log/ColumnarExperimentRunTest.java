@@ -0,0 +1,121 @@
+package hr.fer.zemris.ecf.lab.engine.log;
+
+import hr.fer.zemris.ecf.lab.engine.log.reader.DefaultLogReader;
+import org.junit.Test;
+
+import java.io.FileInputStream;
+import java.util.List;
+
+import static org.junit.Assert.assertTrue;
+
+public class ColumnarExperimentRunTest {
+
+  @Test
+  public void testColumnsSameAsGenerations() throws Exception {
+    for (String file : new String[]{"res/test/log1.txt", "res/test/log2.txt", "res/test/log_with_generation_hof.txt"}) {
+      LogModel log = new DefaultLogReader().read(new FileInputStream(file));
+      for (ExperimentRun run : log.getRuns()) {
+        ColumnarExperimentRun columnar = copy(run);
+        List<Generation> generations = run.getGenerations();
+        assertTrue("Generations num differs", columnar.getGenerationCount() == generations.size());
+        for (int i = 0; i < generations.size(); i++) {
+          Generation e = generations.get(i);
+          Generation a = columnar.getGenerations().get(i);
+          assertTrue("Id differs", e.id == columnar.getId(i) && e.id == a.id);
+          assertTrue("Elapsed time differs", e.elapsedTime == columnar.getElapsedTime(i));
+          assertTrue("Hall of fame differs", equal(e.hallOfFame, columnar.getGenerationHallOfFame(i)));
+          assertTrue("Population differs", (e.population != null) == columnar.hasPopulation(i));
+          if (e.population != null) {
+            assertTrue("Population evaluations differ", e.population.evaluations == a.population.evaluations);
+            assertTrue("Population min differs", Double.compare(e.population.stats.min, columnar.getPopulationMin(i)) == 0);
+            assertTrue("Population avg differs", Double.compare(e.population.stats.avg, a.population.stats.avg) == 0);
+          }
+          assertTrue("Demes num differs", e.demes.size() == columnar.getDemeCount(i) && e.demes.size() == a.demes.size());
+          for (int j = 0; j < e.demes.size(); j++) {
+            assertTrue("Deme id differs", e.demes.get(j).id == columnar.getDemeId(i, j));
+            assertTrue("Deme max differs", Double.compare(e.demes.get(j).stats.max, columnar.getDemeMax(i, j)) == 0);
+            assertTrue("Deme stdev differs", Double.compare(e.demes.get(j).stats.stdev, a.demes.get(j).stats.stdev) == 0);
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testMissingStats() {
+    ColumnarExperimentRun run = new ColumnarExperimentRun();
+    Generation generation = new Generation(3);
+    generation.population = new Population();
+    generation.demes.add(new Deme());
+    run.getGenerations().add(generation);
+
+    Generation view = run.getGenerations().get(0);
+    assertTrue("Population missing", view.population != null && view.population.stats == null);
+    assertTrue("Deme stats exist", view.demes.get(0).stats == null);
+    assertTrue("Missing stats not NaN", Double.isNaN(run.getPopulationMax(0)) && Double.isNaN(run.getDemeMin(0, 0)));
+  }
+
+  @Test
+  public void testSetLastGeneration() {
+    ColumnarExperimentRun run = new ColumnarExperimentRun();
+    for (int i = 0; i < 100; i++) {
+      run.getGenerations().add(generation(i, 2));
+    }
+    run.getGenerations().set(99, generation(99, 5));
+    run.getGenerations().set(10, generation(11, 2));
+    run.trimToSize();
+
+    assertTrue(run.getDemeCount(99) == 5);
+    assertTrue(run.getDemeId(99, 4) == 4);
+    assertTrue(run.getId(10) == 11);
+    assertTrue(run.getDemeEvaluations(10, 1) == 11);
+    assertTrue(run.getDemeEvaluations(98, 1) == 98);
+    run.getGenerations().add(generation(100, 1));
+    assertTrue(run.getGenerations().get(100).demes.size() == 1);
+  }
+
+  @Test
+  public void testSetChangesDemes() {
+    ColumnarExperimentRun run = new ColumnarExperimentRun(4, 4);
+    for (int i = 0; i < 4; i++) {
+      run.getGenerations().add(generation(i, 2));
+    }
+    run.getGenerations().set(1, generation(11, 5));
+    run.getGenerations().set(2, generation(12, 0));
+    run.getGenerations().set(0, generation(10, 1));
+
+    int[] demes = {1, 5, 0, 2};
+    for (int i = 0; i < demes.length; i++) {
+      assertTrue("Demes num differs", run.getDemeCount(i) == demes[i]);
+      for (int j = 0; j < demes[i]; j++) {
+        assertTrue("Deme id differs", run.getDemeId(i, j) == j);
+        assertTrue("Deme evaluations differ", run.getDemeEvaluations(i, j) == run.getId(i));
+      }
+    }
+    assertTrue(run.getId(3) == 3);
+    run.getGenerations().add(generation(4, 3));
+    assertTrue(run.getDemeEvaluations(4, 2) == 4 && run.getDemeEvaluations(3, 1) == 3);
+  }
+
+  private static ColumnarExperimentRun copy(ExperimentRun run) {
+    ColumnarExperimentRun columnar = new ColumnarExperimentRun();
+    columnar.getGenerations().addAll(run.getGenerations());
+    return columnar;
+  }
+
+  private static Generation generation(int id, int demes) {
+    Generation generation = new Generation(id);
+    for (int i = 0; i < demes; i++) {
+      Deme deme = new Deme();
+      deme.id = i;
+      deme.evaluations = id;
+      deme.stats = new Stats();
+      generation.demes.add(deme);
+    }
+    return generation;
+  }
+
+  private static boolean equal(Object a, Object b) {
+    return a == null ? b == null : a.equals(b);
+  }
+}
@@ -0,0 +1,119 @@
+package hr.fer.zemris.ecf.lab.engine.log.reader;
+
+import hr.fer.zemris.ecf.lab.engine.log.ExperimentRun;
+import hr.fer.zemris.ecf.lab.engine.log.Generation;
+import hr.fer.zemris.ecf.lab.engine.log.LogModel;
+import hr.fer.zemris.ecf.lab.engine.log.Stats;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.FileInputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.EnumSet;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that {@link ByteLogReader} gives the same logs as {@link ScannerLogReader}.
+ */
+public class ByteLogReaderTest {
+
+  private static final String[] VALUES = {
+      "0", "-0", "5", "+5", "2.14449", "19.8333", "0.00986234", "1.28629e+16", "5.75247e+14", "9.80899e-39",
+      "1.49756e-21", "1e+14", "6e+12", "1E5", ".5", "5.", "123456789012345", "1234567890123456789",
+      "0.1234567890123456789", "1.7976931348623157e308", "4.9e-324", "1e400", "nan", "NaN", "inf", "INF",
+      "-inf", "- inf", "Infinity", "-Infinity", "5d", "0x1p3"
+  };
+
+  @Test
+  public void testSameAsDefault() throws Exception {
+    for (String log : LogModelAssert.LOGS) {
+      LogModel expected = new ScannerLogReader().read(new FileInputStream(log));
+      LogModelAssert.assertSameLog(expected, new ByteLogReader().read(new FileInputStream(log)));
+      LogModelAssert.assertSameLog(expected, new ByteLogReader().read(Files.readAllBytes(Paths.get(log))));
+    }
+  }
+
+  @Test
+  public void testChartProjection() throws Exception {
+    for (String log : LogModelAssert.LOGS) {
+      LogModel expected = new ScannerLogReader().read(new FileInputStream(log));
+      for (ExperimentRun run : expected.getRuns()) {
+        run.getOtherLines().clear();
+        for (Generation generation : run.getGenerations()) {
+          generation.hallOfFame = null;
+          while (generation.demes.size() > 1) {
+            generation.demes.remove(generation.demes.size() - 1);
+          }
+        }
+      }
+      LogModelAssert.assertSameLog(expected, new ByteLogReader(LogSection.chart()).read(new FileInputStream(log)));
+    }
+  }
+
+  @Test
+  public void testEmptyProjection() throws Exception {
+    for (String log : LogModelAssert.LOGS) {
+      LogModel expected = new ScannerLogReader().read(new FileInputStream(log));
+      LogModel actual = new ByteLogReader(EnumSet.noneOf(LogSection.class)).read(new FileInputStream(log));
+      assertTrue("Runs num differs", expected.getRuns().size() == actual.getRuns().size());
+      for (int i = 0; i < expected.getRuns().size(); i++) {
+        ExperimentRun run = actual.getRuns().get(i);
+        assertTrue("Hall of fame read", run.getHallOfFame() == null);
+        assertTrue("Generations num differs",
+            expected.getRuns().get(i).getGenerations().size() == run.getGenerations().size());
+        for (Generation generation : run.getGenerations()) {
+          assertTrue("Generation parts read", generation.demes.isEmpty() && generation.population == null);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testWindowsLineEndings() throws Exception {
+    for (String log : LogModelAssert.LOGS) {
+      byte[] bytes = new String(Files.readAllBytes(Paths.get(log))).replace("\n", "\r\n").getBytes();
+      LogModel expected = new ScannerLogReader().read(new ByteArrayInputStream(bytes));
+      LogModelAssert.assertSameLog(expected, new ByteLogReader().read(bytes));
+    }
+  }
+
+  @Test
+  public void testNumbers() throws Exception {
+    for (String value : VALUES) {
+      String log = "Evaluating initial population...\n" +
+          "Generation: 0\n" +
+          "Elapsed time: 0\n" +
+          "Deme: 0\n" +
+          "Evaluations: 150\n" +
+          "Stats: fitness\n" +
+          "\tmax: " + value + "\n" +
+          "\tmin: " + value + " \n" +
+          "\tavg:" + value + "\n" +
+          "\tstdev: " + value + "\n";
+      Stats expected = new ScannerLogReader().read(new ByteArrayInputStream(log.getBytes()))
+          .getRuns().get(0).getGenerations().get(0).demes.get(0).stats;
+      Stats stats = new ByteLogReader().read(log.getBytes()).getRuns().get(0).getGenerations().get(0).demes.get(0).stats;
+      assertTrue("Wrong max for " + value, Double.compare(expected.max, stats.max) == 0);
+      assertTrue("Wrong min for " + value, Double.compare(expected.min, stats.min) == 0);
+      assertTrue("Wrong avg for " + value, Double.compare(expected.avg, stats.avg) == 0);
+      assertTrue("Wrong stdev for " + value, Double.compare(expected.stdev, stats.stdev) == 0);
+    }
+  }
+
+  @Test(expected = NumberFormatException.class)
+  public void testInvalidNumber() throws Exception {
+    String log = "Evaluating initial population...\nGeneration: 0\nPopulation:\nStats: fitness\n\tmax: 1.2.3\n";
+    new ByteLogReader().read(log.getBytes());
+  }
+
+  @Test
+  public void testError() throws Exception {
+    String log = "-- ECF --\nError: first\nsomething\nError: second\n";
+    LogModel expected = new ScannerLogReader().read(new ByteArrayInputStream(log.getBytes()));
+    LogModel actual = new ByteLogReader().read(log.getBytes());
+    assertTrue(actual.errorOccured());
+    LogModelAssert.assertSameLog(expected, actual);
+  }
+}
@@ -0,0 +1,118 @@
+package hr.fer.zemris.ecf.lab.engine.log.reader;
+
+import hr.fer.zemris.ecf.lab.engine.log.LogModel;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Set;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that cached logs are the same as parsed ones and that the cache is used only while it is valid.
+ */
+public class CachingLogReaderTest {
+
+  @Test
+  public void testCachedSameAsParsed() throws Exception {
+    for (String log : LogModelAssert.LOGS) {
+      LogModel expected = new ScannerLogReader().read(new FileInputStream(log));
+      Path path = copy(log);
+      CountingReader parser = new CountingReader(LogSection.all());
+      CachingLogReader reader = new CachingLogReader(parser);
+      LogModelAssert.assertSameLog(expected, reader.read(path));
+      assertTrue("Cache not written", Files.exists(reader.cacheFile(path)));
+      LogModelAssert.assertSameLog(expected, reader.read(path));
+      assertTrue("Cache not used", parser.reads == 1);
+    }
+  }
+
+  @Test
+  public void testChangedLog() throws Exception {
+    Path path = copy("res/test/log1.txt");
+    CountingReader parser = new CountingReader(LogSection.all());
+    CachingLogReader reader = new CachingLogReader(parser);
+    assertTrue(reader.read(path).getRuns().size() == 1);
+
+    Files.write(path, Files.readAllBytes(path), StandardOpenOption.APPEND);
+    Files.setLastModifiedTime(path, FileTime.fromMillis(Files.getLastModifiedTime(path).toMillis() + 2000));
+    assertTrue(reader.read(path).getRuns().size() == 2);
+    assertTrue(parser.reads == 2);
+  }
+
+  @Test
+  public void testProjection() throws Exception {
+    Path path = copy("res/test/log1.txt");
+    CountingReader chart = new CountingReader(LogSection.chart());
+    CountingReader all = new CountingReader(LogSection.all());
+    new CachingLogReader(chart).read(path);
+    // chart cache does not have all the sections
+    LogModel log = new CachingLogReader(all).read(path);
+    assertTrue(log.getRuns().get(0).getGenerations().get(0).demes.size() == 5);
+    // full cache can be used for the chart
+    new CachingLogReader(chart).read(path);
+    assertTrue(chart.reads == 1 && all.reads == 1);
+  }
+
+  @Test
+  public void testBrokenCache() throws Exception {
+    Path path = copy("res/test/log2.txt");
+    CachingLogReader reader = new CachingLogReader(new CountingReader(LogSection.all()));
+    reader.read(path);
+    byte[] cache = Files.readAllBytes(reader.cacheFile(path));
+    Files.write(reader.cacheFile(path), Arrays.copyOf(cache, cache.length / 2));
+    assertTrue(reader.read(path).getRuns().size() == 10);
+  }
+
+  @Test
+  public void testCacheDirectory() throws Exception {
+    Path path = copy("res/test/log_srm.txt");
+    Path directory = Files.createTempDirectory("ecflab-cache-test");
+    directory.toFile().deleteOnExit();
+    CountingReader parser = new CountingReader(LogSection.all());
+    CachingLogReader reader = new CachingLogReader(parser, directory);
+    reader.read(path);
+    Path cache = reader.cacheFile(path);
+    cache.toFile().deleteOnExit();
+    assertTrue(cache.getParent().equals(directory) && Files.exists(cache));
+    LogModelAssert.assertSameLog(new ScannerLogReader().read(new FileInputStream(path.toFile())), reader.read(path));
+    assertTrue(parser.reads == 1);
+  }
+
+  @Test
+  public void testErrorLog() throws Exception {
+    File file = File.createTempFile("ecflab-cache-test", ".txt");
+    file.deleteOnExit();
+    Files.write(file.toPath(), "Error: first\nError: second\n".getBytes());
+    CachingLogReader reader = new CachingLogReader(new CountingReader(LogSection.all()));
+    reader.cacheFile(file.toPath()).toFile().deleteOnExit();
+    String error = reader.read(file.toPath()).getError();
+    assertTrue(reader.read(file.toPath()).getError().equals(error));
+  }
+
+  private static Path copy(String log) throws Exception {
+    Path path = LogModelAssert.copy(log);
+    new CachingLogReader(null).cacheFile(path).toFile().deleteOnExit();
+    return path;
+  }
+
+  private static class CountingReader extends ByteLogReader {
+    int reads;
+
+    CountingReader(Set<LogSection> sections) {
+      super(sections);
+    }
+
+    @Override
+    public LogModel read(Path path) {
+      reads++;
+      return super.read(path);
+    }
+  }
+}
@@ -1,14 +1,20 @@
 package hr.fer.zemris.ecf.lab.engine.log.reader;
 
+import hr.fer.zemris.ecf.lab.engine.log.Deme;
 import hr.fer.zemris.ecf.lab.engine.log.ExperimentRun;
 import hr.fer.zemris.ecf.lab.engine.log.Generation;
 import hr.fer.zemris.ecf.lab.engine.log.LogModel;
+import hr.fer.zemris.ecf.lab.engine.log.Population;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
 import java.io.FileInputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 /**
  * Created by Domagoj on 02/05/15.
@@ -117,4 +123,67 @@ public class DefaultLogReaderTest {
     assertTrue(otherLines.get(0).equals("Termination: fitness value (1e-07) reached"));
     assertTrue(otherLines.get(otherLines.size() - 1).equals("Linear scaling parameters: scale=-1 offset=-4.41615"));
   }
-}
\ No newline at end of file
+
+  @Test
+  public void testEvents() throws Exception {
+    StringBuilder events = new StringBuilder();
+    int[] demes = new int[1];
+    new DefaultLogReader().read(new FileInputStream("res/test/log1.txt"), new LogHandler() {
+      @Override
+      public void runStarted() {
+        events.append("r");
+      }
+
+      @Override
+      public void generation(Generation generation) {
+        assertTrue("Demes given after the generation", demes[0] == generation.demes.size());
+        demes[0] = 0;
+        events.append("g");
+      }
+
+      @Override
+      public void deme(Deme deme) {
+        demes[0]++;
+      }
+
+      @Override
+      public void population(Population population) {
+        events.append("p");
+      }
+
+      @Override
+      public void hallOfFame(String hallOfFame) {
+        events.append("h");
+      }
+
+      @Override
+      public void runFinished() {
+        events.append("f");
+      }
+    });
+    StringBuilder expected = new StringBuilder("r");
+    for (int i = 0; i < 31; i++) {
+      expected.append("pg");
+    }
+    expected.append("hf");
+    assertTrue("Events differ: " + events, events.toString().equals(expected.toString()));
+  }
+
+  @Test
+  public void testErrorEvents() throws Exception {
+    List<String> errors = new ArrayList<>();
+    String log = "Error: first\nGeneration: 0\nError: second\n";
+    new DefaultLogReader().read(new ByteArrayInputStream(log.getBytes()), new LogHandler() {
+      @Override
+      public void error(String line) {
+        errors.add(line);
+      }
+
+      @Override
+      public void runStarted() {
+        fail("Run after error");
+      }
+    });
+    assertTrue(errors.equals(Arrays.asList("Error: first", "Error: second")));
+  }
+}
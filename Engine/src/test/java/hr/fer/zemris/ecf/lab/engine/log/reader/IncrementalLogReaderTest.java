@@ -0,0 +1,102 @@
+package hr.fer.zemris.ecf.lab.engine.log.reader;
+
+import hr.fer.zemris.ecf.lab.engine.log.LogModel;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests reading of the log file that grows between the refreshes.
+ */
+public class IncrementalLogReaderTest {
+
+  @Test
+  public void testGrowingLogs() throws Exception {
+    for (String log : LogModelAssert.LOGS) {
+      byte[] bytes = Files.readAllBytes(Paths.get(log));
+      for (int step : new int[]{37, 500, 4096, bytes.length}) {
+        checkGrowingLog(bytes, step);
+      }
+    }
+  }
+
+  @Test
+  public void testRefreshBeforeFirstRun() throws Exception {
+    File file = File.createTempFile("ecflab-incremental-test", ".txt");
+    file.deleteOnExit();
+    try (FileOutputStream fos = new FileOutputStream(file)) {
+      IncrementalLogReader reader = new IncrementalLogReader(file);
+      assertTrue(reader.refresh().getError().equals("Empty file"));
+      fos.write("-- ECF, version 1.4.1 --\nEvaluating initial population...\nGenera".getBytes());
+      fos.flush();
+      assertTrue(reader.refresh().getError().equals("Empty file"));
+      fos.write("tion: 0\n".getBytes());
+      fos.flush();
+      LogModel log = reader.refresh();
+      assertTrue(log.getRuns().get(0).getGenerations().get(0).id == 0);
+    }
+  }
+
+  private static void checkGrowingLog(byte[] bytes, int step) throws Exception {
+    File file = File.createTempFile("ecflab-incremental-test", ".txt");
+    file.deleteOnExit();
+    IncrementalLogReader reader = new IncrementalLogReader(file);
+    LogModel previous = null;
+    LogModel previousExpected = null;
+    try (FileOutputStream fos = new FileOutputStream(file)) {
+      for (int written = 0; written < bytes.length; ) {
+        int len = Math.min(step, bytes.length - written);
+        fos.write(bytes, written, len);
+        fos.flush();
+        written += len;
+
+        LogModel log = reader.refresh();
+        // only complete lines are parsed while the file is growing
+        int lineEnd = lastLineEnd(bytes, written);
+        assertTrue("Position should be at the end of the last line", reader.getPosition() == lineEnd);
+        LogModel expected = readPrefix(bytes, lineEnd);
+        if (expected != null) {
+          LogModelAssert.assertSameLog(expected, log);
+        }
+        if (previousExpected != null) {
+          // logs that have been given out are not changed by the later refreshes
+          LogModelAssert.assertSameLog(previousExpected, previous);
+        }
+        previous = log;
+        previousExpected = expected;
+      }
+    }
+    LogModel expected = new ScannerLogReader().read(new ByteArrayInputStream(bytes));
+    LogModelAssert.assertSameLog(expected, reader.finish());
+    assertTrue(reader.getPosition() == bytes.length);
+    file.delete();
+  }
+
+  private static int lastLineEnd(byte[] bytes, int len) {
+    for (int i = len - 1; i >= 0; i--) {
+      if (bytes[i] == '\n') {
+        return i + 1;
+      }
+    }
+    return 0;
+  }
+
+  /**
+   * @return Log read by the default reader, null if default reader can not read the prefix
+   */
+  private static LogModel readPrefix(byte[] bytes, int len) {
+    try {
+      return new ScannerLogReader().read(new ByteArrayInputStream(Arrays.copyOf(bytes, len)));
+    } catch (RuntimeException e) {
+      // prefix ends right after the start of the run
+      return null;
+    }
+  }
+}
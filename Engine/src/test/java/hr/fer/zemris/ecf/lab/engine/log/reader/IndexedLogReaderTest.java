@@ -0,0 +1,138 @@
+package hr.fer.zemris.ecf.lab.engine.log.reader;
+
+import hr.fer.zemris.ecf.lab.engine.log.ExperimentRun;
+import hr.fer.zemris.ecf.lab.engine.log.LogIndex;
+import hr.fer.zemris.ecf.lab.engine.log.LogModel;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks generation ranges read through the log index against the whole log read by {@link ScannerLogReader}.
+ */
+public class IndexedLogReaderTest {
+
+  @Test
+  public void testRanges() throws Exception {
+    for (String log : LogModelAssert.LOGS) {
+      LogModel expected = new ScannerLogReader().read(new FileInputStream(log));
+      Path path = copy(log);
+      for (IndexedLogReader reader : new IndexedLogReader[]{
+          new IndexedLogReader(), new IndexedLogReader(LogSection.all(), 1000)}) {
+        assertTrue("Runs num differs", reader.index(path).getRunCount() == expected.getRuns().size());
+        for (int r = 0; r < expected.getRuns().size(); r++) {
+          ExperimentRun run = expected.getRuns().get(r);
+          int count = run.getGenerations().size();
+          LogModelAssert.assertSameRun(run, reader.read(path, r, 0, count));
+          for (int from = 0; from < count; from += 7) {
+            int to = Math.min(count, from + 5);
+            ExperimentRun range = new ExperimentRun(run.getGenerations().subList(from, to));
+            range.setHallOfFame(to == count ? run.getHallOfFame() : null);
+            ExperimentRun actual = reader.read(path, r, from, to);
+            // other lines depend on where the range ends
+            range.setOtherLines(actual.getOtherLines());
+            LogModelAssert.assertSameRun(range, actual);
+          }
+          assertTrue(reader.read(path, r, count, count).getGenerations().isEmpty());
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testSidecarReused() throws Exception {
+    Path path = copy("res/test/log_with_generation_hof.txt");
+    Path sidecar = LogIndex.sidecar(path);
+    assertTrue(!Files.exists(sidecar));
+    IndexedLogReader reader = new IndexedLogReader();
+    LogIndex index = reader.index(path);
+    assertTrue("Sidecar not written", Files.exists(sidecar));
+    assertTrue(index.getGenerationId(0, 1) == 10);
+    assertTrue(index.findGeneration(0, 10) == 1);
+    assertTrue(index.findGeneration(0, 5) == 1);
+
+    LogIndex stored = LogIndex.read(sidecar);
+    assertTrue(stored.isValidFor(path));
+    assertTrue(stored.getGenerationCount(0) == index.getGenerationCount(0));
+    for (int g = 0; g < index.getGenerationCount(0); g++) {
+      assertTrue(stored.getGenerationOffset(0, g) == index.getGenerationOffset(0, g));
+      assertTrue(stored.getGenerationId(0, g) == index.getGenerationId(0, g));
+    }
+
+    // appended run makes the index outdated
+    byte[] bytes = Files.readAllBytes(path);
+    Files.write(path, bytes, StandardOpenOption.APPEND);
+    Files.setLastModifiedTime(path, FileTime.fromMillis(Files.getLastModifiedTime(path).toMillis() + 2000));
+    assertTrue(!stored.isValidFor(path));
+    assertTrue(reader.index(path).getRunCount() == 2);
+    assertTrue(LogIndex.read(sidecar).getRunCount() == 2);
+  }
+
+  @Test
+  public void testIndexedByParse() throws Exception {
+    for (String log : LogModelAssert.LOGS) {
+      LogModel expected = new ScannerLogReader().read(new FileInputStream(log));
+      Path path = copy(log);
+      LogIndex scanned = new IndexedLogReader().index(copy(log));
+      Files.deleteIfExists(LogIndex.sidecar(path));
+      LogModelAssert.assertSameLog(expected, new IndexedLogReader(LogSection.all(), 1000).read(path));
+      assertTrue("Sidecar not written by the parse", Files.exists(LogIndex.sidecar(path)));
+      LogIndex index = LogIndex.read(LogIndex.sidecar(path));
+      assertTrue(index.isValidFor(path) && index.getRunCount() == scanned.getRunCount());
+      for (int r = 0; r < index.getRunCount(); r++) {
+        assertTrue(index.getRunOffset(r) == scanned.getRunOffset(r));
+        assertTrue(index.getGenerationCount(r) == scanned.getGenerationCount(r));
+        for (int g = 0; g < index.getGenerationCount(r); g++) {
+          assertTrue(index.getGenerationOffset(r, g) == scanned.getGenerationOffset(r, g));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testMalformedGeneration() throws Exception {
+    File file = File.createTempFile("ecflab-indexed-test", ".txt");
+    file.deleteOnExit();
+    LogIndex.sidecar(file.toPath()).toFile().deleteOnExit();
+    Files.write(file.toPath(), ("Evaluating initial population...\nGeneration: x\n"
+        + new String(Files.readAllBytes(Paths.get("res/test/log1.txt")))).getBytes());
+    LogIndex index = new IndexedLogReader().index(file.toPath());
+    assertTrue(index.getRunCount() == 2 && index.getGenerationCount(0) == 0);
+  }
+
+  @Test
+  public void testBrokenSidecar() throws Exception {
+    Path path = copy("res/test/log2.txt");
+    Files.write(LogIndex.sidecar(path), "broken".getBytes());
+    assertTrue(new IndexedLogReader().index(path).getRunCount() == 10);
+  }
+
+  @Test
+  public void testErrorLog() throws Exception {
+    File file = File.createTempFile("ecflab-indexed-test", ".txt");
+    file.deleteOnExit();
+    LogIndex.sidecar(file.toPath()).toFile().deleteOnExit();
+    Files.write(file.toPath(), ("Error: bad parameter\n" + new String(Files.readAllBytes(Paths.get("res/test/log1.txt"))))
+        .getBytes());
+    assertTrue(new IndexedLogReader().index(file.toPath()).getRunCount() == 0);
+  }
+
+  @Test(expected = IndexOutOfBoundsException.class)
+  public void testInvalidRange() throws Exception {
+    new IndexedLogReader().read(copy("res/test/log1.txt"), 0, 5, 100);
+  }
+
+  private static Path copy(String log) throws Exception {
+    Path path = LogModelAssert.copy(log);
+    LogIndex.sidecar(path).toFile().deleteOnExit();
+    return path;
+  }
+}
@@ -0,0 +1,92 @@
+package hr.fer.zemris.ecf.lab.engine.log.reader;
+
+import hr.fer.zemris.ecf.lab.engine.log.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Deep comparison of two {@link LogModel}s, used for checking readers against the {@link ScannerLogReader}, and the
+ * test logs the readers are checked on.
+ */
+class LogModelAssert {
+
+  static final String[] LOGS = {
+      "res/test/log1.txt",
+      "res/test/log2.txt",
+      "res/test/log3.txt",
+      "res/test/log_with_generation_hof.txt",
+      "res/test/log_with_generation_hof_partial.txt",
+      "res/test/log_srm.txt"
+  };
+
+  /**
+   * Copies the log into a temporary file that is deleted on exit, so the reader can write next to it.
+   */
+  static Path copy(String log) throws IOException {
+    File file = File.createTempFile("ecflab-reader-test", ".txt");
+    file.deleteOnExit();
+    Files.write(file.toPath(), Files.readAllBytes(Paths.get(log)));
+    return file.toPath();
+  }
+
+  static void assertSameLog(LogModel expected, LogModel actual) {
+    assertTrue("Error differs", equal(expected.getError(), actual.getError()));
+    if (expected.getRuns() == null) {
+      assertTrue("Runs should not exist", actual.getRuns() == null);
+      return;
+    }
+    assertTrue("Runs num differs", expected.getRuns().size() == actual.getRuns().size());
+    for (int i = 0; i < expected.getRuns().size(); i++) {
+      assertSameRun(expected.getRuns().get(i), actual.getRuns().get(i));
+    }
+  }
+
+  static void assertSameRun(ExperimentRun expected, ExperimentRun actual) {
+    assertTrue("Hall of fame differs", equal(expected.getHallOfFame(), actual.getHallOfFame()));
+    assertTrue("Other lines differ", equal(expected.getOtherLines(), actual.getOtherLines()));
+    List<Generation> expectedGenerations = expected.getGenerations();
+    List<Generation> actualGenerations = actual.getGenerations();
+    assertTrue("Generations num differs", expectedGenerations.size() == actualGenerations.size());
+    for (int i = 0; i < expectedGenerations.size(); i++) {
+      Generation e = expectedGenerations.get(i);
+      Generation a = actualGenerations.get(i);
+      assertTrue("Generation id differs", e.id == a.id);
+      assertTrue("Elapsed time differs", e.elapsedTime == a.elapsedTime);
+      assertTrue("Generation hall of fame differs", equal(e.hallOfFame, a.hallOfFame));
+      assertTrue("Demes num differs", e.demes.size() == a.demes.size());
+      for (int j = 0; j < e.demes.size(); j++) {
+        Deme ed = e.demes.get(j);
+        Deme ad = a.demes.get(j);
+        assertTrue("Deme id differs", ed.id == ad.id);
+        assertTrue("Deme evaluations differ", ed.evaluations == ad.evaluations);
+        assertSameStats(ed.stats, ad.stats);
+      }
+      assertTrue("Population existence differs", (e.population == null) == (a.population == null));
+      if (e.population != null) {
+        assertTrue("Population evaluations differ", e.population.evaluations == a.population.evaluations);
+        assertSameStats(e.population.stats, a.population.stats);
+      }
+    }
+  }
+
+  private static void assertSameStats(Stats expected, Stats actual) {
+    assertTrue("Stats existence differs", (expected == null) == (actual == null));
+    if (expected != null) {
+      assertTrue("Max differs", Double.compare(expected.max, actual.max) == 0);
+      assertTrue("Min differs", Double.compare(expected.min, actual.min) == 0);
+      assertTrue("Avg differs", Double.compare(expected.avg, actual.avg) == 0);
+      assertTrue("Stdev differs", Double.compare(expected.stdev, actual.stdev) == 0);
+    }
+  }
+
+  private static boolean equal(Object a, Object b) {
+    return a == null ? b == null : a.equals(b);
+  }
+}
@@ -0,0 +1,36 @@
+package hr.fer.zemris.ecf.lab.engine.log.reader;
+
+import hr.fer.zemris.ecf.lab.engine.log.LogModel;
+import org.junit.Test;
+
+import java.io.FileInputStream;
+import java.nio.file.Paths;
+
+/**
+ * Checks that mapped logs are read the same as with {@link ScannerLogReader}, also when mapped in small chunks.
+ */
+public class MappedLogReaderTest {
+
+  @Test
+  public void testSameAsDefault() throws Exception {
+    for (String log : LogModelAssert.LOGS) {
+      LogModel expected = new ScannerLogReader().read(new FileInputStream(log));
+      LogModelAssert.assertSameLog(expected, new MappedLogReader().read(Paths.get(log)));
+    }
+  }
+
+  @Test
+  public void testChunks() throws Exception {
+    for (String log : LogModelAssert.LOGS) {
+      LogModel expected = new ScannerLogReader().read(new FileInputStream(log));
+      for (long chunkSize : new long[]{100, 1000, 4096}) {
+        LogModelAssert.assertSameLog(expected, new MappedLogReader(LogSection.all(), chunkSize).read(Paths.get(log)));
+      }
+    }
+  }
+
+  @Test(expected = LogReadingException.class)
+  public void testMissingFile() throws Exception {
+    new MappedLogReader().read(Paths.get("res/test/no_such_log.txt"));
+  }
+}
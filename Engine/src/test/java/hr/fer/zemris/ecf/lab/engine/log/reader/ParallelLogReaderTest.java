@@ -0,0 +1,82 @@
+package hr.fer.zemris.ecf.lab.engine.log.reader;
+
+import hr.fer.zemris.ecf.lab.engine.log.LogModel;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that logs parsed run by run in parallel are the same as when parsed by {@link ScannerLogReader}.
+ */
+public class ParallelLogReaderTest {
+
+  @Test
+  public void testSameAsDefault() throws Exception {
+    ForkJoinPool pool = new ForkJoinPool(4);
+    for (String log : LogModelAssert.LOGS) {
+      LogModel expected = new ScannerLogReader().read(new FileInputStream(log));
+      LogModelAssert.assertSameLog(expected, new ParallelLogReader(pool).read(Paths.get(log)));
+      LogModelAssert.assertSameLog(expected, new ParallelLogReader(pool, 1000).read(Paths.get(log)));
+      LogModelAssert.assertSameLog(expected, new ParallelLogReader(pool).read(Files.readAllBytes(Paths.get(log))));
+    }
+    pool.shutdown();
+  }
+
+  @Test
+  public void testManyRuns() throws Exception {
+    StringBuilder sb = new StringBuilder();
+    for (String log : LogModelAssert.LOGS) {
+      sb.append(new String(Files.readAllBytes(Paths.get(log)))).append("\n");
+    }
+    byte[] bytes = sb.toString().getBytes();
+    File file = File.createTempFile("ecflab-parallel-test", ".txt");
+    file.deleteOnExit();
+    Files.write(file.toPath(), bytes);
+
+    LogModel expected = new ScannerLogReader().read(new ByteArrayInputStream(bytes));
+    assertTrue(expected.getRuns().size() > 10);
+    LogModelAssert.assertSameLog(expected, new ParallelLogReader().read(file.toPath()));
+    // runs taken from several mapped windows
+    LogModelAssert.assertSameLog(expected, new ParallelLogReader(ForkJoinPool.commonPool(), 4096).read(file.toPath()));
+
+    // buffer that does not start at 0
+    ByteBuffer buffer = ByteBuffer.allocate(bytes.length + 10);
+    buffer.position(10);
+    buffer.put(bytes);
+    buffer.position(10);
+    LogModelAssert.assertSameLog(expected, new ParallelLogReader().read(buffer));
+    assertTrue(!buffer.hasRemaining());
+    file.delete();
+  }
+
+  @Test
+  public void testErrorBeforeFirstRun() throws Exception {
+    String log = "Error: wrong parameter\n" +
+        "Evaluating initial population...\nGeneration: 0\n" +
+        "Evaluating initial population...\nGeneration: 0\n" +
+        "Error: another one\n";
+    LogModel expected = new ScannerLogReader().read(new ByteArrayInputStream(log.getBytes()));
+    LogModel actual = new ParallelLogReader().read(log.getBytes());
+    assertTrue(actual.errorOccured());
+    LogModelAssert.assertSameLog(expected, actual);
+  }
+
+  @Test
+  public void testRunStartInHallOfFame() throws Exception {
+    String log = "Evaluating initial population...\nGeneration: 0\nBest of run:\n<HallOfFame>\n" +
+        "Evaluating initial population...\n</HallOfFame>\n\n" +
+        "Evaluating initial population...\nGeneration: 0\n";
+    LogModel expected = new ScannerLogReader().read(new ByteArrayInputStream(log.getBytes()));
+    LogModel actual = new ParallelLogReader().read(log.getBytes());
+    assertTrue(actual.getRuns().size() == 2);
+    LogModelAssert.assertSameLog(expected, actual);
+  }
+}
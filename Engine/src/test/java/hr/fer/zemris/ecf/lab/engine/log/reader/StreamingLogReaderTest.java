@@ -0,0 +1,49 @@
+package hr.fer.zemris.ecf.lab.engine.log.reader;
+
+import hr.fer.zemris.ecf.lab.engine.log.LogModel;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests reading of the log given in chunks, as it arrives from the process pipe.
+ */
+public class StreamingLogReaderTest {
+
+  @Test
+  public void testChunks() throws Exception {
+    for (String log : LogModelAssert.LOGS) {
+      byte[] bytes = Files.readAllBytes(Paths.get(log));
+      LogModel expected = new ScannerLogReader().read(new ByteArrayInputStream(bytes));
+      // chunks of 100 KB are bigger than the initial buffer
+      for (int step : new int[]{1, 37, 4096, 100 * 1024, bytes.length}) {
+        StreamingLogReader reader = new StreamingLogReader();
+        for (int fed = 0; fed < bytes.length; fed += step) {
+          reader.feed(bytes, fed, Math.min(step, bytes.length - fed));
+        }
+        LogModelAssert.assertSameLog(expected, reader.finish());
+      }
+    }
+  }
+
+  @Test
+  public void testPartialLog() throws Exception {
+    StreamingLogReader reader = new StreamingLogReader();
+    assertTrue(!reader.feed("-- ECF, version 1.4.1 --".getBytes(), 0, 24));
+    assertTrue(reader.getModel().getError().equals("Empty file"));
+    byte[] bytes = "\nEvaluating initial population...\nGeneration: 0\nElapsed time: 0\n".getBytes();
+    assertTrue(reader.feed(bytes, 0, bytes.length));
+    assertTrue(reader.getModel().getRuns().get(0).getGenerations().get(0).id == 0);
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testFeedAfterFinish() throws Exception {
+    StreamingLogReader reader = new StreamingLogReader();
+    reader.finish();
+    reader.feed(new byte[1], 0, 1);
+  }
+}
@@ -0,0 +1,66 @@
+package hr.fer.zemris.ecf.lab.engine.param;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the copy-on-write copies and the key index of the entry lists.
+ */
+public class EntryListTest {
+
+  @Test
+  public void testSharedCopy() {
+    EntryList original = list("a", "1", "b", "2", "c", "3");
+    EntryList copy = original.copy();
+    assertTrue("Copy should share the entries", copy.getEntries().get(0) == original.getEntries().get(0));
+
+    copy.setValue("b", "20");
+    assertTrue(copy.getValue("b").equals("20") && original.getValue("b").equals("2"));
+    assertTrue("Unchanged entries should still be shared", copy.getEntries().get(2) == original.getEntries().get(2));
+
+    copy.getEntryWithKey("a").value = "10";
+    assertTrue("Changed copy should not change the original", original.getValue("a").equals("1"));
+    original.getEntryWithKey("c").value = "30";
+    assertTrue("Changed original should not change the copy", copy.getValue("c").equals("3"));
+  }
+
+  @Test
+  public void testIndex() {
+    EntryList list = list("a", "1", "b", "2", "a", "3");
+    assertTrue("First entry with the key should be found", list.getValue("a").equals("1"));
+    assertTrue(list.getEntryWithKey("x") == null && list.getValue("x") == null);
+
+    list.getEntryList().add(new Entry("x", "4"));
+    assertTrue("Added entry should be found", list.getValue("x").equals("4"));
+    list.getEntryList().remove(0);
+    assertTrue("Removed entry should not be found", list.getValue("a").equals("3"));
+  }
+
+  @Test
+  public void testConfigurationCopy() {
+    Configuration conf = new Configuration();
+    conf.algorithms.add(new EntryBlock("alg", list("a", "1").getEntryList()));
+    conf.genotypes.add(new ArrayList<>(Arrays.asList(new EntryBlock("gen1", list("b", "2").getEntryList()))));
+    conf.genotypes.add(new ArrayList<>(Arrays.asList(new EntryBlock("gen2", list("c", "3").getEntryList()))));
+    conf.registry = list("d", "4");
+
+    Configuration copy = conf.copy();
+    copy.genotypes.get(1).get(0).setValue("c", "30");
+    assertTrue(copy.genotypes.size() == 2 && copy.genotypes.get(1).get(0).getName().equals("gen2"));
+    assertTrue(conf.genotypes.get(1).get(0).getValue("c").equals("3"));
+    assertTrue(copy.algorithms.get(0).getEntries().get(0) == conf.algorithms.get(0).getEntries().get(0));
+  }
+
+  private static EntryList list(String... keyValues) {
+    List<Entry> entries = new ArrayList<>();
+    for (int i = 0; i < keyValues.length; i += 2) {
+      entries.add(new Entry(keyValues[i], keyValues[i + 1]));
+    }
+    return new EntryList(entries);
+  }
+}
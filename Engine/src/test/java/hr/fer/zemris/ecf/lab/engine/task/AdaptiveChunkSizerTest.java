@@ -0,0 +1,59 @@
+package hr.fer.zemris.ecf.lab.engine.task;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks chunk sizes for short and long repeats, with jobs simulated as overhead + repeats * repeat time.
+ */
+public class AdaptiveChunkSizerTest {
+
+  @Test
+  public void testShortRepeats() throws Exception {
+    // 100 ms overhead, 100 ms repeats: overhead is 5% of the job with 19 repeats
+    List<Integer> chunks = simulate(1000, 4, 100, 100);
+    assertTrue(chunks.get(0) == 1);
+    assertTrue("Chunks should grow to 19: " + chunks, chunks.contains(19));
+    for (int chunk : chunks) {
+      assertTrue("Chunk too big: " + chunks, chunk <= 19);
+    }
+    // chunks shrink towards the end
+    assertTrue(chunks.get(chunks.size() - 1) == 1);
+  }
+
+  @Test
+  public void testLongRepeats() throws Exception {
+    // 10 minute repeats, overhead does not matter
+    List<Integer> chunks = simulate(20, 4, 100, 600000);
+    for (int chunk : chunks) {
+      assertTrue("Chunks should have 1 repeat: " + chunks, chunk <= 2);
+    }
+  }
+
+  @Test
+  public void testTail() throws Exception {
+    AdaptiveChunkSizer sizer = new AdaptiveChunkSizer(10, 4, 0.05);
+    sizer.nextChunk();
+    sizer.finished(1, 1000);
+    // remaining 9 repeats, at most ceil(9 / 8) = 2 for the next job
+    assertTrue(sizer.nextChunk() == 2);
+  }
+
+  private static List<Integer> simulate(int repeats, int slots, long overhead, long repeatTime) {
+    AdaptiveChunkSizer sizer = new AdaptiveChunkSizer(repeats, slots, 0.05);
+    List<Integer> chunks = new ArrayList<>();
+    int total = 0;
+    int chunk;
+    while ((chunk = sizer.nextChunk()) > 0) {
+      chunks.add(chunk);
+      total += chunk;
+      sizer.finished(chunk, overhead + chunk * repeatTime);
+    }
+    assertTrue(total == repeats);
+    return chunks;
+  }
+}
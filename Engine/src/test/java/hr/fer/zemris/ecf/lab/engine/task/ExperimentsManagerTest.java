@@ -3,19 +3,32 @@ package hr.fer.zemris.ecf.lab.engine.task;
 import hr.fer.zemris.ecf.lab.engine.conf.ConfigurationService;
 import hr.fer.zemris.ecf.lab.engine.conf.xml.XmlConfigurationReader;
 import hr.fer.zemris.ecf.lab.engine.conf.xml.XmlConfigurationWriter;
+import hr.fer.zemris.ecf.lab.engine.console.Console;
+import hr.fer.zemris.ecf.lab.engine.console.DetachedJobs;
 import hr.fer.zemris.ecf.lab.engine.console.DetectOS;
 import hr.fer.zemris.ecf.lab.engine.console.Job;
+import hr.fer.zemris.ecf.lab.engine.console.ProcessOutput;
 import hr.fer.zemris.ecf.lab.engine.log.LogModel;
 import hr.fer.zemris.ecf.lab.engine.param.Configuration;
+import hr.fer.zemris.ecf.lab.engine.param.Entry;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
@@ -141,6 +154,522 @@ public class ExperimentsManagerTest {
         }
     }
 
+    @Test
+    public void testRunSweep() throws Exception {
+        Set<String> executed = Collections.newSetFromMap(new ConcurrentHashMap<>());
+        CountDownLatch finished = new CountDownLatch(20);
+        Console console = new Console() {
+            @Override
+            public void pardump(String ecfPath, String pardumpPath) {
+            }
+
+            @Override
+            public void execute(Job job) {
+                job.started();
+                executed.add(job.getConfigPath());
+                job.finished(new ProcessOutput(new ByteArrayInputStream(new byte[0]), new ByteArrayInputStream(new byte[0])));
+            }
+
+            @Override
+            public void execute(Job job, File stdoutFile, File stderrFile) {
+                execute(job);
+            }
+
+            @Override
+            public void stream(Job job, File stdoutFile) {
+                execute(job);
+            }
+        };
+        JobListener listener = new JobListener() {
+            @Override
+            public void jobInitialized(Job job) {
+            }
+
+            @Override
+            public void jobStarted(Job job) {
+            }
+
+            @Override
+            public void jobPartiallyFinished(Job job, LogModel log) {
+            }
+
+            @Override
+            public void jobFinished(Job job, LogModel log) {
+                finished.countDown();
+            }
+
+            @Override
+            public void jobFailed(Job job) {
+            }
+        };
+
+        File dir = Files.createTempDirectory("ecflab-sweep-test").toFile();
+        dir.deleteOnExit();
+        List<Configuration> confs = new ArrayList<>();
+        List<String> confPaths = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            confs.add(ConfigurationService.getInstance().getReader().readArchive(new File("res/test/parallel/parameters.xml")));
+            File confFile = new File(dir, "conf" + i + ".xml");
+            confFile.deleteOnExit();
+            confPaths.add(confFile.getPath());
+        }
+
+        JobScheduler.getInstance().setDaemon(true);
+        JobScheduler.getInstance().setSlots(4);
+        new ExperimentsManager(listener, console).runSweep(confs, "ecf", confPaths, false);
+        assertTrue("Not all jobs finished", finished.await(10, TimeUnit.SECONDS));
+
+        // every repeat of every configuration is a separate job
+        assertTrue("Jobs: " + executed.size(), executed.size() == 20);
+        for (String confPath : confPaths) {
+            for (int runId = 1; runId <= 10; runId++) {
+                assertTrue(executed.contains(confPath + ".part__" + runId));
+                assertFalse("Part configuration should be deleted", new File(confPath + ".part__" + runId).exists());
+            }
+        }
+        JobScheduler.getInstance().setSlots(Runtime.getRuntime().availableProcessors());
+    }
+
+    @Test
+    public void testChunkedRepeats() throws Exception {
+        FakeEcf ecf = new FakeEcf(0);
+        ExperimentsManager manager = new ExperimentsManager(new NoopListener(), ecf);
+        manager.setChunks(4);
+        File dir = runBatch(manager, 10);
+
+        // 10 repeats in 4 jobs: 3 + 3 + 3 + 1
+        assertTrue("Repeats per job: " + ecf.repeats, ecf.repeats.size() == 4 && Collections.frequency(ecf.repeats, 3) == 3);
+        checkMerged(dir, 10);
+        List<String> log = Files.readAllLines(new File(dir, "log.txt").toPath());
+        assertTrue(log.get(0).equals("part 1 run 1") && log.get(3).equals("part 4 run 1") && log.get(9).equals("part 10 run 1"));
+    }
+
+    @Test
+    public void testAdaptiveChunks() throws Exception {
+        FakeEcf ecf = new FakeEcf(20);
+        ExperimentsManager manager = new ExperimentsManager(new NoopListener(), ecf);
+        manager.setAdaptiveChunks(0.05);
+        File dir = runBatch(manager, 40);
+
+        // first jobs run 1 repeat, later ones grow
+        assertTrue("Repeats per job: " + ecf.repeats, ecf.repeats.get(0) == 1 && ecf.repeats.size() < 40);
+        assertTrue(ecf.repeats.stream().mapToInt(Integer::intValue).sum() == 40);
+        checkMerged(dir, 40);
+    }
+
+    @Test
+    public void testCancelledAdaptiveChunks() throws Exception {
+        ExperimentsManager[] manager = new ExperimentsManager[1];
+        FakeEcf ecf = new FakeEcf(20) {
+            @Override
+            public void execute(Job job) {
+                if (job.getRunId() == 3) {
+                    // no more chunks are given out
+                    manager[0].cancelAll();
+                }
+                super.execute(job);
+            }
+        };
+        File journalFile = File.createTempFile("ecflab-journal", ".txt");
+        journalFile.deleteOnExit();
+        journalFile.delete();
+        manager[0] = new ExperimentsManager(new NoopListener(), ecf);
+        manager[0].setAdaptiveChunks(0.05);
+        manager[0].setJournal(new JobJournal(journalFile));
+        File dir = runBatch(manager[0], 40);
+
+        // parts that have finished are merged, the experiment is closed in the journal
+        assertTrue("Part logs should be merged: " + Arrays.toString(dir.list()), dir.list().length == 3);
+        List<String> stats = Files.readAllLines(new File(dir, "stats.txt").toPath());
+        List<String> log = Files.readAllLines(new File(dir, "log.txt").toPath());
+        assertTrue("Stats: " + stats, stats.size() > 1 && stats.size() < 41 && stats.get(1).startsWith("1\t"));
+        assertTrue("Log: " + log, log.size() == stats.size() - 1);
+        assertTrue("Nothing is left to resume", manager[0].resume().getJobs().isEmpty());
+    }
+
+    @Test
+    public void testFailedPartLeftOut() throws Exception {
+        FakeEcf ecf = new FakeEcf(0) {
+            @Override
+            public void execute(Job job) {
+                if (job.getRunId() != 4) {
+                    super.execute(job);
+                    return;
+                }
+                // writes its part log and fails
+                job.started();
+                try {
+                    Configuration conf = ConfigurationService.getInstance().getReader().readArchive(new File(job.getConfigPath()));
+                    Files.write(new File(conf.registry.getValue("log.filename")).toPath(), "part 4 run 1\n".getBytes());
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+                job.failed();
+            }
+        };
+        ExperimentsManager manager = new ExperimentsManager(new NoopListener(), ecf);
+        manager.setChunks(4);
+        File dir = runBatch(manager, 10);
+
+        // 3 + 3 + 3 + 1 repeats, the second part has failed
+        assertTrue("Part logs should be merged: " + Arrays.toString(dir.list()), dir.list().length == 3);
+        List<String> stats = Files.readAllLines(new File(dir, "stats.txt").toPath());
+        assertTrue("Stats: " + stats, stats.size() == 8 && stats.get(4).startsWith("7\t"));
+        List<String> log = Files.readAllLines(new File(dir, "log.txt").toPath());
+        assertTrue("Log: " + log, log.size() == 7 && log.get(3).equals("part 7 run 1"));
+    }
+
+    @Test
+    public void testResultCache() throws Exception {
+        File cacheDir = Files.createTempDirectory("ecflab-results-test").toFile();
+        ResultCache cache = new ResultCache(cacheDir);
+        FakeEcf ecf = new FakeEcf(0);
+        ExperimentsManager manager = new ExperimentsManager(new NoopListener(), ecf);
+        manager.setChunks(4);
+        manager.setResultCache(cache);
+        checkMerged(runBatch(manager, 10, "42"), 10);
+        assertTrue("Jobs should run ECF: " + ecf.repeats, ecf.repeats.size() == 4);
+
+        // 3 + 3 + 3 + 1 repeats with the same seed, 2 different configurations
+        FakeEcf replayed = new FakeEcf(0);
+        manager = new ExperimentsManager(new NoopListener(), replayed);
+        manager.setChunks(4);
+        manager.setResultCache(cache);
+        File dir = runBatch(manager, 10, "42");
+        assertTrue("Results should be replayed: " + replayed.repeats, replayed.repeats.isEmpty());
+        checkMerged(dir, 10);
+
+        manager = new ExperimentsManager(new NoopListener(), replayed);
+        manager.setChunks(4);
+        manager.setResultCache(cache);
+        checkMerged(runBatch(manager, 10, "43"), 10);
+        assertTrue("Other seed should run ECF: " + replayed.repeats, replayed.repeats.size() == 4);
+        cache.clear();
+        cacheDir.delete();
+    }
+
+    @Test
+    public void testLazySweep() throws Exception {
+        File dir = Files.createTempDirectory("ecflab-sweep-test").toFile();
+        dir.deleteOnExit();
+        Configuration conf = ConfigurationService.getInstance().getReader().readArchive(new File("res/test/parallel/parameters.xml"));
+        conf.registry.getEntryWithKey("batch.repeats").value = "1";
+        int points = 50;
+        AtomicInteger taken = new AtomicInteger();
+        Iterator<SweepPoint> sweep = new Iterator<SweepPoint>() {
+            @Override
+            public boolean hasNext() {
+                return taken.get() < points;
+            }
+
+            @Override
+            public SweepPoint next() {
+                int i = taken.incrementAndGet();
+                Configuration point = conf.copy();
+                File log = new File(dir, "log_" + i + ".txt");
+                File stats = new File(dir, "stats_" + i + ".txt");
+                log.deleteOnExit();
+                stats.deleteOnExit();
+                point.registry.getEntryWithKey("log.filename").value = log.getPath();
+                point.registry.getEntryList().add(new Entry("batch.statsfile", stats.getPath()));
+                return new SweepPoint(point, new File(dir, "conf_" + i + ".xml").getPath());
+            }
+        };
+
+        FakeEcf ecf = new FakeEcf(20);
+        ExperimentsManager manager = new ExperimentsManager(new NoopListener(), ecf);
+        JobScheduler.getInstance().setDaemon(true);
+        JobScheduler.getInstance().setSlots(2);
+        ExperimentHandle handle = manager.runSweep(sweep, "ecf", false);
+        assertTrue("Only the first points should be taken: " + taken.get(), taken.get() <= 4);
+        for (int i = 0; i < 400 && !handle.isDone(); i++) {
+            Thread.sleep(50);
+        }
+        JobScheduler.getInstance().setSlots(Runtime.getRuntime().availableProcessors());
+
+        assertTrue("Sweep should end once all the points have run", handle.isDone());
+        assertTrue("Every point should run once: " + ecf.repeats.size(), taken.get() == points && ecf.repeats.size() == points);
+        assertTrue(manager.getLastReport().getJobCount() == points);
+        for (File file : dir.listFiles()) {
+            file.delete();
+        }
+    }
+
+    private static File runBatch(ExperimentsManager manager, int repeats) throws Exception {
+        return runBatch(manager, repeats, null);
+    }
+
+    /**
+     * Runs the experiment with the given number of repeats in 2 threads and waits until logs and stats are merged.
+     *
+     * @param seed Random seed, null to keep the seed of the configuration
+     * @return Directory with the merged log (log.txt) and statsfile (stats.txt)
+     */
+    private static File runBatch(ExperimentsManager manager, int repeats, String seed) throws Exception {
+        File dir = Files.createTempDirectory("ecflab-chunks-test").toFile();
+        dir.deleteOnExit();
+        File logFile = new File(dir, "log.txt");
+        File statsFile = new File(dir, "stats.txt");
+        File confFile = new File(dir, "conf.xml");
+        for (File file : new File[]{logFile, statsFile, confFile}) {
+            file.deleteOnExit();
+        }
+        Configuration conf = ConfigurationService.getInstance().getReader().readArchive(new File("res/test/parallel/parameters.xml"));
+        conf.registry.getEntryWithKey("batch.repeats").value = String.valueOf(repeats);
+        conf.registry.getEntryWithKey("log.filename").value = logFile.getPath();
+        conf.registry.getEntryList().add(new Entry("batch.statsfile", statsFile.getPath()));
+        if (seed != null) {
+            conf.registry.getEntryWithKey("randomizer.seed").value = seed;
+        }
+
+        JobScheduler.getInstance().setDaemon(true);
+        manager.runExperiment(conf, "ecf", confFile.getPath(), 2, false);
+
+        // part logs are deleted once they are merged
+        for (int i = 0; i < 200 && (!statsFile.exists() || !logFile.exists() || dir.list().length > 3); i++) {
+            Thread.sleep(50);
+        }
+        return dir;
+    }
+
+    private static void checkMerged(File dir, int repeats) throws Exception {
+        assertTrue("Part logs should be merged: " + Arrays.toString(dir.list()), dir.list().length == 3);
+        List<String> stats = Files.readAllLines(new File(dir, "stats.txt").toPath());
+        assertTrue(stats.size() == repeats + 1);
+        for (int run = 1; run <= repeats; run++) {
+            assertTrue("Global run id expected: " + stats.get(run), stats.get(run).startsWith(run + "\t"));
+        }
+        List<String> log = Files.readAllLines(new File(dir, "log.txt").toPath());
+        assertTrue(log.size() == repeats);
+    }
+
+    /**
+     * Writes the log and the statsfile with local run ids like ECF does.
+     */
+    private static class FakeEcf implements Console {
+        List<Integer> repeats = Collections.synchronizedList(new ArrayList<>());
+        private long overhead;
+
+        FakeEcf(long overhead) {
+            this.overhead = overhead;
+        }
+
+        @Override
+        public void pardump(String ecfPath, String pardumpPath) {
+        }
+
+        @Override
+        public void execute(Job job) {
+            job.started();
+            try {
+                Thread.sleep(overhead);
+                Configuration conf = ConfigurationService.getInstance().getReader().readArchive(new File(job.getConfigPath()));
+                int n = Integer.parseInt(conf.registry.getEntryWithKey("batch.repeats").value);
+                repeats.add(n);
+                StringBuilder log = new StringBuilder();
+                StringBuilder stats = new StringBuilder("runId\tfit_min\tfit_max\tfit_avg\tfit_std\t#evals\ttime\tgen\n");
+                for (int run = 1; run <= n; run++) {
+                    log.append("part ").append(job.getRunId()).append(" run ").append(run).append('\n');
+                    stats.append(run).append("\t1\t2\t1.5\t0.5\t100\t1\t10\n");
+                }
+                Files.write(new File(conf.registry.getEntryWithKey("log.filename").value).toPath(), log.toString().getBytes());
+                Files.write(new File(conf.registry.getEntryWithKey("batch.statsfile").value).toPath(), stats.toString().getBytes());
+            } catch (Exception e) {
+                job.failed();
+                return;
+            }
+            job.finished(new ProcessOutput(new ByteArrayInputStream(new byte[0]), new ByteArrayInputStream(new byte[0])));
+        }
+
+        @Override
+        public void execute(Job job, File stdoutFile, File stderrFile) {
+            execute(job);
+        }
+
+        @Override
+        public void stream(Job job, File stdoutFile) {
+            execute(job);
+        }
+    }
+
+    private static class NoopListener implements JobListener {
+        @Override
+        public void jobInitialized(Job job) {
+        }
+
+        @Override
+        public void jobStarted(Job job) {
+        }
+
+        @Override
+        public void jobPartiallyFinished(Job job, LogModel log) {
+        }
+
+        @Override
+        public void jobFinished(Job job, LogModel log) {
+        }
+
+        @Override
+        public void jobFailed(Job job) {
+        }
+    }
+
+    @Test
+    public void testResume() throws Exception {
+        File dir = Files.createTempDirectory("ecflab-resume-test").toFile();
+        dir.deleteOnExit();
+        File logFile = new File(dir, "log.txt");
+        File statsFile = new File(dir, "stats.txt");
+        File confFile = new File(dir, "conf.xml");
+        File journalFile = File.createTempFile("ecflab-journal", ".txt");
+        for (File file : new File[]{logFile, statsFile, confFile, journalFile}) {
+            file.deleteOnExit();
+        }
+        journalFile.delete();
+        Configuration conf = ConfigurationService.getInstance().getReader().readArchive(new File("res/test/parallel/parameters.xml"));
+        conf.registry.getEntryWithKey("batch.repeats").value = "4";
+        conf.registry.getEntryWithKey("log.filename").value = logFile.getPath();
+        conf.registry.getEntryList().add(new Entry("batch.statsfile", statsFile.getPath()));
+        ConfigurationService.getInstance().getWriter().write(confFile, conf);
+
+        // application died while parts 3 and 4 were running, 1 and 2 had finished
+        JobJournal journal = new JobJournal(journalFile);
+        journal.experiment(confFile.getPath(), "ecf", false, 4, true, 4);
+        for (int part = 1; part <= 4; part++) {
+            journal.part(confFile.getPath(), part, part, 1);
+            journal.state(confFile.getPath(), part, Job.State.RUNNING);
+        }
+        journal.close(confFile.getPath());
+        for (int part = 1; part <= 2; part++) {
+            journal.finished(confFile.getPath(), part, Collections.singletonList(part + "\t1\t2\t1.5\t0.5\t100\t1\t10"));
+            File partLog = new File(Utils.addBeforeExtension(logFile.getPath(), part, 1));
+            Files.write(partLog.toPath(), ("part " + part + " run 1\n").getBytes());
+        }
+
+        FakeEcf ecf = new FakeEcf(0);
+        ExperimentsManager manager = new ExperimentsManager(new NoopListener(), ecf);
+        manager.setJournal(new JobJournal(journalFile));
+        JobScheduler.getInstance().setDaemon(true);
+        ExperimentHandle handle = manager.resume();
+        for (int i = 0; i < 200 && (!handle.isDone() || dir.list().length > 3); i++) {
+            Thread.sleep(50);
+        }
+
+        assertTrue("Only the interrupted parts should run: " + ecf.repeats, ecf.repeats.size() == 2);
+        checkMerged(dir, 4);
+        List<String> log = Files.readAllLines(logFile.toPath());
+        assertTrue("Log: " + log, log.get(0).equals("part 1 run 1") && log.get(3).equals("part 4 run 1"));
+        assertTrue("Nothing is left to resume", manager.resume().getJobs().isEmpty());
+    }
+
+    @Test
+    public void testAbortSiblingsOnError() throws Exception {
+        if (!DetectOS.isUnix() && !DetectOS.isMac()) {
+            return;
+        }
+        File dir = Files.createTempDirectory("ecflab-error-test").toFile();
+        dir.deleteOnExit();
+        File ecf = new File(dir, "ecf");
+        ecf.deleteOnExit();
+        Files.write(ecf.toPath(), "#!/bin/sh\necho 'Error: unknown parameter'\nsleep 30\n".getBytes());
+        assertTrue(ecf.setExecutable(true));
+        File confFile = new File(dir, "conf.xml");
+        confFile.deleteOnExit();
+        Configuration conf = new XmlConfigurationReader().readArchive(new File("res/test/parallel/parameters.xml"));
+
+        Map<Job.State, Integer> ended = new ConcurrentHashMap<>();
+        JobListener listener = new NoopListener() {
+            @Override
+            public void jobFailed(Job job) {
+                ended.merge(Job.State.FAILED, 1, Integer::sum);
+            }
+
+            @Override
+            public void jobCancelled(Job job) {
+                ended.merge(Job.State.CANCELLED, 1, Integer::sum);
+            }
+        };
+        ExperimentsManager manager = new ExperimentsManager(listener, new hr.fer.zemris.ecf.lab.engine.console.Terminal());
+        manager.setAbortSiblingsOnError(true);
+        JobScheduler.getInstance().setDaemon(true);
+        JobScheduler.getInstance().setSlots(1);
+        long start = System.currentTimeMillis();
+        ExperimentHandle handle = manager.runExperiment(conf, ecf.getPath(), confFile.getPath(), 10, false);
+        for (int i = 0; i < 200 && !handle.isDone(); i++) {
+            Thread.sleep(50);
+        }
+        JobScheduler.getInstance().setSlots(Runtime.getRuntime().availableProcessors());
+
+        assertTrue("Experiment should end at once", handle.isDone() && System.currentTimeMillis() - start < 10000);
+        assertTrue("One job should fail, the others should be cancelled: " + ended,
+                ended.get(Job.State.FAILED) == 1 && ended.get(Job.State.CANCELLED) == 9);
+    }
+
+    @Test
+    public void testReattachParts() throws Exception {
+        if (!DetectOS.isUnix() && !DetectOS.isMac()) {
+            return;
+        }
+        File dir = Files.createTempDirectory("ecflab-reattach-test").toFile();
+        File bin = Files.createTempDirectory("ecflab-reattach-bin").toFile();
+        File workspace = new File(bin, "workspace");
+        File go = new File(bin, "go");
+        File logFile = new File(dir, "log.txt");
+        File statsFile = new File(dir, "stats.txt");
+        File confFile = new File(dir, "conf.xml");
+        File ecf = new File(bin, "ecf");
+        for (File file : new File[]{dir, bin, go, logFile, statsFile, confFile, ecf}) {
+            file.deleteOnExit();
+        }
+        // waits until it may end, then writes the log and the statsfile named by its configuration
+        String stats = "\\t1\\t2\\t1.5\\t0.5\\t100\\t1\\t10\\n";
+        Files.write(ecf.toPath(), ("#!/bin/sh\n"
+                + "while [ ! -f '" + go.getPath() + "' ]; do sleep 0.1; done\n"
+                + "log=$(sed -n 's/.*key=\"log.filename\">\\(.*\\)<.*/\\1/p' \"$1\")\n"
+                + "stats=$(sed -n 's/.*key=\"batch.statsfile\">\\(.*\\)<.*/\\1/p' \"$1\")\n"
+                + "printf 'part 3 run 1\\npart 3 run 2\\n' > \"$log\"\n"
+                + "printf 'runId\\tfit_min\\tfit_max\\tfit_avg\\tfit_std\\t#evals\\ttime\\tgen\\n"
+                + "1" + stats + "2" + stats + "' > \"$stats\"\n").getBytes());
+        assertTrue(ecf.setExecutable(true));
+        Configuration conf = ConfigurationService.getInstance().getReader().readArchive(new File("res/test/parallel/parameters.xml"));
+        conf.registry.getEntryWithKey("batch.repeats").value = "4";
+        conf.registry.getEntryWithKey("log.filename").value = logFile.getPath();
+        conf.registry.getEntryList().add(new Entry("batch.statsfile", statsFile.getPath()));
+        ConfigurationService.getInstance().getWriter().write(confFile, conf);
+
+        // earlier session has exited while the second part was running, the first one had finished
+        String confPath = confFile.getPath();
+        File partLog = new File(Utils.addBeforeExtension(logFile.getPath(), 1, 1));
+        partLog.deleteOnExit();
+        Files.write(partLog.toPath(), "part 1 run 1\npart 1 run 2\n".getBytes());
+        workspace.mkdirs();
+        JobJournal journal = new JobJournal(new File(workspace, "journal.txt"));
+        journal.experiment(confPath, ecf.getPath(), false, 2, true, 4);
+        journal.part(confPath, 1, 1, 2);
+        journal.finished(confPath, 1, Arrays.asList("1\t1\t2\t1.5\t0.5\t100\t1\t10", "2\t1\t2\t1.5\t0.5\t100\t1\t10"));
+        journal.part(confPath, 2, 3, 2);
+        journal.state(confPath, 2, Job.State.RUNNING);
+        journal.close(confPath);
+        conf.registry.getEntryWithKey("batch.repeats").value = "2";
+        conf.registry.getEntryWithKey("log.filename").value = Utils.addBeforeExtension(logFile.getPath(), 2, 1);
+        conf.registry.getEntryWithKey("batch.statsfile").value = new File(bin, "stats_2.txt").getPath();
+        ConfigurationService.getInstance().getWriter().write(new File(confPath + ".part__2"), conf);
+        DetachedJobs.launch(workspace, new Job(ecf.getPath(), confPath + ".part__2", true, 3));
+
+        ExperimentsManager manager = new ExperimentsManager(new NoopListener());
+        manager.setDetached(workspace);
+        ExperimentHandle handle = manager.reattach();
+        assertTrue("Running part should be reattached: " + handle.getJobs().size(), handle.getJobs().size() == 1);
+        Files.write(go.toPath(), new byte[0]);
+        for (int i = 0; i < 200 && (!handle.isDone() || dir.list().length > 3); i++) {
+            Thread.sleep(50);
+        }
+        checkMerged(dir, 4);
+        List<String> log = Files.readAllLines(logFile.toPath());
+        assertTrue("Log: " + log, log.get(1).equals("part 1 run 2") && log.get(2).equals("part 3 run 1"));
+        assertTrue("Nothing is left to reattach", manager.reattach().getJobs().isEmpty());
+    }
+
     @Test
     public void testRunSerialExperiment() throws Exception {
         assertTrue(true);
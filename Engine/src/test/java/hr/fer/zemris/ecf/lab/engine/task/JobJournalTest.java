@@ -0,0 +1,66 @@
+package hr.fer.zemris.ecf.lab.engine.task;
+
+import hr.fer.zemris.ecf.lab.engine.console.Job;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that the journal is read back as it was written, also when the application died while writing it.
+ */
+public class JobJournalTest {
+
+  @Test
+  public void testReadBack() throws Exception {
+    File file = File.createTempFile("ecflab-journal", ".txt");
+    file.deleteOnExit();
+    file.delete();
+    JobJournal journal = new JobJournal(file);
+    journal.experiment("conf.xml", "ecf", false, 3, true, 3);
+    journal.part("conf.xml", 1, 1, 1);
+    journal.part("conf.xml", 2, 2, 1);
+    journal.state("conf.xml", 1, Job.State.RUNNING);
+    journal.state("conf.xml", 2, Job.State.RUNNING);
+    journal.finished("conf.xml", 1, Arrays.asList("1\t1\t2\t1.5\t0.5\t100\t1\t10"));
+    journal.serial("other.xml", "ecf", true);
+    // line that has not been written completely
+    Files.write(file.toPath(), "STATE\tconf.xml\t2\tFINI".getBytes(), StandardOpenOption.APPEND);
+
+    List<JobJournal.Experiment> experiments = new ArrayList<>(journal.read());
+    assertTrue("Experiments: " + experiments.size(), experiments.size() == 2);
+    JobJournal.Experiment experiment = experiments.get(0);
+    assertTrue(experiment.confPath.equals("conf.xml") && !experiment.isClosed() && !experiment.isComplete());
+    assertTrue("One repeat has no part yet", experiment.getRemainingRepeats() == 1);
+    List<JobJournal.Part> parts = new ArrayList<>(experiment.getParts());
+    assertTrue(parts.get(0).getState() == Job.State.FINISHED && parts.get(0).getStats().size() == 1);
+    assertTrue("Stats line should keep its tabs", parts.get(0).getStats().get(0).split("\t").length == 8);
+    assertTrue("Partly written state should be ignored", parts.get(1).getState() == Job.State.RUNNING);
+    assertTrue("Serial job has not started", experiments.get(1).isSerial() && !experiments.get(1).isComplete());
+  }
+
+  @Test
+  public void testRestarted() throws Exception {
+    File file = File.createTempFile("ecflab-journal", ".txt");
+    file.deleteOnExit();
+    file.delete();
+    JobJournal journal = new JobJournal(file);
+    journal.experiment("conf.xml", "ecf", false, 1, false, 1);
+    journal.part("conf.xml", 1, 1, 1);
+    journal.experiment("conf.xml", "ecf", false, 1, false, 1);
+    journal.part("conf.xml", 1, 1, 1);
+    journal.finished("conf.xml", 1, new ArrayList<>());
+    journal.close("conf.xml");
+
+    Collection<JobJournal.Experiment> experiments = journal.read();
+    assertTrue("Only the last run of the configuration is kept", experiments.size() == 1);
+    assertTrue(experiments.iterator().next().isComplete());
+  }
+}
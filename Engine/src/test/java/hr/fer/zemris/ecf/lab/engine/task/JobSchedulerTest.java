@@ -0,0 +1,196 @@
+package hr.fer.zemris.ecf.lab.engine.task;
+
+import hr.fer.zemris.ecf.lab.engine.console.Console;
+import hr.fer.zemris.ecf.lab.engine.console.DetectOS;
+import hr.fer.zemris.ecf.lab.engine.console.Job;
+import hr.fer.zemris.ecf.lab.engine.console.Terminal;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that tasks submitted by many experiments never run in more than the scheduler's slots and that waiting tasks
+ * are run longest first, and that running processes do not take a thread each.
+ */
+public class JobSchedulerTest {
+
+  @Test
+  public void testSlots() throws Exception {
+    JobScheduler scheduler = JobScheduler.getInstance();
+    scheduler.setDaemon(true);
+    scheduler.setSlots(3);
+    CountingConsole console = new CountingConsole();
+
+    // 10 experiments with 8 jobs each
+    List<Future<Void>> futures = new ArrayList<>();
+    for (int e = 0; e < 10; e++) {
+      List<Task> tasks = new ArrayList<>();
+      for (int j = 0; j < 8; j++) {
+        tasks.add(new Task(new Job("ecf", "conf" + e + "_" + j), console));
+      }
+      futures.addAll(scheduler.submitAll(tasks));
+    }
+    for (Future<Void> future : futures) {
+      future.get();
+    }
+    assertTrue("All jobs should be run", console.executed.get() == 80);
+    assertTrue("More jobs than slots: " + console.max.get(), console.max.get() <= 3);
+    assertTrue("Slots are not used", console.max.get() > 1);
+    scheduler.setSlots(Runtime.getRuntime().availableProcessors());
+  }
+
+  @Test
+  public void testLongestFirst() throws Exception {
+    JobScheduler scheduler = JobScheduler.getInstance();
+    scheduler.setDaemon(true);
+    scheduler.setSlots(1);
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    List<String> order = Collections.synchronizedList(new ArrayList<>());
+    Console console = new CountingConsole() {
+      @Override
+      public void execute(Job job) {
+        order.add(job.getConfigPath());
+        if (job.getConfigPath().equals("blocker")) {
+          started.countDown();
+          try {
+            release.await();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+        }
+      }
+    };
+
+    // blocks the only slot until all the other tasks are queued
+    Future<Void> blocker = scheduler.submit(new Task(new Job("ecf", "blocker"), console));
+    started.await();
+    double[] predictions = {1, 5, 0, 5, 3};
+    List<Future<Void>> futures = new ArrayList<>();
+    for (int i = 0; i < predictions.length; i++) {
+      Task task = new Task(new Job("ecf", "conf" + i), console);
+      task.setPredictedTime(predictions[i]);
+      futures.add(scheduler.submit(task));
+    }
+    release.countDown();
+    blocker.get();
+    for (Future<Void> future : futures) {
+      future.get();
+    }
+    String expected = "[blocker, conf1, conf3, conf4, conf0, conf2]";
+    assertTrue("Wrong order: " + order, order.toString().equals(expected));
+    scheduler.setSlots(Runtime.getRuntime().availableProcessors());
+  }
+
+  @Test
+  public void testFailingCallback() throws Exception {
+    Task task = new Task(new Job("ecf", "conf0"), new CountingConsole());
+    AtomicInteger done = new AtomicInteger();
+    task.whenDone(() -> {
+      throw new IllegalStateException("Expected");
+    });
+    task.whenDone(done::incrementAndGet);
+    task.start().get();
+    assertTrue("Later callbacks should run", done.get() == 1);
+  }
+
+  @Test
+  public void testPredictedMakespan() {
+    // longest first: {5, 2} and {4, 3} on 2 slots
+    assertTrue(MakespanReport.predictMakespan(new double[]{2, 3, 4, 5}, 2) == 7);
+    assertTrue(MakespanReport.predictMakespan(new double[]{2, 3, 4, 5}, 1) == 14);
+
+    MakespanReport report = new MakespanReport(Collections.singletonList(new Task(new Job("ecf", "conf0"), null)), 1);
+    assertTrue("Job that has not run should not have a time", report.toString().contains("conf0: predicted 0.0 s, "
+        + "actual not run"));
+  }
+
+  @Test
+  public void testThreadsPerProcess() throws Exception {
+    if (!DetectOS.isUnix() && !DetectOS.isMac()) {
+      return;
+    }
+    int processes = 32;
+    JobScheduler scheduler = JobScheduler.getInstance();
+    scheduler.setDaemon(true);
+    scheduler.setSlots(processes);
+    Terminal terminal = new Terminal();
+    List<Task> tasks = new ArrayList<>();
+    for (int i = 0; i < processes; i++) {
+      tasks.add(new Task(new Job("sleep", "1"), terminal));
+    }
+    int threadsBefore = ecfThreads();
+    List<Future<Void>> futures = scheduler.submitAll(tasks);
+    int maxThreads = 0;
+    while (!futures.get(futures.size() - 1).isDone()) {
+      maxThreads = Math.max(maxThreads, ecfThreads());
+      Thread.sleep(50);
+    }
+    for (Future<Void> future : futures) {
+      future.get();
+    }
+    for (Task task : tasks) {
+      assertTrue("Job should be finished", task.getJob().getState() == Job.State.FINISHED);
+    }
+    // supervisor, timeouts, the completion pool and the launchers
+    int newThreads = maxThreads - threadsBefore;
+    assertTrue("New threads: " + newThreads, newThreads <= Runtime.getRuntime().availableProcessors() + 4);
+    scheduler.setSlots(Runtime.getRuntime().availableProcessors());
+  }
+
+  private static int ecfThreads() {
+    int count = 0;
+    for (Thread thread : Thread.getAllStackTraces().keySet()) {
+      if (thread.getName().startsWith("ecf-")) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidSlots() throws Exception {
+    JobScheduler.getInstance().setSlots(0);
+  }
+
+  private static class CountingConsole implements Console {
+    AtomicInteger running = new AtomicInteger();
+    AtomicInteger max = new AtomicInteger();
+    AtomicInteger executed = new AtomicInteger();
+
+    @Override
+    public void pardump(String ecfPath, String pardumpPath) {
+    }
+
+    @Override
+    public void execute(Job job) {
+      int now = running.incrementAndGet();
+      max.accumulateAndGet(now, Math::max);
+      try {
+        Thread.sleep(5);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      running.decrementAndGet();
+      executed.incrementAndGet();
+    }
+
+    @Override
+    public void execute(Job job, File stdoutFile, File stderrFile) {
+      execute(job);
+    }
+
+    @Override
+    public void stream(Job job, File stdoutFile) {
+      execute(job);
+    }
+  }
+}
@@ -0,0 +1,91 @@
+package hr.fer.zemris.ecf.lab.engine.task;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that logs are parsed only when they grow, that bursts of changes are coalesced and that the refresh interval
+ * adapts to the load.
+ */
+public class RefreshSchedulerTest {
+
+  @Test
+  public void testNextInterval() {
+    long min = RefreshScheduler.MIN_INTERVAL;
+    long max = RefreshScheduler.MAX_INTERVAL;
+    assertTrue("Log that does not grow backs off", RefreshScheduler.nextInterval(min, 0, 0, 1, 1) == 2 * min);
+    assertTrue("Back off is bounded", RefreshScheduler.nextInterval(max, 0, 0, 1, 1) == max);
+    assertTrue("Cheap refresh", RefreshScheduler.nextInterval(4 * min, 100, 10, 1, 1) == min);
+    // 200 jobs, 20 ms each, on 2 threads at most half of the time
+    assertTrue("Many jobs", RefreshScheduler.nextInterval(min, 100, 20, 200, 2) == 4000);
+    assertTrue("Load is bounded", RefreshScheduler.nextInterval(min, 100, 1000, 200, 2) == max);
+  }
+
+  @Test
+  public void testRefreshOnlyGrowingLog() throws Exception {
+    File file = File.createTempFile("ecflab-refresh-test", ".txt");
+    file.deleteOnExit();
+    AtomicInteger refreshes = new AtomicInteger();
+    RefreshScheduler.Refresh refresh = RefreshScheduler.getInstance().schedule(file, refreshes::incrementAndGet);
+    try {
+      refresh.run();
+      assertTrue("Empty log should not be parsed", refreshes.get() == 0);
+      Files.write(file.toPath(), "line\n".getBytes(), StandardOpenOption.APPEND);
+      refresh.run();
+      assertTrue("Grown log should be parsed", refreshes.get() == 1);
+      refresh.run();
+      assertTrue("Unchanged log should not be parsed", refreshes.get() == 1);
+      assertTrue("Interval should grow", refresh.getInterval() > RefreshScheduler.MIN_INTERVAL);
+    } finally {
+      refresh.cancel();
+    }
+  }
+
+  @Test
+  public void testCoalescedChanges() throws Exception {
+    File file = File.createTempFile("ecflab-refresh-test", ".txt");
+    file.deleteOnExit();
+    AtomicInteger refreshes = new AtomicInteger();
+    RefreshScheduler.Refresh refresh = RefreshScheduler.getInstance().schedule(file, refreshes::incrementAndGet);
+    try {
+      Files.write(file.toPath(), "line\n".getBytes(), StandardOpenOption.APPEND);
+      for (int i = 0; i < 10; i++) {
+        refresh.changed();
+      }
+      Thread.sleep(RefreshScheduler.COALESCE_DELAY * 5);
+      assertTrue("Burst should cause one refresh: " + refreshes.get(), refreshes.get() == 1);
+    } finally {
+      refresh.cancel();
+    }
+  }
+
+  @Test
+  public void testFileChangeNotifier() throws Exception {
+    File dir = Files.createTempDirectory("ecflab-watch-test").toFile();
+    dir.deleteOnExit();
+    File file = new File(dir, "stdout.txt");
+    file.deleteOnExit();
+    Files.write(file.toPath(), new byte[0]);
+    CountDownLatch changed = new CountDownLatch(1);
+    FileChangeNotifier.Registration registration = FileChangeNotifier.getInstance().register(file, changed::countDown);
+    if (registration == null) {
+      // no watch service, logs are only polled
+      return;
+    }
+    try {
+      Files.write(file.toPath(), "line\n".getBytes(), StandardOpenOption.APPEND);
+      // some watch services poll, e.g. every 10 s
+      assertTrue("Change should be reported", changed.await(30, TimeUnit.SECONDS));
+    } finally {
+      registration.cancel();
+    }
+  }
+}
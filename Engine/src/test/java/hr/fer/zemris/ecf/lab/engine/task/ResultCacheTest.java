@@ -0,0 +1,89 @@
+package hr.fer.zemris.ecf.lab.engine.task;
+
+import hr.fer.zemris.ecf.lab.engine.conf.xml.XmlConfigurationReader;
+import hr.fer.zemris.ecf.lab.engine.param.Configuration;
+import hr.fer.zemris.ecf.lab.engine.param.Entry;
+import hr.fer.zemris.ecf.lab.engine.param.EntryBlock;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the keys of the result cache and that stored results are read back.
+ */
+public class ResultCacheTest {
+
+  private Configuration conf = new XmlConfigurationReader().readArchive(new File("res/test/parallel/parameters.xml"));
+
+  @Test
+  public void testKey() throws Exception {
+    ResultCache cache = new ResultCache(Files.createTempDirectory("ecflab-results").toFile());
+    assertTrue("Seed 0 is taken from the time", cache.key(conf, "ecf") == null);
+
+    seed(conf, "42");
+    Configuration other = conf.copy();
+    Utils.findEntry(other.registry.getEntryList(), "log.filename").value = "other.txt";
+    assertTrue("Output files should not change the key", cache.key(conf, "ecf").equals(cache.key(other, "ecf")));
+    Utils.findEntry(other.registry.getEntryList(), "batch.repeats").value = "3";
+    assertTrue("Repeats should change the key", !cache.key(conf, "ecf").equals(cache.key(other, "ecf")));
+    other = conf.copy();
+    seed(other, "43");
+    assertTrue("Seed should change the key", !cache.key(conf, "ecf").equals(cache.key(other, "ecf")));
+
+    File ecf = File.createTempFile("ecflab-ecf", ".bin");
+    ecf.deleteOnExit();
+    Files.write(ecf.toPath(), new byte[]{1, 2, 3});
+    String key = cache.key(conf, ecf.getPath());
+    Files.write(ecf.toPath(), new byte[]{1, 2, 3, 4});
+    assertTrue("Changed ECF binary should change the key", !key.equals(cache.key(conf, ecf.getPath())));
+  }
+
+  @Test
+  public void testCanonicalBoundaries() throws Exception {
+    EntryBlock a = new EntryBlock("A", new ArrayList<>(Collections.singletonList(new Entry("size", "1"))));
+    EntryBlock b = new EntryBlock("B", new ArrayList<>(Collections.singletonList(new Entry("size", "2"))));
+    Configuration together = new Configuration();
+    together.genotypes.add(Arrays.asList(a, b));
+    Configuration apart = new Configuration();
+    apart.genotypes.add(Collections.singletonList(a));
+    apart.genotypes.add(Collections.singletonList(b));
+    assertTrue("Genotype lists should be told apart", !ConfigurationHash.canonical(together, Collections.emptySet())
+        .equals(ConfigurationHash.canonical(apart, Collections.emptySet())));
+
+    // value that looks like the next entry
+    Configuration forged = new Configuration();
+    forged.genotypes.add(Collections.singletonList(
+        new EntryBlock("A", new ArrayList<>(Collections.singletonList(new Entry("size", "1\nsize=2"))))));
+    Configuration two = new Configuration();
+    two.genotypes.add(Collections.singletonList(
+        new EntryBlock("A", new ArrayList<>(Arrays.asList(new Entry("size", "1"), new Entry("size", "2"))))));
+    assertTrue("Values should not forge entries", !ConfigurationHash.canonical(forged, Collections.emptySet())
+        .equals(ConfigurationHash.canonical(two, Collections.emptySet())));
+  }
+
+  @Test
+  public void testPutGet() throws Exception {
+    File dir = Files.createTempDirectory("ecflab-results").toFile();
+    ResultCache cache = new ResultCache(dir);
+    assertTrue(cache.get("abc") == null);
+    cache.put("abc", new ResultCache.Result("out".getBytes(), null, "log".getBytes(), null));
+
+    ResultCache.Result result = new ResultCache(dir).get("abc");
+    assertTrue("Result should be read back", result != null && new String(result.stdout).equals("out")
+        && result.stderr.length == 0 && new String(result.log).equals("log") && result.stats == null);
+    assertTrue("Only the result directory should be left: " + Arrays.toString(dir.list()), dir.list().length == 1);
+    cache.clear();
+    assertTrue(cache.get("abc") == null && dir.list().length == 0);
+    dir.delete();
+  }
+
+  private static void seed(Configuration conf, String seed) {
+    Utils.findEntry(conf.registry.getEntryList(), "randomizer.seed").value = seed;
+  }
+}
@@ -0,0 +1,57 @@
+package hr.fer.zemris.ecf.lab.engine.task;
+
+import hr.fer.zemris.ecf.lab.engine.conf.xml.XmlConfigurationReader;
+import hr.fer.zemris.ecf.lab.engine.param.Configuration;
+import hr.fer.zemris.ecf.lab.engine.stats.StatsParser;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the configuration keys, predictions and the history file of the runtime predictor.
+ */
+public class RuntimePredictorTest {
+
+  private Configuration conf = new XmlConfigurationReader().readArchive(new File("res/test/parallel/parameters.xml"));
+
+  @Test
+  public void testKey() {
+    Configuration other = conf.copy();
+    Utils.findEntry(other.registry.getEntryList(), "log.filename").value = "other.txt";
+    Utils.findEntry(other.registry.getEntryList(), "batch.repeats").value = "3";
+    assertTrue("Output files and repeats should not change the key",
+        RuntimePredictor.key(conf).equals(RuntimePredictor.key(other)));
+    Utils.findEntry(other.registry.getEntryList(), "term.maxgen").value = "500";
+    assertTrue("Parameters should change the key", !RuntimePredictor.key(conf).equals(RuntimePredictor.key(other)));
+  }
+
+  @Test
+  public void testPredict() throws Exception {
+    RuntimePredictor predictor = new RuntimePredictor();
+    assertTrue("Nothing is known", predictor.predict(conf) == 0);
+    predictor.record(conf, 2);
+    predictor.record(conf, 4);
+    assertTrue(predictor.isKnown(conf) && predictor.predict(conf) == 3);
+
+    Configuration other = conf.copy();
+    Utils.findEntry(other.registry.getEntryList(), "term.maxgen").value = "500";
+    assertTrue("Unknown configuration gets the average", !predictor.isKnown(other) && predictor.predict(other) == 3);
+    predictor.recordStats(other, StatsParser.parse("res/test/stats.txt"));
+    assertTrue(predictor.isKnown(other) && predictor.predict(other) > 0);
+  }
+
+  @Test
+  public void testHistoryFile() throws Exception {
+    File file = File.createTempFile("ecflab-runtimes", ".txt");
+    file.deleteOnExit();
+    Path path = file.toPath();
+    RuntimePredictor predictor = new RuntimePredictor(path);
+    predictor.record(conf, 5);
+    predictor.save();
+    RuntimePredictor loaded = new RuntimePredictor(path);
+    assertTrue("History should be loaded", loaded.isKnown(conf) && loaded.predict(conf) == 5);
+  }
+}
@@ -5,6 +5,7 @@ import hr.fer.zemris.ecf.lab.engine.conf.xml.XmlConfigurationReader;
 import hr.fer.zemris.ecf.lab.engine.conf.xml.XmlConfigurationWriter;
 import hr.fer.zemris.ecf.lab.engine.log.LogModel;
 import hr.fer.zemris.ecf.lab.engine.log.reader.LogReaderProvider;
+import hr.fer.zemris.ecf.lab.engine.log.reader.LogSection;
 import hr.fer.zemris.ecf.lab.engine.param.*;
 import hr.fer.zemris.ecf.lab.engine.task.TaskMannager;
 import hr.fer.zemris.ecf.lab.model.info.InfoService;
@@ -20,6 +21,7 @@ import hr.fer.zemris.ecf.lab.model.util.Pair;
 import hr.fer.zemris.ecf.lab.view.display.BrowsePanel;
 import hr.fer.zemris.ecf.lab.view.display.FrameDisplayer;
 import hr.fer.zemris.ecf.lab.view.display.LogDisplayer;
+import hr.fer.zemris.ecf.lab.view.display.ResultProgressFrame;
 import hr.fer.zemris.ecf.lab.view.layout.EntryBlockSelection;
 import hr.fer.zemris.ecf.lab.view.layout.EntryFieldPanel;
 import hr.fer.zemris.ecf.lab.view.layout.EntryListPanel;
@@ -33,7 +35,9 @@ import java.io.*;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -282,6 +286,30 @@ public class ECFLab extends JFrame {
 		action.putValue(Action.SHORT_DESCRIPTION, "Change ECF executable file");
 		actions.put("ChangeECFExe", action);
 
+		action = new AbstractAction("Run detached") {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				ResultProgressFrame.setDetached(((AbstractButton) e.getSource()).isSelected());
+			}
+		};
+		action.putValue(Action.SHORT_DESCRIPTION, "Keep experiments running after ECF Lab exits");
+		actions.put("RunDetached", action);
+
+		action = new AbstractAction("Reattach") {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				reattach();
+			}
+		};
+		action.putValue(Action.SHORT_DESCRIPTION, "Show experiments that were left running by an earlier session");
+		actions.put("Reattach", action);
+
 		action = new AbstractAction("ECF home page") {
 
 			private static final long serialVersionUID = 1L;
@@ -304,7 +332,7 @@ public class ECFLab extends JFrame {
 
 		if (retVal == JOptionPane.OK_OPTION) {
 			try {
-				LogModel log = LogReaderProvider.getReader().read(new FileInputStream(logPathPanel.getText()));
+				LogModel log = LogReaderProvider.getReader(LogSection.chart()).read(Paths.get(logPathPanel.getText()));
 				openResultDisplay.displayLog(log);
 			} catch (Exception e) {
 				LoggerProvider.getLogger().log(e);
@@ -348,8 +376,7 @@ public class ECFLab extends JFrame {
 			File file = fc.getSelectedFile();
 			String path = file.getAbsolutePath();
 			ParametersSelection ps = (ParametersSelection) tabbedPane.getSelectedComponent();
-			List<Pair<Configuration, List<Pair<String, String>>>> configurations = ps.getParameters();
-			saveConfigurations(configurations, path);
+			saveConfigurations(ps.iterateParameters(), path);
 			JOptionPane.showMessageDialog(this, "Saved under name: " + path, "Saved succesfully",
 					JOptionPane.INFORMATION_MESSAGE);
 		}
@@ -362,26 +389,46 @@ public class ECFLab extends JFrame {
 	protected void saveConf() {
 		ParametersSelection ps = (ParametersSelection) tabbedPane.getSelectedComponent();
 		String path = ps.getDefinePanel().getParamsPath();
-		List<Pair<Configuration, List<Pair<String, String>>>> configurations = ps.getParameters();
-		saveConfigurations(configurations, path);
+		saveConfigurations(ps.iterateParameters(), path);
 		tabbedPane.setTitleAt(tabbedPane.getSelectedIndex(), path);
 	}
 
-	private static void saveConfigurations(List<Pair<Configuration, List<Pair<String, String>>>> configurations,
+	private static void saveConfigurations(Iterator<Pair<Configuration, List<Pair<String, String>>>> configurations,
 																				 String path) {
-
-		if (configurations.size() == 1) {
-			ConfigurationService.getInstance().getWriter().write(new File(path), configurations.get(0).getFirst());
+		if (!configurations.hasNext()) {
+			// empty sweep
+			return;
+		}
+		Pair<Configuration, List<Pair<String, String>>> first = configurations.next();
+		if (!configurations.hasNext()) {
+			ConfigurationService.getInstance().getWriter().write(new File(path), first.getFirst());
 		} else {
-			for (Pair<Configuration, List<Pair<String, String>>> pair : configurations) {
-				Configuration conf = pair.getFirst();
-				String desc = DescriptorUtils.mergeDescriptor(pair.getSecond());
-				String newPath = DescriptorUtils.modifiedString(path, desc);
-				ConfigurationService.getInstance().getWriter().write(new File(newPath), conf);
+			// configurations of the sweep are created one by one as they are written
+			saveSweepConfiguration(first, path);
+			while (configurations.hasNext()) {
+				saveSweepConfiguration(configurations.next(), path);
 			}
 		}
 	}
 
+	private static void saveSweepConfiguration(Pair<Configuration, List<Pair<String, String>>> pair, String path) {
+		String desc = DescriptorUtils.mergeDescriptor(pair.getSecond());
+		String newPath = DescriptorUtils.modifiedString(path, desc);
+		ConfigurationService.getInstance().getWriter().write(new File(newPath), pair.getFirst());
+	}
+
+	/**
+	 * Shows the detached jobs of an earlier session in a new results frame.
+	 */
+	protected void reattach() {
+		try {
+			new ResultProgressFrame().reattach();
+		} catch (IOException e) {
+			LoggerProvider.getLogger().log(e);
+			reportError(e.getMessage());
+		}
+	}
+
 	protected void openConf() {
 		try {
 			JFileChooser fc = new JFileChooser(InfoService.getLastSelectedPath());
@@ -514,6 +561,8 @@ public class ECFLab extends JFrame {
 
 		JMenu exeMenu = new JMenu("ECF");
 		exeMenu.add(actions.get("ChangeECFExe"));
+		exeMenu.add(new JCheckBoxMenuItem(actions.get("RunDetached")));
+		exeMenu.add(actions.get("Reattach"));
 		exeMenu.add(actions.get("ecfHomePage"));
 
 		menuBar.add(confMenu);
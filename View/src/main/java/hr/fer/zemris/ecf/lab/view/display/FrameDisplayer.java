@@ -7,6 +7,7 @@ import java.util.List;
 
 import javax.swing.*;
 
+import hr.fer.zemris.ecf.lab.engine.log.ColumnarExperimentRun;
 import hr.fer.zemris.ecf.lab.engine.log.ExperimentRun;
 import hr.fer.zemris.ecf.lab.engine.log.LogModel;
 import hr.fer.zemris.ecf.lab.view.chart.ChartFrame;
@@ -56,23 +57,14 @@ public class FrameDisplayer implements LogDisplayer {
 	}
 
 	private void displayRun(ExperimentRun run) {
-		List<Generation> generations = run.getGenerations();
 		String solution = run.getHallOfFame();
-		int size = generations.size();
 		XYSeries sMinFit = new XYSeries("Min Fit");
 		XYSeries sMaxFit = new XYSeries("Max Fit");
 		XYSeries sAvgFit = new XYSeries("Avg Fit");
-		for (int i = 0; i < size; i++) {
-			Generation generation = generations.get(i);
-			if (generation.population != null) {
-				sMinFit.add(Integer.valueOf(generation.id), Double.valueOf(generation.population.stats.min));
-				sMaxFit.add(Integer.valueOf(generation.id), Double.valueOf(generation.population.stats.max));
-				sAvgFit.add(Integer.valueOf(generation.id), Double.valueOf(generation.population.stats.avg));
-			} else {
-				sMinFit.add(Integer.valueOf(generation.id), Double.valueOf(generation.demes.get(0).stats.min));
-				sMaxFit.add(Integer.valueOf(generation.id), Double.valueOf(generation.demes.get(0).stats.max));
-				sAvgFit.add(Integer.valueOf(generation.id), Double.valueOf(generation.demes.get(0).stats.avg));
-			}
+		if (run instanceof ColumnarExperimentRun) {
+			addSeries((ColumnarExperimentRun) run, sMinFit, sMaxFit, sAvgFit);
+		} else {
+			addSeries(run.getGenerations(), sMinFit, sMaxFit, sAvgFit);
 		}
 		XYSeriesCollection coll = new XYSeriesCollection();
 		coll.addSeries(sMinFit);
@@ -90,4 +82,40 @@ public class FrameDisplayer implements LogDisplayer {
 		frame.setVisible(true);
 	}
 
+	/**
+	 * Reads the series directly from the columns, without creating generation objects. Series are not in a collection
+	 * yet, so change events are not needed.
+	 */
+	private void addSeries(ColumnarExperimentRun run, XYSeries sMinFit, XYSeries sMaxFit, XYSeries sAvgFit) {
+		int size = run.getGenerationCount();
+		for (int i = 0; i < size; i++) {
+			int id = run.getId(i);
+			if (run.hasPopulation(i)) {
+				sMinFit.add(id, run.getPopulationMin(i), false);
+				sMaxFit.add(id, run.getPopulationMax(i), false);
+				sAvgFit.add(id, run.getPopulationAvg(i), false);
+			} else {
+				sMinFit.add(id, run.getDemeMin(i, 0), false);
+				sMaxFit.add(id, run.getDemeMax(i, 0), false);
+				sAvgFit.add(id, run.getDemeAvg(i, 0), false);
+			}
+		}
+	}
+
+	private void addSeries(List<Generation> generations, XYSeries sMinFit, XYSeries sMaxFit, XYSeries sAvgFit) {
+		int size = generations.size();
+		for (int i = 0; i < size; i++) {
+			Generation generation = generations.get(i);
+			if (generation.population != null) {
+				sMinFit.add(Integer.valueOf(generation.id), Double.valueOf(generation.population.stats.min));
+				sMaxFit.add(Integer.valueOf(generation.id), Double.valueOf(generation.population.stats.max));
+				sAvgFit.add(Integer.valueOf(generation.id), Double.valueOf(generation.population.stats.avg));
+			} else {
+				sMinFit.add(Integer.valueOf(generation.id), Double.valueOf(generation.demes.get(0).stats.min));
+				sMaxFit.add(Integer.valueOf(generation.id), Double.valueOf(generation.demes.get(0).stats.max));
+				sAvgFit.add(Integer.valueOf(generation.id), Double.valueOf(generation.demes.get(0).stats.avg));
+			}
+		}
+	}
+
 }
@@ -3,15 +3,23 @@ package hr.fer.zemris.ecf.lab.view.display;
 import hr.fer.zemris.ecf.lab.engine.console.Job;
 import hr.fer.zemris.ecf.lab.engine.log.LogModel;
 import hr.fer.zemris.ecf.lab.engine.param.Configuration;
-import hr.fer.zemris.ecf.lab.engine.param.Entry;
+import hr.fer.zemris.ecf.lab.engine.task.ExperimentHandle;
 import hr.fer.zemris.ecf.lab.engine.task.ExperimentsManager;
 import hr.fer.zemris.ecf.lab.engine.task.JobListener;
+import hr.fer.zemris.ecf.lab.engine.task.JobScheduler;
+import hr.fer.zemris.ecf.lab.engine.task.RuntimePredictor;
+import hr.fer.zemris.ecf.lab.engine.task.SweepPoint;
 import hr.fer.zemris.ecf.lab.model.util.DescriptorUtils;
 import hr.fer.zemris.ecf.lab.model.util.Pair;
 import hr.fer.zemris.ecf.lab.view.layout.TextButtonListFrame;
 
 import javax.swing.*;
+import java.awt.*;
 import java.awt.event.ActionEvent;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -30,14 +38,66 @@ public class ResultProgressFrame extends TextButtonListFrame implements JobListe
   private static final String RUNNING = "Running";
   private static final String FINISHED = "Finished";
   private static final String FAILED = "Failed";
+  private static final String CANCELLED = "Cancelled";
+  private static final RuntimePredictor PREDICTOR =
+      new RuntimePredictor(Paths.get(System.getProperty("user.home"), ".ecflab", "runtimes.txt"));
+  /**
+   * Workspace of the detached jobs, see {@link ExperimentsManager#setDetached(File)}.
+   */
+  public static final File DETACHED_WORKSPACE =
+      Paths.get(System.getProperty("user.home"), ".ecflab", "detached").toFile();
+
+  private static volatile boolean detached;
 
   private ExperimentsManager manager;
+  private volatile ExperimentHandle handle;
   private Map<Job, TextButtonPanel> panelMap = new ConcurrentHashMap<>();
   private Map<Job, LogModel> logMap = new ConcurrentHashMap<>();
 
   public ResultProgressFrame() {
     super("Results");
     manager = new ExperimentsManager(this);
+    manager.setStreaming(true);
+    manager.setRuntimePredictor(PREDICTOR);
+    getContentPane().add(createToolbar(), BorderLayout.NORTH);
+  }
+
+  /**
+   * Toolbar with the action that cancels the shown experiment and the timeout of the jobs that are started later.
+   */
+  private JToolBar createToolbar() {
+    JToolBar toolbar = new JToolBar();
+    toolbar.setFloatable(false);
+    JButton cancel = new JButton(new AbstractAction("Cancel") {
+      @Override
+      public void actionPerformed(ActionEvent e) {
+        ExperimentHandle h = handle;
+        if (h != null) {
+          h.cancel();
+        }
+      }
+    });
+    cancel.setToolTipText("Cancel the jobs of the experiment");
+    toolbar.add(cancel);
+    toolbar.addSeparator();
+    toolbar.add(new JLabel("Job timeout (s): "));
+    JSpinner timeout = new JSpinner(new SpinnerNumberModel(0, 0, Integer.MAX_VALUE, 60));
+    timeout.setToolTipText("Jobs running longer are killed, 0 for no timeout");
+    timeout.addChangeListener(e -> manager.setJobTimeout(((Number) timeout.getValue()).longValue() * 1000));
+    toolbar.add(timeout);
+    return toolbar;
+  }
+
+  /**
+   * @param detached true if the experiments that are started later should keep running after the application exits,
+   *                 they can then be reattached by {@link #reattach()}
+   */
+  public static void setDetached(boolean detached) {
+    ResultProgressFrame.detached = detached;
+  }
+
+  public static boolean isDetached() {
+    return detached;
   }
 
   public void runExperiment(List<Pair<Configuration, List<Pair<String, String>>>> confs,
@@ -45,31 +105,98 @@ public class ResultProgressFrame extends TextButtonListFrame implements JobListe
                             String confPath,
                             int threads,
                             boolean online) {
+    runExperiment(confs.iterator(), ecfPath, confPath, threads, online);
+  }
+
+  /**
+   * Runs the configurations as they are taken from the iterator, so the first jobs of a large sweep start before the
+   * rest of its configurations have been created.
+   */
+  public void runExperiment(Iterator<Pair<Configuration, List<Pair<String, String>>>> confs,
+                            String ecfPath,
+                            String confPath,
+                            int threads,
+                            boolean online) {
+    if (!confs.hasNext()) {
+      // empty sweep
+      return;
+    }
     panel.removeAll();
     panelMap.clear();
     logMap.clear();
-    if (confs.size() == 1) {
-      manager.runExperiment(confs.get(0).getFirst(), ecfPath, confPath, threads, online);
+    // threads are shared by all the experiments, not given to each of them
+    JobScheduler.getInstance().setSlots(threads);
+    manager.setDetached(detached ? DETACHED_WORKSPACE : null);
+    Pair<Configuration, List<Pair<String, String>>> first = confs.next();
+    if (!confs.hasNext()) {
+      handle = manager.runExperiment(first.getFirst(), ecfPath, confPath, threads, online);
     } else {
-      for (Pair<Configuration, List<Pair<String, String>>> confDesc : confs) {
-        // change confPath and log path
-        Configuration conf = confDesc.getFirst();
-        String desc = DescriptorUtils.mergeDescriptor(confDesc.getSecond());
-
-        String newConfPath = DescriptorUtils.modifiedString(confPath, desc);
-        Entry logEntry = conf.registry.getEntryWithKey("log.filename");
-        if (logEntry != null) {
-          logEntry.value = DescriptorUtils.modifiedString(logEntry.value != null ? logEntry.value : "", desc);
+      // all repeats of all configurations share the same queue, configurations are taken as it empties
+      Iterator<SweepPoint> sweep = new Iterator<SweepPoint>() {
+        private Pair<Configuration, List<Pair<String, String>>> next = first;
+
+        @Override
+        public boolean hasNext() {
+          return next != null || confs.hasNext();
         }
 
-        manager.runExperiment(conf, ecfPath, newConfPath, threads, online);
-      }
+        @Override
+        public SweepPoint next() {
+          Pair<Configuration, List<Pair<String, String>>> confDesc = next != null ? next : confs.next();
+          next = null;
+          return sweepPoint(confDesc, confPath);
+        }
+      };
+      handle = manager.runSweep(sweep, ecfPath, online);
     }
     setVisible(true);
   }
 
+  /**
+   * Shows the detached jobs started by an earlier session, they are collected (and their experiments merged) once they
+   * end.
+   *
+   * @throws IOException If the journal of the detached jobs can not be read
+   */
+  public void reattach() throws IOException {
+    panel.removeAll();
+    panelMap.clear();
+    logMap.clear();
+    manager.setDetached(DETACHED_WORKSPACE);
+    handle = manager.reattach();
+    setVisible(true);
+  }
+
+  /**
+   * Changes the configuration's log path and gives it its own configuration path, both named by its descriptor.
+   */
+  private static SweepPoint sweepPoint(Pair<Configuration, List<Pair<String, String>>> confDesc, String confPath) {
+    Configuration conf = confDesc.getFirst();
+    String desc = DescriptorUtils.mergeDescriptor(confDesc.getSecond());
+
+    String newConfPath = DescriptorUtils.modifiedString(confPath, desc);
+    String logFilename = conf.registry.getValue("log.filename");
+    if (logFilename != null) {
+      // the other entries are still shared with the rest of the sweep
+      conf.registry.setValue("log.filename", DescriptorUtils.modifiedString(logFilename, desc));
+    }
+    return new SweepPoint(conf, newConfPath);
+  }
+
+  /**
+   * Jobs created as the earlier ones finish are initialized on other threads, their panels are added on the EDT, which
+   * also numbers the panels in order.
+   */
   @Override
   public void jobInitialized(Job job) {
+    if (SwingUtilities.isEventDispatchThread()) {
+      addPanel(job);
+    } else {
+      SwingUtilities.invokeLater(() -> addPanel(job));
+    }
+  }
+
+  private void addPanel(Job job) {
     int cnt = panel.getComponentCount();
     TextButtonPanel jpp = createComp("Experiment " + (cnt + 1));
     jpp.setButtonText(INITIALIZED);
@@ -119,11 +246,23 @@ public class ResultProgressFrame extends TextButtonListFrame implements JobListe
 
   @Override
   public void jobFailed(Job job) {
+    ended(job, FAILED);
+  }
+
+  @Override
+  public void jobCancelled(Job job) {
+    ended(job, CANCELLED);
+  }
+
+  private void ended(Job job, String text) {
     SwingUtilities.invokeLater(() -> {
       if (panelMap.containsKey(job)) {
         TextButtonPanel jpp = panelMap.get(job);
-        jpp.setButtonText(FAILED);
+        jpp.setButtonText(text);
+        if (job.getError() != null) {
+          jpp.getButton().setToolTipText(job.getError());
+        }
       }
     });
- }
+  }
 }
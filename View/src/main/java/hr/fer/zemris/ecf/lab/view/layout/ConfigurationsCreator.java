@@ -3,6 +3,7 @@ package hr.fer.zemris.ecf.lab.view.layout;
 import hr.fer.zemris.ecf.lab.engine.param.Configuration;
 import hr.fer.zemris.ecf.lab.model.util.Pair;
 
+import java.util.Iterator;
 import java.util.List;
 
 /**
@@ -13,4 +14,13 @@ public interface ConfigurationsCreator {
       List<MultiEntryBlock> algorithmList,
       List<List<MultiEntryBlock>> genotypeListBlock,
       MultiEntryBlock registry);
+
+  /**
+   * Same configurations as {@link #createConfigurations(List, List, MultiEntryBlock)}, in the same order, but each of
+   * them is created only when it is taken from the iterator.
+   */
+  Iterator<Pair<Configuration, List<Pair<String, String>>>> iterateConfigurations(
+      List<MultiEntryBlock> algorithmList,
+      List<List<MultiEntryBlock>> genotypeListBlock,
+      MultiEntryBlock registry);
 }
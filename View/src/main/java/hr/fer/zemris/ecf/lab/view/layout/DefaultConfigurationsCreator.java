@@ -3,11 +3,14 @@ package hr.fer.zemris.ecf.lab.view.layout;
 import hr.fer.zemris.ecf.lab.engine.param.Configuration;
 import hr.fer.zemris.ecf.lab.engine.param.Entry;
 import hr.fer.zemris.ecf.lab.engine.param.EntryBlock;
+import hr.fer.zemris.ecf.lab.engine.param.EntryList;
 import hr.fer.zemris.ecf.lab.model.util.Pair;
 
 import java.util.ArrayList;
-import java.util.LinkedList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Function;
 
 /**
  * Created by dstankovic on 3/1/16.
@@ -15,11 +18,13 @@ import java.util.List;
 public class DefaultConfigurationsCreator implements ConfigurationsCreator {
   private static class EntryPair {
     MultiEntry multiEntry;
-    Entry entry; // reference matters (way to change template configuration)
+    Function<Configuration, EntryList> block; // finds the entry's block in a copy of the template configuration
+    int index; // position of the entry in its block
 
-    public EntryPair(MultiEntry multiEntry, Entry entry) {
+    public EntryPair(MultiEntry multiEntry, Function<Configuration, EntryList> block, int index) {
       this.multiEntry = multiEntry;
-      this.entry = entry;
+      this.block = block;
+      this.index = index;
     }
   }
 
@@ -27,46 +32,76 @@ public class DefaultConfigurationsCreator implements ConfigurationsCreator {
   public List<Pair<Configuration, List<Pair<String, String>>>> createConfigurations(List<MultiEntryBlock> algorithmList,
                                                                                     List<List<MultiEntryBlock>> genotypeListBlock,
                                                                                     MultiEntryBlock registry) {
+    List<Pair<Configuration, List<Pair<String, String>>>> configurations = new ArrayList<>();
+    Iterator<Pair<Configuration, List<Pair<String, String>>>> it =
+        iterateConfigurations(algorithmList, genotypeListBlock, registry);
+    while (it.hasNext()) {
+      configurations.add(it.next());
+    }
+    return configurations;
+  }
+
+  @Override
+  public Iterator<Pair<Configuration, List<Pair<String, String>>>> iterateConfigurations(
+      List<MultiEntryBlock> algorithmList,
+      List<List<MultiEntryBlock>> genotypeListBlock,
+      MultiEntryBlock registry) {
     List<EntryPair> multiEntryPairs = new ArrayList<>();
 
     Configuration configuration = createTemplateConfiguration(
         multiEntryPairs, algorithmList, genotypeListBlock, registry
     );
 
-    return createAllConfigurations(configuration, multiEntryPairs);
+    return new SweepIterator(configuration, multiEntryPairs);
   }
 
-  private static List<Pair<Configuration, List<Pair<String, String>>>> createAllConfigurations(
-      Configuration configuration,
-      List<EntryPair> multiEntryPairs) {
+  /**
+   * Walks the Cartesian product of the values like an odometer, the last entry changes fastest. Only the template
+   * configuration is kept, every combination is its copy-on-write copy with the swept values set, so it shares all the
+   * other entries with the template.
+   */
+  private static class SweepIterator implements Iterator<Pair<Configuration, List<Pair<String, String>>>> {
+    private Configuration configuration;
+    private List<EntryPair> multiEntryPairs;
+    private int[] indexes;
+    private boolean hasNext = true;
+
+    SweepIterator(Configuration configuration, List<EntryPair> multiEntryPairs) {
+      this.configuration = configuration;
+      this.multiEntryPairs = multiEntryPairs;
+      this.indexes = new int[multiEntryPairs.size()];
+    }
 
-    List<Pair<Configuration, List<Pair<String, String>>>> configurations = new ArrayList<>();
-    solve(configurations, configuration, multiEntryPairs, new LinkedList<>(), 0);
-    return configurations;
-  }
+    @Override
+    public boolean hasNext() {
+      return hasNext;
+    }
 
-  private static void solve(List<Pair<Configuration, List<Pair<String, String>>>> configurations,
-                            Configuration configuration,
-                            List<EntryPair> multiEntryPairs,
-                            List<Pair<String, String>> descriptors,
-                            int index) {
-    if (index >= multiEntryPairs.size()) {
+    @Override
+    public Pair<Configuration, List<Pair<String, String>>> next() {
+      if (!hasNext) {
+        throw new NoSuchElementException();
+      }
       Configuration config = configuration.copy();
-      List<Pair<String, String>> descriptorList = new ArrayList<>(descriptors.size());
-      for (Pair<String, String> desc : descriptors) {
-        descriptorList.add(desc.shallowCopy());
+      List<Pair<String, String>> descriptorList = new ArrayList<>(indexes.length);
+      for (int i = 0; i < indexes.length; i++) {
+        EntryPair pair = multiEntryPairs.get(i);
+        String value = pair.multiEntry.values.get(indexes[i]);
+        pair.block.apply(config).setValueAt(pair.index, value);
+        descriptorList.add(new Pair<>(pair.multiEntry.key, value));
       }
-      configurations.add(new Pair<>(config, descriptorList));
-      return;
+      advance();
+      return new Pair<>(config, descriptorList);
     }
-    EntryPair pair = multiEntryPairs.get(index);
-    List<String> values = pair.multiEntry.values;
-    for (String value : values) {
-      Entry entry = pair.entry;
-      entry.value = value;
-      descriptors.add(new Pair<>(pair.multiEntry.key, value));
-      solve(configurations, configuration, multiEntryPairs, descriptors, index + 1);
-      descriptors.remove(descriptors.size() - 1);
+
+    private void advance() {
+      for (int i = indexes.length - 1; i >= 0; i--) {
+        if (++indexes[i] < multiEntryPairs.get(i).multiEntry.values.size()) {
+          return;
+        }
+        indexes[i] = 0;
+      }
+      hasNext = false;
     }
   }
 
@@ -77,26 +112,30 @@ public class DefaultConfigurationsCreator implements ConfigurationsCreator {
     Configuration configuration = new Configuration();
 
     for (MultiEntryBlock algorithmBlock : algorithmList) {
-      EntryBlock entryBlock = extractBlock(algorithmBlock, multiEntryPairs);
+      int index = configuration.algorithms.size();
+      EntryBlock entryBlock = extractBlock(algorithmBlock, multiEntryPairs, c -> c.algorithms.get(index));
       configuration.algorithms.add(entryBlock);
     }
 
     for (List<MultiEntryBlock> genotypeBlock : genotypeListBlock) {
+      int genotype = configuration.genotypes.size();
       List<EntryBlock> blocks = new ArrayList<>();
       for (MultiEntryBlock algorithmBlock : genotypeBlock) {
-        EntryBlock entryBlock = extractBlock(algorithmBlock, multiEntryPairs);
+        int index = blocks.size();
+        EntryBlock entryBlock = extractBlock(algorithmBlock, multiEntryPairs, c -> c.genotypes.get(genotype).get(index));
         blocks.add(entryBlock);
       }
       configuration.genotypes.add(blocks);
     }
 
-    EntryBlock entryBlock = extractBlock(registry, multiEntryPairs);
+    EntryBlock entryBlock = extractBlock(registry, multiEntryPairs, c -> c.registry);
     configuration.registry = entryBlock;
 
     return configuration;
   }
 
-  private static EntryBlock extractBlock(MultiEntryBlock multiEntryBlock, List<EntryPair> multiEntryPairs) {
+  private static EntryBlock extractBlock(MultiEntryBlock multiEntryBlock, List<EntryPair> multiEntryPairs,
+                                         Function<Configuration, EntryList> block) {
     List<Entry> entryList = new ArrayList<>(multiEntryBlock.getEntries().size());
     EntryBlock entryBlock = new EntryBlock(multiEntryBlock.getName(), entryList);
     for (MultiEntry multiEntry : multiEntryBlock.getEntries()) {
@@ -106,7 +145,7 @@ public class DefaultConfigurationsCreator implements ConfigurationsCreator {
       }
       Entry entry = new Entry(multiEntry.key, multiEntry.desc, multiEntry.values.get(0));
       if (values.size() > 1) {
-        multiEntryPairs.add(new EntryPair(multiEntry, entry));
+        multiEntryPairs.add(new EntryPair(multiEntry, block, entryList.size()));
       }
       entryList.add(entry);
     }
@@ -10,6 +10,7 @@ import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 
 /**
@@ -65,7 +66,7 @@ public class ParametersSelection extends JPanel {
    * are written to the log file under the specified path.
    */
   protected void runClicked() {
-    List<Pair<Configuration, List<Pair<String, String>>>> confs = getParameters();
+    Iterator<Pair<Configuration, List<Pair<String, String>>>> confs = iterateParameters();
     String ecfPath = InfoService.getEcfPath();
     String confPath = definePanel.getParamsPath();
     int threads = definePanel.getThreadsCount();
@@ -81,6 +82,22 @@ public class ParametersSelection extends JPanel {
    * parameters
    */
   public List<Pair<Configuration, List<Pair<String, String>>>> getParameters() {
+    List<Pair<Configuration, List<Pair<String, String>>>> confs = new ArrayList<>();
+    Iterator<Pair<Configuration, List<Pair<String, String>>>> it = iterateParameters();
+    while (it.hasNext()) {
+      confs.add(it.next());
+    }
+    return confs;
+  }
+
+  /**
+   * Same as {@link #getParameters()}, but every configuration of the sweep is
+   * created only when it is taken from the iterator. Selected parameters are
+   * read at once, so the iterator can be used outside of the event thread.
+   *
+   * @return Iterator of the configurations with their descriptors
+   */
+  public Iterator<Pair<Configuration, List<Pair<String, String>>>> iterateParameters() {
     // Algorithm filling
     List<EntryFieldDisplay<EntryBlock>> algList = algSel.getAddedEntries();
     List<MultiEntryBlock> algs = new ArrayList<>(algList.size());
@@ -108,7 +125,7 @@ public class ParametersSelection extends JPanel {
     MultiEntryBlock reg = new MultiEntryBlock(null, entries);
 
     ConfigurationsCreator configurationsCreator = ConfigurationsCreatorFactory.create();
-    return configurationsCreator.createConfigurations(algs, genBlock, reg);
+    return configurationsCreator.iterateConfigurations(algs, genBlock, reg);
   }
 
   /**
@@ -6,6 +6,7 @@ import org.junit.Assert;
 import org.junit.Test;
 
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 
 /**
@@ -42,6 +43,47 @@ public class DefaultConfigurationsCreatorTest {
     }
   }
 
+  @Test
+  public void testIterateConfigurations() throws Exception {
+    DefaultConfigurationsCreator creator = new DefaultConfigurationsCreator();
+    List<MultiEntryBlock> algorithmList = new ArrayList<>(1);
+    algorithmList.add(createMultiEntryBlock("alg-A", 2, 1));
+    List<List<MultiEntryBlock>> genotypeListBlock = new ArrayList<>(1);
+    genotypeListBlock.add(new ArrayList<>());
+    MultiEntryBlock registry = createMultiEntryBlock("reg", 1, 3);
+
+    // last entry changes fastest
+    String[][] expected = {
+        {"alg-A-1 1", "reg-2 1"},
+        {"alg-A-1 1", "reg-2 2"},
+        {"alg-A-1 1", "reg-2 3"},
+        {"alg-A-1 2", "reg-2 1"},
+        {"alg-A-1 2", "reg-2 2"},
+        {"alg-A-1 2", "reg-2 3"}
+    };
+    Iterator<Pair<Configuration, List<Pair<String, String>>>> it =
+        creator.iterateConfigurations(algorithmList, genotypeListBlock, registry);
+    for (String[] values : expected) {
+      Assert.assertTrue(it.hasNext());
+      Configuration conf = it.next().getFirst();
+      Assert.assertTrue(conf.algorithms.get(0).getEntryAt(0).value.equals(values[0]));
+      Assert.assertTrue(conf.algorithms.get(0).getEntryAt(1).value.equals("alg-A-2 1"));
+      Assert.assertTrue(conf.registry.getEntryAt(0).value.equals("reg-1 1"));
+      Assert.assertTrue(conf.registry.getEntryAt(1).value.equals(values[1]));
+    }
+    Assert.assertFalse(it.hasNext());
+
+    List<Pair<Configuration, List<Pair<String, String>>>> configurations =
+        creator.createConfigurations(algorithmList, genotypeListBlock, registry);
+    Assert.assertTrue(configurations.size() == expected.length);
+    for (int i = 0; i < expected.length; i++) {
+      Pair<Configuration, List<Pair<String, String>>> pair = configurations.get(i);
+      Assert.assertTrue(pair.getFirst().algorithms.get(0).getEntryAt(0).value.equals(expected[i][0]));
+      Assert.assertTrue(pair.getFirst().registry.getEntryAt(1).value.equals(expected[i][1]));
+      Assert.assertTrue(pair.getSecond().size() == 2);
+    }
+  }
+
   private static MultiEntryBlock createMultiEntryBlock(String name, int... counts) {
     List<MultiEntry> regEntries = new ArrayList<>(counts.length);
     for (int i = 0; i < counts.length; i++) {